@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.Date;
+import java.util.Properties;
+import java.util.UUID;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.Task;
+
+/**
+ * Builds the Quartz objects that are normally created by the scheduler thread when a trigger fires.
+ */
+final class BenchmarkFixtures {
+    private BenchmarkFixtures() {
+        // no instantiation allowed
+    }
+
+    static Scheduler newScheduler() throws SchedulerException {
+        Properties properties = QuartzProperties.from(new SchedulerConfig());
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "benchmark-" + UUID.randomUUID());
+        return new StdSchedulerFactory(properties).getScheduler();
+    }
+
+    static TriggerFiredBundle newFiredBundle(Class<? extends Task> taskClass) {
+        JobDetail jobDetail = newJob(TaskDefinition.computeDelegateClass(taskClass))
+                .withIdentity(UUID.randomUUID().toString(), taskClass.getName())
+                .usingJobData("key", "value")
+                .build();
+        OperableTrigger trigger = (OperableTrigger) newTrigger()
+                .withIdentity(UUID.randomUUID().toString(), taskClass.getName())
+                .forJob(jobDetail)
+                .startNow()
+                .build();
+        Date now = new Date();
+        trigger.computeFirstFireTime(null);
+        // assigned by the job store when the trigger fires
+        trigger.setFireInstanceId(UUID.randomUUID().toString());
+        return new TriggerFiredBundle(jobDetail, trigger, null, false, now, now, null, null);
+    }
+
+    static JobExecutionContext newContext(Scheduler scheduler, TriggerFiredBundle bundle, Job job) {
+        return new JobExecutionContextImpl(scheduler, bundle, job);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.CronExpression;
+
+/**
+ * Compares the computation of the next fire time of a cron expression by Quartz and by its compiled form, as well as
+ * the cost of obtaining the expression when building a trigger (parsing versus cache lookup).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CronBenchmark {
+    @Param({"0 */5 * * * ?", "0 0 12 ? * MON-FRI", "0 15 10 1,15 * ?"})
+    private String expression;
+    @Param({"UTC", "Europe/Paris"})
+    private String timeZoneId;
+    private TimeZone timeZone;
+    private CronExpression cronExpression;
+    private CompiledCronExpression compiledCronExpression;
+    private Date afterTime;
+
+    @Setup
+    public void setUp() throws ParseException {
+        timeZone = TimeZone.getTimeZone(timeZoneId);
+        cronExpression = new CronExpression(expression);
+        cronExpression.setTimeZone(timeZone);
+        compiledCronExpression = CompiledCronExpression.of(expression, timeZone);
+        // away from daylight saving time transitions
+        afterTime = new Date(1623758400000L);
+    }
+
+    @Benchmark
+    public Date quartzNextFireTime() {
+        return cronExpression.getTimeAfter(afterTime);
+    }
+
+    @Benchmark
+    public Date compiledNextFireTime() {
+        return compiledCronExpression.getTimeAfter(afterTime);
+    }
+
+    @Benchmark
+    public CronExpression quartzParse() throws ParseException {
+        CronExpression parsed = new CronExpression(expression);
+        parsed.setTimeZone(timeZone);
+        return parsed;
+    }
+
+    @Benchmark
+    public CompiledCronExpression compiledLookup() throws ParseException {
+        return CompiledCronExpression.of(expression, timeZone);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seedstack.scheduler.codec.BinaryDataMapCodec;
+import org.seedstack.scheduler.codec.DataMapCodec;
+import org.seedstack.scheduler.codec.JsonDataMapCodec;
+
+/**
+ * Measures the encoding and decoding of a typical job data map with the data map codecs, compared to the Java
+ * serialization used by Quartz. The size of the encoded map is printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class DataMapCodecBenchmark {
+    @Param({"java", "binary", "json"})
+    private String codec;
+    private DataMapCodec dataMapCodec;
+    private Map<String, Object> dataMap;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        switch (codec) {
+            case "binary":
+                dataMapCodec = new BinaryDataMapCodec();
+                break;
+            case "json":
+                dataMapCodec = new JsonDataMapCodec();
+                break;
+            default:
+                dataMapCodec = new JavaSerializationCodec();
+                break;
+        }
+        dataMap = new HashMap<>();
+        dataMap.put("tenant", "acme");
+        dataMap.put("batchSize", 500);
+        dataMap.put("lastProcessedId", 1234567890123L);
+        dataMap.put("dryRun", false);
+        dataMap.put("regions", Arrays.asList("eu-west", "us-east", "ap-south"));
+        dataMap.put("org.seedstack.scheduler.retryAttempt", "2");
+        encoded = dataMapCodec.encode(dataMap);
+        System.out.println("Encoded data map size with " + codec + " codec: " + encoded.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return dataMapCodec.encode(dataMap);
+    }
+
+    @Benchmark
+    public Map<String, Object> decode() throws IOException {
+        return dataMapCodec.decode(encoded);
+    }
+
+    /**
+     * What Quartz does without a codec.
+     */
+    private static class JavaSerializationCodec implements DataMapCodec {
+        @Override
+        public byte[] encode(Map<String, ?> dataMap) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream outputStream = new ObjectOutputStream(bytes)) {
+                outputStream.writeObject(dataMap);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map<String, Object> decode(byte[] bytes) throws IOException {
+            try (ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return (Map<String, Object>) inputStream.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import com.google.inject.Injector;
+import io.nuun.kernel.api.Kernel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seedstack.scheduler.ScheduledTasks;
+import org.seedstack.seed.core.Seed;
+
+/**
+ * Measures the throughput of no-op tasks scheduled through {@link ScheduledTasks} with an immediate trigger, from
+ * scheduling to the end of execution, on a fully started application using the in-memory job store.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class EndToEndThroughputBenchmark {
+    private static final int TASKS_PER_INVOCATION = 1000;
+    private Kernel kernel;
+    private ScheduledTasks scheduledTasks;
+
+    @Setup
+    public void setUp() {
+        kernel = Seed.createKernel();
+        scheduledTasks = kernel.objectGraph().as(Injector.class).getInstance(ScheduledTasks.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        NoOpTask.executions = null;
+        Seed.disposeKernel(kernel);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS_PER_INVOCATION)
+    public void scheduleAndExecute() throws InterruptedException {
+        CountDownLatch executions = new CountDownLatch(TASKS_PER_INVOCATION);
+        NoOpTask.executions = executions;
+        for (int i = 0; i < TASKS_PER_INVOCATION; i++) {
+            scheduledTasks.scheduledTask(NoOpTask.class)
+                    .withTrigger(newTrigger().startNow().build())
+                    .schedule();
+        }
+        if (!executions.await(1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Scheduled tasks were not all executed in time");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.spi.TriggerFiredBundle;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.metrics.InMemoryTaskMetricsRegistry;
+
+/**
+ * Measures the cost of the Java Flight Recorder events on the path from a fired trigger to the end of the task
+ * execution: job instantiation, listener notifications and execution. The events are either disabled in the
+ * configuration, enabled without recording, or enabled and recorded. Disabled events are expected to be
+ * indistinguishable from the absence of events.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class FlightRecorderBenchmark {
+    @Param({"disabled", "enabled", "recorded"})
+    private String events;
+    private Scheduler scheduler;
+    private GuiceTaskFactory taskFactory;
+    private TriggerFiredBundle firedBundle;
+    private DelegateJobListener delegateJobListener;
+    private AsyncListenerDispatcher asyncListenerDispatcher;
+    private TaskWatchdog taskWatchdog;
+    private Recording recording;
+
+    @Setup
+    public void setUp() throws SchedulerException {
+        boolean enabled = !"disabled".equals(events);
+        FlightRecorderEvents.configure(new SchedulerConfig.FlightRecorderConfig()
+                .setTaskExecution(enabled)
+                .setJobInstantiation(enabled)
+                .setListeners(enabled));
+        if ("recorded".equals(events)) {
+            recording = new Recording();
+            recording.enable(TaskExecutionEvent.class);
+            recording.enable(JobInstantiationEvent.class);
+            recording.enable(TaskListenerEvent.class);
+            recording.start();
+        }
+
+        Injector injector = Guice.createInjector();
+        Map<String, TaskDefinition> taskDefinitions = new ConcurrentHashMap<>();
+        TaskDefinition taskDefinition = new TaskDefinition(NoOpTask.class);
+        taskDefinition.addListenerClass(NoOpTaskListener.class);
+        taskDefinition.resolve(injector);
+        taskDefinitions.put(NoOpTask.class.getName(), taskDefinition);
+
+        InMemoryTaskMetricsRegistry taskMetricsRegistry = new InMemoryTaskMetricsRegistry();
+        ExecutionHistory executionHistory = new ExecutionHistory(new SchedulerConfig.HistoryConfig());
+        asyncListenerDispatcher = new AsyncListenerDispatcher(new SchedulerConfig.AsyncListenersConfig());
+        asyncListenerDispatcher.taskMetricsRegistry = taskMetricsRegistry;
+        taskWatchdog = new TaskWatchdog(new SchedulerConfig.WatchdogConfig());
+        taskWatchdog.taskMetricsRegistry = taskMetricsRegistry;
+        taskWatchdog.executionHistory = executionHistory;
+        delegateJobListener = new DelegateJobListener();
+        delegateJobListener.taskMetricsRegistry = taskMetricsRegistry;
+        delegateJobListener.asyncListenerDispatcher = asyncListenerDispatcher;
+        delegateJobListener.executionHistory = executionHistory;
+        delegateJobListener.taskWatchdog = taskWatchdog;
+
+        scheduler = BenchmarkFixtures.newScheduler();
+        taskFactory = new GuiceTaskFactory(injector, taskDefinitions);
+        firedBundle = BenchmarkFixtures.newFiredBundle(NoOpTask.class);
+    }
+
+    @TearDown
+    public void tearDown() throws SchedulerException {
+        if (recording != null) {
+            recording.close();
+        }
+        FlightRecorderEvents.disable();
+        asyncListenerDispatcher.stop();
+        taskWatchdog.stop();
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public JobExecutionContext fireAndExecute() throws SchedulerException {
+        Job job = taskFactory.newJob(firedBundle, scheduler);
+        JobExecutionContext context = BenchmarkFixtures.newContext(scheduler, firedBundle, job);
+        delegateJobListener.jobToBeExecuted(context);
+        JobExecutionException jobException = null;
+        try {
+            job.execute(context);
+        } catch (JobExecutionException e) {
+            jobException = e;
+        }
+        delegateJobListener.jobWasExecuted(context, jobException);
+        return context;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.Job;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.spi.TriggerFiredBundle;
+
+/**
+ * Measures the creation of the job wrapping a task each time a trigger fires.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JobInstantiationBenchmark {
+    private Scheduler scheduler;
+    private GuiceTaskFactory taskFactory;
+    private TriggerFiredBundle firedBundle;
+
+    @Setup
+    public void setUp() throws SchedulerException {
+        Injector injector = Guice.createInjector();
+        Map<String, TaskDefinition> taskDefinitions = new ConcurrentHashMap<>();
+        TaskDefinition taskDefinition = new TaskDefinition(NoOpTask.class);
+        taskDefinition.resolve(injector);
+        taskDefinitions.put(NoOpTask.class.getName(), taskDefinition);
+
+        scheduler = BenchmarkFixtures.newScheduler();
+        taskFactory = new GuiceTaskFactory(injector, taskDefinitions);
+        firedBundle = BenchmarkFixtures.newFiredBundle(NoOpTask.class);
+    }
+
+    @TearDown
+    public void tearDown() throws SchedulerException {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public Job newJob() throws SchedulerException {
+        return taskFactory.newJob(firedBundle, scheduler);
+    }
+}
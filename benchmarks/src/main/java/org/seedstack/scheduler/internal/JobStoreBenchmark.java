@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.repeatSecondlyForever;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+
+/**
+ * Compares the Quartz in-memory job store and the timing wheel job store holding many triggers firing every second,
+ * spread over the second. Each operation acquires a batch of triggers, fires them (which reschedules them) and completes
+ * them, as the scheduler thread does. The sample time mode reports the percentiles of the time spent per trigger, which
+ * is the lag added to the firing of triggers.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class JobStoreBenchmark {
+    private static final int BATCH_SIZE = 10;
+    private static final long NO_LATER_THAN = Long.MAX_VALUE / 2;
+    private static final long TIME_WINDOW = 1000;
+    @Param({"10000", "100000", "1000000"})
+    private int triggerCount;
+    @Param({"ram", "timingWheel"})
+    private String jobStore;
+    private RAMJobStore store;
+    private JobDetail jobDetail;
+    private JobDetail otherJobDetail;
+    private long nextTriggerId;
+
+    @Setup
+    public void setUp() throws SchedulerException {
+        store = "timingWheel".equals(jobStore) ? new TimingWheelJobStore() : new RAMJobStore();
+        CascadingClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+        store.initialize(loadHelper, new NoOpSignaler());
+        store.schedulerStarted();
+
+        jobDetail = newJob(TaskDefinition.computeDelegateClass(NoOpTask.class))
+                .withIdentity(JobKey.jobKey("job", "benchmark"))
+                .storeDurably()
+                .build();
+        store.storeJob(jobDetail, false);
+        // triggers are looked up by job when unscheduled, so the stored triggers are not attached to the same job
+        otherJobDetail = newJob(TaskDefinition.computeDelegateClass(NoOpTask.class))
+                .withIdentity(JobKey.jobKey("otherJob", "benchmark"))
+                .storeDurably()
+                .build();
+        store.storeJob(otherJobDetail, false);
+        long start = System.currentTimeMillis() + 1000;
+        for (int i = 0; i < triggerCount; i++) {
+            store.storeTrigger(newRepeatingTrigger(jobDetail, start + i % 1000), false);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int acquireAndFire() throws SchedulerException {
+        List<OperableTrigger> triggers = store.acquireNextTriggers(NO_LATER_THAN, BATCH_SIZE, TIME_WINDOW);
+        List<TriggerFiredResult> results = store.triggersFired(triggers);
+        for (OperableTrigger trigger : triggers) {
+            store.triggeredJobComplete(trigger, jobDetail, Trigger.CompletedExecutionInstruction.NOOP);
+        }
+        return results.size();
+    }
+
+    @Benchmark
+    public boolean scheduleAndUnschedule() throws SchedulerException {
+        OperableTrigger trigger = newRepeatingTrigger(otherJobDetail, System.currentTimeMillis() + 500);
+        store.storeTrigger(trigger, false);
+        return store.removeTrigger(trigger.getKey());
+    }
+
+    private OperableTrigger newRepeatingTrigger(JobDetail job, long startTime) {
+        OperableTrigger trigger = (OperableTrigger) newTrigger()
+                .withIdentity("trigger" + nextTriggerId++, "benchmark")
+                .forJob(job)
+                .startAt(new Date(startTime))
+                .withSchedule(repeatSecondlyForever())
+                .build();
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+
+    private static class NoOpSignaler implements SchedulerSignaler {
+        @Override
+        public void notifyTriggerListenersMisfired(Trigger trigger) {
+            // not measured
+        }
+
+        @Override
+        public void notifySchedulerListenersFinalized(Trigger trigger) {
+            // not measured
+        }
+
+        @Override
+        public void notifySchedulerListenersJobDeleted(JobKey jobKey) {
+            // not measured
+        }
+
+        @Override
+        public void signalSchedulingChange(long candidateNewNextFireTime) {
+            // not measured
+        }
+
+        @Override
+        public void notifySchedulerListenersError(String string, SchedulerException jpe) {
+            // not measured
+        }
+    }
+}
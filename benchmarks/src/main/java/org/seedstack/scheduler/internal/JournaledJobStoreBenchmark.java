@@ -0,0 +1,249 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.repeatSecondlyForever;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+
+/**
+ * Measures the journaled job store: the throughput of the changes it journals (scheduling and unscheduling a trigger,
+ * firing and completing triggers of a job requesting recovery) and the time it takes to restore its state from a
+ * journal holding many triggers.
+ */
+public class JournaledJobStoreBenchmark {
+    private static final int BATCH_SIZE = 10;
+    private static final long NO_LATER_THAN = Long.MAX_VALUE / 2;
+    private static final long TIME_WINDOW = 1000;
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(2)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int acquireAndFire(WriteState state) throws SchedulerException {
+        List<OperableTrigger> triggers = state.store.acquireNextTriggers(NO_LATER_THAN, BATCH_SIZE, TIME_WINDOW);
+        List<TriggerFiredResult> results = state.store.triggersFired(triggers);
+        for (OperableTrigger trigger : triggers) {
+            state.store.triggeredJobComplete(trigger, state.jobDetail, Trigger.CompletedExecutionInstruction.NOOP);
+        }
+        return results.size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(2)
+    public boolean scheduleAndUnschedule(WriteState state) throws SchedulerException {
+        OperableTrigger trigger = newRepeatingTrigger("trigger" + state.nextTriggerId++, state.otherJobDetail,
+                System.currentTimeMillis() + 500);
+        state.store.storeTrigger(trigger, false);
+        return state.store.removeTrigger(trigger.getKey());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    @Fork(2)
+    public int recover(RecoveryState state) throws SchedulerException {
+        JournaledJobStore store = newStore(state.directory);
+        try {
+            return store.getNumberOfTriggers();
+        } finally {
+            store.shutdown();
+        }
+    }
+
+    /**
+     * A store with triggers of a job requesting recovery, firing every second and spread over the second.
+     */
+    @State(Scope.Benchmark)
+    public static class WriteState {
+        @Param({"false", "true"})
+        private boolean syncWrites;
+        private Path directory;
+        private JournaledJobStore store;
+        private JobDetail jobDetail;
+        private JobDetail otherJobDetail;
+        private long nextTriggerId;
+
+        @Setup
+        public void setUp() throws IOException, SchedulerException {
+            directory = Files.createTempDirectory("journal");
+            store = new JournaledJobStore();
+            store.setDirectory(directory.toString());
+            store.setSyncWrites(syncWrites);
+            initialize(store);
+            jobDetail = newJob(TaskDefinition.computeDelegateClass(NoOpTask.class))
+                    .withIdentity(JobKey.jobKey("job", "benchmark"))
+                    .requestRecovery()
+                    .storeDurably()
+                    .build();
+            store.storeJob(jobDetail, false);
+            otherJobDetail = newJob(TaskDefinition.computeDelegateClass(NoOpTask.class))
+                    .withIdentity(JobKey.jobKey("otherJob", "benchmark"))
+                    .storeDurably()
+                    .build();
+            store.storeJob(otherJobDetail, false);
+            long start = System.currentTimeMillis() + 1000;
+            for (int i = 0; i < 1000; i++) {
+                store.storeTrigger(newRepeatingTrigger("fired" + i, jobDetail, start + i), false);
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            store.shutdown();
+            delete(directory);
+        }
+    }
+
+    /**
+     * A journal of the scheduling of many triggers, copied before each restore.
+     */
+    @State(Scope.Benchmark)
+    public static class RecoveryState {
+        @Param({"10000", "100000"})
+        private int triggerCount;
+        private Path journal;
+        private Path directory;
+
+        @Setup
+        public void setUp() throws IOException, SchedulerException {
+            journal = Files.createTempDirectory("journal");
+            JournaledJobStore store = newStore(journal);
+            JobDetail jobDetail = newJob(TaskDefinition.computeDelegateClass(NoOpTask.class))
+                    .withIdentity(JobKey.jobKey("job", "benchmark"))
+                    .storeDurably()
+                    .build();
+            store.storeJob(jobDetail, false);
+            long start = System.currentTimeMillis() + 1000;
+            for (int i = 0; i < triggerCount; i++) {
+                store.storeTrigger(newRepeatingTrigger("trigger" + i, jobDetail, start + i % 1000), false);
+            }
+            // not shut down to keep the journal as is
+        }
+
+        @Setup(Level.Invocation)
+        public void copyJournal() throws IOException {
+            directory = Files.createTempDirectory("journal");
+            try (Stream<Path> files = Files.list(journal)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.copy(file, directory.resolve(file.getFileName()));
+                }
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void deleteCopy() throws IOException {
+            delete(directory);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            delete(journal);
+        }
+    }
+
+    private static JournaledJobStore newStore(Path directory) throws SchedulerException {
+        JournaledJobStore store = new JournaledJobStore();
+        store.setDirectory(directory.toString());
+        initialize(store);
+        return store;
+    }
+
+    private static void initialize(JournaledJobStore store) throws SchedulerException {
+        CascadingClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+        store.initialize(loadHelper, new NoOpSignaler());
+        store.schedulerStarted();
+    }
+
+    private static OperableTrigger newRepeatingTrigger(String name, JobDetail job, long startTime) {
+        OperableTrigger trigger = (OperableTrigger) newTrigger()
+                .withIdentity(name, "benchmark")
+                .forJob(job)
+                .startAt(new Date(startTime))
+                .withSchedule(repeatSecondlyForever())
+                .build();
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static class NoOpSignaler implements SchedulerSignaler {
+        @Override
+        public void notifyTriggerListenersMisfired(Trigger trigger) {
+            // not measured
+        }
+
+        @Override
+        public void notifySchedulerListenersFinalized(Trigger trigger) {
+            // not measured
+        }
+
+        @Override
+        public void notifySchedulerListenersJobDeleted(JobKey jobKey) {
+            // not measured
+        }
+
+        @Override
+        public void signalSchedulingChange(long candidateNewNextFireTime) {
+            // not measured
+        }
+
+        @Override
+        public void notifySchedulerListenersError(String string, SchedulerException jpe) {
+            // not measured
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import com.google.inject.Guice;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.metrics.InMemoryTaskMetricsRegistry;
+
+/**
+ * Measures the dispatch of a task execution (before and after notifications) to a varying number of listeners, as
+ * seen from the thread executing the task.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ListenerDispatchBenchmark {
+    @Param({"0", "1", "4", "16"})
+    private int listenerCount;
+    @Param({"false", "true"})
+    private boolean async;
+    private Scheduler scheduler;
+    private AsyncListenerDispatcher asyncListenerDispatcher;
+    private TaskWatchdog taskWatchdog;
+    private DelegateJobListener delegateJobListener;
+    private JobExecutionContext jobExecutionContext;
+
+    @Setup
+    public void setUp() throws SchedulerException {
+        TaskDefinition taskDefinition = new TaskDefinition(NoOpTask.class);
+        for (int i = 0; i < listenerCount; i++) {
+            taskDefinition.addListenerClass(async ? NoOpAsyncTaskListener.class : NoOpTaskListener.class);
+        }
+        taskDefinition.resolve(Guice.createInjector());
+
+        InMemoryTaskMetricsRegistry taskMetricsRegistry = new InMemoryTaskMetricsRegistry();
+        asyncListenerDispatcher = new AsyncListenerDispatcher(new SchedulerConfig.AsyncListenersConfig());
+        asyncListenerDispatcher.taskMetricsRegistry = taskMetricsRegistry;
+        ExecutionHistory executionHistory = new ExecutionHistory(new SchedulerConfig.HistoryConfig());
+        taskWatchdog = new TaskWatchdog(new SchedulerConfig.WatchdogConfig());
+        taskWatchdog.taskMetricsRegistry = taskMetricsRegistry;
+        taskWatchdog.executionHistory = executionHistory;
+        delegateJobListener = new DelegateJobListener();
+        delegateJobListener.taskMetricsRegistry = taskMetricsRegistry;
+        delegateJobListener.asyncListenerDispatcher = asyncListenerDispatcher;
+        delegateJobListener.executionHistory = executionHistory;
+        delegateJobListener.taskWatchdog = taskWatchdog;
+
+        scheduler = BenchmarkFixtures.newScheduler();
+        jobExecutionContext = BenchmarkFixtures.newContext(scheduler,
+                BenchmarkFixtures.newFiredBundle(NoOpTask.class),
+                taskDefinition.newJob());
+    }
+
+    @TearDown
+    public void tearDown() throws SchedulerException {
+        asyncListenerDispatcher.stop();
+        taskWatchdog.stop();
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public void dispatch() {
+        delegateJobListener.jobToBeExecuted(jobExecutionContext);
+        delegateJobListener.jobWasExecuted(jobExecutionContext, null);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.repeatHourlyForever;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+
+/**
+ * Compares the Quartz in-memory job store and the timing wheel job store holding long-interval triggers, firing every
+ * hour, and many short one-shot triggers, firing within the next second. Each operation schedules and unschedules a
+ * one-shot trigger after the scheduler thread has looked for the next trigger to fire, which is the cost of
+ * submitting short delayed tasks while the scheduler is waiting for the long-interval ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class MixedTriggersBenchmark {
+    private static final long IDLE_WAIT_TIME = 30000;
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    @Param({"10000", "100000"})
+    private int triggerCount;
+    @Param({"ram", "timingWheel"})
+    private String jobStore;
+    private RAMJobStore store;
+    private JobDetail jobDetail;
+    private JobDetail otherJobDetail;
+    private long nextTriggerId;
+
+    @Setup
+    public void setUp() throws SchedulerException {
+        store = "timingWheel".equals(jobStore) ? new TimingWheelJobStore() : new RAMJobStore();
+        CascadingClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+        store.initialize(loadHelper, new NoOpSignaler());
+        store.schedulerStarted();
+
+        jobDetail = newJob(TaskDefinition.computeDelegateClass(NoOpTask.class))
+                .withIdentity(JobKey.jobKey("job", "benchmark"))
+                .storeDurably()
+                .build();
+        store.storeJob(jobDetail, false);
+        // triggers are looked up by job when unscheduled, so the stored triggers are not attached to the same job
+        otherJobDetail = newJob(TaskDefinition.computeDelegateClass(NoOpTask.class))
+                .withIdentity(JobKey.jobKey("otherJob", "benchmark"))
+                .storeDurably()
+                .build();
+        store.storeJob(otherJobDetail, false);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < triggerCount; i++) {
+            long startTime = now + 2 * IDLE_WAIT_TIME + i * HOUR / triggerCount;
+            store.storeTrigger(newStoredTrigger(jobDetail, startTime, true), false);
+        }
+        // the scheduler thread finds no trigger to acquire and waits
+        store.acquireNextTriggers(now + IDLE_WAIT_TIME, 1, 0);
+        for (int i = 0; i < triggerCount; i++) {
+            store.storeTrigger(newStoredTrigger(jobDetail, now + 1 + i % 1000, false), false);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Benchmark
+    public boolean scheduleAndUnscheduleOneShot() throws SchedulerException {
+        OperableTrigger trigger = newStoredTrigger(otherJobDetail, System.currentTimeMillis() + 100, false);
+        store.storeTrigger(trigger, false);
+        return store.removeTrigger(trigger.getKey());
+    }
+
+    private OperableTrigger newStoredTrigger(JobDetail job, long startTime, boolean hourly) {
+        TriggerBuilder<Trigger> triggerBuilder = newTrigger()
+                .withIdentity("trigger" + nextTriggerId++, "benchmark")
+                .forJob(job)
+                .startAt(new Date(startTime));
+        OperableTrigger trigger = (OperableTrigger) (hourly
+                ? triggerBuilder.withSchedule(repeatHourlyForever()).build()
+                : triggerBuilder.build());
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+
+    private static class NoOpSignaler implements SchedulerSignaler {
+        @Override
+        public void notifyTriggerListenersMisfired(Trigger trigger) {
+            // not measured
+        }
+
+        @Override
+        public void notifySchedulerListenersFinalized(Trigger trigger) {
+            // not measured
+        }
+
+        @Override
+        public void notifySchedulerListenersJobDeleted(JobKey jobKey) {
+            // not measured
+        }
+
+        @Override
+        public void signalSchedulingChange(long candidateNewNextFireTime) {
+            // not measured
+        }
+
+        @Override
+        public void notifySchedulerListenersError(String string, SchedulerException jpe) {
+            // not measured
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.TaskListener;
+
+/**
+ * Listener reading the task name from the context, which is what most listeners do at the very least.
+ */
+public class NoOpTaskListener implements TaskListener<NoOpTask> {
+    private volatile String lastTaskName;
+
+    @Override
+    public void before(SchedulingContext sc) {
+        lastTaskName = sc.getTaskName();
+    }
+
+    @Override
+    public void after(SchedulingContext sc) {
+        lastTaskName = sc.getTaskName();
+    }
+
+    @Override
+    public void onException(SchedulingContext sc, Exception e) {
+        lastTaskName = sc.getTaskName();
+    }
+
+    String getLastTaskName() {
+        return lastTaskName;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.seedstack.scheduler.SchedulingContext;
+
+/**
+ * Measures the creation of the {@link SchedulingContext} passed to tasks and listeners, alone and when a single
+ * property is read from it, and the retrieval of the context shared by all the listeners of an execution.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SchedulingContextBenchmark {
+    private Scheduler scheduler;
+    private JobExecutionContext jobExecutionContext;
+
+    @Setup
+    public void setUp() throws SchedulerException {
+        scheduler = BenchmarkFixtures.newScheduler();
+        jobExecutionContext = BenchmarkFixtures.newContext(scheduler,
+                BenchmarkFixtures.newFiredBundle(NoOpTask.class),
+                new TaskDelegateJob(new TaskDefinition(NoOpTask.class), new NoOpTask()));
+    }
+
+    @TearDown
+    public void tearDown() throws SchedulerException {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public SchedulingContext create() {
+        return new SchedulingContextImpl(jobExecutionContext);
+    }
+
+    @Benchmark
+    public void createAndReadTaskName(Blackhole blackhole) {
+        blackhole.consume(new SchedulingContextImpl(jobExecutionContext).getTaskName());
+    }
+
+    @Benchmark
+    public SchedulingContext shared() {
+        return SchedulingContextImpl.of(jobExecutionContext);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link TaskListener} as asynchronous: instead of being called on the thread executing the task, it is
+ * notified from a dedicated thread draining a bounded queue of events. Tasks then don't wait for the listener to
+ * complete, which is useful for listeners doing I/O.
+ *
+ * <p>Asynchronous listeners have the following specificities:</p>
+ * <ul>
+ * <li>The {@code before} notification may be received while the task is executing or after it has completed.</li>
+ * <li>Consecutive {@code after} notifications are delivered in batches through
+ * {@link TaskListener#afterAll(java.util.List)}.</li>
+ * <li>Exceptions thrown by the listener are logged and don't affect the task.</li>
+ * <li>When the queue is full, events are dropped or delivered synchronously depending on the
+ * {@code scheduling.asyncListeners.overflowPolicy} configuration.</li>
+ * </ul>
+ *
+ * <pre>
+ * {@literal @}AsyncListener
+ * public class AuditListener implements TaskListener&lt;MyTask&gt; {
+ *     ...
+ * }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface AsyncListener {
+}
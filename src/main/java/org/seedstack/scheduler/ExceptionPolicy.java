@@ -15,6 +15,10 @@ package org.seedstack.scheduler;
  * <dd>Immediately reexecutes the task. Be careful when using this option.
  * If the task will always fail, it will be executed indefinitely.</dd>
  *
+ * <dt><b>RETRY_WITH_BACKOFF</b></dt>
+ * <dd>Executes the task again after a delay growing with each failure, up to a maximum number of attempts
+ * configured with {@link Scheduled#retry()}. The scheduler thread is released between attempts.</dd>
+ *
  * <dt><b>UNSCHEDULE_FIRING_TRIGGER</b></dt>
  * <dd>Unschedules the trigger which fire the task.
  * It could be useful when the job fail due to a specific trigger.</dd>
@@ -34,6 +38,12 @@ public enum ExceptionPolicy {
      */
     REFIRE_IMMEDIATELY,
 
+    /**
+     * Fire the task again after an exponentially growing delay, until it succeeds or the maximum number of attempts
+     * configured with {@link Scheduled#retry()} is reached.
+     */
+    RETRY_WITH_BACKOFF,
+
     /**
      * Unschedule the trigger which fire the task.
      * It could be useful when the job fail due to a specific trigger.
@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the number of concurrent executions of a task class, which protects resources shared by the executions
+ * without serializing them like {@link org.quartz.DisallowConcurrentExecution} does. A limit can also be specified
+ * for a single job when scheduling the task with {@link ScheduledTaskBuilder#withMaxConcurrency(int,
+ * SaturationPolicy)}, in which case the executions of this job are counted separately.
+ *
+ * <p>The limit applies to the executions of the task in the current JVM. When the task fires while the limit is
+ * reached, the {@link SaturationPolicy} decides if the execution is queued, delayed or skipped.</p>
+ *
+ * <pre>
+ * {@literal @}MaxConcurrency(value = 4, saturationPolicy = SaturationPolicy.SKIP)
+ * public class MyTask implements Task {
+ *     ...
+ * }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface MaxConcurrency {
+    /**
+     * @return the maximum number of concurrent executions of the task, at least 1.
+     */
+    int value();
+
+    /**
+     * @return what to do when the task fires while the maximum number of executions is reached.
+     */
+    SaturationPolicy saturationPolicy() default SaturationPolicy.QUEUE;
+
+    /**
+     * @return the delay in milliseconds after which the task is fired again with the
+     * {@link SaturationPolicy#DELAY} policy.
+     */
+    long delay() default 1000;
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Configures the retries of a task using the {@link ExceptionPolicy#RETRY_WITH_BACKOFF} exception policy. The delay
+ * before the retry {@code n} (starting at 1) is {@code initialDelay * multiplier^(n-1)}, randomly increased or
+ * decreased by up to {@code jitter} times itself.
+ *
+ * <pre>
+ * {@literal @}Scheduled(value = "0 0 * * * ?", exceptionPolicy = ExceptionPolicy.RETRY_WITH_BACKOFF,
+ *         retry = {@literal @}Retry(maxAttempts = 5, initialDelay = 2000))
+ * public class MyTask implements Task {
+ *     ...
+ * }
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface Retry {
+    /**
+     * @return the maximum number of executions, including the initial one, at least 1.
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * @return the delay in milliseconds before the first retry.
+     */
+    long initialDelay() default 1000;
+
+    /**
+     * @return the factor applied to the delay after each retry, at least 1.
+     */
+    double multiplier() default 2;
+
+    /**
+     * @return the maximum random variation of each delay, as a fraction of it between 0 and 1.
+     */
+    double jitter() default 0.1;
+}
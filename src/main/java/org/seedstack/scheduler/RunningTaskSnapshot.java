@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import java.util.Date;
+
+/**
+ * A task execution in progress, as part of a {@link SchedulerSnapshot}.
+ */
+public class RunningTaskSnapshot {
+    private final String taskName;
+    private final String group;
+    private final String triggerName;
+    private final long fireDate;
+    private final Long scheduledFireDate;
+    private final long runningTime;
+
+    public RunningTaskSnapshot(String taskName, String group, String triggerName, Date fireDate,
+            Date scheduledFireDate, long runningTime) {
+        this.taskName = taskName;
+        this.group = group;
+        this.triggerName = triggerName;
+        this.fireDate = fireDate.getTime();
+        this.scheduledFireDate = scheduledFireDate != null ? scheduledFireDate.getTime() : null;
+        this.runningTime = runningTime;
+    }
+
+    /**
+     * @return the name of the task.
+     */
+    public String getTaskName() {
+        return taskName;
+    }
+
+    /**
+     * @return the group of the task, which is the name of the task class for the tasks scheduled by the add-on.
+     */
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * @return the name of the trigger which fired the execution.
+     */
+    public String getTriggerName() {
+        return triggerName;
+    }
+
+    /**
+     * @return the date at which the execution started.
+     */
+    public Date getFireDate() {
+        return new Date(fireDate);
+    }
+
+    /**
+     * @return the date at which the execution was scheduled to start or null if it was not scheduled.
+     */
+    public Date getScheduledFireDate() {
+        return scheduledFireDate != null ? new Date(scheduledFireDate) : null;
+    }
+
+    /**
+     * @return the time in milliseconds the execution had been running for when the snapshot was taken.
+     */
+    public long getRunningTime() {
+        return runningTime;
+    }
+
+    @Override
+    public String toString() {
+        return "RunningTaskSnapshot{" + group + "." + taskName + ", fireDate=" + getFireDate() + ", runningTime="
+                + runningTime + "}";
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+/**
+ * This enum describes what happens when a task limited by {@link MaxConcurrency} fires while all its permits are
+ * taken.
+ *
+ * <dl>
+ * <dt><b>QUEUE (Used by default)</b></dt>
+ * <dd>Queues the execution without holding a scheduler thread and fires the task again as soon as a permit is
+ * released.</dd>
+ *
+ * <dt><b>DELAY</b></dt>
+ * <dd>Skips this execution and fires the task again once the configured delay has elapsed.</dd>
+ *
+ * <dt><b>SKIP</b></dt>
+ * <dd>Skips this execution. The task will execute again on the next trigger fire.</dd>
+ * </dl>
+ */
+public enum SaturationPolicy {
+    /**
+     * Queue the execution and fire the task again when a permit is released. The queued execution doesn't hold a
+     * scheduler thread.
+     */
+    QUEUE,
+
+    /**
+     * Skip the execution and fire the task again after a delay.
+     */
+    DELAY,
+
+    /**
+     * Skip the execution. Task will execute again on the next trigger fire.
+     */
+    SKIP
+}
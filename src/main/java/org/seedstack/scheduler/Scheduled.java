@@ -59,6 +59,31 @@ public @interface Scheduled {
      */
     ExceptionPolicy exceptionPolicy() default ExceptionPolicy.NONE;
 
+    /**
+     * Configures the retries of the {@link ExceptionPolicy#RETRY_WITH_BACKOFF} exception policy.
+     *
+     * @return the retry configuration.
+     */
+    Retry retry() default @Retry;
+
+    /**
+     * The maximum duration of an execution of the task in milliseconds, after which the thread executing it is
+     * interrupted and the execution is reported as failed with a {@link TaskTimeoutException}. Zero means no
+     * timeout.
+     *
+     * @return the timeout in milliseconds.
+     */
+    long timeout() default 0;
+
+    /**
+     * The duration of an execution of the task in milliseconds, after which the watchdog considers it stuck, samples
+     * the stack of the thread executing it and reports it to the task listeners. Zero means that the threshold is
+     * derived from the previous execution durations of the task.
+     *
+     * @return the stuck threshold in milliseconds.
+     */
+    long stuckThreshold() default 0;
+
     /**
      * @return the Trigger name, must be unique within the group.
      */
@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+/**
+ * Collects several {@link ScheduledTaskBuilder}s to schedule all their tasks at once. With a persistent job store,
+ * scheduling a batch takes a single transaction instead of one (or more) per task.
+ * <pre>
+ *     ScheduledTaskBatch batch = scheduledTasks.batch();
+ *     for (String tenant : tenants) {
+ *         batch.add(scheduledTasks.scheduledTask(TenantTask.class)
+ *                 .withTaskName(tenant)
+ *                 .withCronExpression("0 0 * * * ?"));
+ *     }
+ *     ScheduledTaskBatchResult result = batch.schedule();
+ * </pre>
+ * <p>
+ * Builders added to a batch must not be scheduled individually. If the batch cannot be scheduled at once (for
+ * instance because one of its tasks already exists), each task is then scheduled separately so that failures are
+ * reported per builder in the {@link ScheduledTaskBatchResult}.
+ *
+ * @see ScheduledTasks#batch()
+ */
+public interface ScheduledTaskBatch {
+
+    /**
+     * Adds a task to the batch.
+     *
+     * @param scheduledTaskBuilder the builder describing the task and its trigger, obtained from
+     *                             {@link ScheduledTasks#scheduledTask(Class)}.
+     * @return This batch instance
+     */
+    ScheduledTaskBatch add(ScheduledTaskBuilder scheduledTaskBuilder);
+
+    /**
+     * Requests existing tasks and triggers (sharing the same keys as the tasks and triggers of the batch) to be
+     * replaced instead of being reported as failures. Builders on which
+     * {@link ScheduledTaskBuilder#updateExistingTrigger()} was called are always replaced.
+     *
+     * @return This batch instance
+     */
+    ScheduledTaskBatch replaceExisting();
+
+    /**
+     * @return the number of tasks in this batch.
+     */
+    int size();
+
+    /**
+     * Schedules all the tasks of the batch.
+     *
+     * @return the result of the scheduling, with the failures of each builder that could not be scheduled.
+     */
+    ScheduledTaskBatchResult schedule();
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.seedstack.seed.SeedException;
+
+/**
+ * The result of a {@link ScheduledTaskBatch} scheduling.
+ */
+public class ScheduledTaskBatchResult {
+    private final int scheduledCount;
+    private final Map<ScheduledTaskBuilder, SeedException> failures;
+
+    public ScheduledTaskBatchResult(int scheduledCount, Map<ScheduledTaskBuilder, SeedException> failures) {
+        this.scheduledCount = scheduledCount;
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+    }
+
+    /**
+     * @return the number of tasks that were successfully scheduled.
+     */
+    public int getScheduledCount() {
+        return scheduledCount;
+    }
+
+    /**
+     * @return true if all the tasks of the batch were scheduled.
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Returns the builders that could not be scheduled, in the order they were added to the batch, with the reason
+     * of their failure.
+     *
+     * @return the failed builders with their error.
+     */
+    public Map<ScheduledTaskBuilder, SeedException> getFailures() {
+        return failures;
+    }
+}
@@ -96,6 +96,36 @@ public interface ScheduledTaskBuilder {
      */
     ScheduledTaskBuilder withPriority(int priority);
 
+    /**
+     * Limits the number of concurrent executions of the scheduled job, overriding the {@link MaxConcurrency}
+     * annotation. The limit is counted for this job only, independently of the other jobs of the task class. With
+     * the {@link SaturationPolicy#DELAY} policy, the delay is the one of the annotation if present or one second.
+     *
+     * @param maxConcurrency   the maximum number of concurrent executions, at least 1.
+     * @param saturationPolicy what to do when the task fires while the maximum number of executions is reached.
+     * @return This builder instance
+     */
+    ScheduledTaskBuilder withMaxConcurrency(int maxConcurrency, SaturationPolicy saturationPolicy);
+
+    /**
+     * Sets the maximum duration of an execution of the task, overriding the timeout of the {@link Scheduled}
+     * annotation. When it is exceeded, the thread executing the task is interrupted and the execution fails with a
+     * {@link TaskTimeoutException}.
+     *
+     * @param timeout the timeout in milliseconds, 0 for no timeout.
+     * @return This builder instance
+     */
+    ScheduledTaskBuilder withTimeout(long timeout);
+
+    /**
+     * Sets the duration after which the watchdog considers an execution of the task stuck, overriding the stuck
+     * threshold of the {@link Scheduled} annotation.
+     *
+     * @param stuckThreshold the threshold in milliseconds, 0 to derive it from the previous execution durations.
+     * @return This builder instance
+     */
+    ScheduledTaskBuilder withStuckThreshold(long stuckThreshold);
+
     /**
      * Sets the {@code Trigger} that will be used to schedule
      * the {@code Task}.
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A scheduled task with its triggers, as part of a {@link SchedulerSnapshot}.
+ */
+public class ScheduledTaskSnapshot {
+    private final String taskName;
+    private final String group;
+    private final boolean durable;
+    private final List<TriggerSnapshot> triggers;
+
+    public ScheduledTaskSnapshot(String taskName, String group, boolean durable, List<TriggerSnapshot> triggers) {
+        this.taskName = taskName;
+        this.group = group;
+        this.durable = durable;
+        this.triggers = Collections.unmodifiableList(triggers);
+    }
+
+    /**
+     * @return the name of the task.
+     */
+    public String getTaskName() {
+        return taskName;
+    }
+
+    /**
+     * @return the group of the task, which is the name of the task class for the tasks scheduled by the add-on.
+     */
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * @return true if the task is kept without triggers.
+     */
+    public boolean isDurable() {
+        return durable;
+    }
+
+    /**
+     * @return the triggers of the task.
+     */
+    public List<TriggerSnapshot> getTriggers() {
+        return triggers;
+    }
+
+    /**
+     * @return the earliest next fire date of the triggers of the task which are not paused, or null if none.
+     */
+    public Date getNextFireDate() {
+        Date nextFireDate = null;
+        for (TriggerSnapshot trigger : triggers) {
+            Date triggerNextFireDate = trigger.getNextFireDate();
+            if (trigger.getState() == TriggerSnapshot.State.NORMAL && triggerNextFireDate != null
+                    && (nextFireDate == null || triggerNextFireDate.before(nextFireDate))) {
+                nextFireDate = triggerNextFireDate;
+            }
+        }
+        return nextFireDate;
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduledTaskSnapshot{" + group + "." + taskName + ", triggers=" + triggers + "}";
+    }
+}
@@ -7,6 +7,8 @@
  */
 package org.seedstack.scheduler;
 
+import java.util.concurrent.CompletionStage;
+
 /**
  * This factory create a {@link ScheduledTaskBuilder} with the given {@link Task}.
  * <pre>
@@ -29,4 +31,39 @@ public interface ScheduledTasks {
      * @return ScheduledTaskBuilder
      */
     ScheduledTaskBuilder scheduledTask(Class<? extends Task> taskClass);
+
+    /**
+     * Create a batch to schedule several tasks at once.
+     *
+     * @return ScheduledTaskBatch
+     */
+    ScheduledTaskBatch batch();
+
+    /**
+     * Returns a stage completed when the tasks annotated with {@link Scheduled} have been scheduled at startup. This is
+     * only useful when the {@code scheduling.backgroundStartup} option is enabled, since annotated tasks are otherwise
+     * scheduled before the application is started.
+     *
+     * @return the stage completed with the result of the scheduling of annotated tasks.
+     */
+    CompletionStage<ScheduledTaskBatchResult> annotatedTasksScheduled();
+
+    /**
+     * Returns the execution history of a task class, with its most recent executions and the distributions of
+     * execution durations and fire lags. The number of executions kept for each task class is specified by the
+     * {@code scheduling.history.size} configuration property.
+     *
+     * @param taskClass the task class.
+     * @return the history of the task class, which is empty if it never executed.
+     */
+    TaskHistory history(Class<? extends Task> taskClass);
+
+    /**
+     * Returns a snapshot of the scheduled tasks, their triggers with their next fire dates and the task executions in
+     * progress. It is read from an index maintained in memory from the scheduler events, without querying the job
+     * store, so it can be polled frequently. Changes made by other instances of a cluster are not seen.
+     *
+     * @return the snapshot.
+     */
+    SchedulerSnapshot snapshot();
 }
@@ -0,0 +1,661 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.quartz.impl.jdbcjobstore.DriverDelegate;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.JobStore;
+import org.seedstack.coffig.Config;
+import org.seedstack.scheduler.codec.DataMapCodec;
+import org.seedstack.scheduler.metrics.InMemoryTaskMetricsRegistry;
+import org.seedstack.scheduler.metrics.TaskMetricsRegistry;
+
+/**
+ * Configuration of the Quartz scheduler backing the scheduling add-on.
+ */
+@Config("scheduling")
+public class SchedulerConfig {
+    private String instanceName = "QuartzScheduler";
+    private String instanceId;
+    private long idleWaitTime = 30000;
+    private int maxBatchSize = 1;
+    private long batchTriggerAcquisitionFireAheadTimeWindow = 0;
+    private boolean backgroundStartup = false;
+    private boolean reconcileAnnotatedTasks = false;
+    private boolean taskIndex = true;
+    private ThreadPoolConfig threadPool = new ThreadPoolConfig();
+    private JobStoreConfig jobStore = new JobStoreConfig();
+    private MetricsConfig metrics = new MetricsConfig();
+    private AsyncListenersConfig asyncListeners = new AsyncListenersConfig();
+    private TimeoutsConfig timeouts = new TimeoutsConfig();
+    private HistoryConfig history = new HistoryConfig();
+    private WatchdogConfig watchdog = new WatchdogConfig();
+    private FlightRecorderConfig flightRecorder = new FlightRecorderConfig();
+    private Properties properties = new Properties();
+
+    public String getInstanceName() {
+        return instanceName;
+    }
+
+    public SchedulerConfig setInstanceName(String instanceName) {
+        this.instanceName = instanceName;
+        return this;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public SchedulerConfig setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+        return this;
+    }
+
+    public long getIdleWaitTime() {
+        return idleWaitTime;
+    }
+
+    public SchedulerConfig setIdleWaitTime(long idleWaitTime) {
+        this.idleWaitTime = idleWaitTime;
+        return this;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public SchedulerConfig setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    public long getBatchTriggerAcquisitionFireAheadTimeWindow() {
+        return batchTriggerAcquisitionFireAheadTimeWindow;
+    }
+
+    public SchedulerConfig setBatchTriggerAcquisitionFireAheadTimeWindow(
+            long batchTriggerAcquisitionFireAheadTimeWindow) {
+        this.batchTriggerAcquisitionFireAheadTimeWindow = batchTriggerAcquisitionFireAheadTimeWindow;
+        return this;
+    }
+
+    public boolean isBackgroundStartup() {
+        return backgroundStartup;
+    }
+
+    public SchedulerConfig setBackgroundStartup(boolean backgroundStartup) {
+        this.backgroundStartup = backgroundStartup;
+        return this;
+    }
+
+    public boolean isReconcileAnnotatedTasks() {
+        return reconcileAnnotatedTasks;
+    }
+
+    public SchedulerConfig setReconcileAnnotatedTasks(boolean reconcileAnnotatedTasks) {
+        this.reconcileAnnotatedTasks = reconcileAnnotatedTasks;
+        return this;
+    }
+
+    public boolean isTaskIndex() {
+        return taskIndex;
+    }
+
+    public SchedulerConfig setTaskIndex(boolean taskIndex) {
+        this.taskIndex = taskIndex;
+        return this;
+    }
+
+    public ThreadPoolConfig threadPool() {
+        return threadPool;
+    }
+
+    public JobStoreConfig jobStore() {
+        return jobStore;
+    }
+
+    public MetricsConfig metrics() {
+        return metrics;
+    }
+
+    public AsyncListenersConfig asyncListeners() {
+        return asyncListeners;
+    }
+
+    public TimeoutsConfig timeouts() {
+        return timeouts;
+    }
+
+    public HistoryConfig history() {
+        return history;
+    }
+
+    public WatchdogConfig watchdog() {
+        return watchdog;
+    }
+
+    public FlightRecorderConfig flightRecorder() {
+        return flightRecorder;
+    }
+
+    public Properties getProperties() {
+        return properties;
+    }
+
+    public SchedulerConfig setProperties(Properties properties) {
+        this.properties = properties;
+        return this;
+    }
+
+    @Config("threadPool")
+    public static class ThreadPoolConfig {
+        private int threadCount = 10;
+        private int threadPriority = Thread.NORM_PRIORITY;
+        private boolean virtualThreads = false;
+        private int maxConcurrency = 1000;
+        private FairnessConfig fairness = new FairnessConfig();
+
+        public int getThreadCount() {
+            return threadCount;
+        }
+
+        public ThreadPoolConfig setThreadCount(int threadCount) {
+            this.threadCount = threadCount;
+            return this;
+        }
+
+        public int getThreadPriority() {
+            return threadPriority;
+        }
+
+        public ThreadPoolConfig setThreadPriority(int threadPriority) {
+            this.threadPriority = threadPriority;
+            return this;
+        }
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public ThreadPoolConfig setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public ThreadPoolConfig setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+            return this;
+        }
+
+        public FairnessConfig fairness() {
+            return fairness;
+        }
+
+        @Config("fairness")
+        public static class FairnessConfig {
+            private boolean enabled = false;
+            private String tenantKey;
+            private int defaultWeight = 1;
+            private Map<String, Integer> weights = new HashMap<>();
+            private int backlog = 10;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public FairnessConfig setEnabled(boolean enabled) {
+                this.enabled = enabled;
+                return this;
+            }
+
+            public String getTenantKey() {
+                return tenantKey;
+            }
+
+            public FairnessConfig setTenantKey(String tenantKey) {
+                this.tenantKey = tenantKey;
+                return this;
+            }
+
+            public int getDefaultWeight() {
+                return defaultWeight;
+            }
+
+            public FairnessConfig setDefaultWeight(int defaultWeight) {
+                this.defaultWeight = defaultWeight;
+                return this;
+            }
+
+            public Map<String, Integer> getWeights() {
+                return weights;
+            }
+
+            public FairnessConfig setWeights(Map<String, Integer> weights) {
+                this.weights = weights;
+                return this;
+            }
+
+            public int getBacklog() {
+                return backlog;
+            }
+
+            public FairnessConfig setBacklog(int backlog) {
+                this.backlog = backlog;
+                return this;
+            }
+        }
+    }
+
+    @Config("jobStore")
+    public static class JobStoreConfig {
+        private Class<? extends JobStore> type = RAMJobStore.class;
+        private long misfireThreshold = 60000;
+        private String dataSource;
+        private String tablePrefix = "QRTZ_";
+        private Class<? extends DriverDelegate> driverDelegate;
+        private boolean clustered = false;
+        private long clusterCheckinInterval = 7500;
+        private boolean acquireTriggersWithinLock = false;
+        private boolean initializeSchema = false;
+        private String schemaScript;
+        private boolean timingWheel = false;
+        private Class<? extends DataMapCodec> dataMapCodec;
+        private JournalConfig journal = new JournalConfig();
+        private Properties properties = new Properties();
+
+        public Class<? extends JobStore> getType() {
+            return type;
+        }
+
+        public JobStoreConfig setType(Class<? extends JobStore> type) {
+            this.type = type;
+            return this;
+        }
+
+        public long getMisfireThreshold() {
+            return misfireThreshold;
+        }
+
+        public JobStoreConfig setMisfireThreshold(long misfireThreshold) {
+            this.misfireThreshold = misfireThreshold;
+            return this;
+        }
+
+        public String getDataSource() {
+            return dataSource;
+        }
+
+        public JobStoreConfig setDataSource(String dataSource) {
+            this.dataSource = dataSource;
+            return this;
+        }
+
+        public String getTablePrefix() {
+            return tablePrefix;
+        }
+
+        public JobStoreConfig setTablePrefix(String tablePrefix) {
+            this.tablePrefix = tablePrefix;
+            return this;
+        }
+
+        public Class<? extends DriverDelegate> getDriverDelegate() {
+            return driverDelegate;
+        }
+
+        public JobStoreConfig setDriverDelegate(Class<? extends DriverDelegate> driverDelegate) {
+            this.driverDelegate = driverDelegate;
+            return this;
+        }
+
+        public boolean isClustered() {
+            return clustered;
+        }
+
+        public JobStoreConfig setClustered(boolean clustered) {
+            this.clustered = clustered;
+            return this;
+        }
+
+        public long getClusterCheckinInterval() {
+            return clusterCheckinInterval;
+        }
+
+        public JobStoreConfig setClusterCheckinInterval(long clusterCheckinInterval) {
+            this.clusterCheckinInterval = clusterCheckinInterval;
+            return this;
+        }
+
+        public boolean isAcquireTriggersWithinLock() {
+            return acquireTriggersWithinLock;
+        }
+
+        public JobStoreConfig setAcquireTriggersWithinLock(boolean acquireTriggersWithinLock) {
+            this.acquireTriggersWithinLock = acquireTriggersWithinLock;
+            return this;
+        }
+
+        public boolean isInitializeSchema() {
+            return initializeSchema;
+        }
+
+        public JobStoreConfig setInitializeSchema(boolean initializeSchema) {
+            this.initializeSchema = initializeSchema;
+            return this;
+        }
+
+        public String getSchemaScript() {
+            return schemaScript;
+        }
+
+        public JobStoreConfig setSchemaScript(String schemaScript) {
+            this.schemaScript = schemaScript;
+            return this;
+        }
+
+        public boolean isTimingWheel() {
+            return timingWheel;
+        }
+
+        public JobStoreConfig setTimingWheel(boolean timingWheel) {
+            this.timingWheel = timingWheel;
+            return this;
+        }
+
+        public Class<? extends DataMapCodec> getDataMapCodec() {
+            return dataMapCodec;
+        }
+
+        public JobStoreConfig setDataMapCodec(Class<? extends DataMapCodec> dataMapCodec) {
+            this.dataMapCodec = dataMapCodec;
+            return this;
+        }
+
+        public JournalConfig journal() {
+            return journal;
+        }
+
+        public Properties getProperties() {
+            return properties;
+        }
+
+        public JobStoreConfig setProperties(Properties properties) {
+            this.properties = properties;
+            return this;
+        }
+
+        @Config("journal")
+        public static class JournalConfig {
+            private String directory;
+            private int segmentSize = 16 * 1024 * 1024;
+            private long compactionThreshold = 64 * 1024 * 1024;
+            private boolean syncWrites = false;
+
+            public String getDirectory() {
+                return directory;
+            }
+
+            public JournalConfig setDirectory(String directory) {
+                this.directory = directory;
+                return this;
+            }
+
+            public int getSegmentSize() {
+                return segmentSize;
+            }
+
+            public JournalConfig setSegmentSize(int segmentSize) {
+                this.segmentSize = segmentSize;
+                return this;
+            }
+
+            public long getCompactionThreshold() {
+                return compactionThreshold;
+            }
+
+            public JournalConfig setCompactionThreshold(long compactionThreshold) {
+                this.compactionThreshold = compactionThreshold;
+                return this;
+            }
+
+            public boolean isSyncWrites() {
+                return syncWrites;
+            }
+
+            public JournalConfig setSyncWrites(boolean syncWrites) {
+                this.syncWrites = syncWrites;
+                return this;
+            }
+        }
+    }
+
+    @Config("metrics")
+    public static class MetricsConfig {
+        private Class<? extends TaskMetricsRegistry> registry = InMemoryTaskMetricsRegistry.class;
+
+        public Class<? extends TaskMetricsRegistry> getRegistry() {
+            return registry;
+        }
+
+        public MetricsConfig setRegistry(Class<? extends TaskMetricsRegistry> registry) {
+            this.registry = registry;
+            return this;
+        }
+    }
+
+    @Config("asyncListeners")
+    public static class AsyncListenersConfig {
+        private int queueCapacity = 10000;
+        private int batchSize = 100;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+        private long shutdownTimeout = 5000;
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public AsyncListenersConfig setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public AsyncListenersConfig setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public AsyncListenersConfig setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        public long getShutdownTimeout() {
+            return shutdownTimeout;
+        }
+
+        public AsyncListenersConfig setShutdownTimeout(long shutdownTimeout) {
+            this.shutdownTimeout = shutdownTimeout;
+            return this;
+        }
+
+        /**
+         * What to do with a listener event when the queue of asynchronous listener events is full.
+         */
+        public enum OverflowPolicy {
+            /**
+             * The event is dropped and counted in the task metrics.
+             */
+            DROP,
+            /**
+             * The event is delivered synchronously on the thread executing the task.
+             */
+            CALLER_RUNS
+        }
+    }
+
+    @Config("timeouts")
+    public static class TimeoutsConfig {
+        private long tickDuration = 100;
+        private int wheelSize = 512;
+
+        public long getTickDuration() {
+            return tickDuration;
+        }
+
+        public TimeoutsConfig setTickDuration(long tickDuration) {
+            this.tickDuration = tickDuration;
+            return this;
+        }
+
+        public int getWheelSize() {
+            return wheelSize;
+        }
+
+        public TimeoutsConfig setWheelSize(int wheelSize) {
+            this.wheelSize = wheelSize;
+            return this;
+        }
+    }
+
+    @Config("history")
+    public static class HistoryConfig {
+        private int size = 100;
+
+        public int getSize() {
+            return size;
+        }
+
+        public HistoryConfig setSize(int size) {
+            this.size = size;
+            return this;
+        }
+    }
+
+    @Config("watchdog")
+    public static class WatchdogConfig {
+        private boolean enabled = true;
+        private long checkInterval = 1000;
+        private double percentileFactor = 3;
+        private int minExecutions = 100;
+        private long minThreshold = 10000;
+        private int samples = 1;
+        private long samplingInterval = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public WatchdogConfig setEnabled(boolean enabled) {
+            this.enabled = enabled;
+            return this;
+        }
+
+        public long getCheckInterval() {
+            return checkInterval;
+        }
+
+        public WatchdogConfig setCheckInterval(long checkInterval) {
+            this.checkInterval = checkInterval;
+            return this;
+        }
+
+        public double getPercentileFactor() {
+            return percentileFactor;
+        }
+
+        public WatchdogConfig setPercentileFactor(double percentileFactor) {
+            this.percentileFactor = percentileFactor;
+            return this;
+        }
+
+        public int getMinExecutions() {
+            return minExecutions;
+        }
+
+        public WatchdogConfig setMinExecutions(int minExecutions) {
+            this.minExecutions = minExecutions;
+            return this;
+        }
+
+        public long getMinThreshold() {
+            return minThreshold;
+        }
+
+        public WatchdogConfig setMinThreshold(long minThreshold) {
+            this.minThreshold = minThreshold;
+            return this;
+        }
+
+        public int getSamples() {
+            return samples;
+        }
+
+        public WatchdogConfig setSamples(int samples) {
+            this.samples = samples;
+            return this;
+        }
+
+        public long getSamplingInterval() {
+            return samplingInterval;
+        }
+
+        public WatchdogConfig setSamplingInterval(long samplingInterval) {
+            this.samplingInterval = samplingInterval;
+            return this;
+        }
+    }
+
+    @Config("flightRecorder")
+    public static class FlightRecorderConfig {
+        private boolean taskExecution = false;
+        private boolean jobInstantiation = false;
+        private boolean listeners = false;
+
+        public boolean isTaskExecution() {
+            return taskExecution;
+        }
+
+        public FlightRecorderConfig setTaskExecution(boolean taskExecution) {
+            this.taskExecution = taskExecution;
+            return this;
+        }
+
+        public boolean isJobInstantiation() {
+            return jobInstantiation;
+        }
+
+        public FlightRecorderConfig setJobInstantiation(boolean jobInstantiation) {
+            this.jobInstantiation = jobInstantiation;
+            return this;
+        }
+
+        public boolean isListeners() {
+            return listeners;
+        }
+
+        public FlightRecorderConfig setListeners(boolean listeners) {
+            this.listeners = listeners;
+            return this;
+        }
+    }
+}
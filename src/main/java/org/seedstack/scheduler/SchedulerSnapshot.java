@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The scheduled tasks, their triggers and the task executions in progress at a point in time, as returned by
+ * {@link ScheduledTasks#snapshot()}. It is immutable.
+ */
+public class SchedulerSnapshot {
+    private final long date;
+    private final List<ScheduledTaskSnapshot> tasks;
+    private final List<RunningTaskSnapshot> runningTasks;
+
+    public SchedulerSnapshot(Date date, List<ScheduledTaskSnapshot> tasks, List<RunningTaskSnapshot> runningTasks) {
+        this.date = date.getTime();
+        this.tasks = Collections.unmodifiableList(tasks);
+        this.runningTasks = Collections.unmodifiableList(runningTasks);
+    }
+
+    /**
+     * @return the date at which the snapshot was taken.
+     */
+    public Date getDate() {
+        return new Date(date);
+    }
+
+    /**
+     * @return the scheduled tasks, ordered by group and name.
+     */
+    public List<ScheduledTaskSnapshot> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Returns a scheduled task.
+     *
+     * @param taskClass the task class.
+     * @param taskName  the name of the task.
+     * @return the task if it is scheduled.
+     */
+    public Optional<ScheduledTaskSnapshot> getTask(Class<? extends Task> taskClass, String taskName) {
+        return tasks.stream()
+                .filter(task -> task.getGroup().equals(taskClass.getName()) && task.getTaskName().equals(taskName))
+                .findFirst();
+    }
+
+    /**
+     * @return the task executions in progress, the oldest first.
+     */
+    public List<RunningTaskSnapshot> getRunningTasks() {
+        return runningTasks;
+    }
+}
@@ -136,6 +136,17 @@ public interface SchedulingContext {
      */
     Map<String, ?> getDataMap();
 
+    /**
+     * Indicates if the execution has been cancelled, because it exceeded its timeout or it was interrupted through
+     * the Quartz scheduler. Long-running tasks should check it regularly and stop as soon as possible when it returns
+     * true. The default implementation always returns false.
+     *
+     * @return true if the execution has been cancelled.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+
     /**
      * Allow to access to unwrap the context to an implementation-specific class.
      *
@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * An execution of a task which has been running for longer than its stuck threshold, as reported by the watchdog to
+ * {@link TaskListener#onStuck(SchedulingContext, StuckExecution)}. It holds the stack traces of the thread executing
+ * the task, sampled from the moment the threshold was exceeded. All durations are expressed in milliseconds.
+ */
+public class StuckExecution {
+    private final Class<? extends Task> taskClass;
+    private final long fireTime;
+    private final long threshold;
+    private final String threadName;
+    private final List<Sample> samples;
+
+    public StuckExecution(Class<? extends Task> taskClass, Date fireTime, long threshold, String threadName,
+            List<Sample> samples) {
+        this.taskClass = taskClass;
+        this.fireTime = fireTime.getTime();
+        this.threshold = threshold;
+        this.threadName = threadName;
+        this.samples = Collections.unmodifiableList(samples);
+    }
+
+    /**
+     * @return the class of the stuck task.
+     */
+    public Class<? extends Task> getTaskClass() {
+        return taskClass;
+    }
+
+    /**
+     * @return the date at which the task actually fired.
+     */
+    public Date getFireTime() {
+        return new Date(fireTime);
+    }
+
+    /**
+     * @return the duration after which the execution was considered stuck.
+     */
+    public long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return the name of the thread executing the task.
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return the stack traces sampled while the execution was stuck, oldest first. There is at least one sample.
+     */
+    public List<Sample> getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the duration of the execution when the last sample was taken.
+     */
+    public long getElapsed() {
+        return samples.get(samples.size() - 1).getElapsed();
+    }
+
+    @Override
+    public String toString() {
+        return "StuckExecution{taskClass=" + taskClass.getName() + ", fireTime=" + getFireTime() + ", threshold="
+                + threshold + ", threadName=" + threadName + ", samples=" + samples.size() + "}";
+    }
+
+    /**
+     * A stack trace of the thread executing a stuck task.
+     */
+    public static class Sample {
+        private final long elapsed;
+        private final List<StackTraceElement> stackTrace;
+
+        public Sample(long elapsed, StackTraceElement[] stackTrace) {
+            this.elapsed = elapsed;
+            this.stackTrace = Collections.unmodifiableList(Arrays.asList(stackTrace.clone()));
+        }
+
+        /**
+         * @return the duration of the execution when the sample was taken.
+         */
+        public long getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * @return the stack trace of the thread, innermost frame first.
+         */
+        public List<StackTraceElement> getStackTrace() {
+            return stackTrace;
+        }
+    }
+}
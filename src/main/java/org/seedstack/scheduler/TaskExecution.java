@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import java.util.Date;
+
+/**
+ * A past execution of a task, as kept in its {@link TaskHistory}. All durations are expressed in milliseconds.
+ */
+public class TaskExecution {
+    private final long fireTime;
+    private final long lag;
+    private final long duration;
+    private final Class<? extends Throwable> exceptionClass;
+
+    public TaskExecution(Date fireTime, long lag, long duration, Class<? extends Throwable> exceptionClass) {
+        this.fireTime = fireTime.getTime();
+        this.lag = lag;
+        this.duration = duration;
+        this.exceptionClass = exceptionClass;
+    }
+
+    /**
+     * @return the date at which the task actually fired.
+     */
+    public Date getFireTime() {
+        return new Date(fireTime);
+    }
+
+    /**
+     * @return the delay between the scheduled fire time and the actual fire time.
+     */
+    public long getLag() {
+        return lag;
+    }
+
+    /**
+     * @return the duration of the execution.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return true if the task completed normally, false if it threw an exception.
+     */
+    public boolean isSuccessful() {
+        return exceptionClass == null;
+    }
+
+    /**
+     * @return the class of the exception thrown by the task or null if it completed normally.
+     */
+    public Class<? extends Throwable> getExceptionClass() {
+        return exceptionClass;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskExecution{fireTime=" + getFireTime() + ", lag=" + lag + ", duration=" + duration
+                + (exceptionClass != null ? ", exceptionClass=" + exceptionClass.getName() : "") + "}";
+    }
+}
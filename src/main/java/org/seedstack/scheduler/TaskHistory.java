@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.seedstack.scheduler.metrics.LatencyHistogram;
+
+/**
+ * The execution history of a task class at a point in time, as returned by {@link ScheduledTasks#history(Class)}.
+ * Only the most recent executions are kept, as specified by the {@code scheduling.history.size} configuration
+ * property, while counts and distributions cover all the executions since the application started. All durations
+ * are expressed in milliseconds.
+ */
+public class TaskHistory {
+    private final Class<? extends Task> taskClass;
+    private final List<TaskExecution> executions;
+    private final TaskExecution lastFailure;
+    private final long failureCount;
+    private final LatencyHistogram.Snapshot durations;
+    private final LatencyHistogram.Snapshot lags;
+
+    public TaskHistory(Class<? extends Task> taskClass, List<TaskExecution> executions, TaskExecution lastFailure,
+            long failureCount, LatencyHistogram.Snapshot durations, LatencyHistogram.Snapshot lags) {
+        this.taskClass = taskClass;
+        this.executions = Collections.unmodifiableList(executions);
+        this.lastFailure = lastFailure;
+        this.failureCount = failureCount;
+        this.durations = durations;
+        this.lags = lags;
+    }
+
+    /**
+     * @return the task class.
+     */
+    public Class<? extends Task> getTaskClass() {
+        return taskClass;
+    }
+
+    /**
+     * @return the most recent executions of the task, the last one first.
+     */
+    public List<TaskExecution> getExecutions() {
+        return executions;
+    }
+
+    /**
+     * @return the last execution of the task if it executed at least once.
+     */
+    public Optional<TaskExecution> getLastExecution() {
+        return executions.isEmpty() ? Optional.empty() : Optional.of(executions.get(0));
+    }
+
+    /**
+     * @return the last execution of the task that threw an exception, even if it is not a recent one anymore.
+     */
+    public Optional<TaskExecution> getLastFailure() {
+        return Optional.ofNullable(lastFailure);
+    }
+
+    /**
+     * @return the number of executions of the task.
+     */
+    public long getExecutionCount() {
+        return durations.getCount();
+    }
+
+    /**
+     * @return the number of executions of the task that threw an exception.
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return the distribution of execution durations, from which percentiles can be read.
+     */
+    public LatencyHistogram.Snapshot getDurations() {
+        return durations;
+    }
+
+    /**
+     * @return the distribution of the delays between scheduled and actual fire times.
+     */
+    public LatencyHistogram.Snapshot getLags() {
+        return lags;
+    }
+}
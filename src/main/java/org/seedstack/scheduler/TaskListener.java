@@ -7,6 +7,8 @@
  */
 package org.seedstack.scheduler;
 
+import java.util.List;
+
 /**
  * This class provides methods to listen an executed {@link Task}.
  *
@@ -28,6 +30,19 @@ public interface TaskListener<T extends Task> {
      */
     void after(SchedulingContext sc);
 
+    /**
+     * Called after several executions of the {@code Task}, in execution order. It is only called for
+     * {@link AsyncListener asynchronous listeners}, which can override it to process the executions in a single
+     * batch. The default implementation calls {@link #after(SchedulingContext)} for each execution.
+     *
+     * @param scs the scheduling contexts of the executions
+     */
+    default void afterAll(List<SchedulingContext> scs) {
+        for (SchedulingContext sc : scs) {
+            after(sc);
+        }
+    }
+
     /**
      * Called if any exception occurs.
      *
@@ -35,4 +50,17 @@ public interface TaskListener<T extends Task> {
      * @param e  the exception thrown by the task
      */
     void onException(SchedulingContext sc, Exception e);
+
+    /**
+     * Called by the watchdog when an execution of the {@code Task} has been running for longer than its
+     * {@link Scheduled#stuckThreshold() stuck threshold}, from the watchdog thread while the task is still running.
+     * It is called once per stuck execution, after the configured number of stack samples have been taken or when
+     * the execution ends. The default implementation does nothing.
+     *
+     * @param sc        the associated scheduling context
+     * @param execution the stuck execution, with the sampled stack traces of the thread executing it
+     */
+    default void onStuck(SchedulingContext sc, StuckExecution execution) {
+        // nothing to do by default
+    }
 }
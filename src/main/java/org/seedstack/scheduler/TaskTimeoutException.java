@@ -0,0 +1,32 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import org.quartz.JobExecutionException;
+
+/**
+ * Reported to {@link TaskListener#onException(SchedulingContext, Exception)} when a task execution exceeded its
+ * timeout. The thread executing the task has been interrupted and {@link SchedulingContext#isCancelled()} returns
+ * true. The cause, if any, is the exception thrown by the task after its interruption.
+ */
+public class TaskTimeoutException extends JobExecutionException {
+    private static final long serialVersionUID = 1L;
+    private final long timeout;
+
+    public TaskTimeoutException(long timeout, Throwable cause) {
+        super("Task execution timed out after " + timeout + " ms", cause);
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return the timeout of the execution in milliseconds.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import java.util.Date;
+
+/**
+ * A trigger of a scheduled task, as part of a {@link SchedulerSnapshot}.
+ */
+public class TriggerSnapshot {
+    private final String triggerName;
+    private final String group;
+    private final int priority;
+    private final Long nextFireDate;
+    private final Long previousFireDate;
+    private final State state;
+
+    public TriggerSnapshot(String triggerName, String group, int priority, Date nextFireDate, Date previousFireDate,
+            State state) {
+        this.triggerName = triggerName;
+        this.group = group;
+        this.priority = priority;
+        this.nextFireDate = nextFireDate != null ? nextFireDate.getTime() : null;
+        this.previousFireDate = previousFireDate != null ? previousFireDate.getTime() : null;
+        this.state = state;
+    }
+
+    /**
+     * @return the name of the trigger.
+     */
+    public String getTriggerName() {
+        return triggerName;
+    }
+
+    /**
+     * @return the group of the trigger.
+     */
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * @return the priority of the trigger.
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return the next date at which the trigger is scheduled to fire or null if it will not fire again.
+     */
+    public Date getNextFireDate() {
+        return nextFireDate != null ? new Date(nextFireDate) : null;
+    }
+
+    /**
+     * @return the last date at which the trigger fired or null if it never fired.
+     */
+    public Date getPreviousFireDate() {
+        return previousFireDate != null ? new Date(previousFireDate) : null;
+    }
+
+    /**
+     * @return the state of the trigger.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns a copy of this trigger with another state.
+     *
+     * @param state the state of the copy.
+     * @return the copy.
+     */
+    public TriggerSnapshot withState(State state) {
+        return new TriggerSnapshot(triggerName, group, priority, getNextFireDate(), getPreviousFireDate(), state);
+    }
+
+    @Override
+    public String toString() {
+        return "TriggerSnapshot{" + group + "." + triggerName + ", nextFireDate=" + getNextFireDate() + ", state="
+                + state + "}";
+    }
+
+    /**
+     * The state of a trigger.
+     */
+    public enum State {
+        /**
+         * The trigger fires normally.
+         */
+        NORMAL,
+        /**
+         * The trigger is paused and will not fire until resumed.
+         */
+        PAUSED,
+        /**
+         * The trigger could not fire because of an error and will not fire again.
+         */
+        ERROR
+    }
+}
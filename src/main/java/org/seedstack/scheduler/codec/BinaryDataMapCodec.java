@@ -0,0 +1,356 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Default {@link DataMapCodec} writing a compact binary form: each value is prefixed by a one-byte tag, integers are
+ * variable-length and strings are UTF-8. Primitive wrappers, strings, byte arrays, lists and maps are supported, and
+ * decoded with their original type. Other serializable values are written with Java serialization.
+ * <p>
+ * The encoded form starts with a magic byte and a format version.
+ */
+public class BinaryDataMapCodec implements DataMapCodec {
+    private static final byte MAGIC = (byte) 0xDC;
+    private static final byte VERSION = 1;
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte CHAR = 5;
+    private static final byte INT = 6;
+    private static final byte LONG = 7;
+    private static final byte FLOAT = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte STRING = 10;
+    private static final byte BYTES = 11;
+    private static final byte LIST = 12;
+    private static final byte MAP = 13;
+    private static final byte SERIALIZED = 14;
+
+    @Override
+    public byte[] encode(Map<String, ?> dataMap) throws IOException {
+        Output output = new Output();
+        output.write(MAGIC);
+        output.write(VERSION);
+        output.writeVarInt(dataMap.size());
+        for (Map.Entry<String, ?> entry : dataMap.entrySet()) {
+            output.writeString(entry.getKey());
+            writeValue(output, entry.getValue());
+        }
+        return output.toByteArray();
+    }
+
+    @Override
+    public Map<String, Object> decode(byte[] bytes) throws IOException {
+        Input input = new Input(bytes);
+        if (bytes.length < 2 || input.read() != MAGIC) {
+            throw new IOException("Data is not a binary encoded data map");
+        }
+        byte version = input.read();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary data map version " + version);
+        }
+        int size = input.readVarInt();
+        Map<String, Object> dataMap = new HashMap<>(Math.max(16, (int) (size / .75f) + 1));
+        for (int i = 0; i < size; i++) {
+            dataMap.put(input.readString(), readValue(input));
+        }
+        return dataMap;
+    }
+
+    private void writeValue(Output output, Object value) throws IOException {
+        if (value == null) {
+            output.write(NULL);
+        } else if (value instanceof String) {
+            output.write(STRING);
+            output.writeString((String) value);
+        } else if (value instanceof Integer) {
+            output.write(INT);
+            output.writeVarLong((Integer) value);
+        } else if (value instanceof Long) {
+            output.write(LONG);
+            output.writeVarLong((Long) value);
+        } else if (value instanceof Boolean) {
+            output.write((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            output.write(DOUBLE);
+            output.writeFixed(Double.doubleToLongBits((Double) value), 8);
+        } else if (value instanceof Float) {
+            output.write(FLOAT);
+            output.writeFixed(Float.floatToIntBits((Float) value), 4);
+        } else if (value instanceof Short) {
+            output.write(SHORT);
+            output.writeVarLong((Short) value);
+        } else if (value instanceof Byte) {
+            output.write(BYTE);
+            output.write((Byte) value);
+        } else if (value instanceof Character) {
+            output.write(CHAR);
+            output.writeVarInt((Character) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            output.write(BYTES);
+            output.writeVarInt(bytes.length);
+            output.write(bytes, 0, bytes.length);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            output.write(LIST);
+            output.writeVarInt(list.size());
+            for (Object element : list) {
+                writeValue(output, element);
+            }
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            output.write(MAP);
+            output.writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(output, entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+        } else if (value instanceof Serializable) {
+            output.write(SERIALIZED);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+                objectOutput.writeObject(value);
+            }
+            output.writeVarInt(bytes.size());
+            output.write(bytes.toByteArray(), 0, bytes.size());
+        } else {
+            throw new IOException("Unsupported data map value of type " + value.getClass().getName());
+        }
+    }
+
+    private Object readValue(Input input) throws IOException {
+        byte tag = input.read();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BYTE:
+                return input.read();
+            case SHORT:
+                return (short) input.readVarLong();
+            case CHAR:
+                return (char) input.readVarInt();
+            case INT:
+                return (int) input.readVarLong();
+            case LONG:
+                return input.readVarLong();
+            case FLOAT:
+                return Float.intBitsToFloat((int) input.readFixed(4));
+            case DOUBLE:
+                return Double.longBitsToDouble(input.readFixed(8));
+            case STRING:
+                return input.readString();
+            case BYTES:
+                return input.readBytes(input.readVarInt());
+            case LIST:
+                int listSize = input.readVarInt();
+                List<Object> list = new ArrayList<>(listSize);
+                for (int i = 0; i < listSize; i++) {
+                    list.add(readValue(input));
+                }
+                return list;
+            case MAP:
+                int mapSize = input.readVarInt();
+                Map<Object, Object> map = new LinkedHashMap<>(Math.max(16, (int) (mapSize / .75f) + 1));
+                for (int i = 0; i < mapSize; i++) {
+                    map.put(readValue(input), readValue(input));
+                }
+                return map;
+            case SERIALIZED:
+                byte[] bytes = input.readBytes(input.readVarInt());
+                try (ObjectInputStream objectInput = new ContextObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return objectInput.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Unable to deserialize data map value", e);
+                }
+            default:
+                throw new IOException("Unknown binary data map value tag " + tag);
+        }
+    }
+
+    /**
+     * Growable byte buffer with variable-length integer encoding.
+     */
+    private static class Output {
+        private byte[] buffer = new byte[128];
+        private int position;
+
+        private void write(byte value) {
+            ensureCapacity(1);
+            buffer[position++] = value;
+        }
+
+        private void write(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+        }
+
+        private void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            // zigzag encoding keeps small negative values short
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            buffer[position++] = (byte) zigzag;
+        }
+
+        private void writeFixed(long value, int length) {
+            ensureCapacity(length);
+            for (int i = length - 1; i >= 0; i--) {
+                buffer[position++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                byte[] newBuffer = new byte[Math.max(buffer.length * 2, position + length)];
+                System.arraycopy(buffer, 0, newBuffer, 0, position);
+                buffer = newBuffer;
+            }
+        }
+
+        private byte[] toByteArray() {
+            byte[] bytes = new byte[position];
+            System.arraycopy(buffer, 0, bytes, 0, position);
+            return bytes;
+        }
+    }
+
+    /**
+     * Reads what {@link Output} writes, failing on truncated data.
+     */
+    private static class Input {
+        private final byte[] buffer;
+        private int position;
+
+        private Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        private byte read() throws IOException {
+            if (position >= buffer.length) {
+                throw new IOException("Truncated binary data map");
+            }
+            return buffer[position++];
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = read();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed variable-length integer in binary data map");
+        }
+
+        private long readVarLong() throws IOException {
+            long zigzag = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = read();
+                zigzag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new IOException("Malformed variable-length integer in binary data map");
+        }
+
+        private long readFixed(int length) throws IOException {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = (value << 8) | (read() & 0xFF);
+            }
+            return value;
+        }
+
+        private byte[] readBytes(int length) throws IOException {
+            if (length < 0 || position + length > buffer.length) {
+                throw new IOException("Truncated binary data map");
+            }
+            byte[] bytes = new byte[length];
+            System.arraycopy(buffer, position, bytes, 0, length);
+            position += length;
+            return bytes;
+        }
+
+        private String readString() throws IOException {
+            int length = readVarInt();
+            if (length < 0 || position + length > buffer.length) {
+                throw new IOException("Truncated binary data map");
+            }
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+
+    /**
+     * Resolves the classes of serialized values with the context class loader, as the job store may have been loaded
+     * by another class loader than the application classes.
+     */
+    private static class ContextObjectInputStream extends ObjectInputStream {
+        private ContextObjectInputStream(InputStream inputStream) throws IOException {
+            super(inputStream);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    // fall back to the default resolution below
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.codec;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Converts the data maps of jobs and triggers to bytes and back when they are persisted by the journaled or JDBC job
+ * stores. The implementation to use is specified with the {@code scheduling.jobStore.dataMapCodec} configuration
+ * property and defaults to {@link BinaryDataMapCodec}.
+ * <p>
+ * Implementations are instantiated by the job store with their public no-arg constructor and must be thread-safe. The
+ * encoded form should start with a format version so it can evolve while previously persisted data maps remain
+ * readable.
+ */
+public interface DataMapCodec {
+    /**
+     * Encodes a data map.
+     *
+     * @param dataMap the data map to encode.
+     * @return the encoded data map.
+     * @throws IOException if a value of the data map is not supported by the codec.
+     */
+    byte[] encode(Map<String, ?> dataMap) throws IOException;
+
+    /**
+     * Decodes a data map encoded by this codec.
+     *
+     * @param bytes the encoded data map.
+     * @return the decoded data map.
+     * @throws IOException if the bytes are not a data map encoded by this codec.
+     */
+    Map<String, Object> decode(byte[] bytes) throws IOException;
+}
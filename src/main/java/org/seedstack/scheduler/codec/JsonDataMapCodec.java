@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link DataMapCodec} writing data maps as JSON objects, for data maps that must stay readable in the job store.
+ * Only null, booleans, numbers, characters, strings, lists and maps with string keys are supported. As JSON does not
+ * retain their type, integral numbers are decoded as {@link Integer} or {@link Long} depending on their magnitude,
+ * decimal numbers as {@link Double} and characters as {@link String}.
+ * <p>
+ * The encoded form is an object with the format version and the data map: <code>{"v":1,"data":{...}}</code>.
+ */
+public class JsonDataMapCodec implements DataMapCodec {
+    private static final int VERSION = 1;
+    private static final String VERSION_FIELD = "v";
+    private static final String DATA_FIELD = "data";
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public byte[] encode(Map<String, ?> dataMap) throws IOException {
+        for (Map.Entry<String, ?> entry : dataMap.entrySet()) {
+            checkValue(entry.getKey(), entry.getValue());
+        }
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put(VERSION_FIELD, VERSION);
+        document.put(DATA_FIELD, dataMap);
+        try {
+            return objectMapper.writeValueAsBytes(document);
+        } catch (JsonProcessingException e) {
+            throw new IOException("Unable to write data map as JSON", e);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> decode(byte[] bytes) throws IOException {
+        Map<String, Object> document = objectMapper.readValue(bytes, MAP_TYPE);
+        Object version = document.get(VERSION_FIELD);
+        if (!Integer.valueOf(VERSION).equals(version)) {
+            throw new IOException("Unsupported JSON data map version " + version);
+        }
+        Object data = document.get(DATA_FIELD);
+        return data instanceof Map ? (Map<String, Object>) data : Collections.emptyMap();
+    }
+
+    private void checkValue(String key, Object value) throws IOException {
+        if (value == null || value instanceof Boolean || value instanceof Number || value instanceof Character
+                || value instanceof String) {
+            return;
+        }
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                checkValue(key, element);
+            }
+        } else if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!(entry.getKey() instanceof String)) {
+                    throw new IOException("Unsupported non-string map key in JSON data map value " + key);
+                }
+                checkValue(key, entry.getValue());
+            }
+        } else {
+            throw new IOException("Unsupported JSON data map value " + key + " of type " + value.getClass().getName());
+        }
+    }
+}
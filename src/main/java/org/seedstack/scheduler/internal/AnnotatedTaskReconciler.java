@@ -0,0 +1,210 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.quartz.CronTrigger;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.seedstack.scheduler.ScheduledTaskBatchResult;
+import org.seedstack.scheduler.ScheduledTaskBuilder;
+import org.seedstack.seed.SeedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.quartz.JobBuilder.newJob;
+
+/**
+ * Brings the job store in line with the declared {@link org.seedstack.scheduler.Scheduled} tasks. Only the tasks that
+ * are new or whose declaration changed are scheduled, and the tasks that are no longer declared are deleted.
+ * <p>
+ * The keys of the jobs managed by reconciliation are recorded in a durable manifest job with a fingerprint of their
+ * declaration, so the changed tasks and the jobs to delete are found with a read of the manifest and of the trigger
+ * keys of each declared group, without reading the jobs and triggers one by one nor listing the whole store.
+ * <p>
+ * The removed jobs are deleted first, then the changed tasks are scheduled with the manifest in a single call to the
+ * job store. The manifest thus never misses a job of the store: if the process stops in between, the deleted jobs are
+ * still listed in the manifest and are deleted again, which has no effect, on the next reconciliation.
+ */
+class AnnotatedTaskReconciler {
+    static final JobKey MANIFEST_KEY = JobKey.jobKey("annotatedTasks", "org.seedstack.scheduler");
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnnotatedTaskReconciler.class);
+    private static final String MANIFEST_ENTRIES = "entries";
+    private static final String ENTRY_SEPARATOR = "\n";
+    private static final String KEY_SEPARATOR = "\t";
+    private final Scheduler scheduler;
+
+    AnnotatedTaskReconciler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Reconciles the job store with the declared tasks.
+     *
+     * @param builders the builders of the declared tasks, with stable identities.
+     * @return the result of the scheduling of the new and changed tasks.
+     */
+    ScheduledTaskBatchResult reconcile(List<ScheduledTaskBuilderImpl> builders) {
+        Map<JobKey, String> declaredFingerprints = new LinkedHashMap<>();
+        Map<ScheduledTaskBuilderImpl, String> validBuilders = new LinkedHashMap<>();
+        Map<ScheduledTaskBuilder, SeedException> failures = new LinkedHashMap<>();
+        ScheduledTaskBatchImpl batch = new ScheduledTaskBatchImpl(scheduler);
+        batch.replaceExisting();
+        int unchangedCount = 0;
+
+        try {
+            for (ScheduledTaskBuilderImpl builder : builders) {
+                try {
+                    builder.validate();
+                    String fingerprint = fingerprint(builder);
+                    declaredFingerprints.put(builder.getJobKey(), fingerprint);
+                    validBuilders.put(builder, fingerprint);
+                } catch (SeedException e) {
+                    failures.put(builder, e);
+                }
+            }
+
+            Map<JobKey, String> manifest = readManifest();
+            Set<TriggerKey> storedTriggerKeys = readTriggerKeys(validBuilders.keySet());
+            for (Map.Entry<ScheduledTaskBuilderImpl, String> entry : validBuilders.entrySet()) {
+                ScheduledTaskBuilderImpl builder = entry.getKey();
+                if (entry.getValue() != null
+                        && entry.getValue().equals(manifest.get(builder.getJobKey()))
+                        && storedTriggerKeys.contains(builder.getTriggerKey())) {
+                    unchangedCount++;
+                } else {
+                    batch.add(builder);
+                }
+            }
+
+            List<JobKey> removedKeys = new ArrayList<>(manifest.keySet());
+            removedKeys.removeAll(declaredFingerprints.keySet());
+            if (!removedKeys.isEmpty()) {
+                scheduler.deleteJobs(removedKeys);
+            }
+
+            batch.addDurableJob(buildManifest(declaredFingerprints));
+            ScheduledTaskBatchResult result = batch.schedule();
+
+            LOGGER.info("Reconciled annotated tasks: {} scheduled, {} unchanged, {} removed",
+                    result.getScheduledCount(), unchangedCount, removedKeys.size());
+            failures.putAll(result.getFailures());
+            return new ScheduledTaskBatchResult(result.getScheduledCount(), failures);
+        } catch (SchedulerException e) {
+            throw SeedException.wrap(e, SchedulerErrorCode.SCHEDULER_ERROR);
+        }
+    }
+
+    /**
+     * Reads the keys of the stored triggers in the groups of the declared tasks, with one read per group.
+     */
+    private Set<TriggerKey> readTriggerKeys(Collection<ScheduledTaskBuilderImpl> builders) throws SchedulerException {
+        Set<String> groups = new LinkedHashSet<>();
+        for (ScheduledTaskBuilderImpl builder : builders) {
+            groups.add(builder.getTriggerKey().getGroup());
+        }
+        Set<TriggerKey> triggerKeys = new HashSet<>();
+        for (String group : groups) {
+            triggerKeys.addAll(scheduler.getTriggerKeys(GroupMatcher.triggerGroupEquals(group)));
+        }
+        return triggerKeys;
+    }
+
+    /**
+     * Computes a digest of everything that is stored for a task, or null if its trigger is not a cron trigger, in
+     * which case it is always rescheduled.
+     */
+    private String fingerprint(ScheduledTaskBuilderImpl builder) {
+        Trigger trigger = builder.getTrigger();
+        if (!(trigger instanceof CronTrigger)) {
+            return null;
+        }
+        CronTrigger cronTrigger = (CronTrigger) trigger;
+        JobDetail jobDetail = builder.buildJobDetail();
+        StringBuilder declaration = new StringBuilder()
+                .append(trigger.getKey()).append(KEY_SEPARATOR)
+                .append(jobDetail.getKey()).append(KEY_SEPARATOR)
+                .append(cronTrigger.getCronExpression()).append(KEY_SEPARATOR)
+                .append(cronTrigger.getTimeZone().getID()).append(KEY_SEPARATOR)
+                .append(trigger.getPriority()).append(KEY_SEPARATOR)
+                .append(jobDetail.getJobClass().getName()).append(KEY_SEPARATOR)
+                .append(jobDetail.isDurable()).append(KEY_SEPARATOR)
+                .append(jobDetail.requestsRecovery());
+        for (Map.Entry<String, Object> data : new TreeMap<>(jobDetail.getJobDataMap().getWrappedMap()).entrySet()) {
+            declaration.append(KEY_SEPARATOR).append(data.getKey()).append('=').append(data.getValue());
+        }
+        return Hashing.sha256().hashString(declaration, StandardCharsets.UTF_8).toString();
+    }
+
+    private Map<JobKey, String> readManifest() throws SchedulerException {
+        JobDetail manifest = scheduler.getJobDetail(MANIFEST_KEY);
+        if (manifest == null) {
+            return Collections.emptyMap();
+        }
+        Map<JobKey, String> fingerprints = new LinkedHashMap<>();
+        String entries = manifest.getJobDataMap().getString(MANIFEST_ENTRIES);
+        if (!Strings.isNullOrEmpty(entries)) {
+            for (String entry : entries.split(ENTRY_SEPARATOR)) {
+                // entries without fingerprint are always rescheduled
+                String[] parts = entry.split(KEY_SEPARATOR, 3);
+                if (parts.length >= 2) {
+                    fingerprints.put(JobKey.jobKey(parts[1], parts[0]), parts.length == 3 ? parts[2] : null);
+                }
+            }
+        }
+        return fingerprints;
+    }
+
+    private JobDetail buildManifest(Map<JobKey, String> fingerprints) {
+        StringBuilder entries = new StringBuilder();
+        for (Map.Entry<JobKey, String> fingerprint : fingerprints.entrySet()) {
+            if (entries.length() > 0) {
+                entries.append(ENTRY_SEPARATOR);
+            }
+            entries.append(fingerprint.getKey().getGroup()).append(KEY_SEPARATOR)
+                    .append(fingerprint.getKey().getName());
+            if (fingerprint.getValue() != null) {
+                entries.append(KEY_SEPARATOR).append(fingerprint.getValue());
+            }
+        }
+        return newJob(ManifestJob.class)
+                .withIdentity(MANIFEST_KEY)
+                .usingJobData(MANIFEST_ENTRIES, entries.toString())
+                .storeDurably()
+                .build();
+    }
+
+    /**
+     * The job holding the manifest. It has no trigger and is never executed.
+     */
+    static class ManifestJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            // never executed
+        }
+    }
+}
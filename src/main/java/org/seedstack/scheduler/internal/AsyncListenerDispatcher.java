@@ -0,0 +1,258 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import javax.inject.Inject;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.TaskListener;
+import org.seedstack.scheduler.metrics.TaskMetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers events to {@link org.seedstack.scheduler.AsyncListener asynchronous listeners} from a dedicated thread.
+ * Events are put on a bounded lock-free queue by the threads executing tasks and are drained in batches, consecutive
+ * {@code after} events of a task being delivered together through {@link TaskListener#afterAll(List)}.
+ * <p>
+ * Listeners receive a {@link SchedulingContextSnapshot} taken when the event is queued, as the execution context
+ * is updated or reused by Quartz once the execution has ended.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+class AsyncListenerDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncListenerDispatcher.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final int queueCapacity;
+    private final int batchSize;
+    private final SchedulerConfig.AsyncListenersConfig.OverflowPolicy overflowPolicy;
+    private final long shutdownTimeout;
+    private final Object lifecycleLock = new Object();
+    private volatile Thread drainingThread;
+    private volatile boolean parked;
+    private volatile boolean stopped;
+    @Inject
+    TaskMetricsRegistry taskMetricsRegistry;
+
+    AsyncListenerDispatcher(SchedulerConfig.AsyncListenersConfig config) {
+        this.queueCapacity = config.getQueueCapacity();
+        this.batchSize = Math.max(1, config.getBatchSize());
+        this.overflowPolicy = config.getOverflowPolicy();
+        this.shutdownTimeout = config.getShutdownTimeout();
+    }
+
+    void before(TaskDefinition taskDefinition, SchedulingContext schedulingContext) {
+        submit(EventType.BEFORE, taskDefinition, schedulingContext, null);
+    }
+
+    void after(TaskDefinition taskDefinition, SchedulingContext schedulingContext) {
+        submit(EventType.AFTER, taskDefinition, schedulingContext, null);
+    }
+
+    void onException(TaskDefinition taskDefinition, SchedulingContext schedulingContext, Exception exception) {
+        submit(EventType.EXCEPTION, taskDefinition, schedulingContext, exception);
+    }
+
+    /**
+     * Stops the draining thread after having delivered the queued events, waiting at most for the configured
+     * shutdown timeout.
+     */
+    void stop() {
+        Thread thread;
+        synchronized (lifecycleLock) {
+            stopped = true;
+            thread = drainingThread;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(shutdownTimeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) {
+                LOGGER.warn("Asynchronous task listeners did not process all their events before shutdown, {} events"
+                        + " are lost", queueSize.get());
+                thread.interrupt();
+            }
+        }
+    }
+
+    int getQueueSize() {
+        return queueSize.get();
+    }
+
+    private void submit(EventType type, TaskDefinition taskDefinition, SchedulingContext schedulingContext,
+            Exception exception) {
+        if (stopped || !reserveSlot()) {
+            handleOverflow(type, taskDefinition, schedulingContext, exception);
+            return;
+        }
+        queue.offer(new Event(type, taskDefinition, SchedulingContextSnapshot.of(schedulingContext), exception));
+        Thread thread = drainingThread;
+        if (thread == null) {
+            thread = startDrainingThread();
+        }
+        if (parked && thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private boolean reserveSlot() {
+        int size;
+        do {
+            size = queueSize.get();
+            if (size >= queueCapacity) {
+                return false;
+            }
+        } while (!queueSize.compareAndSet(size, size + 1));
+        return true;
+    }
+
+    private void handleOverflow(EventType type, TaskDefinition taskDefinition, SchedulingContext schedulingContext,
+            Exception exception) {
+        if (overflowPolicy == SchedulerConfig.AsyncListenersConfig.OverflowPolicy.CALLER_RUNS) {
+            // delivered by the executing thread, while the execution context is still consistent
+            deliver(new Event(type, taskDefinition, schedulingContext, exception));
+        } else {
+            for (int i = 0; i < taskDefinition.getAsyncListeners().length; i++) {
+                taskMetricsRegistry.recordDroppedListenerEvent(taskDefinition.getTaskClass());
+            }
+        }
+    }
+
+    private Thread startDrainingThread() {
+        synchronized (lifecycleLock) {
+            if (drainingThread == null && !stopped) {
+                Thread thread = new Thread(this::drain, "scheduler-async-listeners");
+                thread.setDaemon(true);
+                drainingThread = thread;
+                thread.start();
+            }
+            return drainingThread;
+        }
+    }
+
+    private void drain() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        while (true) {
+            Event event;
+            while (batch.size() < batchSize && (event = queue.poll()) != null) {
+                batch.add(event);
+            }
+            if (batch.isEmpty()) {
+                if (stopped || Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                parked = true;
+                // recheck after publishing the parked flag to avoid missing a wake up
+                if (queue.isEmpty() && !stopped) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+            } else {
+                queueSize.addAndGet(-batch.size());
+                deliverBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliverBatch(List<Event> batch) {
+        // consecutive after events of the same task are delivered together
+        int i = 0;
+        while (i < batch.size()) {
+            Event event = batch.get(i);
+            if (event.type == EventType.AFTER) {
+                List<SchedulingContext> schedulingContexts = new ArrayList<>();
+                int j = i;
+                while (j < batch.size()
+                        && batch.get(j).type == EventType.AFTER
+                        && batch.get(j).taskDefinition == event.taskDefinition) {
+                    schedulingContexts.add(batch.get(j).schedulingContext);
+                    j++;
+                }
+                deliverAfterAll(event.taskDefinition, schedulingContexts);
+                i = j;
+            } else {
+                deliver(event);
+                i++;
+            }
+        }
+    }
+
+    private void deliverAfterAll(TaskDefinition taskDefinition, List<SchedulingContext> schedulingContexts) {
+        for (TaskListener listener : taskDefinition.getAsyncListeners()) {
+            try {
+                listener.afterAll(schedulingContexts);
+            } catch (Exception e) {
+                logListenerException("afterAll", listener, e);
+            }
+        }
+    }
+
+    private void deliver(Event event) {
+        for (TaskListener listener : event.taskDefinition.getAsyncListeners()) {
+            try {
+                switch (event.type) {
+                    case BEFORE:
+                        listener.before(event.schedulingContext);
+                        break;
+                    case AFTER:
+                        listener.after(event.schedulingContext);
+                        break;
+                    default:
+                        listener.onException(event.schedulingContext, event.exception);
+                        break;
+                }
+            } catch (Exception e) {
+                logListenerException(event.type.methodName, listener, e);
+            }
+        }
+    }
+
+    private void logListenerException(String method, TaskListener listener, Exception e) {
+        LOGGER.error("An exception occurred in method {} of asynchronous listener '{}'", method,
+                listener.getClass().getName(), e);
+    }
+
+    private enum EventType {
+        BEFORE("before"),
+        AFTER("after"),
+        EXCEPTION("onException");
+
+        private final String methodName;
+
+        EventType(String methodName) {
+            this.methodName = methodName;
+        }
+    }
+
+    private static class Event {
+        private final EventType type;
+        private final TaskDefinition taskDefinition;
+        private final SchedulingContext schedulingContext;
+        private final Exception exception;
+
+        private Event(EventType type, TaskDefinition taskDefinition, SchedulingContext schedulingContext,
+                Exception exception) {
+            this.type = type;
+            this.taskDefinition = taskDefinition;
+            this.schedulingContext = schedulingContext;
+            this.exception = exception;
+        }
+    }
+}
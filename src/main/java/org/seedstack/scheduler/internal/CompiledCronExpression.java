@@ -0,0 +1,398 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.io.Serializable;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.quartz.CronExpression;
+
+/**
+ * A cron expression whose fields are compiled into bit sets, so that computing the next fire time is done with
+ * integer arithmetic only instead of walking sorted sets with a {@link java.util.Calendar} like
+ * {@link CronExpression} does. Expressions using the {@code L}, {@code W} or {@code #} special characters, as well as
+ * computations around a time zone offset transition, are delegated to the Quartz implementation.
+ * <p>
+ * Instances are immutable and shared between all the triggers using the same expression in the same time zone through
+ * {@link #of(String, TimeZone)}.
+ */
+final class CompiledCronExpression implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_CACHE_SIZE = 1024;
+    private static final ConcurrentMap<String, CompiledCronExpression> CACHE = new ConcurrentHashMap<>();
+    private static final List<String> MONTHS = Arrays.asList(
+            "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC");
+    private static final List<String> DAYS_OF_WEEK = Arrays.asList("SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT");
+    private static final int SECONDS_PER_DAY = 86400;
+    private static final long MILLIS_PER_DAY = SECONDS_PER_DAY * 1000L;
+    private static final int FIRST_YEAR = 1970;
+    private final CronExpression cronExpression;
+    private final TimeZone timeZone;
+    private final boolean compiled;
+    private long secondBits;
+    private long minuteBits;
+    private long hourBits;
+    private long dayOfMonthBits;
+    private long monthBits;
+    private long dayOfWeekBits;
+    private BitSet yearBits;
+    private boolean byDayOfMonth;
+    private int firstSecond;
+    private int firstMinute;
+
+    private CompiledCronExpression(String cronExpression, TimeZone timeZone) throws ParseException {
+        // Quartz validates the expression and handles what is not compiled
+        this.cronExpression = new CronExpression(cronExpression);
+        this.cronExpression.setTimeZone(timeZone);
+        this.timeZone = timeZone;
+        this.compiled = compile(this.cronExpression.getCronExpression());
+    }
+
+    /**
+     * Returns the compiled form of a cron expression in a time zone, parsing it only if it has not already been
+     * compiled.
+     *
+     * @param cronExpression the cron expression.
+     * @param timeZone       the time zone in which the expression is resolved.
+     * @return the shared compiled expression.
+     * @throws ParseException if the cron expression is invalid.
+     */
+    static CompiledCronExpression of(String cronExpression, TimeZone timeZone) throws ParseException {
+        String key = timeZone.getID() + " " + cronExpression.toUpperCase(Locale.US);
+        CompiledCronExpression compiledCronExpression = CACHE.get(key);
+        if (compiledCronExpression == null) {
+            compiledCronExpression = new CompiledCronExpression(cronExpression, timeZone);
+            if (CACHE.size() < MAX_CACHE_SIZE) {
+                CompiledCronExpression existing = CACHE.putIfAbsent(key, compiledCronExpression);
+                if (existing != null) {
+                    compiledCronExpression = existing;
+                }
+            }
+        }
+        return compiledCronExpression;
+    }
+
+    String getCronExpression() {
+        return cronExpression.getCronExpression();
+    }
+
+    TimeZone getTimeZone() {
+        return timeZone;
+    }
+
+    String getExpressionSummary() {
+        return cronExpression.getExpressionSummary();
+    }
+
+    Date getFinalFireTime() {
+        return cronExpression.getFinalFireTime();
+    }
+
+    Date getTimeBefore(Date endTime) {
+        return cronExpression.getTimeBefore(endTime);
+    }
+
+    /**
+     * @return true if the next fire times are computed from the compiled form, false if they are always delegated to
+     *         Quartz.
+     */
+    boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Returns the next time satisfying the expression strictly after the given time, exactly like
+     * {@link CronExpression#getTimeAfter(Date)}.
+     *
+     * @param afterTime the time to start searching from.
+     * @return the next fire time or null if the expression will not be satisfied anymore.
+     */
+    Date getTimeAfter(Date afterTime) {
+        if (!compiled) {
+            return cronExpression.getTimeAfter(afterTime);
+        }
+        // like Quartz, move ahead one second and ignore milliseconds
+        long startMillis = Math.floorDiv(afterTime.getTime(), 1000L) * 1000L + 1000L;
+        if (isNearOffsetTransition(startMillis)) {
+            return cronExpression.getTimeAfter(afterTime);
+        }
+        long localSeconds = nextLocalSeconds((startMillis + timeZone.getOffset(startMillis)) / 1000L);
+        if (localSeconds < 0) {
+            return null;
+        }
+        long localMillis = localSeconds * 1000L;
+        long resultMillis = localMillis - timeZone.getOffset(localMillis - timeZone.getRawOffset());
+        if (isNearOffsetTransition(resultMillis)) {
+            return cronExpression.getTimeAfter(afterTime);
+        }
+        return new Date(resultMillis);
+    }
+
+    private boolean isNearOffsetTransition(long millis) {
+        return timeZone.getOffset(millis - MILLIS_PER_DAY) != timeZone.getOffset(millis + MILLIS_PER_DAY);
+    }
+
+    /**
+     * Finds the first local time (in seconds since the local epoch) at or after the given one matching the
+     * expression.
+     */
+    private long nextLocalSeconds(long fromLocalSeconds) {
+        long days = Math.floorDiv(fromLocalSeconds, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(fromLocalSeconds, SECONDS_PER_DAY);
+        while (true) {
+            int date = civilFromDays(days);
+            int year = date / 10000;
+            int month = date / 100 % 100;
+            int day = date % 100;
+            if (year > CronExpression.MAX_YEAR) {
+                return -1;
+            }
+            if (year < FIRST_YEAR || !yearBits.get(year - FIRST_YEAR)) {
+                int nextYear = yearBits.nextSetBit(Math.max(0, year - FIRST_YEAR));
+                if (nextYear < 0) {
+                    return -1;
+                }
+                days = daysFromCivil(FIRST_YEAR + nextYear, 1, 1);
+                secondOfDay = 0;
+                continue;
+            }
+            if ((monthBits & 1L << month) == 0) {
+                int nextMonth = nextBit(monthBits, month);
+                days = nextMonth < 0 ? daysFromCivil(year + 1, 1, 1) : daysFromCivil(year, nextMonth, 1);
+                secondOfDay = 0;
+                continue;
+            }
+            int daysToAdd = daysToNextDay(days, year, month, day);
+            if (daysToAdd != 0) {
+                days = daysToAdd < 0 ? daysFromCivil(year, month, monthLength(year, month)) + 1 : days + daysToAdd;
+                secondOfDay = 0;
+                continue;
+            }
+            int nextSecondOfDay = nextSecondOfDay(secondOfDay);
+            if (nextSecondOfDay < 0) {
+                days++;
+                secondOfDay = 0;
+                continue;
+            }
+            return days * SECONDS_PER_DAY + nextSecondOfDay;
+        }
+    }
+
+    /**
+     * Returns the number of days to add to reach a matching day in the same month, or -1 if there is none left.
+     */
+    private int daysToNextDay(long days, int year, int month, int day) {
+        int monthLength = monthLength(year, month);
+        if (byDayOfMonth) {
+            int nextDay = nextBit(dayOfMonthBits, day);
+            return nextDay < 0 || nextDay > monthLength ? -1 : nextDay - day;
+        } else {
+            // days of week go from 1 (Sunday) to 7 (Saturday) and 1970-01-01 was a Thursday
+            int dayOfWeek = (int) Math.floorMod(days + 4, 7L) + 1;
+            for (int i = 0; i < 7 && day + i <= monthLength; i++) {
+                if ((dayOfWeekBits & 1L << ((dayOfWeek - 1 + i) % 7 + 1)) != 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the first matching second of the day at or after the given one, or -1 if there is none left.
+     */
+    private int nextSecondOfDay(int secondOfDay) {
+        int hour = secondOfDay / 3600;
+        int minute = secondOfDay / 60 % 60;
+        int second = secondOfDay % 60;
+        int nextHour = nextBit(hourBits, hour);
+        if (nextHour < 0) {
+            return -1;
+        } else if (nextHour > hour) {
+            return nextHour * 3600 + firstMinute * 60 + firstSecond;
+        }
+        int nextMinute = nextBit(minuteBits, minute);
+        if (nextMinute > minute) {
+            return hour * 3600 + nextMinute * 60 + firstSecond;
+        } else if (nextMinute == minute) {
+            int nextSecond = nextBit(secondBits, second);
+            if (nextSecond >= 0) {
+                return hour * 3600 + minute * 60 + nextSecond;
+            }
+            nextMinute = nextBit(minuteBits, minute + 1);
+            if (nextMinute >= 0) {
+                return hour * 3600 + nextMinute * 60 + firstSecond;
+            }
+        }
+        nextHour = nextBit(hourBits, hour + 1);
+        return nextHour < 0 ? -1 : nextHour * 3600 + firstMinute * 60 + firstSecond;
+    }
+
+    private static int nextBit(long bits, int from) {
+        if (from > 63) {
+            return -1;
+        }
+        long remaining = bits & -1L << from;
+        return remaining == 0 ? -1 : Long.numberOfTrailingZeros(remaining);
+    }
+
+    private static int monthLength(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * Converts a number of days since the epoch to a date packed as {@code yyyymmdd}.
+     */
+    private static int civilFromDays(long days) {
+        long shifted = days + 719468;
+        long era = Math.floorDiv(shifted, 146097L);
+        int dayOfEra = (int) (shifted - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * Compiles the fields of an expression already validated by Quartz.
+     *
+     * @return false if the expression uses a syntax which is not compiled.
+     */
+    private boolean compile(String expression) {
+        String[] fields = expression.trim().split("[ \t]+");
+        if (fields.length < 6 || fields.length > 7) {
+            return false;
+        }
+        BitSet seconds = parseField(fields[0], 0, 59, null);
+        BitSet minutes = parseField(fields[1], 0, 59, null);
+        BitSet hours = parseField(fields[2], 0, 23, null);
+        BitSet daysOfMonth = parseField(fields[3], 1, 31, null);
+        BitSet months = parseField(fields[4], 1, 12, MONTHS);
+        BitSet daysOfWeek = parseField(fields[5], 1, 7, DAYS_OF_WEEK);
+        BitSet years = parseField(fields.length == 7 ? fields[6] : "*", FIRST_YEAR, CronExpression.MAX_YEAR, null);
+        if (seconds == null || minutes == null || hours == null || daysOfMonth == null || months == null
+                || daysOfWeek == null || years == null) {
+            return false;
+        }
+        this.secondBits = toLong(seconds);
+        this.minuteBits = toLong(minutes);
+        this.hourBits = toLong(hours);
+        this.dayOfMonthBits = toLong(daysOfMonth);
+        this.monthBits = toLong(months);
+        this.dayOfWeekBits = toLong(daysOfWeek);
+        this.yearBits = years.get(FIRST_YEAR, CronExpression.MAX_YEAR + 1);
+        this.byDayOfMonth = !"?".equals(fields[3]);
+        this.firstSecond = Long.numberOfTrailingZeros(secondBits);
+        this.firstMinute = Long.numberOfTrailingZeros(minuteBits);
+        // exactly one of the day fields is '?', as checked by Quartz
+        return secondBits != 0 && minuteBits != 0 && hourBits != 0 && monthBits != 0 && !yearBits.isEmpty()
+                && (byDayOfMonth ? dayOfMonthBits != 0 : dayOfWeekBits != 0);
+    }
+
+    /**
+     * Parses a field made of comma-separated values, ranges (possibly wrapping around) and increments, or returns
+     * null if it uses any other syntax.
+     */
+    private static BitSet parseField(String field, int min, int max, List<String> names) {
+        BitSet bits = new BitSet();
+        if ("?".equals(field)) {
+            return bits;
+        }
+        for (String part : field.split(",")) {
+            int slash = part.indexOf('/');
+            String range = slash < 0 ? part : part.substring(0, slash);
+            int increment = 1;
+            if (slash >= 0) {
+                increment = parseValue(part.substring(slash + 1), null, 0);
+                if (increment <= 0) {
+                    return null;
+                }
+            }
+            int start;
+            int end;
+            int dash = range.indexOf('-');
+            if ("*".equals(range)) {
+                start = min;
+                end = max;
+            } else if (dash > 0) {
+                start = parseValue(range.substring(0, dash), names, min);
+                end = parseValue(range.substring(dash + 1), names, min);
+            } else {
+                start = parseValue(range, names, min);
+                end = slash < 0 ? start : max;
+            }
+            if (start < min || start > max || end < min || end > max) {
+                return null;
+            }
+            int span = max - min + 1;
+            if (end < start) {
+                if (max >= 100) {
+                    // years don't wrap around
+                    return null;
+                }
+                end += span;
+            }
+            for (int i = start; i <= end; i += increment) {
+                bits.set((i - min) % span + min);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Parses a numeric or named value, returning -1 if it is neither.
+     */
+    private static int parseValue(String value, List<String> names, int firstValue) {
+        if (names != null && names.contains(value)) {
+            return names.indexOf(value) + firstValue;
+        }
+        if (value.isEmpty() || value.length() > 4) {
+            return -1;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return -1;
+            }
+        }
+        return Integer.parseInt(value);
+    }
+
+    private static long toLong(BitSet bits) {
+        long[] words = bits.toLongArray();
+        return words.length == 0 ? 0 : words[0];
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.text.ParseException;
+import java.util.TimeZone;
+import org.quartz.CronTrigger;
+import org.quartz.ScheduleBuilder;
+import org.quartz.spi.MutableTrigger;
+
+/**
+ * Builds {@link CompiledCronTrigger}s, the compiled counterpart of {@link org.quartz.CronScheduleBuilder}.
+ */
+class CompiledCronScheduleBuilder extends ScheduleBuilder<CronTrigger> {
+    private final CompiledCronExpression cronExpression;
+
+    private CompiledCronScheduleBuilder(CompiledCronExpression cronExpression) {
+        this.cronExpression = cronExpression;
+    }
+
+    /**
+     * Creates a schedule builder from a cron expression resolved in a time zone.
+     *
+     * @param cronExpression the cron expression.
+     * @param timeZone       the time zone.
+     * @return the schedule builder.
+     * @throws RuntimeException wrapping a {@link ParseException} if the expression is invalid, like
+     *                          {@link org.quartz.CronScheduleBuilder#cronSchedule(String)}.
+     */
+    static CompiledCronScheduleBuilder compiledCronSchedule(String cronExpression, TimeZone timeZone) {
+        try {
+            return new CompiledCronScheduleBuilder(CompiledCronExpression.of(cronExpression, timeZone));
+        } catch (ParseException e) {
+            throw new RuntimeException("CronExpression '" + cronExpression + "' is invalid.", e);
+        }
+    }
+
+    @Override
+    protected MutableTrigger build() {
+        CompiledCronTrigger trigger = new CompiledCronTrigger();
+        trigger.setCompiledCronExpression(cronExpression);
+        return trigger;
+    }
+}
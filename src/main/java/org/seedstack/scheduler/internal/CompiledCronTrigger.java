@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.TimeZone;
+import org.quartz.CronExpression;
+import org.quartz.impl.triggers.CronTriggerImpl;
+
+/**
+ * A cron trigger computing its fire times with a shared {@link CompiledCronExpression}. The standard Quartz trigger
+ * parses a copy of its cron expression each time it is cloned, which job stores do when storing or acquiring a
+ * trigger, whereas this one keeps referencing the immutable compiled expression.
+ */
+class CompiledCronTrigger extends CronTriggerImpl {
+    private static final long serialVersionUID = 1L;
+    // kept out of the parent class so that clones share it instead of parsing a copy
+    private CompiledCronExpression compiledCronExpression;
+
+    @Override
+    public void setCronExpression(String cronExpression) throws ParseException {
+        this.compiledCronExpression = CompiledCronExpression.of(cronExpression, getTimeZone());
+    }
+
+    @Override
+    public void setCronExpression(CronExpression cronExpression) {
+        setCompiledCronExpression(compile(cronExpression.getCronExpression(), cronExpression.getTimeZone()));
+    }
+
+    void setCompiledCronExpression(CompiledCronExpression compiledCronExpression) {
+        this.compiledCronExpression = compiledCronExpression;
+        super.setTimeZone(compiledCronExpression.getTimeZone());
+    }
+
+    @Override
+    public String getCronExpression() {
+        return compiledCronExpression == null ? null : compiledCronExpression.getCronExpression();
+    }
+
+    @Override
+    public TimeZone getTimeZone() {
+        return compiledCronExpression == null ? super.getTimeZone() : compiledCronExpression.getTimeZone();
+    }
+
+    @Override
+    public void setTimeZone(TimeZone timeZone) {
+        if (compiledCronExpression != null && !compiledCronExpression.getTimeZone().getID().equals(timeZone.getID())) {
+            this.compiledCronExpression = compile(compiledCronExpression.getCronExpression(), timeZone);
+        }
+        super.setTimeZone(timeZone);
+    }
+
+    @Override
+    public Date getFinalFireTime() {
+        Date resultTime;
+        if (getEndTime() != null) {
+            resultTime = getTimeBefore(new Date(getEndTime().getTime() + 1000L));
+        } else {
+            resultTime = compiledCronExpression == null ? null : compiledCronExpression.getFinalFireTime();
+        }
+        if (resultTime != null && getStartTime() != null && resultTime.before(getStartTime())) {
+            return null;
+        }
+        return resultTime;
+    }
+
+    @Override
+    public String getExpressionSummary() {
+        return compiledCronExpression == null ? null : compiledCronExpression.getExpressionSummary();
+    }
+
+    @Override
+    protected Date getTimeAfter(Date afterTime) {
+        return compiledCronExpression == null ? null : compiledCronExpression.getTimeAfter(afterTime);
+    }
+
+    @Override
+    protected Date getTimeBefore(Date endTime) {
+        return compiledCronExpression == null ? null : compiledCronExpression.getTimeBefore(endTime);
+    }
+
+    CompiledCronExpression getCompiledCronExpression() {
+        return compiledCronExpression;
+    }
+
+    private static CompiledCronExpression compile(String cronExpression, TimeZone timeZone) {
+        try {
+            return CompiledCronExpression.of(cronExpression, timeZone);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Cron expression '" + cronExpression + "' is invalid", e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the running executions of a task class or of a job. Permits are taken and given back with compare-and-set
+ * operations only, so the maximum can differ from one execution to another. Fires that could not take a permit can
+ * be queued without holding a thread: the oldest one is refired each time a permit is released.
+ */
+class ConcurrencyLimiter {
+    private final AtomicInteger running = new AtomicInteger();
+    private final Queue<Runnable> pendingFires = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Takes a permit if less than the maximum number of executions are running.
+     *
+     * @param maxConcurrency the maximum number of concurrent executions.
+     * @return true if a permit was taken, false otherwise.
+     */
+    boolean tryAcquire(int maxConcurrency) {
+        int current;
+        do {
+            current = running.get();
+            if (current >= maxConcurrency) {
+                return false;
+            }
+        } while (!running.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Queues a fire which could not take a permit. It is run when a permit is released, and is expected to fire the
+     * task again rather than executing it directly, since it doesn't get a permit itself.
+     *
+     * @param pendingFire    the action refiring the task.
+     * @param maxConcurrency the maximum number of concurrent executions.
+     */
+    void enqueue(Runnable pendingFire, int maxConcurrency) {
+        pendingFires.add(pendingFire);
+        if (running.get() < maxConcurrency) {
+            // a permit has been released since the failed attempt, before the fire was queued
+            runNextPendingFire();
+        }
+    }
+
+    /**
+     * Gives a permit back and runs the oldest pending fire, if any.
+     */
+    void release() {
+        running.decrementAndGet();
+        runNextPendingFire();
+    }
+
+    /**
+     * @return the number of permits currently taken.
+     */
+    int getRunning() {
+        return running.get();
+    }
+
+    /**
+     * @return the number of fires waiting for a permit.
+     */
+    int getPendingCount() {
+        return pendingFires.size();
+    }
+
+    private void runNextPendingFire() {
+        Runnable pendingFire = pendingFires.poll();
+        if (pendingFire != null) {
+            pendingFire.run();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.quartz.JobDataMap;
+import org.quartz.impl.jdbcjobstore.NoSuchDelegateException;
+import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+import org.quartz.spi.ClassLoadHelper;
+import org.seedstack.scheduler.codec.BinaryDataMapCodec;
+import org.seedstack.scheduler.codec.DataMapCodec;
+import org.slf4j.Logger;
+
+/**
+ * Quartz JDBC driver delegate writing the data maps of jobs and triggers with a {@link DataMapCodec} instead of Java
+ * serialization. The codec class is specified with the {@value #DATA_MAP_CODEC_SETTING} setting of the delegate
+ * initialization string. Data maps previously written with Java serialization are still read.
+ * <p>
+ * When the {@code useProperties} option of the job store is enabled, data maps are written as properties as usual.
+ * <p>
+ * Data maps are read with {@link ResultSet#getBytes(String)} and written like with the standard delegate. A driver
+ * delegate adapted to a database can extend this class to keep the codec, as the Quartz database-specific delegates
+ * can't be combined with it.
+ */
+public class DataMapCodecDelegate extends StdJDBCDelegate {
+    static final String DATA_MAP_CODEC_SETTING = "dataMapCodec";
+    private static final byte[] JAVA_SERIALIZATION_MAGIC = {(byte) 0xAC, (byte) 0xED};
+    private DataMapCodec dataMapCodec;
+
+    @Override
+    public void initialize(Logger logger, String tablePrefix, String schedName, String instanceId,
+            ClassLoadHelper classLoadHelper, boolean useProperties, String initString) throws NoSuchDelegateException {
+        String codecClassName = BinaryDataMapCodec.class.getName();
+        List<String> otherSettings = new ArrayList<>();
+        if (initString != null) {
+            // the settings of the standard delegate are passed along as it rejects unknown ones
+            for (String setting : initString.split("\\|")) {
+                String[] parts = setting.split("=", 2);
+                if (DATA_MAP_CODEC_SETTING.equals(parts[0])) {
+                    if (parts.length == 2 && !parts[1].isEmpty()) {
+                        codecClassName = parts[1];
+                    }
+                } else {
+                    otherSettings.add(setting);
+                }
+            }
+        }
+        super.initialize(logger, tablePrefix, schedName, instanceId, classLoadHelper, useProperties,
+                otherSettings.isEmpty() ? null : String.join("|", otherSettings));
+
+        try {
+            dataMapCodec = classLoadHelper.loadClass(codecClassName, DataMapCodec.class)
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new NoSuchDelegateException("Unable to instantiate data map codec " + codecClassName, e);
+        }
+    }
+
+    @Override
+    protected ByteArrayOutputStream serializeJobData(JobDataMap data) throws IOException {
+        if (canUseProperties() || data == null) {
+            return super.serializeJobData(data);
+        }
+        byte[] bytes = dataMapCodec.encode(data.getWrappedMap());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length);
+        outputStream.write(bytes);
+        return outputStream;
+    }
+
+    @Override
+    protected Object getObjectFromBlob(ResultSet rs, String colName)
+            throws ClassNotFoundException, IOException, SQLException {
+        if (!COL_JOB_DATAMAP.equals(colName)) {
+            return super.getObjectFromBlob(rs, colName);
+        }
+        byte[] bytes = rs.getBytes(colName);
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (isJavaSerialization(bytes)) {
+            try (ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return inputStream.readObject();
+            }
+        }
+        return dataMapCodec.decode(bytes);
+    }
+
+    private boolean isJavaSerialization(byte[] bytes) {
+        return bytes.length >= 2 && bytes[0] == JAVA_SERIALIZATION_MAGIC[0] && bytes[1] == JAVA_SERIALIZATION_MAGIC[1];
+    }
+}
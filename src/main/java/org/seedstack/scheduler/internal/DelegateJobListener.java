@@ -7,20 +7,38 @@
  */
 package org.seedstack.scheduler.internal;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
+import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.quartz.JobListener;
+import org.quartz.SchedulerException;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.TaskExecution;
 import org.seedstack.scheduler.TaskListener;
+import org.seedstack.scheduler.metrics.TaskMetricsRegistry;
 import org.seedstack.seed.SeedException;
 
-@SuppressWarnings("rawtypes")
+/**
+ * Notifies the {@link TaskListener}s of a task of its executions and records execution metrics. Listeners are
+ * resolved once per task class in its {@link TaskDefinition}, which is directly reachable from the job instance.
+ * Asynchronous listeners are notified through the {@link AsyncListenerDispatcher}. Executions in progress are tracked
+ * by the {@link TaskWatchdog}.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
 class DelegateJobListener implements JobListener {
+    private final AtomicInteger busyThreads = new AtomicInteger();
+    private volatile int threadPoolSize = -1;
+    @Inject
+    TaskMetricsRegistry taskMetricsRegistry;
+    @Inject
+    AsyncListenerDispatcher asyncListenerDispatcher;
     @Inject
-    Map<String, Set<TaskListener>> taskListeners = new HashMap<>();
+    ExecutionHistory executionHistory;
+    @Inject
+    TaskWatchdog taskWatchdog;
 
     @Override
     public String getName() {
@@ -29,15 +47,21 @@ class DelegateJobListener implements JobListener {
 
     @Override
     public void jobToBeExecuted(JobExecutionContext context) {
-        Set<TaskListener> jobTaskListeners = taskListeners.get(context.getJobDetail().getKey().getGroup());
-        if (jobTaskListeners != null) {
-            for (TaskListener jobTaskListener : jobTaskListeners) {
-                try {
-                    jobTaskListener.before(new SchedulingContextImpl(context));
-                } catch (Exception e) {
-                    throw SeedException.wrap(e, SchedulerErrorCode.EXCEPTION_IN_LISTENER)
-                            .put("method", "before")
-                            .put("listenerClass", jobTaskListener.getClass());
+        TaskDefinition taskDefinition = getTaskDefinition(context);
+        recordStart(context, taskDefinition);
+
+        if (taskDefinition != null) {
+            taskWatchdog.start(context, taskDefinition);
+            TaskListenerEvent event = null;
+            if (FlightRecorderEvents.listeners) {
+                event = new TaskListenerEvent();
+                event.begin();
+            }
+            try {
+                notifyBefore(context, taskDefinition);
+            } finally {
+                if (event != null) {
+                    event.end(context, taskDefinition, "before");
                 }
             }
         }
@@ -45,32 +69,145 @@ class DelegateJobListener implements JobListener {
 
     @Override
     public void jobExecutionVetoed(JobExecutionContext context) {
-        // job veto is not supported by TaskListener
+        // job veto is not supported by TaskListener but another trigger listener may veto after a permit was taken
+        DelegateTriggerListener.releasePermit(context);
     }
 
     @Override
     public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
-        Set<TaskListener> jobTaskListeners = taskListeners.get(context.getJobDetail().getKey().getGroup());
-        if (jobTaskListeners != null) {
-            for (TaskListener jobTaskListener : jobTaskListeners) {
+        DelegateTriggerListener.releasePermit(context);
+        TaskDefinition taskDefinition = getTaskDefinition(context);
+        recordEnd(context, taskDefinition, jobException);
+
+        if (taskDefinition != null) {
+            taskWatchdog.end(context);
+            TaskListenerEvent event = null;
+            if (FlightRecorderEvents.listeners) {
+                event = new TaskListenerEvent();
+                event.begin();
+            }
+            try {
+                notifyAfter(context, taskDefinition, jobException);
+            } finally {
+                if (event != null) {
+                    event.end(context, taskDefinition, jobException != null ? "onException" : "after");
+                }
+            }
+        }
+    }
+
+    private void notifyBefore(JobExecutionContext context, TaskDefinition taskDefinition) {
+        TaskListener[] listeners = taskDefinition.getListeners();
+        if (listeners.length > 0) {
+            SchedulingContext schedulingContext = SchedulingContextImpl.of(context);
+            for (TaskListener listener : listeners) {
+                try {
+                    listener.before(schedulingContext);
+                } catch (Exception e) {
+                    // the job will not be executed
+                    busyThreads.decrementAndGet();
+                    taskWatchdog.end(context);
+                    DelegateTriggerListener.releasePermit(context);
+                    throw SeedException.wrap(e, SchedulerErrorCode.EXCEPTION_IN_LISTENER)
+                            .put("method", "before")
+                            .put("listenerClass", listener.getClass());
+                }
+            }
+        }
+        if (taskDefinition.getAsyncListeners().length > 0) {
+            asyncListenerDispatcher.before(taskDefinition, SchedulingContextImpl.of(context));
+        }
+    }
+
+    private void notifyAfter(JobExecutionContext context, TaskDefinition taskDefinition,
+            JobExecutionException jobException) {
+        TaskListener[] listeners = taskDefinition.getListeners();
+        if (listeners.length > 0) {
+            SchedulingContext schedulingContext = SchedulingContextImpl.of(context);
+            for (TaskListener listener : listeners) {
                 if (jobException != null) {
                     try {
-                        jobTaskListener.onException(new SchedulingContextImpl(context), jobException);
+                        listener.onException(schedulingContext, jobException);
                     } catch (Exception e) {
                         throw SeedException.wrap(e, SchedulerErrorCode.EXCEPTION_IN_LISTENER)
                                 .put("method", "onException")
-                                .put("listenerClass", jobTaskListener.getClass());
+                                .put("listenerClass", listener.getClass());
                     }
                 } else {
                     try {
-                        jobTaskListener.after(new SchedulingContextImpl(context));
+                        listener.after(schedulingContext);
                     } catch (Exception e) {
                         throw SeedException.wrap(e, SchedulerErrorCode.EXCEPTION_IN_LISTENER)
                                 .put("method", "after")
-                                .put("listenerClass", jobTaskListener.getClass());
+                                .put("listenerClass", listener.getClass());
                     }
                 }
             }
         }
+        if (taskDefinition.getAsyncListeners().length > 0) {
+            if (jobException != null) {
+                asyncListenerDispatcher.onException(taskDefinition, SchedulingContextImpl.of(context), jobException);
+            } else {
+                asyncListenerDispatcher.after(taskDefinition, SchedulingContextImpl.of(context));
+            }
+        }
+    }
+
+    private TaskDefinition getTaskDefinition(JobExecutionContext context) {
+        Job job = context.getJobInstance();
+        if (job instanceof TaskDelegateJob) {
+            return ((TaskDelegateJob) job).getTaskDefinition();
+        }
+        // not a job created by the add-on
+        return null;
+    }
+
+    private void recordStart(JobExecutionContext context, TaskDefinition taskDefinition) {
+        taskMetricsRegistry.recordThreadPoolUsage(busyThreads.incrementAndGet(), getThreadPoolSize(context));
+        Date scheduledFireTime = context.getScheduledFireTime();
+        if (taskDefinition != null && scheduledFireTime != null) {
+            taskMetricsRegistry.recordFireLag(taskDefinition.getTaskClass(),
+                    context.getFireTime().getTime() - scheduledFireTime.getTime());
+        }
+    }
+
+    private void recordEnd(JobExecutionContext context, TaskDefinition taskDefinition,
+            JobExecutionException jobException) {
+        taskMetricsRegistry.recordThreadPoolUsage(busyThreads.decrementAndGet(), getThreadPoolSize(context));
+        if (taskDefinition != null) {
+            taskMetricsRegistry.recordExecution(taskDefinition.getTaskClass(), context.getJobRunTime(),
+                    jobException == null);
+            executionHistory.record(taskDefinition.getTaskClass(), new TaskExecution(context.getFireTime(),
+                    getFireLag(context), context.getJobRunTime(), getExceptionClass(jobException)));
+            if (jobException != null && jobException.refireImmediately()) {
+                taskMetricsRegistry.recordRefire(taskDefinition.getTaskClass());
+            }
+        }
+    }
+
+    private long getFireLag(JobExecutionContext context) {
+        Date scheduledFireTime = context.getScheduledFireTime();
+        return scheduledFireTime != null ? context.getFireTime().getTime() - scheduledFireTime.getTime() : 0;
+    }
+
+    private Class<? extends Throwable> getExceptionClass(JobExecutionException jobException) {
+        if (jobException == null) {
+            return null;
+        }
+        // the exception thrown by the task is wrapped by the delegate job
+        Throwable cause = jobException.getCause();
+        return cause != null ? cause.getClass() : jobException.getClass();
+    }
+
+    private int getThreadPoolSize(JobExecutionContext context) {
+        int size = threadPoolSize;
+        if (size < 0) {
+            try {
+                size = threadPoolSize = context.getScheduler().getMetaData().getThreadPoolSize();
+            } catch (SchedulerException e) {
+                size = 0;
+            }
+        }
+        return size;
     }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import javax.inject.Inject;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerListener;
+import org.seedstack.scheduler.SaturationPolicy;
+import org.seedstack.scheduler.metrics.TaskMetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.quartz.TriggerBuilder.newTrigger;
+
+/**
+ * Enforces the {@link org.seedstack.scheduler.MaxConcurrency concurrency limit} of tasks and records misfires. The
+ * permit taken before an execution is kept in the execution context and released by the
+ * {@link DelegateJobListener} once the execution is over. Saturated fires are vetoed, so they never hold a worker
+ * thread, and fired again later with a one-shot trigger when they are queued or delayed.
+ */
+class DelegateTriggerListener implements TriggerListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DelegateTriggerListener.class);
+    private static final String PERMIT_KEY = DelegateTriggerListener.class.getName() + ".permit";
+    @Inject
+    Map<String, TaskDefinition> taskDefinitions = new HashMap<>();
+    @Inject
+    TaskMetricsRegistry taskMetricsRegistry;
+
+    @Override
+    public String getName() {
+        return "delegateTriggerListener";
+    }
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+        // nothing to do
+    }
+
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        Job job = context.getJobInstance();
+        if (!(job instanceof TaskDelegateJob)) {
+            // not a job created by the add-on
+            return false;
+        }
+        TaskDefinition taskDefinition = ((TaskDelegateJob) job).getTaskDefinition();
+        JobSettings jobSettings = JobSettings.of(context.getJobDetail().getJobDataMap());
+        int maxConcurrency = taskDefinition.getMaxConcurrency(jobSettings);
+        if (maxConcurrency <= 0) {
+            return false;
+        }
+
+        ConcurrencyLimiter concurrencyLimiter = taskDefinition.getConcurrencyLimiter(context.getJobDetail().getKey(),
+                jobSettings);
+        if (concurrencyLimiter.tryAcquire(maxConcurrency)) {
+            taskMetricsRegistry.recordPermitWait(taskDefinition.getTaskClass(), 0);
+            context.put(PERMIT_KEY, concurrencyLimiter);
+            return false;
+        }
+
+        SaturationPolicy saturationPolicy = taskDefinition.getSaturationPolicy(jobSettings);
+        taskMetricsRegistry.recordSaturation(taskDefinition.getTaskClass(), saturationPolicy);
+        switch (saturationPolicy) {
+            case QUEUE:
+                // the worker thread is given back, the task is fired again when a permit is released
+                long queuedAt = System.currentTimeMillis();
+                Scheduler scheduler = context.getScheduler();
+                concurrencyLimiter.enqueue(() -> {
+                    taskMetricsRegistry.recordPermitWait(taskDefinition.getTaskClass(),
+                            System.currentTimeMillis() - queuedAt);
+                    refire(trigger, scheduler, 0);
+                }, maxConcurrency);
+                LOGGER.debug("Maximum concurrency of task {} reached, execution queued",
+                        taskDefinition.getTaskClass().getName());
+                return true;
+            case DELAY:
+                refire(trigger, context.getScheduler(), taskDefinition.getSaturationDelay());
+                return true;
+            default:
+                LOGGER.debug("Maximum concurrency of task {} reached, skipping execution",
+                        taskDefinition.getTaskClass().getName());
+                return true;
+        }
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+        TaskDefinition taskDefinition = taskDefinitions.get(trigger.getJobKey().getGroup());
+        if (taskDefinition != null) {
+            taskMetricsRegistry.recordMisfire(taskDefinition.getTaskClass());
+        }
+    }
+
+    @Override
+    public void triggerComplete(Trigger trigger, JobExecutionContext context,
+            Trigger.CompletedExecutionInstruction triggerInstructionCode) {
+        // nothing to do
+    }
+
+    /**
+     * Releases the permit taken for an execution, if any. Can safely be called more than once per execution.
+     *
+     * @param context the execution context.
+     */
+    static void releasePermit(JobExecutionContext context) {
+        Object permit = context.get(PERMIT_KEY);
+        if (permit != null) {
+            context.put(PERMIT_KEY, null);
+            ((ConcurrencyLimiter) permit).release();
+        }
+    }
+
+    private void refire(Trigger trigger, Scheduler scheduler, long delay) {
+        try {
+            scheduler.scheduleJob(newTrigger()
+                    .withIdentity(UUID.randomUUID().toString(), trigger.getKey().getGroup())
+                    .forJob(trigger.getJobKey())
+                    .usingJobData(trigger.getJobDataMap())
+                    .withPriority(trigger.getPriority())
+                    .startAt(new Date(System.currentTimeMillis() + delay))
+                    .build());
+            LOGGER.debug("Job {} fired again in {} ms after reaching its maximum concurrency", trigger.getJobKey(),
+                    delay);
+        } catch (SchedulerException e) {
+            LOGGER.warn("Unable to fire job {} again, skipping execution", trigger.getJobKey(), e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.Task;
+import org.seedstack.scheduler.TaskExecution;
+import org.seedstack.scheduler.TaskHistory;
+import org.seedstack.scheduler.metrics.LatencyHistogram;
+
+/**
+ * Keeps the most recent executions of each task class in a lock-free ring buffer of fixed size. Duration and lag
+ * histograms and failure counts are updated on each execution, so a {@link TaskHistory} is built without going
+ * through all the executions.
+ */
+class ExecutionHistory {
+    private final Map<Class<? extends Task>, Ring> rings = new ConcurrentHashMap<>();
+    private final int size;
+
+    ExecutionHistory(SchedulerConfig.HistoryConfig historyConfig) {
+        this.size = historyConfig.getSize();
+    }
+
+    /**
+     * Records an execution of a task. Called from the scheduler worker threads.
+     *
+     * @param taskClass the task class.
+     * @param execution the execution.
+     */
+    void record(Class<? extends Task> taskClass, TaskExecution execution) {
+        if (size <= 0) {
+            return;
+        }
+        Ring ring = rings.get(taskClass);
+        if (ring == null) {
+            ring = rings.computeIfAbsent(taskClass, k -> new Ring(size));
+        }
+        ring.record(execution);
+    }
+
+    /**
+     * Returns the history of a task class.
+     *
+     * @param taskClass the task class.
+     * @return the history, which is empty if the task never executed or if the history is disabled.
+     */
+    TaskHistory of(Class<? extends Task> taskClass) {
+        Ring ring = rings.get(taskClass);
+        if (ring == null) {
+            return new TaskHistory(taskClass, Collections.emptyList(), null, 0, new LatencyHistogram().snapshot(),
+                    new LatencyHistogram().snapshot());
+        }
+        return ring.snapshot(taskClass);
+    }
+
+    /**
+     * Returns the distribution of the execution durations of a task class, without copying its recent executions.
+     *
+     * @param taskClass the task class.
+     * @return the durations, which are empty if the task never executed or if the history is disabled.
+     */
+    LatencyHistogram.Snapshot durationsOf(Class<? extends Task> taskClass) {
+        Ring ring = rings.get(taskClass);
+        return ring == null ? new LatencyHistogram().snapshot() : ring.durations.snapshot();
+    }
+
+    private static class Ring {
+        private final AtomicReferenceArray<Slot> slots;
+        private final AtomicLong sequence = new AtomicLong();
+        private final LatencyHistogram durations = new LatencyHistogram();
+        private final LatencyHistogram lags = new LatencyHistogram();
+        private final LongAdder failureCount = new LongAdder();
+        private volatile TaskExecution lastFailure;
+
+        private Ring(int size) {
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+
+        private void record(TaskExecution execution) {
+            long slotSequence = sequence.getAndIncrement();
+            slots.set((int) (slotSequence % slots.length()), new Slot(slotSequence, execution));
+            durations.record(execution.getDuration());
+            lags.record(execution.getLag());
+            if (!execution.isSuccessful()) {
+                failureCount.increment();
+                lastFailure = execution;
+            }
+        }
+
+        private TaskHistory snapshot(Class<? extends Task> taskClass) {
+            long last = sequence.get();
+            List<TaskExecution> executions = new ArrayList<>();
+            for (long slotSequence = last - 1; slotSequence >= Math.max(0, last - slots.length()); slotSequence--) {
+                Slot slot = slots.get((int) (slotSequence % slots.length()));
+                // the slot may not be written yet or already overwritten by a more recent execution
+                if (slot != null && slot.sequence == slotSequence) {
+                    executions.add(slot.execution);
+                }
+            }
+            return new TaskHistory(taskClass, executions, lastFailure, failureCount.sum(), durations.snapshot(),
+                    lags.snapshot());
+        }
+    }
+
+    private static class Slot {
+        private final long sequence;
+        private final TaskExecution execution;
+
+        private Slot(long sequence, TaskExecution execution) {
+            this.sequence = sequence;
+            this.execution = execution;
+        }
+    }
+}
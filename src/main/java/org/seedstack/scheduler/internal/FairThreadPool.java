@@ -0,0 +1,522 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import com.google.common.base.Strings;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerConfigException;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.core.JobRunShell;
+import org.quartz.core.QuartzScheduler;
+import org.quartz.simpl.SimpleThreadPool;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.ThreadPool;
+import org.seedstack.scheduler.metrics.TaskMetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Quartz {@link ThreadPool} putting weighted fair queues in front of a fixed pool of threads or of a
+ * {@link VirtualThreadPool}, so a group of jobs firing many triggers cannot starve the other groups when all
+ * threads are busy.
+ * <p>
+ * Fired jobs are queued by the value of the configured tenant key in their merged job data map when present, and by
+ * their job group otherwise. When a thread becomes available, the next job is taken from the non-empty queue with
+ * the lowest pass, which advances by the inverse of the queue weight on each dispatch (stride scheduling). Under
+ * load each queue thus gets a share of the threads proportional to its weight, an idle queue doesn't accumulate
+ * credit and the jobs of a queue run in firing order.
+ * <p>
+ * The scheduler is allowed to fire as many jobs as there are free threads, plus a {@code backlog} of jobs waiting for
+ * a thread, which lets it fire the triggers of all queues instead of only the earliest ones without firing them long
+ * before they can run. The time elapsed between the scheduled fire time of a job and its dispatch to a thread is
+ * recorded per queue in the {@link TaskMetricsRegistry} found in the scheduler context.
+ * <p>
+ * When shut down without waiting for jobs to complete, the jobs still waiting for a thread are completed in the job
+ * store without being executed, like vetoed jobs, so their triggers are not left blocked.
+ */
+public class FairThreadPool implements ThreadPool {
+    static final String METRICS_CONTEXT_KEY = TaskMetricsRegistry.class.getName();
+    static final String DEFAULT_QUEUE = "DEFAULT";
+    private static final Logger LOGGER = LoggerFactory.getLogger(FairThreadPool.class);
+    private static final MethodHandle CONTEXT_GETTER = resolveContextGetter();
+    private static final MethodHandle SCHEDULER_GETTER = resolveSchedulerGetter();
+    private static final MethodHandle JOB_COMPLETE_NOTIFIER = resolveJobCompleteNotifier();
+    private static final long STRIDE_UNIT = 1L << 20;
+    private static final int MAX_IDLE_QUEUES = 1024;
+    private final Object lock = new Object();
+    private final Map<String, FairQueue> queues = new HashMap<>();
+    private final PriorityQueue<FairQueue> activeQueues = new PriorityQueue<>(
+            Comparator.comparingLong(FairQueue::getPass).thenComparingLong(FairQueue::getActivation));
+    private final Map<String, Integer> queueWeights = new HashMap<>();
+    private int threadCount = 10;
+    private int threadPriority = Thread.NORM_PRIORITY;
+    private boolean virtualThreads = false;
+    private int maxConcurrency = 1000;
+    private int backlog = 10;
+    private int defaultWeight = 1;
+    private String weights;
+    private String tenantKey;
+    private String instanceId;
+    private String instanceName = "QuartzScheduler";
+    private ThreadPool delegate;
+    private Thread dispatcher;
+    private TaskMetricsRegistry taskMetricsRegistry;
+    private int queuedCount;
+    private int runningCount;
+    private long activationCount;
+    private long pass;
+    private boolean shutdown;
+    private boolean drainOnShutdown;
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public int getThreadPriority() {
+        return threadPriority;
+    }
+
+    public void setThreadPriority(int threadPriority) {
+        this.threadPriority = threadPriority;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public void setBacklog(int backlog) {
+        this.backlog = backlog;
+    }
+
+    public int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    public void setDefaultWeight(int defaultWeight) {
+        this.defaultWeight = defaultWeight;
+    }
+
+    public String getWeights() {
+        return weights;
+    }
+
+    /**
+     * Sets the weights of the queues as a comma-separated list of {@code queue=weight} pairs.
+     *
+     * @param weights the weights.
+     */
+    public void setWeights(String weights) {
+        this.weights = weights;
+    }
+
+    public String getTenantKey() {
+        return tenantKey;
+    }
+
+    public void setTenantKey(String tenantKey) {
+        this.tenantKey = tenantKey;
+    }
+
+    @Override
+    public boolean runInThread(Runnable runnable) {
+        if (runnable == null) {
+            return false;
+        }
+        JobExecutionContext context = getContext(runnable);
+        String queueName = getQueueName(context);
+        synchronized (lock) {
+            if (shutdown) {
+                return false;
+            }
+            FairQueue queue = queues.get(queueName);
+            if (queue == null) {
+                queue = new FairQueue(queueWeights.getOrDefault(queueName, defaultWeight));
+                queues.put(queueName, queue);
+            }
+            if (queue.entries.isEmpty()) {
+                // an idle queue resumes at the current pass instead of catching up on the time it was idle
+                queue.pass = Math.max(queue.pass, pass);
+                queue.activation = activationCount++;
+                activeQueues.offer(queue);
+            }
+            queue.entries.add(new Entry(runnable, context, queueName));
+            queuedCount++;
+            lock.notifyAll();
+        }
+        return true;
+    }
+
+    @Override
+    public int blockForAvailableThreads() {
+        synchronized (lock) {
+            while (getAvailableCount() < 1 && !shutdown) {
+                try {
+                    lock.wait(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return Math.max(getAvailableCount(), 0);
+        }
+    }
+
+    private int getAvailableCount() {
+        return getPoolSize() - runningCount + backlog - queuedCount;
+    }
+
+    @Override
+    public int getPoolSize() {
+        if (delegate != null) {
+            return delegate.getPoolSize();
+        }
+        return virtualThreads ? maxConcurrency : threadCount;
+    }
+
+    @Override
+    public void initialize() throws SchedulerConfigException {
+        if (backlog < 0) {
+            throw new SchedulerConfigException("Backlog must be positive or zero");
+        }
+        if (defaultWeight <= 0) {
+            throw new SchedulerConfigException("Default queue weight must be greater than zero");
+        }
+        parseWeights();
+
+        if (virtualThreads) {
+            VirtualThreadPool virtualThreadPool = new VirtualThreadPool();
+            virtualThreadPool.setMaxConcurrency(maxConcurrency);
+            delegate = virtualThreadPool;
+        } else {
+            SimpleThreadPool simpleThreadPool = new SimpleThreadPool(threadCount, threadPriority);
+            // same as Quartz default configuration
+            simpleThreadPool.setThreadsInheritContextClassLoaderOfInitializingThread(true);
+            delegate = simpleThreadPool;
+        }
+        delegate.setInstanceId(instanceId);
+        delegate.setInstanceName(instanceName);
+        delegate.initialize();
+
+        dispatcher = new Thread(this::dispatch, instanceName + "_FairDispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        LOGGER.info("Scheduler tasks will be dispatched fairly between queues (weights: {}, default weight: {})",
+                queueWeights, defaultWeight);
+    }
+
+    @Override
+    public void shutdown(boolean waitForJobsToComplete) {
+        List<Entry> discardedEntries = new ArrayList<>();
+        synchronized (lock) {
+            shutdown = true;
+            drainOnShutdown = waitForJobsToComplete;
+            if (!waitForJobsToComplete) {
+                for (FairQueue queue : activeQueues) {
+                    discardedEntries.addAll(queue.entries);
+                }
+                queues.clear();
+                activeQueues.clear();
+                queuedCount = 0;
+            }
+            lock.notifyAll();
+        }
+        if (!discardedEntries.isEmpty()) {
+            LOGGER.info("Discarded {} fired jobs waiting for a thread on scheduler shutdown", discardedEntries.size());
+            discardedEntries.forEach(this::complete);
+        }
+        if (waitForJobsToComplete && dispatcher != null) {
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (delegate != null) {
+            delegate.shutdown(waitForJobsToComplete);
+        }
+    }
+
+    @Override
+    public void setInstanceId(String schedInstId) {
+        this.instanceId = schedInstId;
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        this.instanceName = schedName;
+    }
+
+    private void dispatch() {
+        while (true) {
+            // a thread is waited for before choosing the job, so the choice accounts for all the jobs fired meanwhile
+            delegate.blockForAvailableThreads();
+            Entry entry;
+            synchronized (lock) {
+                while (queuedCount == 0 && !shutdown) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (queuedCount == 0 || shutdown && !drainOnShutdown) {
+                    return;
+                }
+                entry = pollNextEntry();
+                runningCount++;
+                lock.notifyAll();
+            }
+            recordQueueLag(entry);
+            if (!delegate.runInThread(() -> run(entry))) {
+                LOGGER.error("Unable to run a job of queue {}, the thread pool is shut down", entry.queueName);
+                complete(entry);
+                release();
+            }
+        }
+    }
+
+    private void run(Entry entry) {
+        try {
+            entry.runnable.run();
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        synchronized (lock) {
+            runningCount--;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Completes the execution of a job which won't run in the job store, like the shell does for a vetoed job.
+     */
+    private void complete(Entry entry) {
+        if (entry.context == null) {
+            return;
+        }
+        try {
+            OperableTrigger trigger = (OperableTrigger) entry.context.getTrigger();
+            CompletedExecutionInstruction instCode = trigger.executionComplete(entry.context, null);
+            Object quartzScheduler = SCHEDULER_GETTER.invokeExact((JobRunShell) entry.runnable);
+            JOB_COMPLETE_NOTIFIER.invokeExact(quartzScheduler, trigger, entry.context.getJobDetail(), instCode);
+        } catch (Throwable t) {
+            LOGGER.warn("Unable to complete the discarded job {} in the job store",
+                    entry.context.getJobDetail().getKey(), t);
+        }
+    }
+
+    private Entry pollNextEntry() {
+        FairQueue queue = activeQueues.poll();
+        Entry entry = queue.entries.poll();
+        pass = queue.pass;
+        queue.pass += queue.stride;
+        if (!queue.entries.isEmpty()) {
+            activeQueues.offer(queue);
+        } else if (queues.size() - activeQueues.size() > MAX_IDLE_QUEUES) {
+            removeIdleQueues();
+        }
+        queuedCount--;
+        return entry;
+    }
+
+    private void removeIdleQueues() {
+        Iterator<FairQueue> iterator = queues.values().iterator();
+        while (iterator.hasNext()) {
+            FairQueue queue = iterator.next();
+            // only the queues without advance on the others can be forgotten without affecting fairness
+            if (queue.entries.isEmpty() && queue.pass <= pass) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void recordQueueLag(Entry entry) {
+        if (entry.context == null) {
+            return;
+        }
+        if (taskMetricsRegistry == null) {
+            taskMetricsRegistry = getTaskMetricsRegistry(entry.context.getScheduler());
+        }
+        if (taskMetricsRegistry != null) {
+            Date fireTime = entry.context.getScheduledFireTime();
+            if (fireTime == null) {
+                fireTime = entry.context.getFireTime();
+            }
+            taskMetricsRegistry.recordQueueLag(entry.queueName, System.currentTimeMillis() - fireTime.getTime());
+        }
+    }
+
+    private String getQueueName(JobExecutionContext context) {
+        if (context == null) {
+            return DEFAULT_QUEUE;
+        }
+        if (!Strings.isNullOrEmpty(tenantKey)) {
+            Object tenant = context.getMergedJobDataMap().get(tenantKey);
+            if (tenant != null) {
+                return String.valueOf(tenant);
+            }
+        }
+        return context.getJobDetail().getKey().getGroup();
+    }
+
+    private void parseWeights() throws SchedulerConfigException {
+        queueWeights.clear();
+        if (Strings.isNullOrEmpty(weights)) {
+            return;
+        }
+        for (String pair : weights.split(",")) {
+            int separatorIndex = pair.lastIndexOf('=');
+            if (pair.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                int weight = separatorIndex > 0 ? Integer.parseInt(pair.substring(separatorIndex + 1).trim()) : 0;
+                if (weight <= 0) {
+                    throw new SchedulerConfigException("Invalid queue weight: " + pair.trim());
+                }
+                queueWeights.put(pair.substring(0, separatorIndex).trim(), weight);
+            } catch (NumberFormatException e) {
+                throw new SchedulerConfigException("Invalid queue weight: " + pair.trim(), e);
+            }
+        }
+    }
+
+    private static TaskMetricsRegistry getTaskMetricsRegistry(Scheduler scheduler) {
+        if (scheduler == null) {
+            return null;
+        }
+        try {
+            return (TaskMetricsRegistry) scheduler.getContext().get(METRICS_CONTEXT_KEY);
+        } catch (SchedulerException e) {
+            return null;
+        }
+    }
+
+    private static JobExecutionContext getContext(Runnable runnable) {
+        if (!(runnable instanceof JobRunShell)) {
+            return null;
+        }
+        try {
+            return (JobExecutionContext) CONTEXT_GETTER.invokeExact((JobRunShell) runnable);
+        } catch (Throwable t) {
+            throw new IllegalStateException("Unable to access the execution context of " + runnable, t);
+        }
+    }
+
+    private static MethodHandle resolveSchedulerGetter() {
+        try {
+            Field field = JobRunShell.class.getDeclaredField("qs");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .unreflectGetter(field)
+                    .asType(MethodType.methodType(Object.class, JobRunShell.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Unable to access the scheduler of " + JobRunShell.class, e);
+        }
+    }
+
+    private static MethodHandle resolveJobCompleteNotifier() {
+        try {
+            // the job store is only notified of completed jobs by the shell, through the scheduler
+            Method method = QuartzScheduler.class.getDeclaredMethod("notifyJobStoreJobComplete",
+                    OperableTrigger.class, JobDetail.class, CompletedExecutionInstruction.class);
+            method.setAccessible(true);
+            return MethodHandles.lookup()
+                    .unreflect(method)
+                    .asType(MethodType.methodType(void.class, Object.class, OperableTrigger.class, JobDetail.class,
+                            CompletedExecutionInstruction.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Unable to access the job store notification of " + QuartzScheduler.class,
+                    e);
+        }
+    }
+
+    private static MethodHandle resolveContextGetter() {
+        try {
+            // the context is only exposed to subclasses of the shell, once initialized by the scheduler thread
+            Field field = JobRunShell.class.getDeclaredField("jec");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .unreflectGetter(field)
+                    .asType(MethodType.methodType(JobExecutionContext.class, JobRunShell.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Unable to access the execution context of " + JobRunShell.class, e);
+        }
+    }
+
+    private static class FairQueue {
+        private final long stride;
+        private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+        private long pass;
+        private long activation;
+
+        private FairQueue(int weight) {
+            this.stride = STRIDE_UNIT / weight;
+        }
+
+        private long getPass() {
+            return pass;
+        }
+
+        private long getActivation() {
+            return activation;
+        }
+    }
+
+    private static class Entry {
+        private final Runnable runnable;
+        private final JobExecutionContext context;
+        private final String queueName;
+
+        private Entry(Runnable runnable, JobExecutionContext context, String queueName) {
+            this.runnable = runnable;
+            this.context = context;
+            this.queueName = queueName;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.shed.ClassLoaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Switches of the Java Flight Recorder events emitted by the add-on. The event classes extend {@code jdk.jfr.Event},
+ * which is missing from older Java 8 runtimes, so they are only referenced behind these switches and are never loaded
+ * when their events are disabled. A disabled event then costs a single static field read.
+ * <p>
+ * The switches are set when the scheduler is initialized, before any task fires, and cleared when it stops.
+ */
+final class FlightRecorderEvents {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlightRecorderEvents.class);
+    private static final String EVENT_CLASS = "jdk.jfr.Event";
+    static boolean taskExecution;
+    static boolean jobInstantiation;
+    static boolean listeners;
+
+    private FlightRecorderEvents() {
+        // no instantiation allowed
+    }
+
+    /**
+     * Enables the events requested by the configuration, if the runtime supports Java Flight Recorder.
+     *
+     * @param config the flight recorder configuration.
+     */
+    static void configure(SchedulerConfig.FlightRecorderConfig config) {
+        boolean requested = config.isTaskExecution() || config.isJobInstantiation() || config.isListeners();
+        if (requested && !isFlightRecorderAvailable()) {
+            LOGGER.warn("Java Flight Recorder is not available in this runtime, scheduler events are disabled");
+            disable();
+            return;
+        }
+        taskExecution = config.isTaskExecution();
+        jobInstantiation = config.isJobInstantiation();
+        listeners = config.isListeners();
+    }
+
+    static void disable() {
+        taskExecution = false;
+        jobInstantiation = false;
+        listeners = false;
+    }
+
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName(EVENT_CLASS, false, ClassLoaders.findMostCompleteClassLoader(FlightRecorderEvents.class));
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
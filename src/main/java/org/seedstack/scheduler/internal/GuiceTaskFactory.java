@@ -8,6 +8,7 @@
 package org.seedstack.scheduler.internal;
 
 import com.google.inject.Injector;
+import java.util.Map;
 import javax.inject.Inject;
 import org.quartz.Job;
 import org.quartz.Scheduler;
@@ -20,29 +21,55 @@ import org.seedstack.seed.SeedException;
 /**
  * This factory instantiates a {@link Job} wrapping a {@link Task}. The task will be initialized
  * with its listeners. A new Job will be created each time the associated trigger will fire.
+ * <p>
+ * Task definitions are resolved once at startup for all scanned task classes. Task classes that
+ * were not scanned are resolved on their first fire and then cached.
  */
 class GuiceTaskFactory implements JobFactory {
-
     private final Injector injector;
+    private final Map<String, TaskDefinition> taskDefinitions;
 
     @Inject
-    GuiceTaskFactory(Injector injector) {
+    GuiceTaskFactory(Injector injector, Map<String, TaskDefinition> taskDefinitions) {
         this.injector = injector;
+        this.taskDefinitions = taskDefinitions;
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public Job newJob(TriggerFiredBundle bundle, Scheduler scheduler) throws SchedulerException {
-        // create new Job
+        // the job group is the task class name
         String taskClassName = bundle.getJobDetail().getKey().getGroup();
+        JobInstantiationEvent event = null;
+        if (FlightRecorderEvents.jobInstantiation) {
+            event = new JobInstantiationEvent();
+            event.begin();
+        }
         try {
-            return JobDelegateFactory
-                    .buildJobWrapper(injector.getInstance((Class<? extends Task>) Class.forName(taskClassName)));
-
+            TaskDefinition taskDefinition = taskDefinitions.get(taskClassName);
+            if (taskDefinition == null) {
+                taskDefinition = resolveTaskDefinition(taskClassName);
+            }
+            Job job = taskDefinition.newJob();
+            if (event != null) {
+                event.end(bundle, true);
+            }
+            return job;
         } catch (Exception ex) {
+            if (event != null) {
+                event.end(bundle, false);
+            }
             throw SeedException.wrap(ex, SchedulerErrorCode.FAILED_TO_INSTANTIATE_TASK)
                     .put("taskClass", taskClassName);
         }
+    }
 
+    @SuppressWarnings("unchecked")
+    private TaskDefinition resolveTaskDefinition(String taskClassName) throws ClassNotFoundException {
+        Class<? extends Task> taskClass = (Class<? extends Task>) Class.forName(taskClassName);
+        return taskDefinitions.computeIfAbsent(taskClassName, name -> {
+            TaskDefinition taskDefinition = new TaskDefinition(taskClass);
+            taskDefinition.resolve(injector);
+            return taskDefinition;
+        });
     }
 }
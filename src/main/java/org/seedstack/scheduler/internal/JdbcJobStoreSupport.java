@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import com.google.common.base.Strings;
+import io.nuun.kernel.api.plugin.context.InitContext;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.quartz.utils.ConnectionProvider;
+import org.quartz.utils.DBConnectionManager;
+import org.seedstack.jdbc.spi.JdbcProvider;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.seed.SeedException;
+import org.seedstack.shed.ClassLoaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Makes a data source of the JDBC add-on available to the Quartz JDBC job stores and optionally creates the Quartz
+ * tables in it. This class is only loaded when a data source is configured, as the JDBC add-on is optional.
+ */
+final class JdbcJobStoreSupport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcJobStoreSupport.class);
+    private static final String QUARTZ_TABLE_PREFIX = "QRTZ_";
+    private static final String QUARTZ_SCRIPT_LOCATION = "org/quartz/impl/jdbcjobstore/";
+
+    private JdbcJobStoreSupport() {
+        // no instantiation allowed
+    }
+
+    /**
+     * Registers the configured data source as a Quartz connection provider and creates the Quartz tables if requested.
+     *
+     * @param initContext    the initialization context of the scheduler plugin.
+     * @param jobStoreConfig the job store configuration.
+     * @return the name under which the data source is known to Quartz.
+     */
+    static String setup(InitContext initContext, SchedulerConfig.JobStoreConfig jobStoreConfig) {
+        String dataSourceName = jobStoreConfig.getDataSource();
+        JdbcProvider jdbcProvider = initContext.dependency(JdbcProvider.class);
+        DataSource dataSource = jdbcProvider.getDataSource(dataSourceName);
+        if (dataSource == null) {
+            throw SeedException.createNew(SchedulerErrorCode.UNKNOWN_DATA_SOURCE)
+                    .put("dataSource", dataSourceName)
+                    .put("dataSources", jdbcProvider.getDataSourceNames());
+        }
+
+        if (jobStoreConfig.isInitializeSchema()) {
+            initializeSchema(dataSource, jobStoreConfig);
+        }
+
+        // Quartz connection providers are JVM-wide so the name must not clash with another scheduler
+        String connectionProviderName = dataSourceName + "-" + UUID.randomUUID();
+        DBConnectionManager.getInstance()
+                .addConnectionProvider(connectionProviderName, new DataSourceConnectionProvider(dataSource));
+        return connectionProviderName;
+    }
+
+    private static void initializeSchema(DataSource dataSource, SchedulerConfig.JobStoreConfig jobStoreConfig) {
+        String tablePrefix = jobStoreConfig.getTablePrefix();
+        String script = null;
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (tableExists(metaData, tablePrefix + "LOCKS")) {
+                LOGGER.debug("Quartz tables with prefix {} already exist in data source {}", tablePrefix,
+                        jobStoreConfig.getDataSource());
+                return;
+            }
+
+            script = Strings.isNullOrEmpty(jobStoreConfig.getSchemaScript())
+                    ? resolveScript(metaData.getDatabaseProductName())
+                    : jobStoreConfig.getSchemaScript();
+            List<String> statements = parseScript(script, tablePrefix);
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : statements) {
+                    statement.execute(sql);
+                }
+            } catch (SQLException e) {
+                // another instance of the cluster may have created the tables at the same time
+                if (!tableExists(metaData, tablePrefix + "LOCKS")) {
+                    throw e;
+                }
+                LOGGER.debug("Quartz tables with prefix {} have been concurrently created", tablePrefix);
+                return;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            LOGGER.info("Created Quartz tables with prefix {} in data source {} using {}", tablePrefix,
+                    jobStoreConfig.getDataSource(), script);
+        } catch (SQLException | IOException e) {
+            throw SeedException.wrap(e, SchedulerErrorCode.UNABLE_TO_INITIALIZE_SCHEMA)
+                    .put("dataSource", jobStoreConfig.getDataSource())
+                    .put("script", String.valueOf(script));
+        }
+    }
+
+    private static boolean tableExists(DatabaseMetaData metaData, String tableName) throws SQLException {
+        // identifiers are stored upper-cased or lower-cased depending on the database
+        for (String candidate : new String[]{tableName, tableName.toUpperCase(Locale.ENGLISH),
+                tableName.toLowerCase(Locale.ENGLISH)}) {
+            try (ResultSet resultSet = metaData.getTables(null, null, candidate, null)) {
+                if (resultSet.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String resolveScript(String databaseProductName) {
+        String productName = databaseProductName.toLowerCase(Locale.ENGLISH);
+        String scriptName;
+        if (productName.contains("h2")) {
+            scriptName = "tables_h2.sql";
+        } else if (productName.contains("hsql")) {
+            scriptName = "tables_hsqldb.sql";
+        } else if (productName.contains("postgres")) {
+            scriptName = "tables_postgres.sql";
+        } else if (productName.contains("mysql") || productName.contains("mariadb")) {
+            scriptName = "tables_mysql_innodb.sql";
+        } else if (productName.contains("oracle")) {
+            scriptName = "tables_oracle.sql";
+        } else if (productName.contains("sql server")) {
+            scriptName = "tables_sqlServer.sql";
+        } else if (productName.contains("derby")) {
+            scriptName = "tables_derby.sql";
+        } else if (productName.contains("db2")) {
+            scriptName = "tables_db2_v95.sql";
+        } else {
+            throw SeedException.createNew(SchedulerErrorCode.UNSUPPORTED_DATABASE)
+                    .put("database", databaseProductName);
+        }
+        return QUARTZ_SCRIPT_LOCATION + scriptName;
+    }
+
+    /**
+     * Splits a Quartz table creation script into statements, skipping the statements dropping or cleaning existing
+     * tables and applying the configured table prefix.
+     */
+    static List<String> parseScript(String script, String tablePrefix) throws IOException {
+        InputStream inputStream = ClassLoaders.findMostCompleteClassLoader(JdbcJobStoreSupport.class)
+                .getResourceAsStream(script);
+        if (inputStream == null) {
+            throw new IOException("Script " + script + " cannot be found in the classpath");
+        }
+
+        StringBuilder content = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int commentIndex = line.indexOf("--");
+                if (commentIndex >= 0) {
+                    line = line.substring(0, commentIndex);
+                }
+                if (!line.trim().startsWith("#")) {
+                    content.append(line).append('\n');
+                }
+            }
+        }
+
+        List<String> statements = new ArrayList<>();
+        for (String statement : content.toString().split(";")) {
+            String sql = statement.trim();
+            String keyword = sql.split("\\s+", 2)[0].toUpperCase(Locale.ENGLISH);
+            if (!sql.isEmpty() && !"DROP".equals(keyword) && !"DELETE".equals(keyword) && !"COMMIT".equals(keyword)) {
+                statements.add(sql.replace(QUARTZ_TABLE_PREFIX, tablePrefix));
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Exposes a data source managed by the JDBC add-on to Quartz. The data source lifecycle is left to the add-on.
+     */
+    private static class DataSourceConnectionProvider implements ConnectionProvider {
+        private volatile DataSource dataSource;
+
+        private DataSourceConnectionProvider(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            DataSource current = dataSource;
+            if (current == null) {
+                throw new SQLException("The scheduler has been shut down");
+            }
+            return current.getConnection();
+        }
+
+        @Override
+        public void shutdown() {
+            // Quartz cannot unregister a provider, so at least release the data source
+            dataSource = null;
+        }
+
+        @Override
+        public void initialize() {
+            // nothing to do
+        }
+    }
+}
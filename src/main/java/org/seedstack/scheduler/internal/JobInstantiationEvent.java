@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.quartz.spi.TriggerFiredBundle;
+
+/**
+ * Java Flight Recorder event spanning the instantiation and injection of a task by {@link GuiceTaskFactory}. Only
+ * referenced when {@link FlightRecorderEvents#jobInstantiation} is enabled.
+ */
+@Name("org.seedstack.scheduler.JobInstantiation")
+@Label("Task Instantiation")
+@Description("Instantiation and injection of a task when its trigger fires")
+@Category({"SeedStack", "Scheduler"})
+@StackTrace(false)
+class JobInstantiationEvent extends Event {
+    @Label("Task Class")
+    String taskClass;
+
+    @Label("Job Key")
+    String jobKey;
+
+    @Label("Trigger Key")
+    String triggerKey;
+
+    @Label("Successful")
+    boolean successful;
+
+    /**
+     * Ends the event and commits it if it is recorded. The fields are only computed in that case.
+     *
+     * @param bundle     the fired trigger and its job.
+     * @param successful true if the task was instantiated.
+     */
+    void end(TriggerFiredBundle bundle, boolean successful) {
+        end();
+        if (shouldCommit()) {
+            // the job group is the task class name
+            this.taskClass = bundle.getJobDetail().getKey().getGroup();
+            this.jobKey = bundle.getJobDetail().getKey().toString();
+            this.triggerKey = bundle.getTrigger().getKey().toString();
+            this.successful = successful;
+            commit();
+        }
+    }
+}
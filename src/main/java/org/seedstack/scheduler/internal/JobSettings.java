@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.quartz.JobDataMap;
+import org.seedstack.scheduler.SaturationPolicy;
+
+/**
+ * Settings given to a job when scheduling it with the {@link org.seedstack.scheduler.ScheduledTaskBuilder}, which
+ * take precedence over the annotations of its task class. They are stored as a single string under a reserved key of
+ * the job data map, so persistent job stores keep them, but this key is hidden from the tasks and listeners (see
+ * {@link SchedulingContextImpl#getDataMap()}). Each distinct value is parsed once and shared by all the jobs and fires
+ * using it.
+ */
+final class JobSettings {
+    static final String KEY = "org.seedstack.scheduler.settings";
+    static final JobSettings NONE = new JobSettings(0, null, -1, -1);
+    private static final String MAX_CONCURRENCY = "maxConcurrency";
+    private static final String SATURATION_POLICY = "saturationPolicy";
+    private static final String TIMEOUT = "timeout";
+    private static final String STUCK_THRESHOLD = "stuckThreshold";
+    private static final char SEPARATOR = ',';
+    private static final int MAX_CACHE_SIZE = 256;
+    private static final ConcurrentMap<String, JobSettings> CACHE = new ConcurrentHashMap<>();
+    private final int maxConcurrency;
+    private final SaturationPolicy saturationPolicy;
+    private final long timeout;
+    private final long stuckThreshold;
+
+    /**
+     * Creates job settings.
+     *
+     * @param maxConcurrency   the maximum number of concurrent executions or 0 if not set.
+     * @param saturationPolicy the saturation policy or null if not set.
+     * @param timeout          the timeout in milliseconds, 0 for no timeout or -1 if not set.
+     * @param stuckThreshold   the stuck threshold in milliseconds, 0 to derive it from the previous execution
+     *                         durations or -1 if not set.
+     */
+    JobSettings(int maxConcurrency, SaturationPolicy saturationPolicy, long timeout, long stuckThreshold) {
+        this.maxConcurrency = maxConcurrency;
+        this.saturationPolicy = saturationPolicy;
+        this.timeout = timeout;
+        this.stuckThreshold = stuckThreshold;
+    }
+
+    /**
+     * Returns the settings stored in a job data map.
+     *
+     * @param jobDataMap the data map of the job.
+     * @return the settings of the job, {@link #NONE} if it has none.
+     */
+    static JobSettings of(JobDataMap jobDataMap) {
+        Object value = jobDataMap.get(KEY);
+        if (value == null) {
+            return NONE;
+        }
+        String encoded = value.toString();
+        JobSettings jobSettings = CACHE.get(encoded);
+        if (jobSettings == null) {
+            jobSettings = parse(encoded);
+            if (CACHE.size() < MAX_CACHE_SIZE) {
+                JobSettings existing = CACHE.putIfAbsent(encoded, jobSettings);
+                if (existing != null) {
+                    jobSettings = existing;
+                }
+            }
+        }
+        return jobSettings;
+    }
+
+    /**
+     * Stores these settings in a job data map.
+     *
+     * @param jobDataMap the data map of the job.
+     */
+    void store(JobDataMap jobDataMap) {
+        StringBuilder sb = new StringBuilder();
+        if (maxConcurrency > 0) {
+            append(sb, MAX_CONCURRENCY, String.valueOf(maxConcurrency));
+        }
+        if (saturationPolicy != null) {
+            append(sb, SATURATION_POLICY, saturationPolicy.name());
+        }
+        if (timeout >= 0) {
+            append(sb, TIMEOUT, String.valueOf(timeout));
+        }
+        if (stuckThreshold >= 0) {
+            append(sb, STUCK_THRESHOLD, String.valueOf(stuckThreshold));
+        }
+        if (sb.length() > 0) {
+            jobDataMap.put(KEY, sb.toString());
+        }
+    }
+
+    /**
+     * @return the maximum number of concurrent executions or 0 if not set.
+     */
+    int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return the saturation policy or null if not set.
+     */
+    SaturationPolicy getSaturationPolicy() {
+        return saturationPolicy;
+    }
+
+    /**
+     * @return the timeout in milliseconds, 0 for no timeout or -1 if not set.
+     */
+    long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return the stuck threshold in milliseconds, 0 to derive it from the previous execution durations or -1 if
+     * not set.
+     */
+    long getStuckThreshold() {
+        return stuckThreshold;
+    }
+
+    static JobSettings parse(String encoded) {
+        int maxConcurrency = 0;
+        SaturationPolicy saturationPolicy = null;
+        long timeout = -1;
+        long stuckThreshold = -1;
+        int start = 0;
+        while (start < encoded.length()) {
+            int end = encoded.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = encoded.length();
+            }
+            int equals = encoded.indexOf('=', start);
+            if (equals > start && equals < end) {
+                String value = encoded.substring(equals + 1, end);
+                switch (encoded.substring(start, equals)) {
+                    case MAX_CONCURRENCY:
+                        maxConcurrency = Integer.parseInt(value);
+                        break;
+                    case SATURATION_POLICY:
+                        saturationPolicy = SaturationPolicy.valueOf(value);
+                        break;
+                    case TIMEOUT:
+                        timeout = Long.parseLong(value);
+                        break;
+                    case STUCK_THRESHOLD:
+                        stuckThreshold = Long.parseLong(value);
+                        break;
+                    default:
+                        // written by a later version, ignored
+                        break;
+                }
+            }
+            start = end + 1;
+        }
+        return new JobSettings(maxConcurrency, saturationPolicy, timeout, stuckThreshold);
+    }
+
+    private static void append(StringBuilder sb, String name, String value) {
+        if (sb.length() > 0) {
+            sb.append(SEPARATOR);
+        }
+        sb.append(name).append('=').append(value);
+    }
+}
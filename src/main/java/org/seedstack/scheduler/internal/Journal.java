@@ -0,0 +1,310 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of records made of a type and a payload, written to memory-mapped segment files of a directory.
+ * A record is only lost if the process crashes while it is written, or if the host crashes before the operating
+ * system writes it back to disk, unless writes are synchronous.
+ * <p>
+ * The journal is periodically compacted into a snapshot holding the records describing the whole state at that time,
+ * after which the older segments are deleted. Replay reads the most recent snapshot then the segments written after it,
+ * up to the first incomplete or corrupted record. This record is overwritten by an end marker and the following
+ * segments are renamed with a {@code .discarded} suffix, so the records appended afterwards are replayed on
+ * the next restart.
+ * <p>
+ * In a segment, a record is stored as its length, the CRC32 of its content, its type and its payload. A zero length
+ * marks the end of a segment, which is the initial content of a mapped file. Snapshots are written to a temporary file
+ * renamed once complete, so their records have no checksum.
+ */
+class Journal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Journal.class);
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".dat";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String DISCARDED_SUFFIX = ".discarded";
+    private static final int HEADER_SIZE = 8;
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean syncWrites;
+    private long segmentSequence;
+    private MappedByteBuffer segment;
+    private long writtenSinceSnapshot;
+
+    /**
+     * Creates a journal in the specified directory, which is created if needed.
+     *
+     * @param directory   the directory of the journal files.
+     * @param segmentSize the size in bytes of the segment files.
+     * @param syncWrites  if true, each record is forced to disk before returning.
+     * @throws IOException if the directory cannot be created.
+     */
+    Journal(Path directory, int segmentSize, boolean syncWrites) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.syncWrites = syncWrites;
+    }
+
+    /**
+     * Reads the records of the most recent snapshot and of the segments written after it. Appending can start once
+     * replay is done, in a new segment.
+     *
+     * @param consumer the consumer of the records, in the order they have been written.
+     * @throws IOException if a file cannot be read.
+     */
+    void replay(RecordConsumer consumer) throws IOException {
+        List<Long> snapshots = listSequences(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        long firstSegment = 0;
+        if (!snapshots.isEmpty()) {
+            firstSegment = snapshots.get(snapshots.size() - 1);
+            readSnapshot(resolve(SNAPSHOT_PREFIX, firstSegment, SNAPSHOT_SUFFIX), consumer);
+        }
+        segmentSequence = firstSegment;
+        boolean corrupted = false;
+        for (long sequence : listSequences(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (sequence >= firstSegment) {
+                segmentSequence = sequence + 1;
+                Path file = resolve(SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+                if (corrupted) {
+                    // the records after a corrupted one would not be consistent
+                    Path discardedFile = file.resolveSibling(file.getFileName() + DISCARDED_SUFFIX);
+                    Files.move(file, discardedFile, StandardCopyOption.REPLACE_EXISTING);
+                    LOGGER.warn("Journal segment {} follows a corrupted record, moved it to {}", file, discardedFile);
+                } else {
+                    int invalidPosition = readSegment(file, consumer);
+                    if (invalidPosition >= 0) {
+                        endSegment(file, invalidPosition);
+                        corrupted = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param type    the type of the record.
+     * @param payload the payload of the record.
+     * @throws IOException if the record cannot be written.
+     */
+    void append(byte type, byte[] payload) throws IOException {
+        int recordSize = HEADER_SIZE + 1 + payload.length;
+        if (segment == null || segment.remaining() < recordSize + Integer.BYTES) {
+            openSegment(Math.max(segmentSize, recordSize + Integer.BYTES));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        int position = segment.position();
+        segment.position(position + Integer.BYTES);
+        segment.putInt((int) crc.getValue());
+        segment.put(type);
+        segment.put(payload);
+        // the length is written last so a partially written record is never read
+        segment.putInt(position, 1 + payload.length);
+        if (syncWrites) {
+            segment.force();
+        }
+        writtenSinceSnapshot += recordSize;
+    }
+
+    /**
+     * @return the number of bytes appended since the last snapshot.
+     */
+    long getWrittenSinceSnapshot() {
+        return writtenSinceSnapshot;
+    }
+
+    /**
+     * Writes a snapshot of the whole state, then deletes the files it makes obsolete. Records appended afterwards go to
+     * a new segment.
+     *
+     * @param writer the writer of the records describing the whole state.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    void snapshot(SnapshotWriter writer) throws IOException {
+        long sequence = segmentSequence;
+        Path snapshotFile = resolve(SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX);
+        Path temporaryFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + TEMPORARY_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream outputStream = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel)));
+            writer.write((type, payload) -> {
+                outputStream.writeInt(1 + payload.length);
+                outputStream.writeByte(type);
+                outputStream.write(payload);
+            });
+            outputStream.writeInt(0);
+            outputStream.flush();
+            channel.force(true);
+        }
+        Files.move(temporaryFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE);
+
+        // the current segment is older than the snapshot
+        closeSegment();
+        writtenSinceSnapshot = 0;
+        for (long previous : listSequences(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (previous < sequence) {
+                Files.deleteIfExists(resolve(SNAPSHOT_PREFIX, previous, SNAPSHOT_SUFFIX));
+            }
+        }
+        for (long previous : listSequences(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (previous < sequence) {
+                Files.deleteIfExists(resolve(SEGMENT_PREFIX, previous, SEGMENT_SUFFIX));
+            }
+        }
+    }
+
+    /**
+     * Forces the written records to disk and releases the current segment.
+     */
+    void close() {
+        closeSegment();
+    }
+
+    private void openSegment(int size) throws IOException {
+        closeSegment();
+        Path file = resolve(SEGMENT_PREFIX, segmentSequence++, SEGMENT_SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // the mapping remains valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void closeSegment() {
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+    }
+
+    /**
+     * Reads the records of a segment.
+     *
+     * @return the position of the first incomplete or corrupted record, or -1 if all the records are valid.
+     */
+    private int readSegment(Path file, RecordConsumer consumer) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        while (buffer.remaining() >= Integer.BYTES) {
+            int position = buffer.position();
+            int length = buffer.getInt();
+            if (length == 0) {
+                return -1;
+            }
+            if (length < 0 || buffer.remaining() < Integer.BYTES + length) {
+                LOGGER.warn("Journal segment {} ends with an incomplete record, ignoring it", file);
+                return position;
+            }
+            int checksum = buffer.getInt();
+            byte type = buffer.get();
+            byte[] payload = new byte[length - 1];
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(type);
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                LOGGER.warn("Journal segment {} contains a corrupted record, ignoring it and the following ones", file);
+                return position;
+            }
+            consumer.accept(type, payload);
+        }
+        return -1;
+    }
+
+    /**
+     * Writes an end marker at a position of a segment, so the records after it are not read anymore.
+     */
+    private void endSegment(Path file, int position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES), position);
+            channel.force(true);
+        }
+    }
+
+    private void readSnapshot(Path file, RecordConsumer consumer) throws IOException {
+        try (InputStream fileInputStream = Files.newInputStream(file);
+             DataInputStream inputStream = new DataInputStream(new BufferedInputStream(fileInputStream))) {
+            int length;
+            while ((length = inputStream.readInt()) != 0) {
+                byte type = inputStream.readByte();
+                byte[] payload = new byte[length - 1];
+                inputStream.readFully(payload);
+                consumer.accept(type, payload);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Journal snapshot " + file + " is incomplete", e);
+        }
+    }
+
+    private List<Long> listSequences(String prefix, String suffix) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    sequences.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    LOGGER.debug("Ignoring file {} in journal directory", file);
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    private Path resolve(String prefix, long sequence, String suffix) {
+        return directory.resolve(String.format("%s%019d%s", prefix, sequence, suffix));
+    }
+
+    /**
+     * Receives the records read from the journal.
+     */
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(byte type, byte[] payload) throws IOException;
+    }
+
+    /**
+     * Writes the records of a snapshot.
+     */
+    @FunctionalInterface
+    interface SnapshotWriter {
+        void write(RecordConsumer output) throws IOException;
+    }
+}
@@ -0,0 +1,710 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import com.google.common.base.Strings;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.quartz.Calendar;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Scheduler;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredBundle;
+import org.quartz.spi.TriggerFiredResult;
+import org.seedstack.scheduler.codec.BinaryDataMapCodec;
+import org.seedstack.scheduler.codec.DataMapCodec;
+import org.seedstack.seed.SeedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Quartz {@link org.quartz.spi.JobStore} keeping its state in memory like the {@link RAMJobStore}, and persisting each
+ * change to an append-only {@link Journal} in a local directory. The state is restored from the journal at startup,
+ * so jobs and triggers survive restarts without a database.
+ * <p>
+ * The journal records the state of each job, trigger and calendar after it changes, not the operation that changed it,
+ * so replay only keeps the last record of each entity. The data maps of jobs and triggers are written with the
+ * configured {@link DataMapCodec}, and the data map of a job is journaled again after an execution only if it
+ * changed. Its size is bounded by compacting it into a snapshot when more than {@code compactionThreshold} bytes have
+ * been written since the last one, and at startup.
+ * <p>
+ * The executions of jobs requesting recovery are journaled too: those that were still running when the process stopped
+ * are fired again at startup with a one-shot trigger of the {@link Scheduler#DEFAULT_RECOVERY_GROUP}, which reports
+ * the execution as recovering, like with the JDBC job stores. Non-durable jobs are removed with their last trigger.
+ * <p>
+ * Triggers acquired or blocked when the process stopped are waiting again after restart, and misfires are handled
+ * as usual when they are acquired.
+ */
+public class JournaledJobStore extends RAMJobStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournaledJobStore.class);
+    private static final byte JOB = 1;
+    private static final byte JOB_REMOVED = 2;
+    private static final byte TRIGGER = 3;
+    private static final byte TRIGGER_REMOVED = 4;
+    private static final byte CALENDAR = 5;
+    private static final byte CALENDAR_REMOVED = 6;
+    private static final byte PAUSED_GROUPS = 7;
+    private static final byte EXECUTION_STARTED = 8;
+    private static final byte EXECUTION_COMPLETED = 9;
+    private static final byte CLEARED = 10;
+    private final Map<String, byte[]> recoverableExecutions = new LinkedHashMap<>();
+    private String directory;
+    private int segmentSize = 16 * 1024 * 1024;
+    private long compactionThreshold = 64 * 1024 * 1024;
+    private boolean syncWrites = false;
+    private String dataMapCodecClass = BinaryDataMapCodec.class.getName();
+    private ClassLoadHelper classLoadHelper;
+    private DataMapCodec dataMapCodec;
+    private Journal journal;
+    private boolean journaling;
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public long getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    public void setCompactionThreshold(long compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public boolean isSyncWrites() {
+        return syncWrites;
+    }
+
+    public void setSyncWrites(boolean syncWrites) {
+        this.syncWrites = syncWrites;
+    }
+
+    public String getDataMapCodec() {
+        return dataMapCodecClass;
+    }
+
+    public void setDataMapCodec(String dataMapCodec) {
+        this.dataMapCodecClass = dataMapCodec;
+    }
+
+    @Override
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler schedSignaler) {
+        if (Strings.isNullOrEmpty(directory)) {
+            throw SeedException.createNew(SchedulerErrorCode.MISSING_JOURNAL_DIRECTORY);
+        }
+        super.initialize(loadHelper, schedSignaler);
+        this.classLoadHelper = loadHelper;
+        try {
+            dataMapCodec = loadHelper.loadClass(dataMapCodecClass, DataMapCodec.class)
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw SeedException.wrap(e, SchedulerErrorCode.FAILED_TO_INSTANTIATE_DATA_MAP_CODEC)
+                    .put("codecClass", dataMapCodecClass);
+        }
+        synchronized (lock) {
+            try {
+                journal = new Journal(Paths.get(directory), segmentSize, syncWrites);
+                ReplayedState state = new ReplayedState();
+                journal.replay(state::apply);
+                restore(state);
+                journaling = true;
+                recover(state);
+                journal.snapshot(this::writeSnapshot);
+                LOGGER.info("Restored {} jobs and {} triggers from journal in {}", state.jobs.size(),
+                        state.triggers.size(), directory);
+            } catch (IOException | JobPersistenceException | ClassNotFoundException e) {
+                throw SeedException.wrap(e, SchedulerErrorCode.UNABLE_TO_READ_JOURNAL)
+                        .put("directory", directory);
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        synchronized (lock) {
+            journaling = false;
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    @Override
+    public boolean supportsPersistence() {
+        return true;
+    }
+
+    @Override
+    public void clearAllSchedulingData() throws JobPersistenceException {
+        synchronized (lock) {
+            super.clearAllSchedulingData();
+            recoverableExecutions.clear();
+            append(CLEARED, new byte[0]);
+        }
+    }
+
+    @Override
+    public void storeJob(JobDetail newJob, boolean replaceExisting) throws ObjectAlreadyExistsException {
+        synchronized (lock) {
+            // serialized first so a job that cannot be journaled is not stored
+            byte[] payload = journaling ? serializeJob(newJob) : null;
+            // stored with a clean data map so only the executions changing it journal the job again
+            super.storeJob(newJob.getJobBuilder().setJobData(new JobDataMap(newJob.getJobDataMap())).build(),
+                    replaceExisting);
+            append(JOB, payload);
+        }
+    }
+
+    @Override
+    public boolean removeJob(JobKey jobKey) {
+        synchronized (lock) {
+            boolean found = super.removeJob(jobKey);
+            journalJob(jobKey);
+            return found;
+        }
+    }
+
+    @Override
+    public void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting) throws JobPersistenceException {
+        synchronized (lock) {
+            // encoded before storing the trigger, so a data map the codec cannot write fails without changing the store
+            byte[] encodedDataMap = journaling ? encode(newTrigger.getJobDataMap()) : null;
+            super.storeTrigger(newTrigger, replaceExisting);
+            if (journaling) {
+                // the stored trigger is a copy of the new one, only its state has to be read
+                append(TRIGGER, serializeTrigger(newTrigger, encodedDataMap,
+                        getPersistentState(newTrigger.getKey())));
+            }
+        }
+    }
+
+    @Override
+    public boolean removeTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            OperableTrigger trigger = retrieveTrigger(triggerKey);
+            boolean found = super.removeTrigger(triggerKey);
+            journalTrigger(triggerKey);
+            if (trigger != null) {
+                // a non-durable job is removed with its last trigger
+                journalJob(trigger.getJobKey());
+            }
+            return found;
+        }
+    }
+
+    @Override
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+        synchronized (lock) {
+            boolean found = super.replaceTrigger(triggerKey, newTrigger);
+            journalTrigger(triggerKey);
+            journalTrigger(newTrigger.getKey());
+            return found;
+        }
+    }
+
+    @Override
+    public void storeCalendar(String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+            throws ObjectAlreadyExistsException {
+        synchronized (lock) {
+            byte[] payload = journaling ? serialize(name, calendar) : null;
+            super.storeCalendar(name, calendar, replaceExisting, updateTriggers);
+            append(CALENDAR, payload);
+            if (updateTriggers) {
+                for (TriggerKey triggerKey : getTriggerKeys(GroupMatcher.anyTriggerGroup())) {
+                    OperableTrigger trigger = retrieveTrigger(triggerKey);
+                    if (trigger != null && name.equals(trigger.getCalendarName())) {
+                        journalTrigger(triggerKey);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean removeCalendar(String calName) throws JobPersistenceException {
+        synchronized (lock) {
+            boolean found = super.removeCalendar(calName);
+            if (found && journaling) {
+                append(CALENDAR_REMOVED, serialize(calName));
+            }
+            return found;
+        }
+    }
+
+    @Override
+    public void pauseTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            super.pauseTrigger(triggerKey);
+            journalTrigger(triggerKey);
+        }
+    }
+
+    @Override
+    public List<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) {
+        synchronized (lock) {
+            List<String> pausedGroups = super.pauseTriggers(matcher);
+            journalPausedGroups();
+            return pausedGroups;
+        }
+    }
+
+    @Override
+    public List<String> pauseJobs(GroupMatcher<JobKey> matcher) {
+        synchronized (lock) {
+            List<String> pausedGroups = super.pauseJobs(matcher);
+            journalPausedGroups();
+            return pausedGroups;
+        }
+    }
+
+    @Override
+    public void resumeTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            super.resumeTrigger(triggerKey);
+            journalTrigger(triggerKey);
+        }
+    }
+
+    @Override
+    public List<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) {
+        synchronized (lock) {
+            List<String> resumedGroups = super.resumeTriggers(matcher);
+            journalPausedGroups();
+            return resumedGroups;
+        }
+    }
+
+    @Override
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) {
+        synchronized (lock) {
+            Collection<String> resumedGroups = super.resumeJobs(matcher);
+            journalPausedGroups();
+            return resumedGroups;
+        }
+    }
+
+    @Override
+    public void pauseAll() {
+        synchronized (lock) {
+            super.pauseAll();
+            journalPausedGroups();
+        }
+    }
+
+    @Override
+    public void resumeAll() {
+        synchronized (lock) {
+            super.resumeAll();
+            journalPausedGroups();
+        }
+    }
+
+    @Override
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> firedTriggers) {
+        synchronized (lock) {
+            List<TriggerFiredResult> results = super.triggersFired(firedTriggers);
+            List<TriggerFiredResult> journaledResults = new ArrayList<>(results.size());
+            for (TriggerFiredResult result : results) {
+                TriggerFiredBundle bundle = result.getTriggerFiredBundle();
+                if (bundle != null) {
+                    OperableTrigger trigger = bundle.getTrigger();
+                    journalTrigger(trigger.getKey());
+                    if (bundle.getJobDetail().requestsRecovery() && journaling) {
+                        byte[] payload = serializeTrigger(trigger, bundle.getFireTime(),
+                                bundle.getScheduledFireTime());
+                        recoverableExecutions.put(trigger.getFireInstanceId(), payload);
+                        append(EXECUTION_STARTED, payload);
+                    }
+                    if (Scheduler.DEFAULT_RECOVERY_GROUP.equals(trigger.getKey().getGroup())) {
+                        result = new TriggerFiredResult(new TriggerFiredBundle(bundle.getJobDetail(), trigger,
+                                bundle.getCalendar(), true, bundle.getFireTime(), bundle.getScheduledFireTime(),
+                                bundle.getPrevFireTime(), bundle.getNextFireTime()));
+                    }
+                }
+                journaledResults.add(result);
+            }
+            return journaledResults;
+        }
+    }
+
+    @Override
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail,
+            Trigger.CompletedExecutionInstruction triggerInstCode) {
+        synchronized (lock) {
+            boolean dataMapChanged = jobDetail.isPersistJobDataAfterExecution()
+                    && jobDetail.getJobDataMap().isDirty();
+            super.triggeredJobComplete(trigger, jobDetail, triggerInstCode);
+            if (recoverableExecutions.remove(trigger.getFireInstanceId()) != null) {
+                append(EXECUTION_COMPLETED, serialize(trigger.getFireInstanceId()));
+            }
+            if (dataMapChanged) {
+                journalJob(jobDetail.getKey());
+            }
+            if (triggerInstCode == Trigger.CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE
+                    || triggerInstCode == Trigger.CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
+                for (OperableTrigger jobTrigger : getTriggersForJob(jobDetail.getKey())) {
+                    journalTrigger(jobTrigger.getKey());
+                }
+            } else {
+                journalTrigger(trigger.getKey());
+            }
+        }
+    }
+
+    private void journalJob(JobKey jobKey) {
+        if (journaling) {
+            JobDetail jobDetail = retrieveJob(jobKey);
+            if (jobDetail == null) {
+                append(JOB_REMOVED, serialize(jobKey));
+            } else {
+                append(JOB, serializeJob(jobDetail));
+            }
+        }
+    }
+
+    private void journalTrigger(TriggerKey triggerKey) {
+        if (journaling) {
+            OperableTrigger trigger = retrieveTrigger(triggerKey);
+            if (trigger == null) {
+                append(TRIGGER_REMOVED, serialize(triggerKey));
+            } else {
+                append(TRIGGER, serializeTrigger(trigger, getPersistentState(triggerKey)));
+            }
+        }
+    }
+
+    private void journalPausedGroups() {
+        if (journaling) {
+            append(PAUSED_GROUPS, serialize(new HashSet<>(pausedTriggerGroups), new HashSet<>(pausedJobGroups)));
+        }
+    }
+
+    private Trigger.TriggerState getPersistentState(TriggerKey triggerKey) {
+        Trigger.TriggerState state;
+        try {
+            state = getTriggerState(triggerKey);
+        } catch (JobPersistenceException e) {
+            throw SeedException.wrap(e, SchedulerErrorCode.UNABLE_TO_WRITE_JOURNAL)
+                    .put("directory", directory);
+        }
+        // blocked triggers are waiting again once the execution of their job is over
+        return state == Trigger.TriggerState.BLOCKED ? Trigger.TriggerState.NORMAL : state;
+    }
+
+    private void append(byte type, byte[] payload) {
+        if (journaling) {
+            try {
+                journal.append(type, payload);
+                if (journal.getWrittenSinceSnapshot() > compactionThreshold) {
+                    journal.snapshot(this::writeSnapshot);
+                }
+            } catch (IOException e) {
+                throw SeedException.wrap(e, SchedulerErrorCode.UNABLE_TO_WRITE_JOURNAL)
+                        .put("directory", directory);
+            }
+        }
+    }
+
+    private void writeSnapshot(Journal.RecordConsumer output) throws IOException {
+        for (String calendarName : getCalendarNames()) {
+            output.accept(CALENDAR, serialize(calendarName, retrieveCalendar(calendarName)));
+        }
+        for (String jobGroup : getJobGroupNames()) {
+            for (JobKey jobKey : getJobKeys(GroupMatcher.jobGroupEquals(jobGroup))) {
+                output.accept(JOB, serializeJob(retrieveJob(jobKey)));
+            }
+        }
+        for (TriggerKey triggerKey : getTriggerKeys(GroupMatcher.anyTriggerGroup())) {
+            output.accept(TRIGGER, serializeTrigger(retrieveTrigger(triggerKey), getPersistentState(triggerKey)));
+        }
+        output.accept(PAUSED_GROUPS, serialize(new HashSet<>(pausedTriggerGroups), new HashSet<>(pausedJobGroups)));
+        for (byte[] execution : recoverableExecutions.values()) {
+            output.accept(EXECUTION_STARTED, execution);
+        }
+    }
+
+    /**
+     * Loads the replayed state in memory, without journaling it.
+     */
+    private void restore(ReplayedState state) throws JobPersistenceException {
+        for (Map.Entry<String, Calendar> calendar : state.calendars.entrySet()) {
+            super.storeCalendar(calendar.getKey(), calendar.getValue(), true, false);
+        }
+        for (JobDetail jobDetail : state.jobs.values()) {
+            super.storeJob(jobDetail, true);
+        }
+        pausedTriggerGroups.addAll(state.pausedTriggerGroups);
+        pausedJobGroups.addAll(state.pausedJobGroups);
+        for (ReplayedTrigger replayedTrigger : state.triggers.values()) {
+            OperableTrigger trigger = replayedTrigger.trigger;
+            JobDetail jobDetail = state.jobs.get(trigger.getJobKey());
+            if (jobDetail == null) {
+                LOGGER.warn("Ignoring journaled trigger {} of missing job {}", trigger.getKey(), trigger.getJobKey());
+                continue;
+            }
+            super.storeTrigger(trigger, true);
+            switch (replayedTrigger.state) {
+                case PAUSED:
+                    super.pauseTrigger(trigger.getKey());
+                    break;
+                case COMPLETE:
+                    super.triggeredJobComplete(trigger, jobDetail,
+                            Trigger.CompletedExecutionInstruction.SET_TRIGGER_COMPLETE);
+                    break;
+                case ERROR:
+                    super.triggeredJobComplete(trigger, jobDetail,
+                            Trigger.CompletedExecutionInstruction.SET_TRIGGER_ERROR);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Schedules the executions of jobs requesting recovery that did not complete.
+     */
+    private void recover(ReplayedState state) throws IOException, ClassNotFoundException, JobPersistenceException {
+        for (Map.Entry<String, byte[]> execution : state.executions.entrySet()) {
+            try (ObjectInputStream inputStream = newObjectInputStream(execution.getValue())) {
+                OperableTrigger trigger = readTrigger(inputStream);
+                Date fireTime = (Date) inputStream.readObject();
+                Date scheduledFireTime = (Date) inputStream.readObject();
+                JobDetail jobDetail = retrieveJob(trigger.getJobKey());
+                if (jobDetail == null || !jobDetail.requestsRecovery()) {
+                    continue;
+                }
+                JobDataMap jobDataMap = new JobDataMap(trigger.getJobDataMap());
+                jobDataMap.put(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_NAME, trigger.getKey().getName());
+                jobDataMap.put(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_GROUP, trigger.getKey().getGroup());
+                jobDataMap.put(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_FIRETIME_IN_MILLISECONDS,
+                        String.valueOf(fireTime.getTime()));
+                jobDataMap.put(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_SCHEDULED_FIRETIME_IN_MILLISECONDS,
+                        String.valueOf(scheduledFireTime.getTime()));
+                OperableTrigger recoveryTrigger = (OperableTrigger) TriggerBuilder.newTrigger()
+                        .withIdentity("recover_" + execution.getKey(), Scheduler.DEFAULT_RECOVERY_GROUP)
+                        .forJob(jobDetail)
+                        .startAt(scheduledFireTime)
+                        .withPriority(trigger.getPriority())
+                        .usingJobData(jobDataMap)
+                        .withSchedule(SimpleScheduleBuilder.simpleSchedule()
+                                .withMisfireHandlingInstructionIgnoreMisfires())
+                        .build();
+                recoveryTrigger.computeFirstFireTime(null);
+                storeTrigger(recoveryTrigger, true);
+                LOGGER.info("Recovering interrupted execution of job {} fired by trigger {}", jobDetail.getKey(),
+                        trigger.getKey());
+            }
+        }
+    }
+
+    /**
+     * Serializes a job, with its data map written by the data map codec.
+     */
+    private byte[] serializeJob(JobDetail jobDetail) {
+        return serialize(jobDetail.getJobBuilder().setJobData(new JobDataMap()).build(),
+                encode(jobDetail.getJobDataMap()));
+    }
+
+    /**
+     * Serializes a trigger, with its data map written by the data map codec, followed by other objects.
+     */
+    private byte[] serializeTrigger(OperableTrigger trigger, Object... objects) {
+        return serializeTrigger(trigger, encode(trigger.getJobDataMap()), objects);
+    }
+
+    /**
+     * Serializes a trigger, with its data map already written by the data map codec, followed by other objects.
+     */
+    private byte[] serializeTrigger(OperableTrigger trigger, byte[] encodedDataMap, Object... objects) {
+        OperableTrigger triggerWithoutData = (OperableTrigger) trigger.clone();
+        triggerWithoutData.setJobDataMap(new JobDataMap());
+        Object[] allObjects = new Object[objects.length + 2];
+        allObjects[0] = triggerWithoutData;
+        allObjects[1] = encodedDataMap;
+        System.arraycopy(objects, 0, allObjects, 2, objects.length);
+        return serialize(allObjects);
+    }
+
+    private byte[] encode(JobDataMap jobDataMap) {
+        try {
+            return dataMapCodec.encode(jobDataMap.getWrappedMap());
+        } catch (IOException e) {
+            throw SeedException.wrap(e, SchedulerErrorCode.UNABLE_TO_WRITE_JOURNAL)
+                    .put("directory", String.valueOf(directory));
+        }
+    }
+
+    private JobDetail readJob(ObjectInputStream inputStream) throws IOException, ClassNotFoundException {
+        JobDetail jobDetail = (JobDetail) inputStream.readObject();
+        return jobDetail.getJobBuilder()
+                .setJobData(new JobDataMap(dataMapCodec.decode((byte[]) inputStream.readObject())))
+                .build();
+    }
+
+    private OperableTrigger readTrigger(ObjectInputStream inputStream) throws IOException, ClassNotFoundException {
+        OperableTrigger trigger = (OperableTrigger) inputStream.readObject();
+        trigger.setJobDataMap(new JobDataMap(dataMapCodec.decode((byte[]) inputStream.readObject())));
+        return trigger;
+    }
+
+    private byte[] serialize(Object... objects) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream outputStream = new ObjectOutputStream(bytes)) {
+            for (Object object : objects) {
+                outputStream.writeObject(object);
+            }
+        } catch (IOException e) {
+            throw SeedException.wrap(e, SchedulerErrorCode.UNABLE_TO_WRITE_JOURNAL)
+                    .put("directory", String.valueOf(directory));
+        }
+        return bytes.toByteArray();
+    }
+
+    private ObjectInputStream newObjectInputStream(byte[] payload) throws IOException {
+        return new ClassLoadHelperObjectInputStream(new ByteArrayInputStream(payload), classLoadHelper);
+    }
+
+    /**
+     * The last journaled state of each entity.
+     */
+    private class ReplayedState {
+        private final Map<JobKey, JobDetail> jobs = new LinkedHashMap<>();
+        private final Map<TriggerKey, ReplayedTrigger> triggers = new LinkedHashMap<>();
+        private final Map<String, Calendar> calendars = new LinkedHashMap<>();
+        private final Set<String> pausedTriggerGroups = new HashSet<>();
+        private final Set<String> pausedJobGroups = new HashSet<>();
+        private final Map<String, byte[]> executions = new LinkedHashMap<>();
+
+        @SuppressWarnings("unchecked")
+        private void apply(byte type, byte[] payload) throws IOException {
+            try (ObjectInputStream inputStream = newObjectInputStream(payload)) {
+                switch (type) {
+                    case JOB:
+                        JobDetail jobDetail = readJob(inputStream);
+                        jobs.put(jobDetail.getKey(), jobDetail);
+                        break;
+                    case JOB_REMOVED:
+                        jobs.remove((JobKey) inputStream.readObject());
+                        break;
+                    case TRIGGER:
+                        OperableTrigger trigger = readTrigger(inputStream);
+                        Trigger.TriggerState state = (Trigger.TriggerState) inputStream.readObject();
+                        triggers.put(trigger.getKey(), new ReplayedTrigger(trigger, state));
+                        break;
+                    case TRIGGER_REMOVED:
+                        triggers.remove((TriggerKey) inputStream.readObject());
+                        break;
+                    case CALENDAR:
+                        calendars.put((String) inputStream.readObject(), (Calendar) inputStream.readObject());
+                        break;
+                    case CALENDAR_REMOVED:
+                        calendars.remove((String) inputStream.readObject());
+                        break;
+                    case PAUSED_GROUPS:
+                        pausedTriggerGroups.clear();
+                        pausedTriggerGroups.addAll((Set<String>) inputStream.readObject());
+                        pausedJobGroups.clear();
+                        pausedJobGroups.addAll((Set<String>) inputStream.readObject());
+                        break;
+                    case EXECUTION_STARTED:
+                        OperableTrigger firedTrigger = readTrigger(inputStream);
+                        executions.put(firedTrigger.getFireInstanceId(), payload);
+                        break;
+                    case EXECUTION_COMPLETED:
+                        executions.remove((String) inputStream.readObject());
+                        break;
+                    case CLEARED:
+                        jobs.clear();
+                        triggers.clear();
+                        calendars.clear();
+                        pausedTriggerGroups.clear();
+                        pausedJobGroups.clear();
+                        executions.clear();
+                        break;
+                    default:
+                        throw new IOException("Unknown journal record type " + type);
+                }
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unable to read journal record of type " + type, e);
+            }
+        }
+    }
+
+    private static class ReplayedTrigger {
+        private final OperableTrigger trigger;
+        private final Trigger.TriggerState state;
+
+        private ReplayedTrigger(OperableTrigger trigger, Trigger.TriggerState state) {
+            this.trigger = trigger;
+            this.state = state;
+        }
+    }
+
+    /**
+     * Resolves the classes of journaled objects with the class loading strategy of Quartz.
+     */
+    private static class ClassLoadHelperObjectInputStream extends ObjectInputStream {
+        private final ClassLoadHelper classLoadHelper;
+
+        private ClassLoadHelperObjectInputStream(InputStream inputStream, ClassLoadHelper classLoadHelper)
+                throws IOException {
+            super(inputStream);
+            this.classLoadHelper = classLoadHelper;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return classLoadHelper.loadClass(desc.getName());
+            } catch (ClassNotFoundException e) {
+                // primitive and array types
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
@@ -15,8 +15,8 @@ import org.seedstack.scheduler.Task;
 @PersistJobDataAfterExecution
 class NonConcurrentPersistentDataTaskDelegateJob extends TaskDelegateJob {
 
-    public NonConcurrentPersistentDataTaskDelegateJob(Task task) {
-        super(task);
+    public NonConcurrentPersistentDataTaskDelegateJob(TaskDefinition taskDefinition, Task task) {
+        super(taskDefinition, task);
     }
 
 }
@@ -13,8 +13,8 @@ import org.seedstack.scheduler.Task;
 @DisallowConcurrentExecution
 class NonConcurrentTaskDelegateJob extends TaskDelegateJob {
 
-    public NonConcurrentTaskDelegateJob(Task task) {
-        super(task);
+    public NonConcurrentTaskDelegateJob(TaskDefinition taskDefinition, Task task) {
+        super(taskDefinition, task);
     }
 
 }
@@ -13,8 +13,8 @@ import org.seedstack.scheduler.Task;
 @PersistJobDataAfterExecution
 class PersistentDataTaskDelegateJob extends TaskDelegateJob {
 
-    public PersistentDataTaskDelegateJob(Task task) {
-        super(task);
+    public PersistentDataTaskDelegateJob(TaskDefinition taskDefinition, Task task) {
+        super(taskDefinition, task);
     }
 
 }
@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.quartz.impl.StdSchedulerFactory.AUTO_GENERATE_INSTANCE_ID;
+import static org.quartz.impl.StdSchedulerFactory.PROP_JOB_STORE_CLASS;
+import static org.quartz.impl.StdSchedulerFactory.PROP_JOB_STORE_PREFIX;
+import static org.quartz.impl.StdSchedulerFactory.PROP_SCHED_BATCH_TIME_WINDOW;
+import static org.quartz.impl.StdSchedulerFactory.PROP_SCHED_IDLE_WAIT_TIME;
+import static org.quartz.impl.StdSchedulerFactory.PROP_SCHED_INSTANCE_ID;
+import static org.quartz.impl.StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME;
+import static org.quartz.impl.StdSchedulerFactory.PROP_SCHED_MAX_BATCH_SIZE;
+import static org.quartz.impl.StdSchedulerFactory.PROP_THREAD_POOL_CLASS;
+import static org.quartz.impl.StdSchedulerFactory.PROP_THREAD_POOL_PREFIX;
+
+import com.google.common.base.Strings;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.jdbcjobstore.DriverDelegate;
+import org.quartz.impl.jdbcjobstore.JobStoreSupport;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.simpl.SimpleThreadPool;
+import org.quartz.spi.JobStore;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.codec.BinaryDataMapCodec;
+import org.seedstack.scheduler.codec.DataMapCodec;
+import org.seedstack.seed.SeedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Translates the {@link SchedulerConfig} into the properties expected by Quartz
+ * {@link org.quartz.impl.StdSchedulerFactory}.
+ */
+final class QuartzProperties {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuartzProperties.class);
+    private static final String DEFAULT_PROPERTIES_FILE = "quartz.properties";
+    private static final String QUARTZ_PREFIX = "org.quartz.";
+
+    private QuartzProperties() {
+        // no instantiation allowed
+    }
+
+    static Properties from(SchedulerConfig schedulerConfig) {
+        return from(schedulerConfig, new Properties());
+    }
+
+    /**
+     * Builds the Quartz properties from the {@link SchedulerConfig} and the standard Quartz properties. The standard
+     * properties override the ones derived from the configuration and the raw {@code scheduling.properties} override
+     * everything. A thread pool or job store class given by the standard properties replaces all the properties
+     * derived for the configured one, as they would not apply to another class.
+     *
+     * @param schedulerConfig    the scheduler configuration.
+     * @param standardProperties the properties returned by {@link #loadStandardProperties(ClassLoader)}.
+     * @return the properties to initialize the {@link StdSchedulerFactory} with.
+     */
+    static Properties from(SchedulerConfig schedulerConfig, Properties standardProperties) {
+        Properties properties = new Properties();
+
+        SchedulerConfig.JobStoreConfig jobStoreConfig = schedulerConfig.jobStore();
+        boolean jdbcJobStore = JobStoreSupport.class.isAssignableFrom(getJobStoreType(jobStoreConfig));
+
+        properties.setProperty(PROP_SCHED_INSTANCE_NAME, schedulerConfig.getInstanceName());
+        if (!Strings.isNullOrEmpty(schedulerConfig.getInstanceId())) {
+            properties.setProperty(PROP_SCHED_INSTANCE_ID, schedulerConfig.getInstanceId());
+        } else if (jdbcJobStore && jobStoreConfig.isClustered()) {
+            properties.setProperty(PROP_SCHED_INSTANCE_ID, AUTO_GENERATE_INSTANCE_ID);
+        }
+        properties.setProperty(PROP_SCHED_IDLE_WAIT_TIME, String.valueOf(schedulerConfig.getIdleWaitTime()));
+        properties.setProperty(PROP_SCHED_MAX_BATCH_SIZE, String.valueOf(schedulerConfig.getMaxBatchSize()));
+        properties.setProperty(PROP_SCHED_BATCH_TIME_WINDOW,
+                String.valueOf(schedulerConfig.getBatchTriggerAcquisitionFireAheadTimeWindow()));
+
+        SchedulerConfig.ThreadPoolConfig threadPoolConfig = schedulerConfig.threadPool();
+        SchedulerConfig.ThreadPoolConfig.FairnessConfig fairnessConfig = threadPoolConfig.fairness();
+        if (fairnessConfig.isEnabled()) {
+            // the fair thread pool creates the configured pool behind its queues
+            properties.setProperty(PROP_THREAD_POOL_CLASS, FairThreadPool.class.getName());
+            properties.setProperty(PROP_THREAD_POOL_PREFIX + ".virtualThreads",
+                    String.valueOf(threadPoolConfig.isVirtualThreads()));
+            properties.setProperty(PROP_THREAD_POOL_PREFIX + ".maxConcurrency",
+                    String.valueOf(threadPoolConfig.getMaxConcurrency()));
+            properties.setProperty(PROP_THREAD_POOL_PREFIX + ".threadCount",
+                    String.valueOf(threadPoolConfig.getThreadCount()));
+            properties.setProperty(PROP_THREAD_POOL_PREFIX + ".threadPriority",
+                    String.valueOf(threadPoolConfig.getThreadPriority()));
+            properties.setProperty(PROP_THREAD_POOL_PREFIX + ".backlog",
+                    String.valueOf(fairnessConfig.getBacklog()));
+            properties.setProperty(PROP_THREAD_POOL_PREFIX + ".defaultWeight",
+                    String.valueOf(fairnessConfig.getDefaultWeight()));
+            if (!fairnessConfig.getWeights().isEmpty()) {
+                properties.setProperty(PROP_THREAD_POOL_PREFIX + ".weights", fairnessConfig.getWeights().entrySet()
+                        .stream()
+                        .map(weight -> weight.getKey() + "=" + weight.getValue())
+                        .collect(Collectors.joining(",")));
+            }
+            if (!Strings.isNullOrEmpty(fairnessConfig.getTenantKey())) {
+                properties.setProperty(PROP_THREAD_POOL_PREFIX + ".tenantKey", fairnessConfig.getTenantKey());
+            }
+        } else if (threadPoolConfig.isVirtualThreads()) {
+            properties.setProperty(PROP_THREAD_POOL_CLASS, VirtualThreadPool.class.getName());
+            properties.setProperty(PROP_THREAD_POOL_PREFIX + ".maxConcurrency",
+                    String.valueOf(threadPoolConfig.getMaxConcurrency()));
+        } else {
+            properties.setProperty(PROP_THREAD_POOL_CLASS, SimpleThreadPool.class.getName());
+            properties.setProperty(PROP_THREAD_POOL_PREFIX + ".threadCount",
+                    String.valueOf(threadPoolConfig.getThreadCount()));
+            properties.setProperty(PROP_THREAD_POOL_PREFIX + ".threadPriority",
+                    String.valueOf(threadPoolConfig.getThreadPriority()));
+            // same as Quartz default configuration
+            properties.setProperty(PROP_THREAD_POOL_PREFIX + ".threadsInheritContextClassLoaderOfInitializingThread",
+                    "true");
+        }
+
+        properties.setProperty(PROP_JOB_STORE_CLASS, getJobStoreType(jobStoreConfig).getName());
+        properties.setProperty(PROP_JOB_STORE_PREFIX + ".misfireThreshold",
+                String.valueOf(jobStoreConfig.getMisfireThreshold()));
+        if (jdbcJobStore) {
+            // these properties are rejected by non-JDBC job stores
+            if (!Strings.isNullOrEmpty(jobStoreConfig.getDataSource())) {
+                properties.setProperty(PROP_JOB_STORE_PREFIX + ".dataSource", jobStoreConfig.getDataSource());
+            }
+            properties.setProperty(PROP_JOB_STORE_PREFIX + ".tablePrefix", jobStoreConfig.getTablePrefix());
+            properties.setProperty(PROP_JOB_STORE_PREFIX + ".isClustered",
+                    String.valueOf(jobStoreConfig.isClustered()));
+            properties.setProperty(PROP_JOB_STORE_PREFIX + ".clusterCheckinInterval",
+                    String.valueOf(jobStoreConfig.getClusterCheckinInterval()));
+            properties.setProperty(PROP_JOB_STORE_PREFIX + ".acquireTriggersWithinLock",
+                    String.valueOf(jobStoreConfig.isAcquireTriggersWithinLock()));
+            Class<? extends DriverDelegate> driverDelegate = jobStoreConfig.getDriverDelegate();
+            if (driverDelegate == null || DataMapCodecDelegate.class.isAssignableFrom(driverDelegate)) {
+                properties.setProperty(PROP_JOB_STORE_PREFIX + ".driverDelegateClass",
+                        (driverDelegate == null ? DataMapCodecDelegate.class : driverDelegate).getName());
+                properties.setProperty(PROP_JOB_STORE_PREFIX + ".driverDelegateInitString",
+                        DataMapCodecDelegate.DATA_MAP_CODEC_SETTING + "=" + getDataMapCodec(jobStoreConfig).getName());
+            } else if (jobStoreConfig.getDataMapCodec() != null) {
+                // other delegates write data maps with Java serialization, which would silently ignore the codec
+                throw SeedException.createNew(SchedulerErrorCode.DATA_MAP_CODEC_NOT_SUPPORTED_BY_DRIVER_DELEGATE)
+                        .put("driverDelegate", driverDelegate.getName())
+                        .put("codecClass", jobStoreConfig.getDataMapCodec().getName());
+            } else {
+                properties.setProperty(PROP_JOB_STORE_PREFIX + ".driverDelegateClass", driverDelegate.getName());
+            }
+        }
+        if (JournaledJobStore.class.isAssignableFrom(getJobStoreType(jobStoreConfig))) {
+            SchedulerConfig.JobStoreConfig.JournalConfig journalConfig = jobStoreConfig.journal();
+            if (!Strings.isNullOrEmpty(journalConfig.getDirectory())) {
+                properties.setProperty(PROP_JOB_STORE_PREFIX + ".directory", journalConfig.getDirectory());
+            }
+            properties.setProperty(PROP_JOB_STORE_PREFIX + ".segmentSize",
+                    String.valueOf(journalConfig.getSegmentSize()));
+            properties.setProperty(PROP_JOB_STORE_PREFIX + ".compactionThreshold",
+                    String.valueOf(journalConfig.getCompactionThreshold()));
+            properties.setProperty(PROP_JOB_STORE_PREFIX + ".syncWrites",
+                    String.valueOf(journalConfig.isSyncWrites()));
+            properties.setProperty(PROP_JOB_STORE_PREFIX + ".dataMapCodec", getDataMapCodec(jobStoreConfig).getName());
+        }
+        for (String name : jobStoreConfig.getProperties().stringPropertyNames()) {
+            properties.setProperty(PROP_JOB_STORE_PREFIX + "." + name,
+                    jobStoreConfig.getProperties().getProperty(name));
+        }
+
+        if (standardProperties.getProperty(PROP_THREAD_POOL_CLASS) != null) {
+            removePrefixed(properties, PROP_THREAD_POOL_PREFIX);
+        }
+        if (standardProperties.getProperty(PROP_JOB_STORE_CLASS) != null) {
+            removePrefixed(properties, PROP_JOB_STORE_PREFIX);
+        }
+        properties.putAll(standardProperties);
+
+        // raw properties override everything else
+        properties.putAll(schedulerConfig.getProperties());
+
+        return properties;
+    }
+
+    /**
+     * Loads the properties that {@link StdSchedulerFactory} reads when it is not given any: the file named by the
+     * {@value StdSchedulerFactory#PROPERTIES_FILE} system property or {@value #DEFAULT_PROPERTIES_FILE}, looked up
+     * in the working directory then in the classpath, overridden by the {@code org.quartz.*} system properties. The
+     * defaults bundled with Quartz are not loaded as the configuration already provides them.
+     *
+     * @param classLoader the class loader to look up the file in the classpath.
+     * @return the standard properties, empty if there are none.
+     */
+    static Properties loadStandardProperties(ClassLoader classLoader) {
+        Properties properties = new Properties();
+        String requestedFile = System.getProperty(StdSchedulerFactory.PROPERTIES_FILE);
+        String fileName = requestedFile != null ? requestedFile : DEFAULT_PROPERTIES_FILE;
+        try {
+            File file = new File(fileName);
+            if (file.exists()) {
+                try (InputStream inputStream = new FileInputStream(file)) {
+                    properties.load(inputStream);
+                }
+                LOGGER.info("Loaded Quartz properties from file {}", file.getAbsolutePath());
+            } else {
+                InputStream inputStream = classLoader.getResourceAsStream(fileName);
+                if (inputStream == null && requestedFile == null) {
+                    inputStream = classLoader.getResourceAsStream("/" + fileName);
+                }
+                if (inputStream != null) {
+                    try (InputStream in = inputStream) {
+                        properties.load(in);
+                    }
+                    LOGGER.info("Loaded Quartz properties from classpath resource {}", fileName);
+                } else if (requestedFile != null) {
+                    throw SeedException.createNew(SchedulerErrorCode.UNABLE_TO_LOAD_QUARTZ_PROPERTIES)
+                            .put("location", requestedFile);
+                }
+            }
+        } catch (IOException e) {
+            throw SeedException.wrap(e, SchedulerErrorCode.UNABLE_TO_LOAD_QUARTZ_PROPERTIES)
+                    .put("location", fileName);
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(QUARTZ_PREFIX)) {
+                properties.setProperty(name, System.getProperty(name));
+            }
+        }
+        return properties;
+    }
+
+    private static void removePrefixed(Properties properties, String prefix) {
+        properties.stringPropertyNames().stream()
+                .filter(name -> name.equals(prefix) || name.startsWith(prefix + "."))
+                .forEach(properties::remove);
+    }
+
+    private static Class<? extends JobStore> getJobStoreType(SchedulerConfig.JobStoreConfig jobStoreConfig) {
+        if (jobStoreConfig.getType() == RAMJobStore.class) {
+            if (!Strings.isNullOrEmpty(jobStoreConfig.getDataSource())) {
+                // a data source implies a persistent job store
+                return JobStoreTX.class;
+            } else if (!Strings.isNullOrEmpty(jobStoreConfig.journal().getDirectory())) {
+                return JournaledJobStore.class;
+            } else if (jobStoreConfig.isTimingWheel()) {
+                return TimingWheelJobStore.class;
+            }
+        }
+        return jobStoreConfig.getType();
+    }
+
+    private static Class<? extends DataMapCodec> getDataMapCodec(SchedulerConfig.JobStoreConfig jobStoreConfig) {
+        return jobStoreConfig.getDataMapCodec() == null ? BinaryDataMapCodec.class : jobStoreConfig.getDataMapCodec();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import org.quartz.JobDataMap;
+import org.quartz.Trigger;
+import org.seedstack.scheduler.Retry;
+import org.seedstack.scheduler.Task;
+import org.seedstack.seed.SeedException;
+
+import static org.quartz.TriggerBuilder.newTrigger;
+
+/**
+ * Computes the retries of the {@link org.seedstack.scheduler.ExceptionPolicy#RETRY_WITH_BACKOFF} exception policy.
+ * Each retry is a one-shot trigger carrying the number of the attempt in its data map, so no thread is held between
+ * attempts and the retries survive a restart with a persistent job store.
+ */
+class RetryBackoff {
+    static final String ATTEMPT_KEY = "org.seedstack.scheduler.retryAttempt";
+    private final int maxAttempts;
+    private final long initialDelay;
+    private final double multiplier;
+    private final double jitter;
+    private final Clock clock;
+    private final DoubleSupplier random;
+
+    RetryBackoff(Class<? extends Task> taskClass, Retry retry) {
+        this(taskClass, retry, Clock.systemUTC(), () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    RetryBackoff(Class<? extends Task> taskClass, Retry retry, Clock clock, DoubleSupplier random) {
+        if (retry.maxAttempts() < 1 || retry.initialDelay() < 0 || retry.multiplier() < 1
+                || retry.jitter() < 0 || retry.jitter() > 1) {
+            throw SeedException.createNew(SchedulerErrorCode.INVALID_RETRY_CONFIGURATION)
+                    .put("class", taskClass.getName())
+                    .put("maxAttempts", retry.maxAttempts())
+                    .put("initialDelay", retry.initialDelay())
+                    .put("multiplier", retry.multiplier())
+                    .put("jitter", retry.jitter());
+        }
+        this.maxAttempts = retry.maxAttempts();
+        this.initialDelay = retry.initialDelay();
+        this.multiplier = retry.multiplier();
+        this.jitter = retry.jitter();
+        this.clock = clock;
+        this.random = random;
+    }
+
+    /**
+     * Returns the number of the attempt fired by a trigger.
+     *
+     * @param trigger the trigger.
+     * @return 0 for a regular execution or the number of the retry.
+     */
+    static int getAttempt(Trigger trigger) {
+        Object value = trigger.getJobDataMap().get(ATTEMPT_KEY);
+        return value == null ? 0 : Integer.parseInt(value.toString());
+    }
+
+    /**
+     * Creates the trigger of the retry following a failed execution.
+     *
+     * @param failedTrigger the trigger of the failed execution.
+     * @return the trigger firing the retry or null if the maximum number of attempts is reached.
+     */
+    Trigger nextRetry(Trigger failedTrigger) {
+        int attempt = getAttempt(failedTrigger) + 1;
+        if (attempt >= maxAttempts) {
+            return null;
+        }
+        JobDataMap jobDataMap = new JobDataMap(failedTrigger.getJobDataMap());
+        // stored as a string to stay compatible with JDBC job stores using properties
+        jobDataMap.put(ATTEMPT_KEY, String.valueOf(attempt));
+        return newTrigger()
+                .withIdentity(UUID.randomUUID().toString(), failedTrigger.getKey().getGroup())
+                .forJob(failedTrigger.getJobKey())
+                .usingJobData(jobDataMap)
+                .withPriority(failedTrigger.getPriority())
+                .startAt(new Date(clock.millis() + computeDelay(attempt)))
+                .build();
+    }
+
+    /**
+     * Computes the delay before a retry.
+     *
+     * @param attempt the number of the retry, starting at 1.
+     * @return the delay in milliseconds.
+     */
+    long computeDelay(int attempt) {
+        double delay = initialDelay * Math.pow(multiplier, attempt - 1);
+        if (jitter > 0) {
+            delay += delay * jitter * (2 * random.getAsDouble() - 1);
+        }
+        return (long) Math.min(delay, Long.MAX_VALUE - clock.millis());
+    }
+}
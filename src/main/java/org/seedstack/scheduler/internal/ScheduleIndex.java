@@ -0,0 +1,364 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.JobListener;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.TriggerListener;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.listeners.SchedulerListenerSupport;
+import org.quartz.spi.OperableTrigger;
+import org.seedstack.scheduler.RunningTaskSnapshot;
+import org.seedstack.scheduler.ScheduledTaskSnapshot;
+import org.seedstack.scheduler.SchedulerSnapshot;
+import org.seedstack.scheduler.TriggerSnapshot;
+
+/**
+ * Index of the scheduled jobs, their triggers and the running executions, maintained in memory from the scheduler,
+ * job and trigger listener events so that {@link SchedulerSnapshot}s are taken without querying the job store. It is
+ * loaded once from the job store at startup.
+ * <p>
+ * The list of scheduled tasks is rebuilt only when the index changed since the previous snapshot. Changes made by
+ * other instances of a cluster are not seen, except for the fires of the triggers by this instance.
+ */
+class ScheduleIndex extends SchedulerListenerSupport implements JobListener, TriggerListener {
+    private static final Comparator<ScheduledTaskSnapshot> TASK_ORDER = Comparator
+            .comparing(ScheduledTaskSnapshot::getGroup)
+            .thenComparing(ScheduledTaskSnapshot::getTaskName);
+    private static final Comparator<RunningTaskSnapshot> RUNNING_TASK_ORDER = Comparator
+            .comparing(RunningTaskSnapshot::getFireDate);
+    private final Map<JobKey, Boolean> jobs = new ConcurrentHashMap<>();
+    private final Map<TriggerKey, TriggerEntry> triggers = new ConcurrentHashMap<>();
+    private final Map<String, JobExecutionContext> runningExecutions = new ConcurrentHashMap<>();
+    private final Set<String> pausedTriggerGroups = ConcurrentHashMap.newKeySet();
+    private final Set<String> pausedJobGroups = ConcurrentHashMap.newKeySet();
+    private final AtomicLong version = new AtomicLong();
+    private volatile TaskList taskList = new TaskList(-1, new ArrayList<>());
+
+    @Override
+    public String getName() {
+        return "scheduleIndex";
+    }
+
+    /**
+     * Loads the jobs and triggers already in the job store. Must be called once the index is registered as listener,
+     * so no change is missed.
+     *
+     * @param scheduler the scheduler.
+     * @throws SchedulerException if the job store cannot be read.
+     */
+    void load(Scheduler scheduler) throws SchedulerException {
+        for (JobKey jobKey : scheduler.getJobKeys(GroupMatcher.anyJobGroup())) {
+            JobDetail jobDetail = scheduler.getJobDetail(jobKey);
+            if (jobDetail != null) {
+                jobs.putIfAbsent(jobKey, jobDetail.isDurable());
+                for (Trigger trigger : scheduler.getTriggersOfJob(jobKey)) {
+                    TriggerSnapshot.State state = toState(scheduler.getTriggerState(trigger.getKey()));
+                    triggers.putIfAbsent(trigger.getKey(), new TriggerEntry(jobKey, toSnapshot(trigger, state)));
+                }
+            }
+        }
+        pausedTriggerGroups.addAll(scheduler.getPausedTriggerGroups());
+        version.incrementAndGet();
+    }
+
+    /**
+     * Takes a snapshot of the index.
+     *
+     * @return the snapshot.
+     */
+    SchedulerSnapshot snapshot() {
+        long now = System.currentTimeMillis();
+        List<RunningTaskSnapshot> runningTasks = new ArrayList<>(runningExecutions.size());
+        for (JobExecutionContext context : runningExecutions.values()) {
+            runningTasks.add(new RunningTaskSnapshot(context.getJobDetail().getKey().getName(),
+                    context.getJobDetail().getKey().getGroup(), context.getTrigger().getKey().getName(),
+                    context.getFireTime(), context.getScheduledFireTime(), now - context.getFireTime().getTime()));
+        }
+        runningTasks.sort(RUNNING_TASK_ORDER);
+        return new SchedulerSnapshot(new Date(now), getTasks(), runningTasks);
+    }
+
+    private List<ScheduledTaskSnapshot> getTasks() {
+        TaskList current = taskList;
+        long currentVersion = version.get();
+        if (current.version == currentVersion) {
+            return current.tasks;
+        }
+        Map<JobKey, List<TriggerSnapshot>> triggersByJob = new HashMap<>();
+        for (TriggerEntry entry : triggers.values()) {
+            triggersByJob.computeIfAbsent(entry.jobKey, k -> new ArrayList<>()).add(entry.snapshot);
+        }
+        List<ScheduledTaskSnapshot> tasks = new ArrayList<>(jobs.size());
+        for (Map.Entry<JobKey, Boolean> job : jobs.entrySet()) {
+            List<TriggerSnapshot> jobTriggers = triggersByJob.getOrDefault(job.getKey(), new ArrayList<>());
+            jobTriggers.sort(Comparator.comparing(TriggerSnapshot::getGroup)
+                    .thenComparing(TriggerSnapshot::getTriggerName));
+            tasks.add(new ScheduledTaskSnapshot(job.getKey().getName(), job.getKey().getGroup(), job.getValue(),
+                    jobTriggers));
+        }
+        tasks.sort(TASK_ORDER);
+        // a concurrent change makes the list stale right away, it is then rebuilt by the next snapshot
+        taskList = new TaskList(currentVersion, tasks);
+        return tasks;
+    }
+
+    @Override
+    public void jobAdded(JobDetail jobDetail) {
+        jobs.put(jobDetail.getKey(), jobDetail.isDurable());
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void jobDeleted(JobKey jobKey) {
+        jobs.remove(jobKey);
+        triggers.values().removeIf(entry -> entry.jobKey.equals(jobKey));
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void jobScheduled(Trigger trigger) {
+        boolean paused = pausedTriggerGroups.contains(trigger.getKey().getGroup())
+                || pausedJobGroups.contains(trigger.getJobKey().getGroup());
+        triggers.put(trigger.getKey(), new TriggerEntry(trigger.getJobKey(),
+                toSnapshot(trigger, paused ? TriggerSnapshot.State.PAUSED : TriggerSnapshot.State.NORMAL)));
+        // a trigger can be scheduled for a job stored earlier without notification
+        jobs.putIfAbsent(trigger.getJobKey(), false);
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void jobUnscheduled(TriggerKey triggerKey) {
+        if (triggerKey == null) {
+            // all scheduling data has been cleared
+            schedulingDataCleared();
+        } else {
+            removeTrigger(triggerKey);
+        }
+    }
+
+    @Override
+    public void triggerFinalized(Trigger trigger) {
+        removeTrigger(trigger.getKey());
+    }
+
+    @Override
+    public void triggerPaused(TriggerKey triggerKey) {
+        setState(triggerKey, TriggerSnapshot.State.PAUSED);
+    }
+
+    @Override
+    public void triggersPaused(String triggerGroup) {
+        if (triggerGroup != null) {
+            pausedTriggerGroups.add(triggerGroup);
+        }
+        setState(entry -> triggerGroup == null || entry.snapshot.getGroup().equals(triggerGroup),
+                TriggerSnapshot.State.PAUSED);
+    }
+
+    @Override
+    public void triggerResumed(TriggerKey triggerKey) {
+        if (triggerKey == null) {
+            // all triggers have been resumed
+            pausedTriggerGroups.clear();
+            pausedJobGroups.clear();
+            setState(entry -> true, TriggerSnapshot.State.NORMAL);
+        } else {
+            setState(triggerKey, TriggerSnapshot.State.NORMAL);
+        }
+    }
+
+    @Override
+    public void triggersResumed(String triggerGroup) {
+        if (triggerGroup == null) {
+            triggerResumed(null);
+        } else {
+            pausedTriggerGroups.remove(triggerGroup);
+            setState(entry -> entry.snapshot.getGroup().equals(triggerGroup), TriggerSnapshot.State.NORMAL);
+        }
+    }
+
+    @Override
+    public void jobPaused(JobKey jobKey) {
+        setState(entry -> entry.jobKey.equals(jobKey), TriggerSnapshot.State.PAUSED);
+    }
+
+    @Override
+    public void jobsPaused(String jobGroup) {
+        pausedJobGroups.add(jobGroup);
+        setState(entry -> entry.jobKey.getGroup().equals(jobGroup), TriggerSnapshot.State.PAUSED);
+    }
+
+    @Override
+    public void jobResumed(JobKey jobKey) {
+        setState(entry -> entry.jobKey.equals(jobKey), TriggerSnapshot.State.NORMAL);
+    }
+
+    @Override
+    public void jobsResumed(String jobGroup) {
+        pausedJobGroups.remove(jobGroup);
+        setState(entry -> entry.jobKey.getGroup().equals(jobGroup), TriggerSnapshot.State.NORMAL);
+    }
+
+    @Override
+    public void schedulingDataCleared() {
+        jobs.clear();
+        triggers.clear();
+        pausedTriggerGroups.clear();
+        pausedJobGroups.clear();
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        runningExecutions.put(context.getFireInstanceId(), context);
+    }
+
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        runningExecutions.remove(context.getFireInstanceId());
+    }
+
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        runningExecutions.remove(context.getFireInstanceId());
+    }
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context) {
+        // the fired trigger is a copy already holding its next fire time
+        updateTrigger(trigger);
+    }
+
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context) {
+        return false;
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger) {
+        if (trigger instanceof OperableTrigger) {
+            // the misfired trigger is notified before being updated by the job store
+            OperableTrigger updatedTrigger = (OperableTrigger) ((OperableTrigger) trigger).clone();
+            updatedTrigger.updateAfterMisfire(null);
+            updateTrigger(updatedTrigger);
+        }
+    }
+
+    @Override
+    public void triggerComplete(Trigger trigger, JobExecutionContext context,
+            Trigger.CompletedExecutionInstruction triggerInstructionCode) {
+        switch (triggerInstructionCode) {
+            case DELETE_TRIGGER:
+            case SET_TRIGGER_COMPLETE:
+                removeTrigger(trigger.getKey());
+                break;
+            case SET_ALL_JOB_TRIGGERS_COMPLETE:
+                triggers.values().removeIf(entry -> entry.jobKey.equals(trigger.getJobKey()));
+                removeOrphanJob(trigger.getJobKey());
+                version.incrementAndGet();
+                break;
+            case SET_TRIGGER_ERROR:
+                setState(trigger.getKey(), TriggerSnapshot.State.ERROR);
+                break;
+            case SET_ALL_JOB_TRIGGERS_ERROR:
+                setState(entry -> entry.jobKey.equals(trigger.getJobKey()), TriggerSnapshot.State.ERROR);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void updateTrigger(Trigger trigger) {
+        triggers.computeIfPresent(trigger.getKey(),
+                (key, entry) -> new TriggerEntry(entry.jobKey, toSnapshot(trigger, entry.snapshot.getState())));
+        version.incrementAndGet();
+    }
+
+    private void removeTrigger(TriggerKey triggerKey) {
+        TriggerEntry entry = triggers.remove(triggerKey);
+        if (entry != null) {
+            removeOrphanJob(entry.jobKey);
+        }
+        version.incrementAndGet();
+    }
+
+    private void removeOrphanJob(JobKey jobKey) {
+        // the job store deletes non-durable jobs along with their last trigger without notification
+        if (!jobs.getOrDefault(jobKey, true)
+                && triggers.values().stream().noneMatch(entry -> entry.jobKey.equals(jobKey))) {
+            jobs.remove(jobKey);
+        }
+    }
+
+    private void setState(TriggerKey triggerKey, TriggerSnapshot.State state) {
+        triggers.computeIfPresent(triggerKey,
+                (key, entry) -> new TriggerEntry(entry.jobKey, entry.snapshot.withState(state)));
+        version.incrementAndGet();
+    }
+
+    private void setState(Predicate<TriggerEntry> filter, TriggerSnapshot.State state) {
+        triggers.replaceAll((key, entry) -> filter.test(entry)
+                ? new TriggerEntry(entry.jobKey, entry.snapshot.withState(state))
+                : entry);
+        version.incrementAndGet();
+    }
+
+    private static TriggerSnapshot toSnapshot(Trigger trigger, TriggerSnapshot.State state) {
+        return new TriggerSnapshot(trigger.getKey().getName(), trigger.getKey().getGroup(), trigger.getPriority(),
+                trigger.getNextFireTime(), trigger.getPreviousFireTime(), state);
+    }
+
+    private static TriggerSnapshot.State toState(Trigger.TriggerState triggerState) {
+        switch (triggerState) {
+            case PAUSED:
+                return TriggerSnapshot.State.PAUSED;
+            case ERROR:
+                return TriggerSnapshot.State.ERROR;
+            default:
+                return TriggerSnapshot.State.NORMAL;
+        }
+    }
+
+    private static class TriggerEntry {
+        private final JobKey jobKey;
+        private final TriggerSnapshot snapshot;
+
+        private TriggerEntry(JobKey jobKey, TriggerSnapshot snapshot) {
+            this.jobKey = jobKey;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private static class TaskList {
+        private final long version;
+        private final List<ScheduledTaskSnapshot> tasks;
+
+        private TaskList(long version, List<ScheduledTaskSnapshot> tasks) {
+            this.version = version;
+            this.tasks = tasks;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.seedstack.scheduler.ScheduledTaskBatch;
+import org.seedstack.scheduler.ScheduledTaskBatchResult;
+import org.seedstack.scheduler.ScheduledTaskBuilder;
+import org.seedstack.seed.SeedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Schedules a batch of tasks with a single call to {@link Scheduler#scheduleJobs(Map, boolean)} per replacement
+ * mode. When a bulk call fails, its jobs are scheduled one by one to report failures per builder. Durable jobs
+ * without trigger can be stored along with the replacing call.
+ */
+class ScheduledTaskBatchImpl implements ScheduledTaskBatch {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduledTaskBatchImpl.class);
+    private final Scheduler scheduler;
+    private final List<ScheduledTaskBuilderImpl> builders = new ArrayList<>();
+    private final List<JobDetail> durableJobs = new ArrayList<>();
+    private boolean replaceExisting;
+
+    ScheduledTaskBatchImpl(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public ScheduledTaskBatch add(ScheduledTaskBuilder scheduledTaskBuilder) {
+        builders.add((ScheduledTaskBuilderImpl) scheduledTaskBuilder);
+        return this;
+    }
+
+    @Override
+    public ScheduledTaskBatch replaceExisting() {
+        this.replaceExisting = true;
+        return this;
+    }
+
+    /**
+     * Adds a durable job without trigger, stored or replaced in the same call as the replacing tasks.
+     *
+     * @param jobDetail the durable job.
+     * @return the batch.
+     */
+    ScheduledTaskBatchImpl addDurableJob(JobDetail jobDetail) {
+        durableJobs.add(jobDetail);
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return builders.size();
+    }
+
+    @Override
+    public ScheduledTaskBatchResult schedule() {
+        Map<ScheduledTaskBuilder, SeedException> failures = new LinkedHashMap<>();
+        Map<JobKey, Entry> replacingEntries = new LinkedHashMap<>();
+        Map<JobKey, Entry> addingEntries = new LinkedHashMap<>();
+        Set<TriggerKey> triggerKeys = new HashSet<>();
+
+        // build and check everything before touching the scheduler
+        for (ScheduledTaskBuilderImpl builder : builders) {
+            try {
+                builder.validate();
+                Trigger trigger = builder.getTrigger();
+                if (!triggerKeys.add(trigger.getKey())) {
+                    throw SeedException.createNew(SchedulerErrorCode.TRIGGER_AND_JOB_NAME_SHOULD_BE_UNIQUE);
+                }
+                boolean replace = replaceExisting || builder.isUpdateExistingTrigger();
+                Map<JobKey, Entry> entries = replace ? replacingEntries : addingEntries;
+                JobKey jobKey = builder.getJobKey();
+                if (replace ? addingEntries.containsKey(jobKey) : replacingEntries.containsKey(jobKey)) {
+                    // the same job cannot be both added and replaced
+                    throw SeedException.createNew(SchedulerErrorCode.TRIGGER_AND_JOB_NAME_SHOULD_BE_UNIQUE);
+                }
+                entries.computeIfAbsent(jobKey, key -> new Entry(builder.buildJobDetail())).add(builder, trigger);
+            } catch (SeedException e) {
+                failures.put(builder, e);
+            } catch (Exception e) {
+                failures.put(builder, SeedException.wrap(e, SchedulerErrorCode.SCHEDULER_ERROR));
+            }
+        }
+
+        int scheduledCount = schedule(replacingEntries, true, failures)
+                + schedule(addingEntries, false, failures);
+
+        // report failures in the order of the batch
+        Map<ScheduledTaskBuilder, SeedException> orderedFailures = new LinkedHashMap<>();
+        for (ScheduledTaskBuilderImpl builder : builders) {
+            SeedException failure = failures.get(builder);
+            if (failure != null) {
+                orderedFailures.put(builder, failure);
+            }
+        }
+        return new ScheduledTaskBatchResult(scheduledCount, orderedFailures);
+    }
+
+    private int schedule(Map<JobKey, Entry> entries, boolean replace,
+            Map<ScheduledTaskBuilder, SeedException> failures) {
+        List<JobDetail> jobs = replace ? durableJobs : Collections.emptyList();
+        if (entries.isEmpty() && jobs.isEmpty()) {
+            return 0;
+        }
+
+        Map<JobDetail, Set<? extends Trigger>> triggersAndJobs = new LinkedHashMap<>();
+        int count = 0;
+        for (Entry entry : entries.values()) {
+            triggersAndJobs.put(entry.jobDetail, entry.triggers);
+            count += entry.builders.size();
+        }
+        for (JobDetail job : jobs) {
+            triggersAndJobs.put(job, Collections.emptySet());
+        }
+
+        try {
+            scheduler.scheduleJobs(triggersAndJobs, replace);
+            if (count > 0) {
+                LOGGER.info("Scheduled a batch of {} tasks", count);
+            }
+            return count;
+        } catch (SchedulerException e) {
+            LOGGER.info("Unable to schedule a batch of {} tasks at once, scheduling them separately", count, e);
+        }
+
+        int scheduledCount = 0;
+        for (Entry entry : entries.values()) {
+            try {
+                scheduler.scheduleJob(entry.jobDetail, entry.triggers, replace);
+                for (ScheduledTaskBuilderImpl builder : entry.builders) {
+                    builder.logScheduled();
+                }
+                scheduledCount += entry.builders.size();
+            } catch (ObjectAlreadyExistsException e) {
+                entry.fail(failures, SeedException.wrap(e, SchedulerErrorCode.TRIGGER_AND_JOB_NAME_SHOULD_BE_UNIQUE));
+            } catch (Exception e) {
+                entry.fail(failures, SeedException.wrap(e, SchedulerErrorCode.SCHEDULER_ERROR));
+            }
+        }
+        for (JobDetail job : jobs) {
+            // stored last so that it is only updated once the tasks are
+            try {
+                scheduler.addJob(job, true);
+            } catch (SchedulerException e) {
+                throw SeedException.wrap(e, SchedulerErrorCode.SCHEDULER_ERROR);
+            }
+        }
+        return scheduledCount;
+    }
+
+    /**
+     * A job with the triggers of all the builders sharing its key.
+     */
+    private static class Entry {
+        private final JobDetail jobDetail;
+        private final Set<Trigger> triggers = new LinkedHashSet<>();
+        private final List<ScheduledTaskBuilderImpl> builders = new ArrayList<>();
+
+        private Entry(JobDetail jobDetail) {
+            this.jobDetail = jobDetail;
+        }
+
+        private void add(ScheduledTaskBuilderImpl builder, Trigger trigger) {
+            builders.add(builder);
+            triggers.add(trigger);
+        }
+
+        private void fail(Map<ScheduledTaskBuilder, SeedException> failures, SeedException e) {
+            for (ScheduledTaskBuilderImpl builder : builders) {
+                failures.put(builder, e);
+            }
+        }
+    }
+}
@@ -9,6 +9,7 @@ package org.seedstack.scheduler.internal;
 
 import com.google.common.base.Strings;
 import org.quartz.*;
+import org.seedstack.scheduler.SaturationPolicy;
 import org.seedstack.scheduler.Scheduled;
 import org.seedstack.scheduler.ScheduledTaskBuilder;
 import org.seedstack.scheduler.Task;
@@ -22,9 +23,9 @@ import java.util.TimeZone;
 import java.util.UUID;
 
 import static java.util.TimeZone.getDefault;
-import static org.quartz.CronScheduleBuilder.cronSchedule;
 import static org.quartz.JobBuilder.newJob;
 import static org.quartz.TriggerBuilder.newTrigger;
+import static org.seedstack.scheduler.internal.CompiledCronScheduleBuilder.compiledCronSchedule;
 
 /**
  * DSL to produce {@code Job} and add to a {@code Scheduler}, and associate the related {@code Trigger} with it.
@@ -78,6 +79,27 @@ class ScheduledTaskBuilderImpl implements ScheduledTaskBuilder {
      */
     private int priority;
 
+    /**
+     * The maximum number of concurrent executions of the task, overriding the {@code MaxConcurrency} annotation.
+     */
+    private Integer maxConcurrency;
+
+    /**
+     * What to do when the task fires while the maximum number of executions is reached.
+     */
+    private SaturationPolicy saturationPolicy;
+
+    /**
+     * The maximum duration of an execution of the task, overriding the timeout of the {@code Scheduled} annotation.
+     */
+    private Long timeout;
+
+    /**
+     * The duration after which an execution of the task is stuck, overriding the threshold of the {@code Scheduled}
+     * annotation.
+     */
+    private Long stuckThreshold;
+
     /**
      * The {@code JobKey} to beb used to schedule the {@code Job}
      */
@@ -107,7 +129,7 @@ class ScheduledTaskBuilderImpl implements ScheduledTaskBuilder {
 
     ScheduledTaskBuilderImpl(final Class<? extends Task> taskClass, Scheduler scheduler, Application application) {
 
-        this.jobClass = JobDelegateFactory.computeDelegateClass(taskClass);
+        this.jobClass = TaskDefinition.computeDelegateClass(taskClass);
         this.scheduler = scheduler;
         this.taskClass = taskClass;
 
@@ -177,6 +199,25 @@ class ScheduledTaskBuilderImpl implements ScheduledTaskBuilder {
         return this;
     }
 
+    @Override
+    public ScheduledTaskBuilder withMaxConcurrency(int maxConcurrency, SaturationPolicy saturationPolicy) {
+        this.maxConcurrency = maxConcurrency;
+        this.saturationPolicy = saturationPolicy == null ? SaturationPolicy.QUEUE : saturationPolicy;
+        return this;
+    }
+
+    @Override
+    public ScheduledTaskBuilder withTimeout(long timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    @Override
+    public ScheduledTaskBuilder withStuckThreshold(long stuckThreshold) {
+        this.stuckThreshold = stuckThreshold;
+        return this;
+    }
+
     @SuppressWarnings("ThrowableResultOfMethodCallIgnored")
     @Override
     public ScheduledTaskBuilder withTrigger(Trigger trigger) {
@@ -202,20 +243,13 @@ class ScheduledTaskBuilderImpl implements ScheduledTaskBuilder {
         return this;
     }
 
-    @SuppressWarnings("ThrowableResultOfMethodCallIgnored")
     @Override
     public void schedule() {
-
-        if (Strings.isNullOrEmpty(cronExpression) && trigger == null) {
-            throw SeedException.createNew(SchedulerErrorCode.MISSING_CRON_EXPRESSION).put("class", jobClass.getName());
-        }
-        if (!Strings.isNullOrEmpty(cronExpression) && trigger != null) {
-            throw SeedException.createNew(SchedulerErrorCode.IMPOSSIBLE_TO_USE_CRON_AND_TRIGGER)
-                    .put("class", jobClass.getName());
-        }
+        validate();
 
         try {
-            if (updateExistingTrigger && scheduler.checkExists(getTriggerKey())) {
+            if (updateExistingTrigger) {
+                // does nothing if the trigger doesn't exist
                 scheduler.unscheduleJob(getTriggerKey());
             }
         } catch (SchedulerException e) {
@@ -223,22 +257,8 @@ class ScheduledTaskBuilderImpl implements ScheduledTaskBuilder {
         }
 
         try {
-            JobBuilder jobBuilder = newJob(jobClass)
-                    .withIdentity(getJobKey())
-                    .requestRecovery(requestRecovery)
-                    .storeDurably(storeDurably);
-
-            if (dataMap != null) {
-                jobBuilder.usingJobData(new JobDataMap(dataMap));
-            }
-
-            scheduler.scheduleJob(jobBuilder.build(), getTrigger());
-
-            if (cronExpression != null) {
-                LOGGER.info("Scheduled {} task with cron {}", taskClass.getCanonicalName(), cronExpression);
-            } else {
-                LOGGER.info("Scheduled {} task with custom trigger {}", taskClass.getCanonicalName(), trigger.getKey());
-            }
+            scheduler.scheduleJob(buildJobDetail(), getTrigger());
+            logScheduled();
         } catch (ObjectAlreadyExistsException e) {
             throw SeedException.wrap(e, SchedulerErrorCode.TRIGGER_AND_JOB_NAME_SHOULD_BE_UNIQUE);
         } catch (Exception e) {
@@ -267,11 +287,83 @@ class ScheduledTaskBuilderImpl implements ScheduledTaskBuilder {
 
     }
 
+    /**
+     * Replaces the generated task and trigger names by names derived from the task class, so the task keeps the same
+     * identity across restarts. Names specified in the {@link Scheduled} annotation are kept.
+     *
+     * @return this builder.
+     */
+    ScheduledTaskBuilderImpl withStableIdentity() {
+        Scheduled annotation = taskClass.getAnnotation(Scheduled.class);
+        if (annotation == null || DEFAULT.equals(annotation.taskName())) {
+            this.jobName = taskClass.getSimpleName();
+            this.jobKey = null;
+        }
+        if (annotation == null || DEFAULT.equals(annotation.triggerName())) {
+            this.triggerName = taskClass.getSimpleName();
+        }
+        return this;
+    }
+
+    /**
+     * Checks that this builder has enough information to schedule the task.
+     *
+     * @throws SeedException if the task cannot be scheduled.
+     */
+    void validate() {
+        if (Strings.isNullOrEmpty(cronExpression) && trigger == null) {
+            throw SeedException.createNew(SchedulerErrorCode.MISSING_CRON_EXPRESSION).put("class", jobClass.getName());
+        }
+        if (!Strings.isNullOrEmpty(cronExpression) && trigger != null) {
+            throw SeedException.createNew(SchedulerErrorCode.IMPOSSIBLE_TO_USE_CRON_AND_TRIGGER)
+                    .put("class", jobClass.getName());
+        }
+        if (maxConcurrency != null) {
+            TaskDefinition.checkMaxConcurrency(taskClass, maxConcurrency);
+        }
+    }
+
+    JobDetail buildJobDetail() {
+        JobBuilder jobBuilder = newJob(jobClass)
+                .withIdentity(getJobKey())
+                .requestRecovery(requestRecovery)
+                .storeDurably(storeDurably);
+
+        if (dataMap != null) {
+            jobBuilder.usingJobData(new JobDataMap(dataMap));
+        }
+
+        JobDetail jobDetail = jobBuilder.build();
+        getJobSettings().store(jobDetail.getJobDataMap());
+        return jobDetail;
+    }
+
+    private JobSettings getJobSettings() {
+        if (maxConcurrency == null && timeout == null && stuckThreshold == null) {
+            return JobSettings.NONE;
+        }
+        return new JobSettings(maxConcurrency != null ? maxConcurrency : 0,
+                maxConcurrency != null ? saturationPolicy : null,
+                timeout != null ? timeout : -1,
+                stuckThreshold != null ? stuckThreshold : -1);
+    }
+
+    void logScheduled() {
+        if (cronExpression != null) {
+            LOGGER.info("Scheduled {} task with cron {}", taskClass.getCanonicalName(), cronExpression);
+        } else {
+            LOGGER.info("Scheduled {} task with custom trigger {}", taskClass.getCanonicalName(), trigger.getKey());
+        }
+    }
+
+    boolean isUpdateExistingTrigger() {
+        return updateExistingTrigger;
+    }
+
     Trigger getTrigger() {
         return (trigger == null) ? newTrigger()
                 .withIdentity(getTriggerKey())
-                .withSchedule(cronSchedule(cronExpression)
-                        .inTimeZone(timeZone))
+                .withSchedule(compiledCronSchedule(cronExpression, timeZone))
                 .withPriority(priority)
                 .build()
                 : trigger;
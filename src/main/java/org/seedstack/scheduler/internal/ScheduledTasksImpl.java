@@ -7,11 +7,17 @@
  */
 package org.seedstack.scheduler.internal;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import javax.inject.Inject;
 import org.quartz.Scheduler;
+import org.seedstack.scheduler.ScheduledTaskBatch;
+import org.seedstack.scheduler.ScheduledTaskBatchResult;
 import org.seedstack.scheduler.ScheduledTaskBuilder;
 import org.seedstack.scheduler.ScheduledTasks;
+import org.seedstack.scheduler.SchedulerSnapshot;
 import org.seedstack.scheduler.Task;
+import org.seedstack.scheduler.TaskHistory;
 import org.seedstack.seed.Application;
 
 class ScheduledTasksImpl implements ScheduledTasks {
@@ -21,8 +27,38 @@ class ScheduledTasksImpl implements ScheduledTasks {
     @Inject
     private Application application;
 
+    @Inject
+    private CompletableFuture<ScheduledTaskBatchResult> annotatedTasksScheduled;
+
+    @Inject
+    private ExecutionHistory executionHistory;
+
+    @Inject
+    private ScheduleIndex scheduleIndex;
+
     @Override
     public ScheduledTaskBuilder scheduledTask(Class<? extends Task> taskClass) {
         return new ScheduledTaskBuilderImpl(taskClass, scheduler, application);
     }
+
+    @Override
+    public ScheduledTaskBatch batch() {
+        return new ScheduledTaskBatchImpl(scheduler);
+    }
+
+    @Override
+    public CompletionStage<ScheduledTaskBatchResult> annotatedTasksScheduled() {
+        // callers cannot complete the returned stage
+        return annotatedTasksScheduled.thenApply(result -> result);
+    }
+
+    @Override
+    public TaskHistory history(Class<? extends Task> taskClass) {
+        return executionHistory.of(taskClass);
+    }
+
+    @Override
+    public SchedulerSnapshot snapshot() {
+        return scheduleIndex.snapshot();
+    }
 }
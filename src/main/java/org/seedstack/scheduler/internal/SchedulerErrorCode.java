@@ -11,14 +11,27 @@ import org.seedstack.shed.exception.ErrorCode;
 
 enum SchedulerErrorCode implements ErrorCode {
 	CANNOT_INITIALIZE_TASK,
+    DATA_MAP_CODEC_NOT_SUPPORTED_BY_DRIVER_DELEGATE,
     EXCEPTION_IN_LISTENER,
+    FAILED_TO_INSTANTIATE_DATA_MAP_CODEC,
     FAILED_TO_INSTANTIATE_TASK,
     IMPOSSIBLE_TO_USE_CRON_AND_TRIGGER,
+    INVALID_MAX_CONCURRENCY,
+    INVALID_RETRY_CONFIGURATION,
     MISSING_CRON_EXPRESSION,
+    MISSING_JDBC_ADDON,
+    MISSING_JOURNAL_DIRECTORY,
     MISSING_TYPE_PARAMETER,
     SCHEDULER_ERROR,
     SCHEDULER_FAILED_TO_START,
     TRIGGER_AND_JOB_NAME_SHOULD_BE_UNIQUE,
+    UNABLE_TO_INITIALIZE_SCHEMA,
+    UNABLE_TO_LOAD_QUARTZ_PROPERTIES,
+    UNABLE_TO_READ_JOURNAL,
+    UNABLE_TO_READ_TASK_INDEX,
     UNABLE_TO_UNWRAP,
-    UNRECOGNIZED_TRIGGER
+    UNABLE_TO_WRITE_JOURNAL,
+    UNKNOWN_DATA_SOURCE,
+    UNRECOGNIZED_TRIGGER,
+    UNSUPPORTED_DATABASE
 }
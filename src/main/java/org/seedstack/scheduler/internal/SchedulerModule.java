@@ -7,50 +7,74 @@
  */
 package org.seedstack.scheduler.internal;
 
-import com.google.common.collect.Multimap;
 import com.google.inject.PrivateModule;
-import com.google.inject.multibindings.MapBinder;
+import com.google.inject.Scopes;
+import com.google.inject.TypeLiteral;
 import java.util.Collection;
-import java.util.Map.Entry;
-
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import org.quartz.Scheduler;
+import org.seedstack.scheduler.ScheduledTaskBatchResult;
 import org.seedstack.scheduler.ScheduledTasks;
-import org.seedstack.scheduler.Task;
-import org.seedstack.scheduler.TaskListener;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.metrics.TaskMetricsRegistry;
 
 class SchedulerModule extends PrivateModule {
     private final Collection<Class<?>> taskClasses;
-    private final Multimap<Class<? extends Task>, Class<? extends TaskListener<? extends Task>>> taskListenerMap;
+    private final Map<String, TaskDefinition> taskDefinitions;
     private final Scheduler scheduler;
+    private final SchedulerConfig schedulerConfig;
+    private final CompletableFuture<ScheduledTaskBatchResult> annotatedTasksScheduled;
 
-    SchedulerModule(Collection<Class<?>> taskClasses, Scheduler scheduler,
-            Multimap<Class<? extends Task>, Class<? extends TaskListener<? extends Task>>> jobListenerMap) {
+    SchedulerModule(Collection<Class<?>> taskClasses, Map<String, TaskDefinition> taskDefinitions,
+            Scheduler scheduler, SchedulerConfig schedulerConfig,
+            CompletableFuture<ScheduledTaskBatchResult> annotatedTasksScheduled) {
         this.taskClasses = taskClasses;
+        this.taskDefinitions = taskDefinitions;
         this.scheduler = scheduler;
-        this.taskListenerMap = jobListenerMap;
+        this.schedulerConfig = schedulerConfig;
+        this.annotatedTasksScheduled = annotatedTasksScheduled;
     }
 
-    @SuppressWarnings("rawtypes")
     @Override
     protected void configure() {
         bind(GuiceTaskFactory.class);
         bind(ScheduledTasks.class).to(ScheduledTasksImpl.class);
         bind(Scheduler.class).toInstance(scheduler);
         bind(DelegateJobListener.class);
+        bind(DelegateTriggerListener.class);
+        bind(ScheduleIndex.class).in(Scopes.SINGLETON);
+        bind(AsyncListenerDispatcher.class).toInstance(new AsyncListenerDispatcher(schedulerConfig.asyncListeners()));
+        bind(ExecutionHistory.class).toInstance(new ExecutionHistory(schedulerConfig.history()));
+        bind(TaskWatchdog.class).toInstance(new TaskWatchdog(schedulerConfig.watchdog()));
 
-        for (Class<?> taskClass : taskClasses) {
-            bind(taskClass);
-        }
+        Class<? extends TaskMetricsRegistry> metricsRegistryClass = schedulerConfig.metrics().getRegistry();
+        bind(metricsRegistryClass).in(Scopes.SINGLETON);
+        bind(TaskMetricsRegistry.class).to(metricsRegistryClass);
 
-        MapBinder<String, TaskListener> mapBinder = MapBinder.newMapBinder(binder(), String.class, TaskListener.class);
-        mapBinder.permitDuplicates();
+        Set<Class<?>> boundClasses = new HashSet<>(taskClasses);
+        for (TaskDefinition taskDefinition : taskDefinitions.values()) {
+            // listened tasks may not have been scanned
+            boundClasses.add(taskDefinition.getTaskClass());
+            boundClasses.addAll(taskDefinition.getListenerClasses());
+        }
+        for (Class<?> boundClass : boundClasses) {
+            bind(boundClass);
+        }
 
-        for (Entry<Class<? extends Task>, Class<? extends TaskListener<? extends Task>>> taskListenerEntry : taskListenerMap
-                .entries()) {
-            mapBinder.addBinding(taskListenerEntry.getKey().getCanonicalName()).to(taskListenerEntry.getValue());
+        bind(new TypeLiteral<Map<String, TaskDefinition>>() {
+        }).toInstance(taskDefinitions);
+        bind(new TypeLiteral<CompletableFuture<ScheduledTaskBatchResult>>() {
+        }).toInstance(annotatedTasksScheduled);
+        for (TaskDefinition taskDefinition : taskDefinitions.values()) {
+            requestInjection(taskDefinition);
         }
 
         requestStaticInjection(SchedulerPlugin.class);
         expose(ScheduledTasks.class);
+        expose(TaskMetricsRegistry.class);
+        expose(metricsRegistryClass);
     }
 }
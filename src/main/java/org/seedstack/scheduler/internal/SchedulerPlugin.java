@@ -8,31 +8,46 @@
 package org.seedstack.scheduler.internal;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
 import io.nuun.kernel.api.plugin.InitState;
 import io.nuun.kernel.api.plugin.context.Context;
 import io.nuun.kernel.api.plugin.context.InitContext;
 import io.nuun.kernel.api.plugin.request.ClasspathScanRequest;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
+import org.quartz.impl.SchedulerRepository;
 import org.quartz.impl.StdSchedulerFactory;
 import org.seedstack.scheduler.Scheduled;
+import org.seedstack.scheduler.ScheduledTaskBatch;
+import org.seedstack.scheduler.ScheduledTaskBatchResult;
 import org.seedstack.scheduler.ScheduledTasks;
+import org.seedstack.scheduler.SchedulerConfig;
 import org.seedstack.scheduler.Task;
 import org.seedstack.scheduler.TaskListener;
+import org.seedstack.scheduler.metrics.TaskMetricsRegistry;
 import org.seedstack.seed.SeedException;
+import org.seedstack.seed.core.SeedRuntime;
 import org.seedstack.seed.core.internal.AbstractSeedPlugin;
+import org.seedstack.shed.ClassLoaders;
+import org.seedstack.shed.reflect.Classes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
+import static org.quartz.impl.StdSchedulerFactory.PROP_JOB_STORE_PREFIX;
 import static org.seedstack.shed.reflect.ClassPredicates.classImplements;
 
 /**
@@ -41,16 +56,33 @@ import static org.seedstack.shed.reflect.ClassPredicates.classImplements;
 @SuppressWarnings("rawtypes")
 public class SchedulerPlugin extends AbstractSeedPlugin {
     private static final Logger LOGGER = LoggerFactory.getLogger(SchedulerPlugin.class);
+    private static final String JDBC_PROVIDER_CLASS = "org.seedstack.jdbc.spi.JdbcProvider";
     @Inject
     private static DelegateJobListener delegateJobListener;
     @Inject
+    private static DelegateTriggerListener delegateTriggerListener;
+    @Inject
+    private static AsyncListenerDispatcher asyncListenerDispatcher;
+    @Inject
+    private static TaskWatchdog taskWatchdog;
+    @Inject
     private static GuiceTaskFactory guiceTaskFactory;
     @Inject
     private static ScheduledTasks scheduledTasks;
+    @Inject
+    private static TaskMetricsRegistry taskMetricsRegistry;
+    @Inject
+    private static ScheduleIndex scheduleIndex;
     private Predicate<Class<?>> specificationForJobs;
     private Predicate<Class<?>> specificationForJobListeners;
     private Collection<Class<?>> jobClasses;
-    private Multimap<Class<? extends Task>, Class<? extends TaskListener<? extends Task>>> jobListenerMap = ArrayListMultimap.create();
+    private TaskIndex taskIndex;
+    private final List<Class<? extends Task>> annotatedTaskClasses = new ArrayList<>();
+    private final Map<String, TaskDefinition> taskDefinitions = new ConcurrentHashMap<>();
+    private final CompletableFuture<ScheduledTaskBatchResult> annotatedTasksScheduled = new CompletableFuture<>();
+    private Thread backgroundStartupThread;
+    private TimerWheel timerWheel;
+    private SchedulerConfig schedulerConfig;
     private Scheduler scheduler;
 
     @Override
@@ -58,10 +90,36 @@ public class SchedulerPlugin extends AbstractSeedPlugin {
         return "scheduler";
     }
 
+    @Override
+    protected Collection<Class<?>> dependencies() {
+        Collection<Class<?>> dependencies = new ArrayList<>();
+        // the JDBC add-on is only needed when jobs are persisted in one of its data sources
+        Classes.optional(JDBC_PROVIDER_CLASS).ifPresent(dependencies::add);
+        return dependencies;
+    }
+
+    @Override
+    protected void setup(SeedRuntime seedRuntime) {
+        super.setup(seedRuntime);
+        if (seedRuntime.getConfiguration().get(SchedulerConfig.class).isTaskIndex()) {
+            try {
+                taskIndex = TaskIndex.load(ClassLoaders.findMostCompleteClassLoader(SchedulerPlugin.class));
+            } catch (IOException e) {
+                throw SeedException.wrap(e, SchedulerErrorCode.UNABLE_TO_READ_TASK_INDEX)
+                        .put("location", TaskIndex.LOCATION);
+            }
+        }
+    }
+
     @Override
     public Collection<ClasspathScanRequest> classpathScanRequests() {
         specificationForJobs = classImplements(Task.class);
         specificationForJobListeners = classImplements(TaskListener.class);
+        if (taskIndex != null) {
+            // the tasks and listeners of indexed classpath entries are listed by their index generated at build time
+            specificationForJobs = specificationForJobs.and(taskIndex::isNotIndexed);
+            specificationForJobListeners = specificationForJobListeners.and(taskIndex::isNotIndexed);
+        }
         return classpathScanRequestBuilder()
                 .predicate(specificationForJobs)
                 .predicate(specificationForJobListeners)
@@ -69,35 +127,127 @@ public class SchedulerPlugin extends AbstractSeedPlugin {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public InitState initialize(InitContext initContext) {
+        jobClasses = new ArrayList<>();
+        if (taskIndex != null) {
+            registerIndexedTasks();
+        }
+        registerScannedTasks(initContext);
+
+        // Initialises the scheduler and adds jobs
+        schedulerConfig = getConfiguration(SchedulerConfig.class);
+        FlightRecorderEvents.configure(schedulerConfig.flightRecorder());
+        try {
+            Properties standardProperties = QuartzProperties.loadStandardProperties(
+                    ClassLoaders.findMostCompleteClassLoader(SchedulerPlugin.class));
+            Properties quartzProperties = QuartzProperties.from(schedulerConfig, standardProperties);
+            String dataSource = schedulerConfig.jobStore().getDataSource();
+            if (!Strings.isNullOrEmpty(dataSource)) {
+                if (!Classes.optional(JDBC_PROVIDER_CLASS).isPresent()) {
+                    throw SeedException.createNew(SchedulerErrorCode.MISSING_JDBC_ADDON)
+                            .put("dataSource", dataSource);
+                }
+                quartzProperties.setProperty(PROP_JOB_STORE_PREFIX + ".dataSource",
+                        JdbcJobStoreSupport.setup(initContext, schedulerConfig.jobStore()));
+            }
+            StdSchedulerFactory schedulerFactory = new StdSchedulerFactory(quartzProperties);
+            this.scheduler = schedulerFactory.getScheduler();
+            // the scheduler is owned by this plugin, unregister it so other kernels can create one with the same name
+            SchedulerRepository.getInstance().remove(scheduler.getSchedulerName());
+            // shared by the jobs to expire their timeouts, its thread is only started by the first timeout
+            this.timerWheel = new TimerWheel(schedulerConfig.timeouts());
+            scheduler.getContext().put(TimerWheel.CONTEXT_KEY, timerWheel);
+        } catch (SeedException e) {
+            throw e;
+        } catch (Exception e) {
+            throw SeedException.wrap(e, SchedulerErrorCode.SCHEDULER_ERROR);
+        }
+
+        return InitState.INITIALIZED;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void registerScannedTasks(InitContext initContext) {
         Map<Predicate<Class<?>>, Collection<Class<?>>> scannedTypesByPredicate = initContext.scannedTypesByPredicate();
 
         // Associates - scan for nativeUnitModule
-        jobClasses = scannedTypesByPredicate.get(specificationForJobs);
+        Collection<Class<?>> scannedJobClasses = scannedTypesByPredicate.get(specificationForJobs);
+        jobClasses.addAll(scannedJobClasses);
+        for (Class<?> jobClass : scannedJobClasses) {
+            if (Task.class.isAssignableFrom(jobClass) && isConcrete(jobClass)) {
+                registerTask((Class<? extends Task>) jobClass,
+                        !Strings.isNullOrEmpty(Optional.ofNullable(jobClass.getAnnotation(Scheduled.class))
+                                .map(Scheduled::value)
+                                .orElse(null)));
+            }
+        }
 
         Collection<Class<?>> listenerClasses = scannedTypesByPredicate.get(specificationForJobListeners);
         for (Class<?> listenerClass : listenerClasses) {
-            if (TaskListener.class.isAssignableFrom(listenerClass)) {
+            if (TaskListener.class.isAssignableFrom(listenerClass) && isConcrete(listenerClass)) {
                 // Get the type of Job to listen
                 Type typeVariable = getParametrizedTypeOfJobListener(listenerClass);
-                if (typeVariable != null && Task.class.isAssignableFrom((Class<?>) typeVariable)) {
+                if (typeVariable instanceof Class
+                        && Task.class.isAssignableFrom((Class<?>) typeVariable)
+                        && isConcrete((Class<?>) typeVariable)) {
                     // bind the Task to the listener
-                    jobListenerMap.put((Class<? extends Task>) typeVariable,
-                            (Class<? extends TaskListener<? extends Task>>) listenerClass);
+                    registerListener((Class<? extends TaskListener>) listenerClass,
+                            (Class<? extends Task>) typeVariable);
                 }
             }
         }
+    }
 
-        // Initialises the scheduler and adds jobs
-        StdSchedulerFactory schedulerFactory = new StdSchedulerFactory();
+    @SuppressWarnings("unchecked")
+    private void registerIndexedTasks() {
+        ClassLoader classLoader = ClassLoaders.findMostCompleteClassLoader(SchedulerPlugin.class);
+        for (String taskClassName : taskIndex.getTaskClassNames()) {
+            loadIndexedClass(taskClassName, classLoader).ifPresent(taskClass -> {
+                jobClasses.add(taskClass);
+                registerTask((Class<? extends Task>) taskClass,
+                        taskIndex.getScheduledTaskClassNames().contains(taskClassName));
+            });
+        }
+        int listenerCount = 0;
+        for (Map.Entry<String, String> listener : taskIndex.getListenedTaskClassNames().entrySet()) {
+            Optional<Class<?>> listenerClass = loadIndexedClass(listener.getKey(), classLoader);
+            Optional<Class<?>> taskClass = loadIndexedClass(listener.getValue(), classLoader);
+            if (listenerClass.isPresent() && taskClass.isPresent()) {
+                registerListener((Class<? extends TaskListener>) listenerClass.get(),
+                        (Class<? extends Task>) taskClass.get());
+                listenerCount++;
+            }
+        }
+        // the indexed tasks are registered before the scanned ones
+        LOGGER.debug("Read {} tasks and {} task listeners from the task indexes of {}", jobClasses.size(),
+                listenerCount, taskIndex.getIndexedLocations());
+    }
+
+    private Optional<Class<?>> loadIndexedClass(String className, ClassLoader classLoader) {
         try {
-            this.scheduler = schedulerFactory.getScheduler();
-        } catch (Exception e) {
-            throw SeedException.wrap(e, SchedulerErrorCode.SCHEDULER_ERROR);
+            return Optional.of(Class.forName(className, false, classLoader));
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOGGER.warn("Ignoring class {} of the task index as it cannot be loaded", className, e);
+            return Optional.empty();
         }
+    }
 
-        return InitState.INITIALIZED;
+    private void registerTask(Class<? extends Task> taskClass, boolean scheduled) {
+        // Resolve the job creation once for all fires of this task
+        taskDefinitions.put(taskClass.getName(), new TaskDefinition(taskClass));
+        if (scheduled) {
+            annotatedTaskClasses.add(taskClass);
+        }
+    }
+
+    private void registerListener(Class<? extends TaskListener> listenerClass, Class<? extends Task> taskClass) {
+        TaskDefinition taskDefinition = taskDefinitions.computeIfAbsent(taskClass.getName(),
+                name -> new TaskDefinition(taskClass));
+        taskDefinition.addListenerClass(listenerClass);
+    }
+
+    private boolean isConcrete(Class<?> someClass) {
+        return !someClass.isInterface() && !Modifier.isAbstract(someClass.getModifiers());
     }
 
     /**
@@ -132,7 +282,8 @@ public class SchedulerPlugin extends AbstractSeedPlugin {
 
     @Override
     public Object nativeUnitModule() {
-        return new SchedulerModule(jobClasses, scheduler, jobListenerMap);
+        return new SchedulerModule(jobClasses, taskDefinitions, scheduler, schedulerConfig,
+                annotatedTasksScheduled);
     }
 
     @Override
@@ -143,36 +294,89 @@ public class SchedulerPlugin extends AbstractSeedPlugin {
             // Configure scheduler
             scheduler.setJobFactory(guiceTaskFactory);
             scheduler.getListenerManager().addJobListener(delegateJobListener);
+            scheduler.getListenerManager().addTriggerListener(delegateTriggerListener);
+            scheduler.getContext().put(FairThreadPool.METRICS_CONTEXT_KEY, taskMetricsRegistry);
+            // registered after the delegate listeners so executions vetoed by them are not seen as running
+            scheduler.getListenerManager().addSchedulerListener(scheduleIndex);
+            scheduler.getListenerManager().addJobListener(scheduleIndex);
+            scheduler.getListenerManager().addTriggerListener(scheduleIndex);
+            scheduleIndex.load(scheduler);
 
-            // Schedule declarative tasks (@Scheduled)
-            scheduleAnnotatedTasks();
+            if (schedulerConfig.isBackgroundStartup()) {
+                // Start scheduler right away and schedule declarative tasks (@Scheduled) when possible
+                scheduler.start();
+                backgroundStartupThread = new Thread(this::scheduleAnnotatedTasksInBackground, "scheduler-startup");
+                backgroundStartupThread.setDaemon(true);
+                backgroundStartupThread.start();
+            } else {
+                // Schedule declarative tasks (@Scheduled)
+                ScheduledTaskBatchResult result = scheduleAnnotatedTasks();
+                if (!result.isSuccessful()) {
+                    throw result.getFailures().values().iterator().next();
+                }
+                annotatedTasksScheduled.complete(result);
 
-            // Start scheduler
-            scheduler.start();
+                // Start scheduler
+                scheduler.start();
+            }
         } catch (Exception e) {
+            annotatedTasksScheduled.completeExceptionally(e);
             throw SeedException.wrap(e, SchedulerErrorCode.SCHEDULER_FAILED_TO_START);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void scheduleAnnotatedTasks() {
+    private void scheduleAnnotatedTasksInBackground() {
         try {
-            for (Class<?> candidateClass : jobClasses) {
-                if (Task.class.isAssignableFrom(candidateClass)) {
-                    Scheduled annotation = candidateClass.getAnnotation(Scheduled.class);
-                    if (annotation != null && !Strings.isNullOrEmpty(annotation.value())) {
-                        Class<? extends Task> taskClass = (Class<? extends Task>) candidateClass;
-                        scheduledTasks.scheduledTask(taskClass).schedule();
-                    }
-                }
+            ScheduledTaskBatchResult result = scheduleAnnotatedTasks();
+            for (SeedException failure : result.getFailures().values()) {
+                LOGGER.error("Failed to schedule an annotated task", failure);
+            }
+            annotatedTasksScheduled.complete(result);
+        } catch (Exception e) {
+            LOGGER.error("Failed to schedule annotated tasks", e);
+            annotatedTasksScheduled.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Schedules all tasks annotated with {@link Scheduled} with a single call to the job store or, in reconciliation
+     * mode, only the tasks that changed since the previous startup.
+     *
+     * @return the result of the scheduling.
+     */
+    private ScheduledTaskBatchResult scheduleAnnotatedTasks() {
+        List<ScheduledTaskBuilderImpl> builders = new ArrayList<>();
+        try {
+            for (Class<? extends Task> taskClass : annotatedTaskClasses) {
+                builders.add((ScheduledTaskBuilderImpl) scheduledTasks.scheduledTask(taskClass));
             }
         } catch (Exception e) {
             throw SeedException.wrap(e, SchedulerErrorCode.SCHEDULER_ERROR);
         }
+
+        if (schedulerConfig.isReconcileAnnotatedTasks()) {
+            for (ScheduledTaskBuilderImpl builder : builders) {
+                builder.withStableIdentity();
+            }
+            return new AnnotatedTaskReconciler(scheduler).reconcile(builders);
+        }
+
+        ScheduledTaskBatch batch = scheduledTasks.batch();
+        if (schedulerConfig.jobStore().isClustered()) {
+            // another instance of the cluster may have already scheduled the tasks
+            batch.replaceExisting();
+        }
+        for (ScheduledTaskBuilderImpl builder : builders) {
+            batch.add(builder);
+        }
+        return batch.schedule();
     }
 
     @Override
     public void stop() {
+        if (backgroundStartupThread != null && backgroundStartupThread.isAlive()) {
+            backgroundStartupThread.interrupt();
+        }
         try {
             if (this.scheduler != null) {
                 this.scheduler.shutdown();
@@ -180,6 +384,16 @@ public class SchedulerPlugin extends AbstractSeedPlugin {
         } catch (SchedulerException e) {
             LOGGER.warn("Quartz scheduler failed to shutdown properly", e);
         }
+        if (asyncListenerDispatcher != null) {
+            asyncListenerDispatcher.stop();
+        }
+        if (taskWatchdog != null) {
+            taskWatchdog.stop();
+        }
+        FlightRecorderEvents.disable();
+        if (timerWheel != null) {
+            timerWheel.stop();
+        }
         super.stop();
     }
 }
@@ -7,196 +7,130 @@
  */
 package org.seedstack.scheduler.internal;
 
+import com.google.common.collect.Maps;
 import java.util.Date;
 import java.util.Map;
+import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.seedstack.scheduler.SchedulingContext;
 import org.seedstack.seed.SeedException;
 
+/**
+ * Lazy view over the Quartz {@link JobExecutionContext}: no value is copied, each getter reads the underlying
+ * context. A single instance is created per execution and shared between the task and all its listeners (see
+ * {@link #of(JobExecutionContext)}).
+ */
 class SchedulingContextImpl implements SchedulingContext {
-
+    private static final Object CONTEXT_KEY = SchedulingContextImpl.class;
     private final JobExecutionContext jobExecutionContext;
 
-    // Task
-
-    /**
-     * The Task name, must be unique within the group.
-     */
-    private final String taskName;
-
-    /**
-     * Instructs the Scheduler whether or not the Task should
-     * be re-executed if a recovery or fail-over situation is
-     * encountered.
-     */
-    private final boolean requestRecovery;
-
-    /**
-     * Whether or not the Task should remain stored after it is
-     * orphaned (no Triggers point to it).
-     */
-    private final boolean storeDurably;
-
-    // Trigger
-
-    /**
-     * The Trigger name, must be unique within the group.
-     */
-    private final String triggerName;
-
-    /**
-     * The Trigger's priority.  When more than one Trigger have the same
-     * fire time, the scheduler will fire the one with the highest priority
-     * first.
-     */
-    private final int triggerPriority;
-
-    /**
-     * actual fire time of the current Task run
-     */
-    private final Date currentFireDate;
-    /**
-     * fire time of the previous Task run
-     */
-    private final Date previousFireDate;
-    /**
-     * fire time of the next Task run
-     */
-    private final Date nextFireDate;
-
-    /**
-     * The amount of time the job ran for (in milliseconds).
-     * The returned value will be -1 until the Task has actually completed (or thrown an exception),
-     * and is therefore generally only useful to TaskListeners.
-     */
-    private final long taskRuntime;
-
-    /**
-     * actual scheduled time of the current Task run
-     */
-    private final Date scheduledFireDate;
-
-    /**
-     * Number of times the Trigger has been Task refired
-     */
-    private final int triggerRefireCount;
-
-    /**
-     * Trigger planned date of final run
-     */
-    private final Date triggerFinalFireDate;
-
-    /**
-     * Trigger planned end time
-     */
-    private final Date triggerEndDate;
-
-    /**
-     * Trigger planned start time
-     */
-    private final Date triggerStartDate;
-
-    /**
-     * The task data map.
-     */
-    private final Map<String, ?> dataMap;
-
     SchedulingContextImpl(JobExecutionContext context) {
         jobExecutionContext = context;
-        taskName = context.getJobDetail().getKey().getName();
-        storeDurably = context.getJobDetail().isDurable();
-        requestRecovery = context.getJobDetail().requestsRecovery();
-        dataMap = context.getJobDetail().getJobDataMap();
-
-        scheduledFireDate = context.getScheduledFireTime();
-        currentFireDate = context.getFireTime();
-        previousFireDate = context.getPreviousFireTime();
-        nextFireDate = context.getNextFireTime();
-
-        taskRuntime = context.getJobRunTime();
-
-        triggerRefireCount = context.getRefireCount();
-        triggerEndDate = context.getTrigger().getEndTime();
-        triggerFinalFireDate = context.getTrigger().getFinalFireTime();
-        triggerName = context.getTrigger().getKey().getName();
-        triggerStartDate = context.getTrigger().getStartTime();
-        triggerPriority = context.getTrigger().getPriority();
+    }
 
+    /**
+     * Returns the scheduling context of an execution, creating it on first access. The context is stored in the
+     * transient data of the job execution context, which lives as long as the execution.
+     *
+     * @param context the job execution context.
+     * @return the scheduling context of this execution.
+     */
+    static SchedulingContextImpl of(JobExecutionContext context) {
+        Object schedulingContext = context.get(CONTEXT_KEY);
+        if (schedulingContext == null) {
+            schedulingContext = new SchedulingContextImpl(context);
+            context.put(CONTEXT_KEY, schedulingContext);
+        }
+        return (SchedulingContextImpl) schedulingContext;
     }
 
     @Override
     public String getTaskName() {
-        return taskName;
+        return jobExecutionContext.getJobDetail().getKey().getName();
     }
 
     @Override
     public boolean isRequestRecovery() {
-        return requestRecovery;
+        return jobExecutionContext.getJobDetail().requestsRecovery();
     }
 
     @Override
     public boolean isStoreDurably() {
-        return storeDurably;
+        return jobExecutionContext.getJobDetail().isDurable();
     }
 
     @Override
     public String getTriggerName() {
-        return triggerName;
+        return jobExecutionContext.getTrigger().getKey().getName();
     }
 
     @Override
     public int getTriggerPriority() {
-        return triggerPriority;
+        return jobExecutionContext.getTrigger().getPriority();
     }
 
     @Override
     public Date getCurrentFireDate() {
-        return currentFireDate;
+        return jobExecutionContext.getFireTime();
     }
 
     @Override
     public Date getPreviousFireDate() {
-        return previousFireDate;
+        return jobExecutionContext.getPreviousFireTime();
     }
 
     @Override
     public Date getNextFireDate() {
-        return nextFireDate;
+        return jobExecutionContext.getNextFireTime();
     }
 
+    /**
+     * The amount of time the job ran for (in milliseconds). The returned value will be -1 until the Task has
+     * actually completed (or thrown an exception), and is therefore generally only useful to TaskListeners.
+     */
     @Override
     public long getTaskRuntime() {
-        return taskRuntime;
+        return jobExecutionContext.getJobRunTime();
     }
 
     @Override
     public Date getScheduledFireDate() {
-        return scheduledFireDate;
+        return jobExecutionContext.getScheduledFireTime();
     }
 
     @Override
     public int getTriggerRefireCount() {
-        return triggerRefireCount;
+        return jobExecutionContext.getRefireCount();
     }
 
     @Override
     public Date getTriggerFinalFireDate() {
-        return triggerFinalFireDate;
+        return jobExecutionContext.getTrigger().getFinalFireTime();
     }
 
     @Override
     public Date getTriggerEndDate() {
-        return triggerEndDate;
+        return jobExecutionContext.getTrigger().getEndTime();
     }
 
     @Override
     public Date getTriggerStartDate() {
-        return triggerStartDate;
+        return jobExecutionContext.getTrigger().getStartTime();
     }
 
+    /**
+     * Returns a live view of the job data map, without the {@link JobSettings} of the job which are reserved to the
+     * scheduler.
+     */
     @Override
     public Map<String, ?> getDataMap() {
-        return dataMap;
+        return Maps.filterKeys(jobExecutionContext.getJobDetail().getJobDataMap(), key -> !JobSettings.KEY.equals(key));
+    }
+
+    @Override
+    public boolean isCancelled() {
+        Job job = jobExecutionContext.getJobInstance();
+        return job instanceof TaskDelegateJob && ((TaskDelegateJob) job).isCancelled();
     }
 
     @Override
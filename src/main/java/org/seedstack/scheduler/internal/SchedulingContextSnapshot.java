@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.seed.SeedException;
+
+/**
+ * Immutable copy of a {@link SchedulingContext}, taken when an event is handed over to another thread so it doesn't
+ * read the Quartz execution context while the scheduler updates or reuses it. The values of the data map are not
+ * copied, and the context cannot be unwrapped.
+ */
+final class SchedulingContextSnapshot implements SchedulingContext {
+    private final String taskName;
+    private final boolean requestRecovery;
+    private final boolean storeDurably;
+    private final String triggerName;
+    private final int triggerPriority;
+    private final Date currentFireDate;
+    private final Date previousFireDate;
+    private final Date nextFireDate;
+    private final long taskRuntime;
+    private final Date scheduledFireDate;
+    private final int triggerRefireCount;
+    private final Date triggerFinalFireDate;
+    private final Date triggerEndDate;
+    private final Date triggerStartDate;
+    private final Map<String, ?> dataMap;
+    private final boolean cancelled;
+
+    private SchedulingContextSnapshot(SchedulingContext schedulingContext) {
+        taskName = schedulingContext.getTaskName();
+        requestRecovery = schedulingContext.isRequestRecovery();
+        storeDurably = schedulingContext.isStoreDurably();
+        triggerName = schedulingContext.getTriggerName();
+        triggerPriority = schedulingContext.getTriggerPriority();
+        currentFireDate = copy(schedulingContext.getCurrentFireDate());
+        previousFireDate = copy(schedulingContext.getPreviousFireDate());
+        nextFireDate = copy(schedulingContext.getNextFireDate());
+        taskRuntime = schedulingContext.getTaskRuntime();
+        scheduledFireDate = copy(schedulingContext.getScheduledFireDate());
+        triggerRefireCount = schedulingContext.getTriggerRefireCount();
+        triggerFinalFireDate = copy(schedulingContext.getTriggerFinalFireDate());
+        triggerEndDate = copy(schedulingContext.getTriggerEndDate());
+        triggerStartDate = copy(schedulingContext.getTriggerStartDate());
+        Map<String, ?> sourceDataMap = schedulingContext.getDataMap();
+        dataMap = sourceDataMap == null || sourceDataMap.isEmpty()
+                ? Collections.emptyMap()
+                : Collections.unmodifiableMap(new HashMap<>(sourceDataMap));
+        cancelled = schedulingContext.isCancelled();
+    }
+
+    /**
+     * Copies the current values of a scheduling context.
+     *
+     * @param schedulingContext the context to copy.
+     * @return the copy.
+     */
+    static SchedulingContextSnapshot of(SchedulingContext schedulingContext) {
+        return new SchedulingContextSnapshot(schedulingContext);
+    }
+
+    @Override
+    public String getTaskName() {
+        return taskName;
+    }
+
+    @Override
+    public boolean isRequestRecovery() {
+        return requestRecovery;
+    }
+
+    @Override
+    public boolean isStoreDurably() {
+        return storeDurably;
+    }
+
+    @Override
+    public String getTriggerName() {
+        return triggerName;
+    }
+
+    @Override
+    public int getTriggerPriority() {
+        return triggerPriority;
+    }
+
+    @Override
+    public Date getCurrentFireDate() {
+        return copy(currentFireDate);
+    }
+
+    @Override
+    public Date getPreviousFireDate() {
+        return copy(previousFireDate);
+    }
+
+    @Override
+    public Date getNextFireDate() {
+        return copy(nextFireDate);
+    }
+
+    @Override
+    public long getTaskRuntime() {
+        return taskRuntime;
+    }
+
+    @Override
+    public Date getScheduledFireDate() {
+        return copy(scheduledFireDate);
+    }
+
+    @Override
+    public int getTriggerRefireCount() {
+        return triggerRefireCount;
+    }
+
+    @Override
+    public Date getTriggerFinalFireDate() {
+        return copy(triggerFinalFireDate);
+    }
+
+    @Override
+    public Date getTriggerEndDate() {
+        return copy(triggerEndDate);
+    }
+
+    @Override
+    public Date getTriggerStartDate() {
+        return copy(triggerStartDate);
+    }
+
+    @Override
+    public Map<String, ?> getDataMap() {
+        return dataMap;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> toClass) {
+        throw SeedException.createNew(SchedulerErrorCode.UNABLE_TO_UNWRAP)
+                .put("class", toClass);
+    }
+
+    private static Date copy(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+}
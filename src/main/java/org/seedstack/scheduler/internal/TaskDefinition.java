@@ -0,0 +1,262 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Injector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobKey;
+import org.quartz.PersistJobDataAfterExecution;
+import org.seedstack.scheduler.AsyncListener;
+import org.seedstack.scheduler.ExceptionPolicy;
+import org.seedstack.scheduler.MaxConcurrency;
+import org.seedstack.scheduler.SaturationPolicy;
+import org.seedstack.scheduler.Scheduled;
+import org.seedstack.scheduler.Task;
+import org.seedstack.scheduler.TaskListener;
+import org.seedstack.seed.SeedException;
+
+/**
+ * Holds everything needed to create the {@link Job} of a {@link Task} class and to notify its listeners. It is
+ * resolved once per task class so that no reflection, annotation lookup or listener lookup happens when a trigger
+ * fires.
+ */
+@SuppressWarnings("rawtypes")
+class TaskDefinition {
+    private static final long DEFAULT_SATURATION_DELAY = 1000;
+    private static final TaskListener[] NO_LISTENERS = new TaskListener[0];
+    private final Class<? extends Task> taskClass;
+    private final Class<? extends TaskDelegateJob> delegateClass;
+    private final BiFunction<TaskDefinition, Task, TaskDelegateJob> delegateFactory;
+    private final List<Class<? extends TaskListener>> listenerClasses = new ArrayList<>();
+    private final ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter();
+    // limiters of jobs with their own limit, only kept while permits are taken or fires are pending
+    private final ConcurrentMap<JobKey, ConcurrencyLimiter> jobConcurrencyLimiters = CacheBuilder.newBuilder()
+            .weakValues()
+            .<JobKey, ConcurrencyLimiter>build()
+            .asMap();
+    private final int maxConcurrency;
+    private final SaturationPolicy saturationPolicy;
+    private final long saturationDelay;
+    private final ExceptionPolicy exceptionPolicy;
+    private final RetryBackoff retryBackoff;
+    private final long timeout;
+    private final long stuckThreshold;
+    private Provider<? extends Task> taskProvider;
+    private TaskListener[] listeners = NO_LISTENERS;
+    private TaskListener[] asyncListeners = NO_LISTENERS;
+
+    TaskDefinition(Class<? extends Task> taskClass) {
+        this.taskClass = taskClass;
+        this.delegateClass = computeDelegateClass(taskClass);
+        this.delegateFactory = computeDelegateFactory(delegateClass);
+        MaxConcurrency annotation = taskClass.getAnnotation(MaxConcurrency.class);
+        if (annotation != null) {
+            this.maxConcurrency = checkMaxConcurrency(taskClass, annotation.value());
+            this.saturationPolicy = annotation.saturationPolicy();
+            this.saturationDelay = annotation.delay();
+        } else {
+            this.maxConcurrency = 0;
+            this.saturationPolicy = SaturationPolicy.QUEUE;
+            this.saturationDelay = DEFAULT_SATURATION_DELAY;
+        }
+        Scheduled scheduled = taskClass.getAnnotation(Scheduled.class);
+        this.exceptionPolicy = scheduled != null ? scheduled.exceptionPolicy() : ExceptionPolicy.NONE;
+        this.retryBackoff = exceptionPolicy == ExceptionPolicy.RETRY_WITH_BACKOFF
+                ? new RetryBackoff(taskClass, scheduled.retry()) : null;
+        this.timeout = scheduled != null ? scheduled.timeout() : 0;
+        this.stuckThreshold = scheduled != null ? scheduled.stuckThreshold() : 0;
+    }
+
+    /**
+     * Registers a listener class to notify of the executions of this task. Must be called before the definition is
+     * resolved.
+     *
+     * @param listenerClass the listener class.
+     */
+    void addListenerClass(Class<? extends TaskListener> listenerClass) {
+        listenerClasses.add(listenerClass);
+    }
+
+    List<Class<? extends TaskListener>> getListenerClasses() {
+        return listenerClasses;
+    }
+
+    @Inject
+    void resolve(Injector injector) {
+        this.taskProvider = injector.getProvider(taskClass);
+        List<TaskListener> resolvedListeners = new ArrayList<>();
+        List<TaskListener> resolvedAsyncListeners = new ArrayList<>();
+        for (Class<? extends TaskListener> listenerClass : listenerClasses) {
+            if (listenerClass.isAnnotationPresent(AsyncListener.class)) {
+                resolvedAsyncListeners.add(injector.getInstance(listenerClass));
+            } else {
+                resolvedListeners.add(injector.getInstance(listenerClass));
+            }
+        }
+        this.listeners = resolvedListeners.toArray(NO_LISTENERS);
+        this.asyncListeners = resolvedAsyncListeners.toArray(NO_LISTENERS);
+    }
+
+    Class<? extends Task> getTaskClass() {
+        return taskClass;
+    }
+
+    Class<? extends TaskDelegateJob> getDelegateClass() {
+        return delegateClass;
+    }
+
+    /**
+     * Returns the synchronous listeners of this task, in registration order. The returned array must not be
+     * modified.
+     *
+     * @return the synchronous listeners of this task.
+     */
+    TaskListener[] getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Returns the {@link AsyncListener asynchronous} listeners of this task, in registration order. The returned
+     * array must not be modified.
+     *
+     * @return the asynchronous listeners of this task.
+     */
+    TaskListener[] getAsyncListeners() {
+        return asyncListeners;
+    }
+
+    /**
+     * Returns the limiter counting the executions of a job. A limit specified when scheduling a job applies to the
+     * executions of this job only, whereas the {@link MaxConcurrency} annotation limits the executions of all the jobs
+     * of this task without their own limit.
+     *
+     * @param jobKey      the key of the job.
+     * @param jobSettings the settings of the job.
+     * @return the limiter of the job.
+     */
+    ConcurrencyLimiter getConcurrencyLimiter(JobKey jobKey, JobSettings jobSettings) {
+        if (jobSettings.getMaxConcurrency() > 0) {
+            return jobConcurrencyLimiters.computeIfAbsent(jobKey, key -> new ConcurrencyLimiter());
+        }
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Returns the maximum number of concurrent executions of a job of this task. The limit specified when
+     * scheduling the job takes precedence over the {@link MaxConcurrency} annotation.
+     *
+     * @param jobSettings the settings of the job.
+     * @return the maximum number of concurrent executions or 0 if they are not limited.
+     */
+    int getMaxConcurrency(JobSettings jobSettings) {
+        return jobSettings.getMaxConcurrency() > 0 ? jobSettings.getMaxConcurrency() : maxConcurrency;
+    }
+
+    /**
+     * Returns what to do when a job of this task fires while its maximum number of executions is reached. The
+     * policy specified when scheduling the job takes precedence over the {@link MaxConcurrency} annotation.
+     *
+     * @param jobSettings the settings of the job.
+     * @return the saturation policy.
+     */
+    SaturationPolicy getSaturationPolicy(JobSettings jobSettings) {
+        return jobSettings.getSaturationPolicy() != null ? jobSettings.getSaturationPolicy() : saturationPolicy;
+    }
+
+    long getSaturationDelay() {
+        return saturationDelay;
+    }
+
+    ExceptionPolicy getExceptionPolicy() {
+        return exceptionPolicy;
+    }
+
+    /**
+     * @return the retries of the task or null if it doesn't use the
+     * {@link ExceptionPolicy#RETRY_WITH_BACKOFF} exception policy.
+     */
+    RetryBackoff getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    /**
+     * Returns the maximum duration of an execution of a job of this task. The timeout specified when scheduling the
+     * job takes precedence over the {@link Scheduled} annotation.
+     *
+     * @param jobSettings the settings of the job.
+     * @return the timeout in milliseconds or 0 if executions are not limited in time.
+     */
+    long getTimeout(JobSettings jobSettings) {
+        return jobSettings.getTimeout() >= 0 ? jobSettings.getTimeout() : timeout;
+    }
+
+    /**
+     * Returns the duration after which an execution of a job of this task is considered stuck by the watchdog. The
+     * threshold specified when scheduling the job takes precedence over the {@link Scheduled} annotation.
+     *
+     * @param jobSettings the settings of the job.
+     * @return the threshold in milliseconds or 0 if it is derived from the previous execution durations.
+     */
+    long getStuckThreshold(JobSettings jobSettings) {
+        return jobSettings.getStuckThreshold() >= 0 ? jobSettings.getStuckThreshold() : stuckThreshold;
+    }
+
+    /**
+     * Creates a new job instance wrapping a freshly provided task instance.
+     *
+     * @return the job to execute.
+     */
+    Job newJob() {
+        return delegateFactory.apply(this, taskProvider.get());
+    }
+
+    static Class<? extends TaskDelegateJob> computeDelegateClass(Class<? extends Task> taskClass) {
+        boolean nonConcurrentExecution = taskClass.getAnnotation(DisallowConcurrentExecution.class) != null;
+        boolean persistDataAfterExecution = taskClass.getAnnotation(PersistJobDataAfterExecution.class) != null;
+
+        if (!nonConcurrentExecution && !persistDataAfterExecution) {
+            return TaskDelegateJob.class;
+        } else if (nonConcurrentExecution && persistDataAfterExecution) {
+            return NonConcurrentPersistentDataTaskDelegateJob.class;
+        } else if (nonConcurrentExecution) {
+            return NonConcurrentTaskDelegateJob.class;
+        } else {
+            return PersistentDataTaskDelegateJob.class;
+        }
+    }
+
+    static int checkMaxConcurrency(Class<? extends Task> taskClass, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw SeedException.createNew(SchedulerErrorCode.INVALID_MAX_CONCURRENCY)
+                    .put("class", taskClass.getName())
+                    .put("maxConcurrency", maxConcurrency);
+        }
+        return maxConcurrency;
+    }
+
+    private static BiFunction<TaskDefinition, Task, TaskDelegateJob> computeDelegateFactory(
+            Class<? extends TaskDelegateJob> delegateClass) {
+        if (delegateClass == NonConcurrentPersistentDataTaskDelegateJob.class) {
+            return NonConcurrentPersistentDataTaskDelegateJob::new;
+        } else if (delegateClass == NonConcurrentTaskDelegateJob.class) {
+            return NonConcurrentTaskDelegateJob::new;
+        } else if (delegateClass == PersistentDataTaskDelegateJob.class) {
+            return PersistentDataTaskDelegateJob::new;
+        } else {
+            return TaskDelegateJob::new;
+        }
+    }
+}
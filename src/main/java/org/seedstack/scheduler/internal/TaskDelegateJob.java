@@ -7,46 +7,180 @@
  */
 package org.seedstack.scheduler.internal;
 
-import org.quartz.Job;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.quartz.InterruptableJob;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
 import org.seedstack.scheduler.ExceptionPolicy;
-import org.seedstack.scheduler.Scheduled;
 import org.seedstack.scheduler.SchedulingContext;
 import org.seedstack.scheduler.Task;
+import org.seedstack.scheduler.TaskTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * TaskDelegateJob is Quartz job which execute the call method of a Task.
+ * TaskDelegateJob is Quartz job which execute the call method of a Task. A new instance is created for each
+ * execution, so it also holds the cancellation state of the execution: the executing thread is interrupted when the
+ * task timeout expires or when the job is interrupted through the Quartz scheduler.
  */
-class TaskDelegateJob implements Job {
+class TaskDelegateJob implements InterruptableJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskDelegateJob.class);
+    private static final int RUNNING = 0;
+    private static final int COMPLETED = 1;
+    private static final int INTERRUPTING = 2;
+    private static final int INTERRUPTED = 3;
+    private final TaskDefinition taskDefinition;
     private final Task task;
+    private final AtomicInteger state = new AtomicInteger(COMPLETED);
+    private volatile Thread executingThread;
+    private volatile boolean cancelled;
+    private volatile boolean timedOut;
 
-    public TaskDelegateJob(Task task) {
+    public TaskDelegateJob(TaskDefinition taskDefinition, Task task) {
+        this.taskDefinition = taskDefinition;
         this.task = task;
     }
 
-    @SuppressWarnings({"ThrowableResultOfMethodCallIgnored"})
+    TaskDefinition getTaskDefinition() {
+        return taskDefinition;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
     @Override
     public void execute(JobExecutionContext context) throws JobExecutionException {
-        final SchedulingContext schedulingContext = new SchedulingContextImpl(context);
+        final SchedulingContext schedulingContext = SchedulingContextImpl.of(context);
+        final long timeout = taskDefinition.getTimeout(JobSettings.of(context.getJobDetail().getJobDataMap()));
+        Exception failure = null;
+        TaskExecutionEvent event = null;
+        if (FlightRecorderEvents.taskExecution) {
+            event = new TaskExecutionEvent();
+            event.begin();
+        }
 
+        startExecution();
+        TimerWheel.Timeout timeoutHandle = scheduleTimeout(context, timeout);
         try {
             task.execute(schedulingContext);
         } catch (final Exception ex) {
-            final JobExecutionException e = new JobExecutionException("Error during job execution", ex);
-
-            Scheduled scheduled = task.getClass().getAnnotation(Scheduled.class);
-            if (scheduled != null) {
-                if (ExceptionPolicy.REFIRE_IMMEDIATELY.equals(scheduled.exceptionPolicy())) {
-                    e.setRefireImmediately(true);
-                } else if (ExceptionPolicy.UNSCHEDULE_FIRING_TRIGGER.equals(scheduled.exceptionPolicy())) {
-                    e.setUnscheduleFiringTrigger(true);
-                } else if (ExceptionPolicy.UNSCHEDULE_ALL_TRIGGERS.equals(scheduled.exceptionPolicy())) {
-                    e.setUnscheduleAllTriggers(true);
-                }
+            failure = ex;
+        } finally {
+            if (timeoutHandle != null) {
+                timeoutHandle.cancel();
+            }
+            completeExecution();
+        }
+
+        if (event != null) {
+            event.end(context, taskDefinition.getTaskClass(), getOutcome(failure), failure);
+        }
+        if (timedOut) {
+            throw applyExceptionPolicy(context, new TaskTimeoutException(timeout, failure));
+        } else if (failure != null) {
+            throw applyExceptionPolicy(context, new JobExecutionException("Error during job execution", failure));
+        }
+    }
+
+    @Override
+    public void interrupt() {
+        cancelled = true;
+        interruptExecutingThread();
+    }
+
+    private JobExecutionException applyExceptionPolicy(JobExecutionContext context, JobExecutionException e) {
+        ExceptionPolicy exceptionPolicy = taskDefinition.getExceptionPolicy();
+        if (ExceptionPolicy.REFIRE_IMMEDIATELY.equals(exceptionPolicy)) {
+            e.setRefireImmediately(true);
+        } else if (ExceptionPolicy.RETRY_WITH_BACKOFF.equals(exceptionPolicy)) {
+            scheduleRetry(context);
+        } else if (ExceptionPolicy.UNSCHEDULE_FIRING_TRIGGER.equals(exceptionPolicy)) {
+            e.setUnscheduleFiringTrigger(true);
+        } else if (ExceptionPolicy.UNSCHEDULE_ALL_TRIGGERS.equals(exceptionPolicy)) {
+            e.setUnscheduleAllTriggers(true);
+        }
+        return e;
+    }
+
+    private String getOutcome(Exception failure) {
+        if (timedOut) {
+            return TaskExecutionEvent.TIMEOUT;
+        } else if (failure != null) {
+            return TaskExecutionEvent.FAILURE;
+        } else if (cancelled) {
+            return TaskExecutionEvent.INTERRUPTED;
+        } else {
+            return TaskExecutionEvent.SUCCESS;
+        }
+    }
+
+    private void startExecution() {
+        // the same instance is executed again when the execution is refired
+        cancelled = false;
+        timedOut = false;
+        executingThread = Thread.currentThread();
+        state.set(RUNNING);
+    }
+
+    private TimerWheel.Timeout scheduleTimeout(JobExecutionContext context, long timeout) {
+        if (timeout <= 0) {
+            return null;
+        }
+        TimerWheel timerWheel;
+        try {
+            timerWheel = (TimerWheel) context.getScheduler().getContext().get(TimerWheel.CONTEXT_KEY);
+        } catch (SchedulerException e) {
+            timerWheel = null;
+        }
+        if (timerWheel == null) {
+            LOGGER.warn("No timer is available in the scheduler, task {} will run without timeout",
+                    taskDefinition.getTaskClass().getName());
+            return null;
+        }
+        return timerWheel.schedule(() -> {
+            timedOut = true;
+            cancelled = true;
+            LOGGER.warn("Task {} exceeded its timeout of {} ms, interrupting it",
+                    taskDefinition.getTaskClass().getName(), timeout);
+            interruptExecutingThread();
+        }, timeout);
+    }
+
+    private void interruptExecutingThread() {
+        if (state.compareAndSet(RUNNING, INTERRUPTING)) {
+            executingThread.interrupt();
+            state.set(INTERRUPTED);
+        }
+    }
+
+    private void completeExecution() {
+        if (!state.compareAndSet(RUNNING, COMPLETED)) {
+            // wait for a concurrent interruption to be done before clearing it, so it doesn't leak to the next job
+            while (state.get() == INTERRUPTING) {
+                Thread.yield();
             }
+            Thread.interrupted();
+            state.set(COMPLETED);
+        }
+        executingThread = null;
+    }
 
-            throw e;
+    private void scheduleRetry(JobExecutionContext context) {
+        Trigger retryTrigger = taskDefinition.getRetryBackoff().nextRetry(context.getTrigger());
+        if (retryTrigger == null) {
+            LOGGER.warn("Task {} failed after {} attempts, giving up", taskDefinition.getTaskClass().getName(),
+                    RetryBackoff.getAttempt(context.getTrigger()) + 1);
+            return;
+        }
+        try {
+            context.getScheduler().scheduleJob(retryTrigger);
+            LOGGER.debug("Task {} failed, retry {} scheduled at {}", taskDefinition.getTaskClass().getName(),
+                    RetryBackoff.getAttempt(retryTrigger), retryTrigger.getStartTime());
+        } catch (SchedulerException e) {
+            LOGGER.warn("Unable to schedule the retry of task {}", taskDefinition.getTaskClass().getName(), e);
         }
     }
 }
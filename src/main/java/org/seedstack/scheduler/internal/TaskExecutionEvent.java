@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+import org.quartz.JobExecutionContext;
+
+/**
+ * Java Flight Recorder event spanning the execution of a task by {@link TaskDelegateJob}. Only referenced when
+ * {@link FlightRecorderEvents#taskExecution} is enabled.
+ */
+@Name("org.seedstack.scheduler.TaskExecution")
+@Label("Task Execution")
+@Description("Execution of a scheduled task")
+@Category({"SeedStack", "Scheduler"})
+@StackTrace(false)
+class TaskExecutionEvent extends Event {
+    static final String SUCCESS = "SUCCESS";
+    static final String FAILURE = "FAILURE";
+    static final String TIMEOUT = "TIMEOUT";
+    static final String INTERRUPTED = "INTERRUPTED";
+
+    @Label("Task Class")
+    Class<?> taskClass;
+
+    @Label("Job Key")
+    String jobKey;
+
+    @Label("Trigger Key")
+    String triggerKey;
+
+    @Label("Scheduled Fire Time")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long scheduledFireTime;
+
+    @Label("Fire Time")
+    @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+    long fireTime;
+
+    @Label("Fire Lag")
+    @Timespan(Timespan.MILLISECONDS)
+    long fireLag;
+
+    @Label("Refire Count")
+    int refireCount;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Exception Class")
+    Class<?> exceptionClass;
+
+    /**
+     * Ends the event and commits it if it is recorded. The fields are only computed in that case.
+     *
+     * @param context   the context of the execution.
+     * @param taskClass the class of the executed task.
+     * @param outcome   the outcome of the execution.
+     * @param failure   the exception thrown by the task or null.
+     */
+    void end(JobExecutionContext context, Class<?> taskClass, String outcome, Exception failure) {
+        end();
+        if (shouldCommit()) {
+            this.taskClass = taskClass;
+            this.jobKey = context.getJobDetail().getKey().toString();
+            this.triggerKey = context.getTrigger().getKey().toString();
+            this.fireTime = context.getFireTime().getTime();
+            if (context.getScheduledFireTime() != null) {
+                this.scheduledFireTime = context.getScheduledFireTime().getTime();
+                this.fireLag = fireTime - scheduledFireTime;
+            }
+            this.refireCount = context.getRefireCount();
+            this.outcome = outcome;
+            this.exceptionClass = failure != null ? failure.getClass() : null;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The index of the tasks and task listeners of a module, generated at build time by the {@link TaskIndexProcessor}.
+ * It lists the concrete task classes, the ones annotated with a {@link org.seedstack.scheduler.Scheduled} cron
+ * expression and the task listened by each concrete listener, so they are known without classpath scanning nor
+ * reflection on listener generics.
+ * <p>
+ * The index is a UTF-8 text file at {@value #LOCATION} with one entry per line:
+ * <pre>
+ * task com.acme.SomeTask
+ * task com.acme.SomeScheduledTask scheduled
+ * listener com.acme.SomeListener com.acme.SomeTask
+ * </pre>
+ * Class names are binary names. Lines starting with {@code #} are ignored.
+ * <p>
+ * An index only lists the classes of the classpath entry it belongs to, so the classes of the other entries still
+ * have to be found by classpath scanning.
+ */
+final class TaskIndex {
+    static final String LOCATION = "META-INF/seedstack/scheduler/task-index";
+    private static final String TASK = "task";
+    private static final String SCHEDULED = "scheduled";
+    private static final String LISTENER = "listener";
+    private final Set<String> taskClassNames = new LinkedHashSet<>();
+    private final Set<String> scheduledTaskClassNames = new LinkedHashSet<>();
+    private final Map<String, String> listenedTaskClassNames = new LinkedHashMap<>();
+    private final Set<String> indexedLocations = new LinkedHashSet<>();
+
+    /**
+     * Reads and merges all the task indexes visible from a class loader.
+     *
+     * @param classLoader the class loader to look the indexes up with.
+     * @return the merged index or null if there is none.
+     * @throws IOException if an index cannot be read.
+     */
+    static TaskIndex load(ClassLoader classLoader) throws IOException {
+        Enumeration<URL> locations = classLoader.getResources(LOCATION);
+        if (!locations.hasMoreElements()) {
+            return null;
+        }
+        TaskIndex taskIndex = new TaskIndex();
+        while (locations.hasMoreElements()) {
+            URL location = locations.nextElement();
+            try (InputStream inputStream = location.openStream()) {
+                taskIndex.read(inputStream);
+            }
+            String url = location.toString();
+            taskIndex.indexedLocations.add(url.substring(0, url.length() - LOCATION.length()));
+        }
+        return taskIndex;
+    }
+
+    /**
+     * Adds the entries of an index.
+     *
+     * @param inputStream the index content.
+     * @throws IOException if the index cannot be read or is malformed.
+     */
+    void read(InputStream inputStream) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split("\\s+");
+            if (TASK.equals(parts[0]) && parts.length >= 2) {
+                addTask(parts[1], parts.length > 2 && SCHEDULED.equals(parts[2]));
+            } else if (LISTENER.equals(parts[0]) && parts.length == 3) {
+                addListener(parts[1], parts[2]);
+            } else {
+                throw new IOException("Malformed task index entry: " + line);
+            }
+        }
+    }
+
+    /**
+     * Writes the entries of this index.
+     *
+     * @param writer the writer to write the index content to.
+     * @throws IOException if the index cannot be written.
+     */
+    void write(Writer writer) throws IOException {
+        writer.write("# Generated by " + TaskIndexProcessor.class.getName() + "\n");
+        for (String taskClassName : taskClassNames) {
+            writer.write(TASK + " " + taskClassName);
+            if (scheduledTaskClassNames.contains(taskClassName)) {
+                writer.write(" " + SCHEDULED);
+            }
+            writer.write("\n");
+        }
+        for (Map.Entry<String, String> listener : listenedTaskClassNames.entrySet()) {
+            writer.write(LISTENER + " " + listener.getKey() + " " + listener.getValue() + "\n");
+        }
+    }
+
+    void addTask(String taskClassName, boolean scheduled) {
+        taskClassNames.add(taskClassName);
+        if (scheduled) {
+            scheduledTaskClassNames.add(taskClassName);
+        }
+    }
+
+    void addListener(String listenerClassName, String taskClassName) {
+        listenedTaskClassNames.put(listenerClassName, taskClassName);
+    }
+
+    /**
+     * Removes a class from the index, whether it is a task or a listener.
+     *
+     * @param className the binary name of the class.
+     */
+    void remove(String className) {
+        taskClassNames.remove(className);
+        scheduledTaskClassNames.remove(className);
+        listenedTaskClassNames.remove(className);
+    }
+
+    /**
+     * Checks if a class belongs to a classpath entry without index, by comparing the URL of its class file with the
+     * location of the indexes.
+     *
+     * @param someClass the class to check.
+     * @return true if the class is not covered by any index.
+     */
+    boolean isNotIndexed(Class<?> someClass) {
+        URL classFile = someClass.getResource("/" + someClass.getName().replace('.', '/') + ".class");
+        if (classFile == null) {
+            return true;
+        }
+        String url = classFile.toString();
+        for (String indexedLocation : indexedLocations) {
+            if (url.startsWith(indexedLocation)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isEmpty() {
+        return taskClassNames.isEmpty() && listenedTaskClassNames.isEmpty();
+    }
+
+    /**
+     * @return the binary names of the concrete task classes.
+     */
+    Set<String> getTaskClassNames() {
+        return Collections.unmodifiableSet(taskClassNames);
+    }
+
+    /**
+     * @return the binary names of the task classes annotated with a {@link org.seedstack.scheduler.Scheduled} cron
+     * expression.
+     */
+    Set<String> getScheduledTaskClassNames() {
+        return Collections.unmodifiableSet(scheduledTaskClassNames);
+    }
+
+    /**
+     * @return the binary name of the listened task class by binary name of listener class.
+     */
+    Map<String, String> getListenedTaskClassNames() {
+        return Collections.unmodifiableMap(listenedTaskClassNames);
+    }
+
+    /**
+     * @return the URLs of the classpath entries containing the loaded indexes.
+     */
+    Set<String> getIndexedLocations() {
+        return Collections.unmodifiableSet(indexedLocations);
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import org.seedstack.scheduler.Scheduled;
+import org.seedstack.scheduler.Task;
+import org.seedstack.scheduler.TaskListener;
+
+/**
+ * Annotation processor generating the {@link TaskIndex} of the compiled module, so the scheduler plugin finds tasks
+ * and listeners without classpath scanning. It is discovered by the compiler from the add-on jar.
+ * <p>
+ * It also reports at compile time what would otherwise fail at startup: invalid {@link Scheduled} cron expressions
+ * (those referencing configuration values are only checked at runtime) and concrete listeners that don't specify
+ * the listened task as type parameter of {@link TaskListener}.
+ * <p>
+ * With incremental compilation, the entries of the previous index are kept for the classes that were not recompiled
+ * and still exist.
+ */
+public class TaskIndexProcessor extends AbstractProcessor {
+    private final TaskIndex taskIndex = new TaskIndex();
+    private final Set<String> processedClassNames = new HashSet<>();
+    private Elements elements;
+    private Types types;
+    private TypeMirror taskType;
+    private TypeMirror taskListenerType;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.elements = processingEnv.getElementUtils();
+        this.types = processingEnv.getTypeUtils();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        // tasks and listeners are recognized by the interface they implement, not by an annotation
+        return Collections.singleton("*");
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (taskType == null) {
+            TypeElement taskElement = elements.getTypeElement(Task.class.getCanonicalName());
+            TypeElement taskListenerElement = elements.getTypeElement(TaskListener.class.getCanonicalName());
+            if (taskElement == null || taskListenerElement == null) {
+                return false;
+            }
+            taskType = types.erasure(taskElement.asType());
+            taskListenerType = types.erasure(taskListenerElement.asType());
+        }
+
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        } else {
+            for (TypeElement typeElement : collectTypes(roundEnv.getRootElements())) {
+                processedClassNames.add(binaryName(typeElement));
+                if (isConcreteClass(typeElement)) {
+                    if (isSubtype(typeElement, taskType)) {
+                        processTask(typeElement);
+                    }
+                    if (isSubtype(typeElement, taskListenerType)) {
+                        processListener(typeElement);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void processTask(TypeElement taskElement) {
+        boolean inherited = false;
+        AnnotationMirror scheduledMirror = findScheduled(taskElement.getAnnotationMirrors());
+        if (scheduledMirror == null) {
+            scheduledMirror = findScheduled(elements.getAllAnnotationMirrors(taskElement));
+            inherited = true;
+        }
+        AnnotationValue cronValue = null;
+        if (scheduledMirror != null) {
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : elements.getElementValuesWithDefaults(scheduledMirror).entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value")) {
+                    cronValue = entry.getValue();
+                }
+            }
+        }
+
+        String cronExpression = cronValue == null ? "" : String.valueOf(cronValue.getValue());
+        if (!cronExpression.isEmpty() && !cronExpression.contains("${")) {
+            try {
+                CompiledCronExpression.of(cronExpression, TimeZone.getTimeZone("UTC"));
+            } catch (ParseException | RuntimeException e) {
+                String message = "Invalid cron expression '" + cronExpression + "' of task "
+                        + taskElement.getQualifiedName() + ": " + e.getMessage();
+                if (inherited) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, taskElement);
+                } else {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, taskElement,
+                            scheduledMirror, cronValue);
+                }
+            }
+        }
+        taskIndex.addTask(binaryName(taskElement), !cronExpression.isEmpty());
+    }
+
+    private AnnotationMirror findScheduled(List<? extends AnnotationMirror> annotationMirrors) {
+        for (AnnotationMirror annotationMirror : annotationMirrors) {
+            if (((TypeElement) annotationMirror.getAnnotationType().asElement()).getQualifiedName()
+                    .contentEquals(Scheduled.class.getCanonicalName())) {
+                return annotationMirror;
+            }
+        }
+        return null;
+    }
+
+    private void processListener(TypeElement listenerElement) {
+        TypeMirror listenedType = null;
+        // same resolution as the plugin when scanning: only the interfaces directly implemented are considered
+        for (TypeMirror interfaceType : listenerElement.getInterfaces()) {
+            if (interfaceType.getKind() == TypeKind.DECLARED && types.isAssignable(types.erasure(interfaceType),
+                    taskListenerType) && !((DeclaredType) interfaceType).getTypeArguments().isEmpty()) {
+                listenedType = ((DeclaredType) interfaceType).getTypeArguments().get(0);
+                break;
+            }
+        }
+        if (listenedType == null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Task listener "
+                    + listenerElement.getQualifiedName() + " must specify the listened task as type parameter of "
+                    + TaskListener.class.getSimpleName(), listenerElement);
+            return;
+        }
+        if (listenedType.getKind() == TypeKind.DECLARED) {
+            TypeElement listenedElement = (TypeElement) ((DeclaredType) listenedType).asElement();
+            if (isConcreteClass(listenedElement) && isSubtype(listenedElement, taskType)) {
+                taskIndex.addListener(binaryName(listenerElement), binaryName(listenedElement));
+            }
+        }
+    }
+
+    private void writeIndex() {
+        mergePreviousIndex();
+        if (taskIndex.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject resource = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", TaskIndex.LOCATION);
+            try (Writer writer = resource.openWriter()) {
+                taskIndex.write(writer);
+            }
+        } catch (IOException e) {
+            // without index, the plugin falls back to classpath scanning
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Unable to write the task index: " + e.getMessage());
+        }
+    }
+
+    private void mergePreviousIndex() {
+        TaskIndex previousIndex = new TaskIndex();
+        try {
+            FileObject resource = processingEnv.getFiler()
+                    .getResource(StandardLocation.CLASS_OUTPUT, "", TaskIndex.LOCATION);
+            try (InputStream inputStream = resource.openInputStream()) {
+                previousIndex.read(inputStream);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // no previous index
+            return;
+        }
+        for (String taskClassName : previousIndex.getTaskClassNames()) {
+            if (isStillPresent(taskClassName)) {
+                taskIndex.addTask(taskClassName, previousIndex.getScheduledTaskClassNames().contains(taskClassName));
+            }
+        }
+        for (Map.Entry<String, String> listener : previousIndex.getListenedTaskClassNames().entrySet()) {
+            if (isStillPresent(listener.getKey())) {
+                taskIndex.addListener(listener.getKey(), listener.getValue());
+            }
+        }
+    }
+
+    private boolean isStillPresent(String className) {
+        return !processedClassNames.contains(className)
+                && elements.getTypeElement(className.replace('$', '.')) != null;
+    }
+
+    private List<TypeElement> collectTypes(Set<? extends Element> rootElements) {
+        List<TypeElement> typeElements = new ArrayList<>();
+        for (Element element : rootElements) {
+            collectTypes(element, typeElements);
+        }
+        return typeElements;
+    }
+
+    private void collectTypes(Element element, List<TypeElement> typeElements) {
+        if (element.getKind().isClass() || element.getKind().isInterface()) {
+            typeElements.add((TypeElement) element);
+            for (Element enclosedElement : element.getEnclosedElements()) {
+                collectTypes(enclosedElement, typeElements);
+            }
+        }
+    }
+
+    private boolean isConcreteClass(TypeElement typeElement) {
+        return typeElement.getKind() == ElementKind.CLASS && !typeElement.getModifiers().contains(Modifier.ABSTRACT);
+    }
+
+    private boolean isSubtype(TypeElement typeElement, TypeMirror type) {
+        return types.isAssignable(types.erasure(typeElement.asType()), type);
+    }
+
+    private String binaryName(TypeElement typeElement) {
+        return elements.getBinaryName(typeElement).toString();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.quartz.JobExecutionContext;
+
+/**
+ * Java Flight Recorder event spanning the notification of the listeners of a task by {@link DelegateJobListener},
+ * before or after an execution. Only referenced when {@link FlightRecorderEvents#listeners} is enabled.
+ */
+@Name("org.seedstack.scheduler.TaskListeners")
+@Label("Task Listeners")
+@Description("Notification of the listeners of a task before or after its execution")
+@Category({"SeedStack", "Scheduler"})
+@StackTrace(false)
+class TaskListenerEvent extends Event {
+    @Label("Task Class")
+    Class<?> taskClass;
+
+    @Label("Trigger Key")
+    String triggerKey;
+
+    @Label("Notification")
+    String notification;
+
+    @Label("Listener Count")
+    int listenerCount;
+
+    /**
+     * Ends the event and commits it if it is recorded. The fields are only computed in that case.
+     *
+     * @param context        the context of the execution.
+     * @param taskDefinition the definition of the executed task.
+     * @param notification   the notified listener method.
+     */
+    void end(JobExecutionContext context, TaskDefinition taskDefinition, String notification) {
+        end();
+        if (shouldCommit()) {
+            this.taskClass = taskDefinition.getTaskClass();
+            this.triggerKey = context.getTrigger().getKey().toString();
+            this.notification = notification;
+            this.listenerCount = taskDefinition.getListeners().length + taskDefinition.getAsyncListeners().length;
+            commit();
+        }
+    }
+}
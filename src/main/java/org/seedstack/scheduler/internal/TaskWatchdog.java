@@ -0,0 +1,279 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.inject.Inject;
+import org.quartz.JobExecutionContext;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.StuckExecution;
+import org.seedstack.scheduler.TaskListener;
+import org.seedstack.scheduler.metrics.LatencyHistogram;
+import org.seedstack.scheduler.metrics.TaskMetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the task executions in progress and checks them periodically from a dedicated thread. When an execution runs
+ * for longer than its stuck threshold, the stack of the thread executing it is sampled one or more times, then the
+ * execution is reported in the log, to the metrics registry and to the {@link TaskListener#onStuck listeners} of the
+ * task.
+ * <p>
+ * The threshold is specified on the task or derived from the 99th percentile of its previous execution durations,
+ * lazily by the watchdog thread, so tracking an execution only costs a map insertion and removal to the threads
+ * executing tasks.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+class TaskWatchdog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskWatchdog.class);
+    private static final double THRESHOLD_PERCENTILE = 99;
+    private final Map<String, Execution> executions = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final long checkInterval;
+    private final double percentileFactor;
+    private final int minExecutions;
+    private final long minThreshold;
+    private final int samples;
+    private final long samplingInterval;
+    private final Object lifecycleLock = new Object();
+    private volatile Thread watchdogThread;
+    private volatile boolean stopped;
+    @Inject
+    TaskMetricsRegistry taskMetricsRegistry;
+    @Inject
+    ExecutionHistory executionHistory;
+
+    TaskWatchdog(SchedulerConfig.WatchdogConfig config) {
+        this.enabled = config.isEnabled();
+        this.checkInterval = Math.max(1, config.getCheckInterval());
+        this.percentileFactor = config.getPercentileFactor();
+        this.minExecutions = Math.max(1, config.getMinExecutions());
+        this.minThreshold = config.getMinThreshold();
+        this.samples = Math.max(1, config.getSamples());
+        this.samplingInterval = Math.max(0, config.getSamplingInterval());
+    }
+
+    /**
+     * Starts tracking an execution. Called from the thread executing the task.
+     *
+     * @param context        the context of the execution.
+     * @param taskDefinition the definition of the executed task.
+     */
+    void start(JobExecutionContext context, TaskDefinition taskDefinition) {
+        if (!enabled || stopped) {
+            return;
+        }
+        // the scheduling context and the job data are not thread-safe, so they are read by the executing thread
+        SchedulingContext schedulingContext = taskDefinition.getListeners().length > 0
+                || taskDefinition.getAsyncListeners().length > 0 ? SchedulingContextImpl.of(context) : null;
+        executions.put(context.getFireInstanceId(), new Execution(taskDefinition, schedulingContext,
+                context.getFireTime().getTime(), System.currentTimeMillis(),
+                taskDefinition.getStuckThreshold(JobSettings.of(context.getJobDetail().getJobDataMap())),
+                Thread.currentThread()));
+        if (watchdogThread == null) {
+            startWatchdogThread();
+        }
+    }
+
+    /**
+     * Stops tracking an execution. Called from the thread executing the task. An execution found stuck is reported
+     * now if not all its samples were taken yet.
+     *
+     * @param context the context of the execution.
+     */
+    void end(JobExecutionContext context) {
+        if (!enabled) {
+            return;
+        }
+        Execution execution = executions.remove(context.getFireInstanceId());
+        if (execution != null && execution.end()) {
+            report(execution);
+        }
+    }
+
+    /**
+     * Stops the watchdog thread. Executions in progress are not reported anymore.
+     */
+    void stop() {
+        Thread thread;
+        synchronized (lifecycleLock) {
+            stopped = true;
+            thread = watchdogThread;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+        executions.clear();
+    }
+
+    /**
+     * Checks the executions in progress, sampling the stuck ones and reporting those whose samples are complete.
+     *
+     * @param now the current time in milliseconds.
+     */
+    void check(long now) {
+        for (Execution execution : executions.values()) {
+            if (execution.sample(now)) {
+                report(execution);
+            }
+        }
+    }
+
+    int getExecutionCount() {
+        return executions.size();
+    }
+
+    private void startWatchdogThread() {
+        synchronized (lifecycleLock) {
+            if (watchdogThread == null && !stopped) {
+                Thread thread = new Thread(this::run, "scheduler-watchdog");
+                thread.setDaemon(true);
+                watchdogThread = thread;
+                thread.start();
+            }
+        }
+    }
+
+    private void run() {
+        long interval = samples > 1 ? Math.max(1, Math.min(checkInterval, samplingInterval)) : checkInterval;
+        while (!stopped) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                check(System.currentTimeMillis());
+            } catch (Exception e) {
+                LOGGER.warn("Unable to check the task executions in progress", e);
+            }
+        }
+    }
+
+    private long computeThreshold(Execution execution) {
+        if (execution.specifiedThreshold > 0 || percentileFactor <= 0) {
+            return execution.specifiedThreshold;
+        }
+        LatencyHistogram.Snapshot durations = executionHistory.durationsOf(
+                execution.taskDefinition.getTaskClass());
+        if (durations.getCount() < minExecutions) {
+            // not enough executions to know what a normal duration is
+            return 0;
+        }
+        return Math.max(minThreshold,
+                (long) Math.ceil(durations.getValueAtPercentile(THRESHOLD_PERCENTILE) * percentileFactor));
+    }
+
+    private void report(Execution execution) {
+        StuckExecution stuckExecution = execution.toStuckExecution();
+        taskMetricsRegistry.recordStuckExecution(stuckExecution.getTaskClass());
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn("Task {} has been running for {} ms on thread {}, exceeding its stuck threshold of {} ms{}",
+                    stuckExecution.getTaskClass().getName(), stuckExecution.getElapsed(),
+                    stuckExecution.getThreadName(), stuckExecution.getThreshold(), formatSamples(stuckExecution));
+        }
+        if (execution.schedulingContext != null) {
+            notifyListeners(execution.taskDefinition.getListeners(), execution.schedulingContext, stuckExecution);
+            notifyListeners(execution.taskDefinition.getAsyncListeners(), execution.schedulingContext,
+                    stuckExecution);
+        }
+    }
+
+    private void notifyListeners(TaskListener[] listeners, SchedulingContext schedulingContext,
+            StuckExecution stuckExecution) {
+        for (TaskListener listener : listeners) {
+            try {
+                listener.onStuck(schedulingContext, stuckExecution);
+            } catch (Exception e) {
+                LOGGER.error("An exception occurred in method onStuck of listener '{}'", listener.getClass().getName(),
+                        e);
+            }
+        }
+    }
+
+    private String formatSamples(StuckExecution stuckExecution) {
+        StringBuilder sb = new StringBuilder();
+        for (StuckExecution.Sample sample : stuckExecution.getSamples()) {
+            sb.append("\n  after ").append(sample.getElapsed()).append(" ms:");
+            for (StackTraceElement element : sample.getStackTrace()) {
+                sb.append("\n\tat ").append(element);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * An execution in progress. Its state is guarded by its monitor, which is only contended by the watchdog thread
+     * once the execution is stuck, so the stack of the thread is never sampled after the execution ended.
+     */
+    private class Execution {
+        private final TaskDefinition taskDefinition;
+        private final SchedulingContext schedulingContext;
+        private final long fireTime;
+        private final long startTime;
+        private final long specifiedThreshold;
+        private final Thread thread;
+        private final List<StuckExecution.Sample> stackSamples = new ArrayList<>();
+        private long threshold = -1;
+        private long nextSampleTime;
+        private boolean ended;
+        private boolean reported;
+
+        private Execution(TaskDefinition taskDefinition, SchedulingContext schedulingContext, long fireTime,
+                long startTime, long specifiedThreshold, Thread thread) {
+            this.taskDefinition = taskDefinition;
+            this.schedulingContext = schedulingContext;
+            this.fireTime = fireTime;
+            this.startTime = startTime;
+            this.specifiedThreshold = specifiedThreshold;
+            this.thread = thread;
+        }
+
+        /**
+         * @return true if the execution must be reported because all its samples were taken.
+         */
+        private synchronized boolean sample(long now) {
+            if (ended || reported) {
+                return false;
+            }
+            if (threshold < 0) {
+                threshold = computeThreshold(this);
+            }
+            long elapsed = now - startTime;
+            if (threshold == 0 || elapsed < threshold || now < nextSampleTime) {
+                return false;
+            }
+            stackSamples.add(new StuckExecution.Sample(elapsed, thread.getStackTrace()));
+            nextSampleTime = now + samplingInterval;
+            reported = stackSamples.size() >= samples;
+            return reported;
+        }
+
+        /**
+         * @return true if the execution must be reported because it was found stuck but not reported yet.
+         */
+        private synchronized boolean end() {
+            ended = true;
+            if (!stackSamples.isEmpty() && !reported) {
+                reported = true;
+                return true;
+            }
+            return false;
+        }
+
+        private synchronized StuckExecution toStuckExecution() {
+            return new StuckExecution(taskDefinition.getTaskClass(), new Date(fireTime), threshold,
+                    thread.getName(), new ArrayList<>(stackSamples));
+        }
+    }
+}
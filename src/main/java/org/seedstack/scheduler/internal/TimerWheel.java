@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timer wheel expiring the timeouts of all task executions from a single thread. Scheduling and cancelling a
+ * timeout are constant-time lock-free operations: they only enqueue the timeout, which is then moved to or removed
+ * from the bucket of its deadline by the wheel thread on its next tick. Timeouts expire with a precision of one
+ * tick.
+ * <p>
+ * The wheel is shared by all the tasks of a scheduler through the {@link org.quartz.SchedulerContext}.
+ */
+class TimerWheel {
+    static final String CONTEXT_KEY = TimerWheel.class.getName();
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimerWheel.class);
+    private final long tickNanos;
+    private final Bucket[] buckets;
+    private final int mask;
+    private final Queue<Timeout> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Object lifecycleLock = new Object();
+    private volatile Thread wheelThread;
+    private volatile boolean stopped;
+    private volatile long startTime;
+    private long tick;
+
+    TimerWheel(SchedulerConfig.TimeoutsConfig config) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, config.getTickDuration()));
+        // rounded up to a power of two so the bucket index is computed with a mask
+        int wheelSize = Integer.highestOneBit(Math.max(1, config.getWheelSize() - 1)) << 1;
+        this.buckets = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+    }
+
+    /**
+     * Schedules an action to run once a delay has elapsed. The action runs on the wheel thread and must be fast.
+     *
+     * @param action the action to run.
+     * @param delay  the delay in milliseconds.
+     * @return the timeout, which can be cancelled.
+     */
+    Timeout schedule(Runnable action, long delay) {
+        if (wheelThread == null) {
+            startWheelThread();
+        }
+        long delayNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(delay), Long.MAX_VALUE / 2);
+        Timeout timeout = new Timeout(action, System.nanoTime() - startTime + delayNanos);
+        scheduledTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the wheel thread. Pending timeouts never expire.
+     */
+    void stop() {
+        Thread thread;
+        synchronized (lifecycleLock) {
+            stopped = true;
+            thread = wheelThread;
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void startWheelThread() {
+        synchronized (lifecycleLock) {
+            if (wheelThread == null && !stopped) {
+                startTime = System.nanoTime();
+                Thread thread = new Thread(this::run, "scheduler-timeouts");
+                thread.setDaemon(true);
+                wheelThread = thread;
+                thread.start();
+            }
+        }
+    }
+
+    private void run() {
+        while (!stopped) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) {
+                break;
+            }
+            removeCancelledTimeouts();
+            transferScheduledTimeouts();
+            buckets[(int) (tick & mask)].expireTimeouts(deadline);
+            tick++;
+        }
+        LOGGER.debug("Task timeout wheel stopped");
+    }
+
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos <= 0) {
+                return deadline;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+            if (Thread.interrupted() || stopped) {
+                return -1;
+            }
+        }
+    }
+
+    private void transferScheduledTimeouts() {
+        Timeout timeout;
+        while ((timeout = scheduledTimeouts.poll()) != null) {
+            if (timeout.state.get() == Timeout.CANCELLED) {
+                continue;
+            }
+            long ticks = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (ticks - tick) / buckets.length;
+            // a timeout whose deadline is already passed goes in the current bucket
+            buckets[(int) (Math.max(ticks, tick) & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * A pending action of the timer wheel.
+     */
+    class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private final Runnable action;
+        private final long deadline;
+        // the fields below are only accessed by the wheel thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout previous;
+
+        private Timeout(Runnable action, long deadline) {
+            this.action = action;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the timeout.
+         *
+         * @return true if the action will not run, false if it has already run or is running.
+         */
+        boolean cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                cancelledTimeouts.add(this);
+                return true;
+            }
+            return state.get() == CANCELLED;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(PENDING, EXPIRED)) {
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    LOGGER.warn("An exception occurred while expiring a task timeout", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The timeouts expiring on the same tick of each round, in a doubly-linked list.
+     */
+    private static class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        private void expireTimeouts(long deadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                tail = timeout.previous;
+            }
+            timeout.next = null;
+            timeout.previous = null;
+            timeout.bucket = null;
+        }
+    }
+}
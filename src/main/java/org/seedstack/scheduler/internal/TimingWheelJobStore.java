@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import org.quartz.Trigger;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.SchedulerSignaler;
+
+/**
+ * Quartz in-memory {@link org.quartz.spi.JobStore} keeping its waiting triggers in a hashed timing wheel instead of a
+ * tree. Adding and removing a trigger is done in constant time whatever the number of stored triggers, which reduces
+ * the time spent holding the job store lock when many high-frequency triggers are acquired and fired.
+ * <p>
+ * Apart from this, it behaves exactly as the {@link RAMJobStore}.
+ */
+public class TimingWheelJobStore extends RAMJobStore {
+    private static final String TRIGGER_WRAPPER_CLASS = "org.quartz.simpl.TriggerWrapper";
+    private static final MethodHandle TRIGGER_GETTER = resolveTriggerGetter();
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler schedSignaler) {
+        synchronized (lock) {
+            if (!(timeTriggers instanceof TimingWheelTriggerSet)) {
+                timeTriggers = new TimingWheelTriggerSet(timeTriggers.comparator(), TimingWheelJobStore::getTrigger);
+            }
+        }
+        super.initialize(loadHelper, schedSignaler);
+    }
+
+    private static Trigger getTrigger(Object wrapper) {
+        try {
+            return (Trigger) TRIGGER_GETTER.invokeExact(wrapper);
+        } catch (Throwable t) {
+            throw new IllegalStateException("Unable to access the trigger of " + wrapper, t);
+        }
+    }
+
+    private static MethodHandle resolveTriggerGetter() {
+        try {
+            // the wrapper class of RAMJobStore is package-private but its trigger field is public
+            Field field = Class.forName(TRIGGER_WRAPPER_CLASS, false, RAMJobStore.class.getClassLoader())
+                    .getField("trigger");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .unreflectGetter(field)
+                    .asType(MethodType.methodType(Trigger.class, Object.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Unable to access the triggers of " + TRIGGER_WRAPPER_CLASS, e);
+        }
+    }
+}
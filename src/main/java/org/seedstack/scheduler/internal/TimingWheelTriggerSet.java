@@ -0,0 +1,626 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+
+/**
+ * A set of triggers ordered by next fire time, backed by a hierarchical hashed timing wheel instead of a red-black
+ * tree. It replaces the time-ordered set of the Quartz in-memory job store, which only uses {@link #add(Object)},
+ * {@link #remove(Object)}, {@link #contains(Object)}, {@link #first()}, {@link #size()} and unordered iteration, so
+ * the ordered views and the other navigation methods of {@link TreeSet} throw {@link UnsupportedOperationException}.
+ * <p>
+ * The wheel has four levels of 256 slots. A slot of the first level holds the triggers of one millisecond, sorted by
+ * descending priority then key as by the replaced set, and a slot of level {@code n} spans 256 slots of level
+ * {@code n - 1}. Triggers are placed relative to a cursor that follows the wall clock, and are cascaded to a
+ * lower level when the cursor reaches their slot. The cursor never runs ahead of the clock, so only triggers already
+ * due are kept in a sorted overdue set, and a trigger firing soon is placed in constant time even if all the others
+ * fire much later. Triggers beyond the top level (about 50 days) are kept in an overflow bucket.
+ * <p>
+ * When no trigger is due before the end of the current first level slots, the earliest triggers are in the first
+ * non-empty slot of an upper level. This slot is sorted once, so that the earliest trigger is found in logarithmic
+ * time until the cursor reaches it, and its triggers are placed again against the cursor if a trigger is added before
+ * it.
+ * <p>
+ * Upper level slots are intrusive linked lists, so adding and removing a trigger firing beyond the current
+ * millisecond slots does not allocate nor hash beyond the index of the elements. As an element is removed through its
+ * index entry, removal does not depend on the ordering of its trigger, which keeps the set consistent if the fire time
+ * of a trigger is changed while it is in the set.
+ * <p>
+ * This class is not thread-safe: the job store guards it with its lock.
+ *
+ * @param <E> the type of the elements wrapping the triggers.
+ */
+class TimingWheelTriggerSet<E> extends TreeSet<E> {
+    private static final long serialVersionUID = 1L;
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 8;
+    private static final int SLOT_COUNT = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOT_COUNT - 1;
+    private final transient Function<? super E, ? extends Trigger> triggerOf;
+    private final transient LongSupplier clock;
+    private final transient Map<E, Node<E>> nodes = new HashMap<>();
+    private final transient SortedSlot<E>[] firstLevel = newFirstLevel();
+    private final transient Bucket<E>[][] upperLevels = newUpperLevels();
+    private final transient SortedSlot<E> overdue = new SortedSlot<>();
+    private final transient SortedSlot<E> ahead = new SortedSlot<>();
+    private final transient Bucket<E> overflow = new Bucket<>(SLOT_BITS * LEVELS);
+    private final transient SortedSlot<E> unscheduled = new SortedSlot<>();
+    private int unscheduledSize;
+    private transient Bucket<E> aheadSlot;
+    private long aheadStart;
+    private int firstLevelSize;
+    private long cursor;
+
+    /**
+     * Creates an empty set.
+     *
+     * @param comparator the comparator of the replaced set, only reported by {@link #comparator()}.
+     * @param triggerOf  the function giving the trigger wrapped by an element.
+     */
+    TimingWheelTriggerSet(Comparator<? super E> comparator, Function<? super E, ? extends Trigger> triggerOf) {
+        this(comparator, triggerOf, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates an empty set.
+     *
+     * @param comparator the comparator of the replaced set, only reported by {@link #comparator()}.
+     * @param triggerOf  the function giving the trigger wrapped by an element.
+     * @param clock      the clock followed by the cursor, in milliseconds.
+     */
+    TimingWheelTriggerSet(Comparator<? super E> comparator, Function<? super E, ? extends Trigger> triggerOf,
+            LongSupplier clock) {
+        super(comparator);
+        this.triggerOf = triggerOf;
+        this.clock = clock;
+        this.cursor = clock.getAsLong();
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            firstLevel[i] = new SortedSlot<>();
+            for (int level = 0; level < LEVELS - 1; level++) {
+                upperLevels[level][i] = new Bucket<>(SLOT_BITS * (level + 1));
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    @Override
+    @SuppressWarnings("SuspiciousMethodCalls")
+    public boolean contains(Object o) {
+        return nodes.containsKey(o);
+    }
+
+    @Override
+    public boolean add(E e) {
+        Trigger trigger = triggerOf.apply(e);
+        Node<E> node = new Node<>(e, trigger.getNextFireTime(), trigger.getPriority(), trigger.getKey());
+        if (nodes.putIfAbsent(e, node) != null) {
+            return false;
+        }
+        if (node.scheduled && nodes.size() == unscheduledSize + 1) {
+            // no other scheduled trigger, so the cursor can be moved to the current time without cascading
+            cursor = clock.getAsLong();
+        }
+        place(node);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        boolean modified = false;
+        for (E e : c) {
+            modified |= add(e);
+        }
+        return modified;
+    }
+
+    @Override
+    @SuppressWarnings("SuspiciousMethodCalls")
+    public boolean remove(Object o) {
+        Node<E> node = nodes.remove(o);
+        if (node == null) {
+            return false;
+        }
+        if (node.container == unscheduled) {
+            unscheduledSize--;
+        } else if (node.container instanceof SortedSlot && node.container != overdue && node.container != ahead) {
+            firstLevelSize--;
+        }
+        node.container.remove(node);
+        if (node.container == ahead && ahead.isEmpty()) {
+            // the slot is no longer sorted, so that its bucket can be reused when the cursor passes it
+            aheadSlot = null;
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        nodes.clear();
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            firstLevel[i].clear();
+            for (int level = 0; level < LEVELS - 1; level++) {
+                upperLevels[level][i].clear();
+            }
+        }
+        overdue.clear();
+        ahead.clear();
+        aheadSlot = null;
+        overflow.clear();
+        unscheduled.clear();
+        unscheduledSize = 0;
+        firstLevelSize = 0;
+    }
+
+    @Override
+    public E first() {
+        long now = clock.getAsLong();
+        if (now > cursor) {
+            advanceTo(now);
+        }
+        if (!overdue.isEmpty()) {
+            return overdue.first().element;
+        }
+        if (firstLevelSize > 0) {
+            long end = (cursor | SLOT_MASK) + 1;
+            for (long time = cursor; time < end; time++) {
+                SortedSlot<E> slot = firstLevel[(int) (time & SLOT_MASK)];
+                if (!slot.isEmpty()) {
+                    return slot.first().element;
+                }
+            }
+        }
+        Bucket<E> slot = nextSlot();
+        if (slot != null) {
+            if (slot != aheadSlot) {
+                sortAhead(slot);
+            }
+            return ahead.first().element;
+        }
+        if (!unscheduled.isEmpty()) {
+            return unscheduled.first().element;
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public E pollFirst() {
+        if (isEmpty()) {
+            return null;
+        }
+        E first = first();
+        remove(first);
+        return first;
+    }
+
+    /**
+     * Returns an iterator over the elements in no particular order. It does not support removal.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return Collections.unmodifiableSet(nodes.keySet()).iterator();
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return Collections.unmodifiableSet(nodes.keySet()).spliterator();
+    }
+
+    @Override
+    public E last() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public E pollLast() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public E lower(E e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public E floor(E e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public E ceiling(E e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public E higher(E e) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<E> descendingSet() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object clone() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Moves the cursor forward to the given time. The triggers of the first level slots it passes become overdue and
+     * the upper level slots it reaches are cascaded to the lower levels. Empty slots are skipped.
+     *
+     * @param target the time to move the cursor to.
+     */
+    private void advanceTo(long target) {
+        while (cursor < target) {
+            long end = (cursor | SLOT_MASK) + 1;
+            for (long time = cursor; time < end && time < target && firstLevelSize > 0; time++) {
+                SortedSlot<E> slot = firstLevel[(int) (time & SLOT_MASK)];
+                if (!slot.isEmpty()) {
+                    expire(slot);
+                }
+            }
+            if (target < end) {
+                cursor = target;
+                return;
+            }
+            Bucket<E> slot = nextSlot();
+            long start = slot == null ? Long.MAX_VALUE : startOf(slot);
+            if (start > target) {
+                // all the slots up to the target are empty
+                cursor = target;
+                return;
+            }
+            cursor = start;
+            if (slot == aheadSlot) {
+                unsortAhead();
+            } else {
+                cascade(slot);
+            }
+        }
+    }
+
+    /**
+     * Returns the next non-empty slot of the upper levels, or the overflow bucket if they are all empty. The slot
+     * whose triggers are sorted in the ahead set is considered as holding them.
+     *
+     * @return the slot or null if there is no trigger beyond the first level.
+     */
+    private Bucket<E> nextSlot() {
+        if (aheadSlot != null) {
+            // a trigger added before the sorted slot returns it to the wheel, so it is still the next one
+            return aheadSlot;
+        }
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            long current = cursor >> shift;
+            long end = (current | SLOT_MASK) + 1;
+            for (long index = current + 1; index < end; index++) {
+                Bucket<E> slot = upperLevels[level - 1][(int) (index & SLOT_MASK)];
+                if (!slot.isEmpty()) {
+                    return slot;
+                }
+            }
+        }
+        if (!overflow.isEmpty()) {
+            return overflow;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the time at which the cursor reaches a slot, which for the overflow bucket is the start of the top level
+     * range of its earliest trigger.
+     */
+    private long startOf(Bucket<E> slot) {
+        if (slot == aheadSlot) {
+            return aheadStart;
+        }
+        long time;
+        if (slot == overflow) {
+            time = Long.MAX_VALUE;
+            for (Node<E> node = overflow.head; node != null; node = node.next) {
+                time = Math.min(time, node.time);
+            }
+        } else {
+            time = slot.head.time;
+        }
+        return time >> slot.shift << slot.shift;
+    }
+
+    /**
+     * Sorts the triggers of a slot in the ahead set, so that the earliest one is found without cascading the slot,
+     * which would move the cursor ahead of the clock. The slot stays sorted until it is emptied, the cursor reaches it
+     * or an earlier trigger is added.
+     */
+    private void sortAhead(Bucket<E> slot) {
+        aheadStart = startOf(slot);
+        aheadSlot = slot;
+        Node<E> node = slot.head;
+        slot.clear();
+        while (node != null) {
+            Node<E> next = node.next;
+            node.container = ahead;
+            ahead.add(node);
+            node = next;
+        }
+    }
+
+    /**
+     * Places the triggers of the sorted slot again, against the current cursor.
+     */
+    private void unsortAhead() {
+        aheadSlot = null;
+        List<Node<E>> sorted = new ArrayList<>(ahead.nodes);
+        ahead.clear();
+        for (Node<E> node : sorted) {
+            place(node);
+        }
+    }
+
+    private void expire(SortedSlot<E> slot) {
+        for (Node<E> node : slot.nodes) {
+            node.container = overdue;
+            overdue.add(node);
+            firstLevelSize--;
+        }
+        slot.clear();
+    }
+
+    private void cascade(Bucket<E> bucket) {
+        Node<E> node = bucket.head;
+        bucket.clear();
+        while (node != null) {
+            Node<E> next = node.next;
+            place(node);
+            node = next;
+        }
+    }
+
+    private void place(Node<E> node) {
+        Container<E> container;
+        if (!node.scheduled) {
+            container = unscheduled;
+            unscheduledSize++;
+        } else if (node.time < cursor) {
+            container = overdue;
+        } else if (node.time >> SLOT_BITS == cursor >> SLOT_BITS) {
+            container = firstLevel[(int) (node.time & SLOT_MASK)];
+            firstLevelSize++;
+        } else {
+            container = overflow;
+            for (int level = 1; level < LEVELS; level++) {
+                int shift = SLOT_BITS * level;
+                if (node.time >> (shift + SLOT_BITS) == cursor >> (shift + SLOT_BITS)) {
+                    container = upperLevels[level - 1][(int) ((node.time >> shift) & SLOT_MASK)];
+                    break;
+                }
+            }
+            if (container == aheadSlot) {
+                // the overflow bucket starts at the range of its earliest trigger
+                aheadStart = Math.min(aheadStart, node.time >> aheadSlot.shift << aheadSlot.shift);
+                container = ahead;
+            } else if (aheadSlot != null && node.time < aheadStart) {
+                unsortAhead();
+            }
+        }
+        node.container = container;
+        container.add(node);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> SortedSlot<E>[] newFirstLevel() {
+        return new SortedSlot[SLOT_COUNT];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> Bucket<E>[][] newUpperLevels() {
+        return new Bucket[LEVELS - 1][SLOT_COUNT];
+    }
+
+    /**
+     * An element with the ordering attributes of its trigger at the time it was added, linked to the other nodes of
+     * its bucket.
+     */
+    private static class Node<E> implements Comparable<Node<E>> {
+        private final E element;
+        private final boolean scheduled;
+        private final long time;
+        private final int priority;
+        private final TriggerKey key;
+        private Container<E> container;
+        private Node<E> previous;
+        private Node<E> next;
+
+        private Node(E element, Date nextFireTime, int priority, TriggerKey key) {
+            this.element = element;
+            this.scheduled = nextFireTime != null;
+            this.time = scheduled ? nextFireTime.getTime() : Long.MAX_VALUE;
+            this.priority = priority;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Node<E> other) {
+            int result = Long.compare(time, other.time);
+            if (result == 0) {
+                result = Integer.compare(other.priority, priority);
+            }
+            if (result == 0) {
+                result = key.compareTo(other.key);
+            }
+            return result;
+        }
+    }
+
+    private abstract static class Container<E> {
+        abstract void add(Node<E> node);
+
+        abstract void remove(Node<E> node);
+
+        abstract boolean isEmpty();
+
+        abstract void clear();
+    }
+
+    /**
+     * Nodes in insertion order, as a doubly-linked list.
+     */
+    private static class Bucket<E> extends Container<E> {
+        private final int shift;
+        private Node<E> head;
+        private Node<E> tail;
+        private int size;
+
+        /**
+         * @param shift the number of low bits of the time that vary inside the slot held by this bucket.
+         */
+        private Bucket(int shift) {
+            this.shift = shift;
+        }
+
+        @Override
+        void add(Node<E> node) {
+            node.previous = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        @Override
+        void remove(Node<E> node) {
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            size--;
+        }
+
+        @Override
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Empties the bucket without unlinking its nodes, so they can still be walked from the former head.
+         */
+        @Override
+        void clear() {
+            head = null;
+            tail = null;
+            size = 0;
+        }
+    }
+
+    /**
+     * Nodes sorted as by the replaced set: the ones of a millisecond, the ones earlier than the cursor, the ones of the
+     * sorted slot ahead of the cursor or the ones without fire time.
+     */
+    private static class SortedSlot<E> extends Container<E> {
+        private final TreeSet<Node<E>> nodes = new TreeSet<>();
+
+        @Override
+        void add(Node<E> node) {
+            nodes.add(node);
+        }
+
+        @Override
+        void remove(Node<E> node) {
+            nodes.remove(node);
+        }
+
+        @Override
+        boolean isEmpty() {
+            return nodes.isEmpty();
+        }
+
+        @Override
+        void clear() {
+            nodes.clear();
+        }
+
+        private Node<E> first() {
+            return nodes.first();
+        }
+    }
+}
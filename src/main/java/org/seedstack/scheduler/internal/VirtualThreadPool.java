@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.quartz.SchedulerConfigException;
+import org.quartz.spi.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Quartz {@link ThreadPool} running each job on its own virtual thread, which is well suited to tasks that
+ * spend most of their time blocked on I/O. The number of concurrently running jobs is bounded by a semaphore
+ * of {@code maxConcurrency} permits instead of by the number of threads.
+ * <p>
+ * When the runtime does not support virtual threads (before Java 21), jobs run on an elastic pool of platform
+ * threads bounded by the same semaphore.
+ */
+public class VirtualThreadPool implements ThreadPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadPool.class);
+    private static final long IDLE_THREAD_KEEP_ALIVE = 60;
+    private final Object availabilityLock = new Object();
+    private int maxConcurrency = 1000;
+    private String instanceName = "QuartzScheduler";
+    private ClassLoader contextClassLoader;
+    private Semaphore permits;
+    private Executor executor;
+    private volatile boolean shutdown;
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public boolean runInThread(Runnable runnable) {
+        if (runnable == null || shutdown) {
+            return false;
+        }
+        permits.acquireUninterruptibly();
+        try {
+            executor.execute(() -> runWithPermit(runnable));
+        } catch (RuntimeException e) {
+            releasePermit();
+            LOGGER.error("Unable to start a thread for running a job", e);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int blockForAvailableThreads() {
+        synchronized (availabilityLock) {
+            while (permits.availablePermits() < 1 && !shutdown) {
+                try {
+                    availabilityLock.wait(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return permits.availablePermits();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public void initialize() throws SchedulerConfigException {
+        if (maxConcurrency <= 0) {
+            throw new SchedulerConfigException("Maximum concurrency must be greater than zero");
+        }
+        permits = new Semaphore(maxConcurrency);
+        contextClassLoader = Thread.currentThread().getContextClassLoader();
+        String threadNamePrefix = instanceName + "_Worker-";
+
+        ThreadFactory virtualThreadFactory = createVirtualThreadFactory(threadNamePrefix);
+        if (virtualThreadFactory != null) {
+            LOGGER.info("Scheduler tasks will run on virtual threads (max concurrency: {})", maxConcurrency);
+            executor = runnable -> virtualThreadFactory.newThread(runnable).start();
+        } else {
+            LOGGER.info("Virtual threads are not supported by this runtime, scheduler tasks will run on an elastic "
+                    + "pool of platform threads (max concurrency: {})", maxConcurrency);
+            // concurrency is bounded by the permits, not by the executor
+            AtomicInteger threadNumber = new AtomicInteger();
+            executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, IDLE_THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.incrementAndGet());
+                thread.setDaemon(false);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    public void shutdown(boolean waitForJobsToComplete) {
+        shutdown = true;
+        synchronized (availabilityLock) {
+            availabilityLock.notifyAll();
+        }
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+        if (waitForJobsToComplete && permits != null) {
+            permits.acquireUninterruptibly(maxConcurrency);
+            permits.release(maxConcurrency);
+        }
+    }
+
+    @Override
+    public void setInstanceId(String schedInstId) {
+        // not used
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        this.instanceName = schedName;
+    }
+
+    private void runWithPermit(Runnable runnable) {
+        Thread currentThread = Thread.currentThread();
+        ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+        currentThread.setContextClassLoader(contextClassLoader);
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            LOGGER.error("Error while executing a job", e);
+        } finally {
+            currentThread.setContextClassLoader(previousClassLoader);
+            releasePermit();
+        }
+    }
+
+    private void releasePermit() {
+        permits.release();
+        synchronized (availabilityLock) {
+            availabilityLock.notifyAll();
+        }
+    }
+
+    private static ThreadFactory createVirtualThreadFactory(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.metrics;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.inject.Singleton;
+import org.seedstack.scheduler.SaturationPolicy;
+import org.seedstack.scheduler.Task;
+
+/**
+ * Default {@link TaskMetricsRegistry} keeping metrics in memory for the lifetime of the application. It can be
+ * injected to read the metrics of each task class.
+ */
+@Singleton
+public class InMemoryTaskMetricsRegistry implements TaskMetricsRegistry {
+    private final Map<Class<? extends Task>, Meters> meters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> queueLags = new ConcurrentHashMap<>();
+    private final AtomicInteger poolSize = new AtomicInteger();
+    private final AtomicInteger busyThreads = new AtomicInteger();
+    private final AtomicInteger peakBusyThreads = new AtomicInteger();
+    private final LongAdder saturationCount = new LongAdder();
+
+    @Override
+    public void recordFireLag(Class<? extends Task> taskClass, long lagMillis) {
+        metersOf(taskClass).fireLag.record(lagMillis);
+    }
+
+    @Override
+    public void recordExecution(Class<? extends Task> taskClass, long durationMillis, boolean success) {
+        Meters taskMeters = metersOf(taskClass);
+        taskMeters.executionTime.record(durationMillis);
+        if (success) {
+            taskMeters.successCount.increment();
+        } else {
+            taskMeters.failureCount.increment();
+        }
+    }
+
+    @Override
+    public void recordRefire(Class<? extends Task> taskClass) {
+        metersOf(taskClass).refireCount.increment();
+    }
+
+    @Override
+    public void recordMisfire(Class<? extends Task> taskClass) {
+        metersOf(taskClass).misfireCount.increment();
+    }
+
+    @Override
+    public void recordDroppedListenerEvent(Class<? extends Task> taskClass) {
+        metersOf(taskClass).droppedListenerEventCount.increment();
+    }
+
+    @Override
+    public void recordPermitWait(Class<? extends Task> taskClass, long waitMillis) {
+        metersOf(taskClass).permitWait.record(waitMillis);
+    }
+
+    @Override
+    public void recordSaturation(Class<? extends Task> taskClass, SaturationPolicy saturationPolicy) {
+        Meters taskMeters = metersOf(taskClass);
+        if (saturationPolicy == SaturationPolicy.QUEUE) {
+            taskMeters.queuedCount.increment();
+        } else {
+            taskMeters.rejectedCount.increment();
+        }
+    }
+
+    @Override
+    public void recordThreadPoolUsage(int busyThreads, int poolSize) {
+        this.poolSize.set(poolSize);
+        this.busyThreads.set(busyThreads);
+        peakBusyThreads.accumulateAndGet(busyThreads, Math::max);
+        if (poolSize > 0 && busyThreads >= poolSize) {
+            saturationCount.increment();
+        }
+    }
+
+    @Override
+    public void recordQueueLag(String queue, long lagMillis) {
+        LatencyHistogram queueLag = queueLags.get(queue);
+        if (queueLag == null) {
+            queueLag = queueLags.computeIfAbsent(queue, k -> new LatencyHistogram());
+        }
+        queueLag.record(lagMillis);
+    }
+
+    @Override
+    public void recordStuckExecution(Class<? extends Task> taskClass) {
+        metersOf(taskClass).stuckCount.increment();
+    }
+
+    /**
+     * @return the task classes for which metrics have been recorded.
+     */
+    public Set<Class<? extends Task>> getTaskClasses() {
+        return meters.keySet();
+    }
+
+    /**
+     * Returns the metrics of a task class.
+     *
+     * @param taskClass the task class.
+     * @return the task metrics, with zero values if the task was never executed.
+     */
+    public TaskMetrics getTaskMetrics(Class<? extends Task> taskClass) {
+        Meters taskMeters = meters.get(taskClass);
+        if (taskMeters == null) {
+            taskMeters = new Meters();
+        }
+        return new TaskMetrics(taskClass,
+                taskMeters.fireLag.snapshot(),
+                taskMeters.executionTime.snapshot(),
+                taskMeters.successCount.sum(),
+                taskMeters.failureCount.sum(),
+                taskMeters.refireCount.sum(),
+                taskMeters.misfireCount.sum(),
+                taskMeters.droppedListenerEventCount.sum(),
+                taskMeters.permitWait.snapshot(),
+                taskMeters.queuedCount.sum(),
+                taskMeters.rejectedCount.sum(),
+                taskMeters.stuckCount.sum());
+    }
+
+    /**
+     * @return the metrics of the scheduler thread pool.
+     */
+    public ThreadPoolMetrics getThreadPoolMetrics() {
+        return new ThreadPoolMetrics(poolSize.get(), busyThreads.get(), peakBusyThreads.get(),
+                saturationCount.sum());
+    }
+
+    /**
+     * @return the names of the fair thread pool queues for which metrics have been recorded.
+     */
+    public Set<String> getQueues() {
+        return queueLags.keySet();
+    }
+
+    /**
+     * Returns the metrics of a queue of the fair thread pool.
+     *
+     * @param queue the name of the queue.
+     * @return the queue metrics, with zero values if no task of the queue was dispatched.
+     */
+    public QueueMetrics getQueueMetrics(String queue) {
+        LatencyHistogram queueLag = queueLags.get(queue);
+        if (queueLag == null) {
+            queueLag = new LatencyHistogram();
+        }
+        return new QueueMetrics(queue, queueLag.snapshot());
+    }
+
+    private Meters metersOf(Class<? extends Task> taskClass) {
+        Meters taskMeters = meters.get(taskClass);
+        if (taskMeters == null) {
+            taskMeters = meters.computeIfAbsent(taskClass, k -> new Meters());
+        }
+        return taskMeters;
+    }
+
+    private static class Meters {
+        private final LatencyHistogram fireLag = new LatencyHistogram();
+        private final LatencyHistogram executionTime = new LatencyHistogram();
+        private final LongAdder successCount = new LongAdder();
+        private final LongAdder failureCount = new LongAdder();
+        private final LongAdder refireCount = new LongAdder();
+        private final LongAdder misfireCount = new LongAdder();
+        private final LongAdder droppedListenerEventCount = new LongAdder();
+        private final LatencyHistogram permitWait = new LatencyHistogram();
+        private final LongAdder queuedCount = new LongAdder();
+        private final LongAdder rejectedCount = new LongAdder();
+        private final LongAdder stuckCount = new LongAdder();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values with a fixed memory footprint. Values are counted in
+ * logarithmic buckets, each power of two being split in 8 linear sub-buckets, which bounds the relative error of
+ * percentiles to 12.5%. Values lower than 8 are counted exactly.
+ * <p>
+ * Recording a value does not allocate and can be done concurrently from any number of threads.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     *
+     * @param value the value to record.
+     */
+    public void record(long value) {
+        long v = Math.max(value, 0);
+        counts.incrementAndGet(bucketIndex(v));
+        total.add(v);
+        long currentMax = max.get();
+        while (v > currentMax && !max.compareAndSet(currentMax, v)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Takes a consistent-enough copy of the histogram. Values recorded concurrently may or may not be included.
+     *
+     * @return the snapshot.
+     */
+    public Snapshot snapshot() {
+        long[] bucketCounts = new long[BUCKET_COUNT];
+        long snapshotCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            bucketCounts[i] = counts.get(i);
+            snapshotCount += bucketCounts[i];
+        }
+        return new Snapshot(bucketCounts, snapshotCount, total.sum(), max.get());
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * An immutable view of a {@link LatencyHistogram} at a point in time.
+     */
+    public static class Snapshot {
+        private final long[] bucketCounts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        Snapshot(long[] bucketCounts, long count, long total, long max) {
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        /**
+         * @return the number of recorded values.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the sum of recorded values.
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * @return the highest recorded value.
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @return the mean of recorded values or 0 if no value was recorded.
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        /**
+         * Returns an upper bound of the value below which the given percentage of recorded values fall.
+         *
+         * @param percentile the percentile between 0 and 100.
+         * @return the value at the percentile or 0 if no value was recorded.
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long threshold = Math.max(1, (long) Math.ceil(count * Math.min(Math.max(percentile, 0), 100) / 100));
+            long accumulated = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                accumulated += bucketCounts[i];
+                if (accumulated >= threshold) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.metrics;
+
+/**
+ * Metrics of a queue of the fair thread pool at a point in time. All durations are expressed in milliseconds.
+ */
+public class QueueMetrics {
+    private final String queue;
+    private final LatencyHistogram.Snapshot lag;
+
+    QueueMetrics(String queue, LatencyHistogram.Snapshot lag) {
+        this.queue = queue;
+        this.lag = lag;
+    }
+
+    /**
+     * @return the name of the queue, which is a job group or a tenant.
+     */
+    public String getQueue() {
+        return queue;
+    }
+
+    /**
+     * @return the distribution of the delay between scheduled fire times and dispatch to a thread.
+     */
+    public LatencyHistogram.Snapshot getLag() {
+        return lag;
+    }
+}
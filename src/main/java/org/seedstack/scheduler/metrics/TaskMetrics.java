@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.metrics;
+
+import org.seedstack.scheduler.Task;
+
+/**
+ * Metrics of a task class at a point in time. All durations are expressed in milliseconds.
+ */
+public class TaskMetrics {
+    private final Class<? extends Task> taskClass;
+    private final LatencyHistogram.Snapshot fireLag;
+    private final LatencyHistogram.Snapshot executionTime;
+    private final long successCount;
+    private final long failureCount;
+    private final long refireCount;
+    private final long misfireCount;
+    private final long droppedListenerEventCount;
+    private final LatencyHistogram.Snapshot permitWait;
+    private final long queuedCount;
+    private final long rejectedCount;
+    private final long stuckCount;
+
+    TaskMetrics(Class<? extends Task> taskClass, LatencyHistogram.Snapshot fireLag,
+            LatencyHistogram.Snapshot executionTime, long successCount, long failureCount, long refireCount,
+            long misfireCount, long droppedListenerEventCount, LatencyHistogram.Snapshot permitWait, long queuedCount,
+            long rejectedCount, long stuckCount) {
+        this.taskClass = taskClass;
+        this.fireLag = fireLag;
+        this.executionTime = executionTime;
+        this.successCount = successCount;
+        this.failureCount = failureCount;
+        this.refireCount = refireCount;
+        this.misfireCount = misfireCount;
+        this.droppedListenerEventCount = droppedListenerEventCount;
+        this.permitWait = permitWait;
+        this.queuedCount = queuedCount;
+        this.rejectedCount = rejectedCount;
+        this.stuckCount = stuckCount;
+    }
+
+    /**
+     * @return the measured task class.
+     */
+    public Class<? extends Task> getTaskClass() {
+        return taskClass;
+    }
+
+    /**
+     * @return the distribution of the delay between scheduled and actual fire times.
+     */
+    public LatencyHistogram.Snapshot getFireLag() {
+        return fireLag;
+    }
+
+    /**
+     * @return the distribution of execution durations.
+     */
+    public LatencyHistogram.Snapshot getExecutionTime() {
+        return executionTime;
+    }
+
+    /**
+     * @return the number of executions that completed normally.
+     */
+    public long getSuccessCount() {
+        return successCount;
+    }
+
+    /**
+     * @return the number of executions that threw an exception.
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * @return the number of failed executions that were immediately fired again.
+     */
+    public long getRefireCount() {
+        return refireCount;
+    }
+
+    /**
+     * @return the number of times a trigger of the task missed its fire time.
+     */
+    public long getMisfireCount() {
+        return misfireCount;
+    }
+
+    /**
+     * @return the number of events dropped because the queue of asynchronous listeners was full.
+     */
+    public long getDroppedListenerEventCount() {
+        return droppedListenerEventCount;
+    }
+
+    /**
+     * @return the distribution of the time executions waited for a permit of the task concurrency limit.
+     */
+    public LatencyHistogram.Snapshot getPermitWait() {
+        return permitWait;
+    }
+
+    /**
+     * @return the number of executions that waited for a permit because the concurrency limit was reached.
+     */
+    public long getQueuedCount() {
+        return queuedCount;
+    }
+
+    /**
+     * @return the number of executions that were skipped or delayed because the concurrency limit was reached.
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return the number of executions that ran for longer than the stuck threshold of the task.
+     */
+    public long getStuckCount() {
+        return stuckCount;
+    }
+}
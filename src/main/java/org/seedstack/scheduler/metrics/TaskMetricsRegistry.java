@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.metrics;
+
+import org.seedstack.scheduler.SaturationPolicy;
+import org.seedstack.scheduler.Task;
+
+/**
+ * Receives the measures taken by the scheduler for each task execution. The implementation to use is specified
+ * with the {@code scheduling.metrics.registry} configuration property and defaults to
+ * {@link InMemoryTaskMetricsRegistry}.
+ * <p>
+ * Methods of this interface are called from scheduler worker threads on each task execution so implementations
+ * must be thread-safe and fast.
+ */
+public interface TaskMetricsRegistry {
+    /**
+     * Records the time elapsed between the scheduled fire time of a task and its actual fire time.
+     *
+     * @param taskClass the task class.
+     * @param lagMillis the fire lag in milliseconds.
+     */
+    void recordFireLag(Class<? extends Task> taskClass, long lagMillis);
+
+    /**
+     * Records a completed task execution.
+     *
+     * @param taskClass      the task class.
+     * @param durationMillis the duration of the execution in milliseconds.
+     * @param success        true if the task completed normally, false if it threw an exception.
+     */
+    void recordExecution(Class<? extends Task> taskClass, long durationMillis, boolean success);
+
+    /**
+     * Records that a failed task execution is immediately fired again.
+     *
+     * @param taskClass the task class.
+     */
+    void recordRefire(Class<? extends Task> taskClass);
+
+    /**
+     * Records that a trigger of the task missed its fire time.
+     *
+     * @param taskClass the task class.
+     */
+    void recordMisfire(Class<? extends Task> taskClass);
+
+    /**
+     * Records that an event for the asynchronous listeners of a task was dropped because their queue was full.
+     *
+     * @param taskClass the task class.
+     */
+    void recordDroppedListenerEvent(Class<? extends Task> taskClass);
+
+    /**
+     * Records the time a task execution waited for a permit of its {@link org.seedstack.scheduler.MaxConcurrency
+     * concurrency limit}. Executions that got a permit immediately are recorded with a zero wait.
+     *
+     * @param taskClass  the task class.
+     * @param waitMillis the wait in milliseconds.
+     */
+    void recordPermitWait(Class<? extends Task> taskClass, long waitMillis);
+
+    /**
+     * Records that a task fired while the maximum number of its concurrent executions was reached.
+     *
+     * @param taskClass        the task class.
+     * @param saturationPolicy the policy applied to the execution.
+     */
+    void recordSaturation(Class<? extends Task> taskClass, SaturationPolicy saturationPolicy);
+
+    /**
+     * Records the usage of the scheduler thread pool each time a task execution starts or ends.
+     *
+     * @param busyThreads the number of threads currently executing a task.
+     * @param poolSize    the size of the thread pool.
+     */
+    void recordThreadPoolUsage(int busyThreads, int poolSize);
+
+    /**
+     * Records the time elapsed between the scheduled fire time of a task and its dispatch to a thread by the fair
+     * thread pool, for the queue of the task.
+     *
+     * @param queue     the name of the queue, which is the job group or the tenant of the task.
+     * @param lagMillis the lag in milliseconds.
+     */
+    void recordQueueLag(String queue, long lagMillis);
+
+    /**
+     * Records that an execution of a task has been running for longer than its stuck threshold.
+     *
+     * @param taskClass the task class.
+     */
+    void recordStuckExecution(Class<? extends Task> taskClass);
+}
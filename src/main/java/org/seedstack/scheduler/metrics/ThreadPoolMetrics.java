@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.metrics;
+
+/**
+ * Usage of the scheduler thread pool at a point in time.
+ */
+public class ThreadPoolMetrics {
+    private final int poolSize;
+    private final int busyThreads;
+    private final int peakBusyThreads;
+    private final long saturationCount;
+
+    ThreadPoolMetrics(int poolSize, int busyThreads, int peakBusyThreads, long saturationCount) {
+        this.poolSize = poolSize;
+        this.busyThreads = busyThreads;
+        this.peakBusyThreads = peakBusyThreads;
+        this.saturationCount = saturationCount;
+    }
+
+    /**
+     * @return the size of the thread pool.
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * @return the number of threads executing a task.
+     */
+    public int getBusyThreads() {
+        return busyThreads;
+    }
+
+    /**
+     * @return the highest number of threads simultaneously executing a task.
+     */
+    public int getPeakBusyThreads() {
+        return peakBusyThreads;
+    }
+
+    /**
+     * @return the number of task executions that started while all threads of the pool were busy.
+     */
+    public long getSaturationCount() {
+        return saturationCount;
+    }
+}
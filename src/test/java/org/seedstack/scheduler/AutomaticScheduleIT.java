@@ -11,9 +11,11 @@ import static org.junit.Assert.fail;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.seedstack.scheduler.fixtures.TimedCronExpressionTask;
 import org.seedstack.seed.testing.junit4.SeedITRunner;
 
 @RunWith(SeedITRunner.class)
@@ -29,6 +31,8 @@ public class AutomaticScheduleIT {
     private static boolean onExceptionCalled = false;
     private static String actualTaskName;
     private static String actualTriggerName;
+    @Inject
+    private ScheduledTasks scheduledTasks;
 
     @Test
     public void testAnnotatedTimedTasks() throws Exception {
@@ -48,6 +52,25 @@ public class AutomaticScheduleIT {
         Assertions.assertThat(actualTriggerName).isEqualTo(EXPECTED_TRIGGER_NAME);
     }
 
+    @Test
+    public void testExecutionHistory() throws Exception {
+        if (!countDownLatch.await(10, TimeUnit.SECONDS))
+            fail("timeout during automatically timed task wait");
+
+        // the execution is recorded once the task has returned
+        TaskHistory history = scheduledTasks.history(TimedCronExpressionTask.class);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!history.getLastFailure().isPresent() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            history = scheduledTasks.history(TimedCronExpressionTask.class);
+        }
+
+        Assertions.assertThat(history.getLastExecution()).isPresent();
+        Assertions.assertThat(history.getLastFailure().map(TaskExecution::getExceptionClass))
+                .contains(Exception.class);
+        Assertions.assertThat(history.getFailureCount()).isGreaterThanOrEqualTo(1);
+    }
+
     public static void notifyCronTimerInvocation() {
         cronTimeFiredInvocationCount += 1;
     }
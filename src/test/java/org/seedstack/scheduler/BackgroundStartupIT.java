@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.seedstack.seed.testing.ConfigurationProperty;
+import org.seedstack.seed.testing.junit4.SeedITRunner;
+
+@RunWith(SeedITRunner.class)
+@ConfigurationProperty(name = "scheduling.backgroundStartup", value = "true")
+public class BackgroundStartupIT {
+    @Inject
+    private ScheduledTasks scheduledTasks;
+
+    @Test
+    public void testAnnotatedTasksAreScheduledInBackground() throws Exception {
+        ScheduledTaskBatchResult result = scheduledTasks.annotatedTasksScheduled()
+                .toCompletableFuture()
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(result.getScheduledCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.inject.Injector;
+import io.nuun.kernel.api.Kernel;
+import io.nuun.kernel.api.config.KernelConfiguration;
+import io.nuun.kernel.core.NuunCore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.TriggerBuilder;
+import org.seedstack.scheduler.fixtures.ClusteredTask;
+import org.seedstack.scheduler.fixtures.TimedRowLockSemaphore;
+import org.seedstack.seed.core.Seed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs two clustered scheduler instances in the same JVM, sharing an embedded H2 database, and measures the trigger
+ * throughput and the time spent waiting for the cluster locks.
+ */
+public class ClusteredJdbcStoreIT {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusteredJdbcStoreIT.class);
+    private static final int TASK_COUNT = 200;
+    private static final AtomicInteger DATABASE_COUNTER = new AtomicInteger();
+    private final List<Kernel> kernels = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        ClusteredTask.reset();
+        TimedRowLockSemaphore.reset();
+    }
+
+    @After
+    public void tearDown() {
+        for (Kernel kernel : kernels) {
+            Seed.disposeKernel(kernel);
+        }
+        kernels.clear();
+    }
+
+    @Test
+    public void testTriggersAreFiredOnceAcrossTheCluster() throws Exception {
+        runCluster("default", 1, false);
+    }
+
+    @Test
+    public void testBatchAcquisitionWithinLock() throws Exception {
+        runCluster("batch", 10, true);
+    }
+
+    private void runCluster(String scenario, int maxBatchSize, boolean acquireTriggersWithinLock) throws Exception {
+        String url = "jdbc:h2:mem:quartz" + DATABASE_COUNTER.incrementAndGet() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+        ScheduledTasks node1 = startNode(url, "node1", maxBatchSize, acquireTriggersWithinLock);
+        ScheduledTasks node2 = startNode(url, "node2", maxBatchSize, acquireTriggersWithinLock);
+
+        long start = System.nanoTime();
+        // each node schedules half of the tasks so both are woken up
+        scheduleTasks(node1, 0, TASK_COUNT / 2);
+        scheduleTasks(node2, TASK_COUNT / 2, TASK_COUNT);
+        long deadline = start + TimeUnit.SECONDS.toNanos(30);
+        while (countExecutions() < TASK_COUNT && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        assertThat(ClusteredTask.executionsByTask).hasSize(TASK_COUNT);
+        assertThat(ClusteredTask.executionsByTask.values()).allMatch(count -> count.get() == 1);
+        assertThat(ClusteredTask.executionsByInstance.keySet()).containsOnly("node1", "node2");
+        assertThat(TimedRowLockSemaphore.getAcquisitions()).isGreaterThan(0);
+
+        LOGGER.info("Scenario {}: {} triggers fired in {} ms ({} triggers/s), executions by instance {}",
+                scenario,
+                TASK_COUNT,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                TASK_COUNT * TimeUnit.SECONDS.toNanos(1) / elapsedNanos,
+                ClusteredTask.executionsByInstance);
+        LOGGER.info("Scenario {}: {} lock acquisitions, {} us average wait, {} ms max wait",
+                scenario,
+                TimedRowLockSemaphore.getAcquisitions(),
+                TimeUnit.NANOSECONDS.toMicros(
+                        TimedRowLockSemaphore.getWaitNanos() / TimedRowLockSemaphore.getAcquisitions()),
+                TimeUnit.NANOSECONDS.toMillis(TimedRowLockSemaphore.getMaxWaitNanos()));
+    }
+
+    private ScheduledTasks startNode(String url, String instanceId, int maxBatchSize,
+            boolean acquireTriggersWithinLock) {
+        KernelConfiguration kernelConfiguration = NuunCore.newKernelConfiguration()
+                .param("seedstack.config.jdbc.datasources.quartz.url", url)
+                .param("seedstack.config.jdbc.datasources.quartz.driver", "org.h2.Driver")
+                .param("seedstack.config.scheduling.instanceId", instanceId)
+                .param("seedstack.config.scheduling.idleWaitTime", "1000")
+                .param("seedstack.config.scheduling.maxBatchSize", String.valueOf(maxBatchSize))
+                .param("seedstack.config.scheduling.threadPool.threadCount", "5")
+                .param("seedstack.config.scheduling.jobStore.dataSource", "quartz")
+                .param("seedstack.config.scheduling.jobStore.clustered", "true")
+                .param("seedstack.config.scheduling.jobStore.clusterCheckinInterval", "1000")
+                .param("seedstack.config.scheduling.jobStore.acquireTriggersWithinLock",
+                        String.valueOf(acquireTriggersWithinLock))
+                .param("seedstack.config.scheduling.jobStore.initializeSchema", "true")
+                .param("seedstack.config.scheduling.jobStore.properties.lockHandler\\.class",
+                        TimedRowLockSemaphore.class.getName());
+        Kernel kernel = Seed.createKernel(null, kernelConfiguration, true);
+        kernels.add(kernel);
+        return kernel.objectGraph().as(Injector.class).getInstance(ScheduledTasks.class);
+    }
+
+    private void scheduleTasks(ScheduledTasks scheduledTasks, int from, int to) {
+        ScheduledTaskBatch batch = scheduledTasks.batch();
+        for (int i = from; i < to; i++) {
+            batch.add(scheduledTasks.scheduledTask(ClusteredTask.class)
+                    .withTaskName("task" + i)
+                    .withTrigger(TriggerBuilder.newTrigger()
+                            .withIdentity("trigger" + i, ClusteredTask.class.getName())
+                            .startNow()
+                            .build()));
+        }
+        assertThat(batch.schedule().isSuccessful()).isTrue();
+    }
+
+    private int countExecutions() {
+        return ClusteredTask.executionsByTask.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+}
@@ -24,6 +24,8 @@ import org.junit.runner.RunWith;
 import org.quartz.Trigger;
 import org.quartz.TriggerKey;
 import org.seedstack.scheduler.fixtures.ProgrammaticFiredTask;
+import org.seedstack.scheduler.metrics.InMemoryTaskMetricsRegistry;
+import org.seedstack.scheduler.metrics.TaskMetrics;
 import org.seedstack.seed.SeedException;
 import org.seedstack.seed.testing.junit4.SeedITRunner;
 
@@ -41,9 +43,12 @@ public class ProgrammaticScheduleIT {
     private static String nativeTestData;
     private static CountDownLatch countDownLatch;
     private static int programmaticInvocationCount = 0;
+    private static CountDownLatch nestedTaskListenerCalls;
 
     @Inject
     private ScheduledTasks scheduledTasks;
+    @Inject
+    private InMemoryTaskMetricsRegistry taskMetricsRegistry;
     private Trigger singleTrigger;
 
     @Before
@@ -90,6 +95,10 @@ public class ProgrammaticScheduleIT {
         assertThat(programmaticInvocationCount).isEqualTo(1);
         assertThat(testData).isEqualTo(EXPECTED_TEST_VALUE);
         assertThat(nativeTestData).isEqualTo(EXPECTED_TEST_VALUE);
+
+        TaskMetrics taskMetrics = taskMetricsRegistry.getTaskMetrics(ProgrammaticFiredTask.class);
+        assertThat(taskMetrics.getFireLag().getCount()).isGreaterThanOrEqualTo(1);
+        assertThat(taskMetricsRegistry.getThreadPoolMetrics().getPoolSize()).isEqualTo(10);
     }
 
     public static CountDownLatch getCountDownLatch() {
@@ -113,6 +122,37 @@ public class ProgrammaticScheduleIT {
 
     }
 
+    @Test
+    public void testListenersOfNestedTaskClass() throws Exception {
+        nestedTaskListenerCalls = new CountDownLatch(2);
+        scheduledTasks.scheduledTask(NestedTask.class)
+                .withTrigger(newTrigger().startNow().build())
+                .schedule();
+
+        if (!nestedTaskListenerCalls.await(10, TimeUnit.SECONDS))
+            fail("timeout during nested task listener wait");
+    }
+
+    @Test
+    public void testBatchSchedule() throws Exception {
+        nestedTaskListenerCalls = new CountDownLatch(4);
+        ScheduledTaskBuilder invalid = scheduledTasks.scheduledTask(NestedTask.class).withTaskName("BatchTask3");
+        ScheduledTaskBatchResult result = scheduledTasks.batch()
+                .add(scheduledTasks.scheduledTask(NestedTask.class)
+                        .withTaskName("BatchTask1")
+                        .withTrigger(newTrigger().startNow().build()))
+                .add(scheduledTasks.scheduledTask(NestedTask.class)
+                        .withTaskName("BatchTask2")
+                        .withTrigger(newTrigger().startNow().build()))
+                .add(invalid)
+                .schedule();
+
+        assertThat(result.getScheduledCount()).isEqualTo(2);
+        assertThat(result.getFailures()).containsOnlyKeys(invalid);
+        if (!nestedTaskListenerCalls.await(10, TimeUnit.SECONDS))
+            fail("timeout during batch scheduled tasks wait");
+    }
+
     @Test
     public void testReschedulingUnexistentTrigger() throws Exception {
         try {
@@ -130,4 +170,27 @@ public class ProgrammaticScheduleIT {
 
     }
 
+    public static class NestedTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+            // nothing to do
+        }
+    }
+
+    public static class NestedTaskListener implements TaskListener<NestedTask> {
+        @Override
+        public void before(SchedulingContext sc) {
+            nestedTaskListenerCalls.countDown();
+        }
+
+        @Override
+        public void after(SchedulingContext sc) {
+            nestedTaskListenerCalls.countDown();
+        }
+
+        @Override
+        public void onException(SchedulingContext sc, Exception e) {
+            // not expected
+        }
+    }
 }
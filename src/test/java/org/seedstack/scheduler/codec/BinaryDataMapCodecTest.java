@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Test;
+
+public class BinaryDataMapCodecTest {
+    private final BinaryDataMapCodec underTest = new BinaryDataMapCodec();
+
+    @Test
+    public void testValuesAreDecodedWithTheirType() throws Exception {
+        Map<Object, Object> nested = new LinkedHashMap<>();
+        nested.put("name", "nested");
+        nested.put(1, Arrays.asList(-1L, null));
+        Map<String, Object> dataMap = new HashMap<>();
+        dataMap.put("string", "v\u00e4lue");
+        dataMap.put("int", -42);
+        dataMap.put("long", Long.MAX_VALUE);
+        dataMap.put("short", (short) 7);
+        dataMap.put("byte", (byte) -3);
+        dataMap.put("char", 'x');
+        dataMap.put("float", 1.5f);
+        dataMap.put("double", -0.25d);
+        dataMap.put("boolean", true);
+        dataMap.put("null", null);
+        dataMap.put("bytes", new byte[]{1, 2, 3});
+        dataMap.put("list", Arrays.asList("a", 1, false));
+        dataMap.put("map", nested);
+        dataMap.put("uuid", UUID.randomUUID());
+
+        Map<String, Object> decoded = underTest.decode(underTest.encode(dataMap));
+
+        assertThat(decoded).containsOnlyKeys(dataMap.keySet().toArray(new String[0]));
+        for (Map.Entry<String, Object> entry : dataMap.entrySet()) {
+            assertThat(decoded.get(entry.getKey())).isEqualTo(entry.getValue());
+        }
+    }
+
+    @Test
+    public void testEncodedMapIsSmallerThanJavaSerialization() throws Exception {
+        Map<String, Object> dataMap = new HashMap<>();
+        dataMap.put("attempt", 3);
+        dataMap.put("tenant", "acme");
+        dataMap.put("lastRun", System.currentTimeMillis());
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream outputStream = new ObjectOutputStream(serialized)) {
+            outputStream.writeObject(dataMap);
+        }
+
+        assertThat(underTest.encode(dataMap).length).isLessThan(serialized.size() / 4);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownVersionIsRejected() throws Exception {
+        byte[] bytes = underTest.encode(Collections.singletonMap("key", "value"));
+        bytes[1] = 99;
+        underTest.decode(bytes);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedDataIsRejected() throws Exception {
+        byte[] bytes = underTest.encode(Collections.singletonMap("key", "value"));
+        underTest.decode(Arrays.copyOf(bytes, bytes.length - 2));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNonSerializableValueIsRejected() throws Exception {
+        underTest.encode(Collections.singletonMap("key", new Object()));
+    }
+}
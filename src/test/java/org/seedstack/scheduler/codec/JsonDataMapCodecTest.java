@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Test;
+
+public class JsonDataMapCodecTest {
+    private final JsonDataMapCodec underTest = new JsonDataMapCodec();
+
+    @Test
+    public void testDataMapIsWrittenAsVersionedJson() throws Exception {
+        Map<String, Object> dataMap = new LinkedHashMap<>();
+        dataMap.put("string", "value");
+        dataMap.put("int", 42);
+        dataMap.put("long", Long.MAX_VALUE);
+        dataMap.put("double", 0.5d);
+        dataMap.put("boolean", true);
+        dataMap.put("null", null);
+        dataMap.put("list", Arrays.asList("a", 1));
+        dataMap.put("map", Collections.singletonMap("key", "value"));
+
+        byte[] bytes = underTest.encode(dataMap);
+
+        assertThat(new String(bytes, StandardCharsets.UTF_8)).startsWith("{\"v\":1,\"data\":{\"string\":\"value\"");
+        assertThat(underTest.decode(bytes)).isEqualTo(dataMap);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedValueIsRejected() throws Exception {
+        underTest.encode(Collections.singletonMap("key", UUID.randomUUID()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownVersionIsRejected() throws Exception {
+        underTest.decode("{\"v\":2,\"data\":{}}".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.fixtures;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.Task;
+import org.seedstack.seed.Configuration;
+
+public class ClusteredTask implements Task {
+    public static final Map<String, AtomicInteger> executionsByTask = new ConcurrentHashMap<>();
+    public static final Map<String, AtomicInteger> executionsByInstance = new ConcurrentHashMap<>();
+
+    @Configuration("scheduling.instanceId")
+    private String instanceId;
+
+    @Override
+    public void execute(SchedulingContext sc) {
+        executionsByTask.computeIfAbsent(sc.getTaskName(), key -> new AtomicInteger()).incrementAndGet();
+        executionsByInstance.computeIfAbsent(instanceId, key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    public static void reset() {
+        executionsByTask.clear();
+        executionsByInstance.clear();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.fixtures;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.quartz.impl.jdbcjobstore.LockException;
+import org.quartz.impl.jdbcjobstore.StdRowLockSemaphore;
+
+/**
+ * Row lock semaphore measuring how long the Quartz instances of a cluster wait for the database locks.
+ */
+public class TimedRowLockSemaphore extends StdRowLockSemaphore {
+    private static final LongAdder acquisitions = new LongAdder();
+    private static final LongAdder waitNanos = new LongAdder();
+    private static final AtomicLong maxWaitNanos = new AtomicLong();
+
+    @Override
+    public boolean obtainLock(Connection conn, String lockName) throws LockException {
+        long start = System.nanoTime();
+        try {
+            return super.obtainLock(conn, lockName);
+        } finally {
+            long waited = System.nanoTime() - start;
+            acquisitions.increment();
+            waitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+    }
+
+    public static long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public static long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    public static long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    public static void reset() {
+        acquisitions.reset();
+        waitNanos.reset();
+        maxWaitNanos.set(0);
+    }
+}
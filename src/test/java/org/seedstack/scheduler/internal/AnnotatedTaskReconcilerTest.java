@@ -0,0 +1,164 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.CronTrigger;
+import org.quartz.JobBuilder;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.TriggerKey;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.seedstack.scheduler.Scheduled;
+import org.seedstack.scheduler.ScheduledTaskBatchResult;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.Task;
+import org.seedstack.seed.Application;
+
+public class AnnotatedTaskReconcilerTest {
+    private Scheduler scheduler;
+    private Application application;
+    private AnnotatedTaskReconciler underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        Properties properties = QuartzProperties.from(new SchedulerConfig().setInstanceName("reconciliation"));
+        scheduler = new StdSchedulerFactory(properties).getScheduler();
+        application = mock(Application.class);
+        when(application.substituteWithConfiguration(anyString())).thenAnswer(invocation -> invocation.getArgument(0));
+        underTest = new AnnotatedTaskReconciler(scheduler);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testStableIdentity() {
+        assertThat(builder(SomeTask.class).getJobKey()).isEqualTo(JobKey.jobKey("SomeTask", SomeTask.class.getName()));
+        assertThat(builder(SomeTask.class).getTriggerKey())
+                .isEqualTo(TriggerKey.triggerKey("SomeTask", SomeTask.class.getName()));
+        assertThat(builder(NamedTask.class).getJobKey())
+                .isEqualTo(JobKey.jobKey("named", NamedTask.class.getName()));
+    }
+
+    @Test
+    public void testNewTasksAreScheduled() throws Exception {
+        ScheduledTaskBatchResult result = underTest.reconcile(
+                Arrays.asList(builder(SomeTask.class), builder(NamedTask.class)));
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(result.getScheduledCount()).isEqualTo(2);
+        assertThat(scheduler.checkExists(builder(SomeTask.class).getJobKey())).isTrue();
+        assertThat(scheduler.checkExists(builder(NamedTask.class).getJobKey())).isTrue();
+    }
+
+    @Test
+    public void testUnchangedTasksAreNotRescheduled() throws Exception {
+        underTest.reconcile(Arrays.asList(builder(SomeTask.class), builder(NamedTask.class)));
+
+        ScheduledTaskBatchResult result = underTest.reconcile(
+                Arrays.asList(builder(SomeTask.class), builder(NamedTask.class)));
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(result.getScheduledCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testChangedTasksAreUpdated() throws Exception {
+        underTest.reconcile(Arrays.asList(builder(SomeTask.class), builder(NamedTask.class)));
+
+        ScheduledTaskBuilderImpl changed = builder(SomeTask.class);
+        changed.withCronExpression("0 0 12 * * ?");
+        ScheduledTaskBatchResult result = underTest.reconcile(Arrays.asList(changed, builder(NamedTask.class)));
+
+        assertThat(result.getScheduledCount()).isEqualTo(1);
+        CronTrigger trigger = (CronTrigger) scheduler.getTrigger(changed.getTriggerKey());
+        assertThat(trigger.getCronExpression()).isEqualTo("0 0 12 * * ?");
+    }
+
+    @Test
+    public void testTasksDeletedFromTheStoreAreRescheduled() throws Exception {
+        underTest.reconcile(Arrays.asList(builder(SomeTask.class), builder(NamedTask.class)));
+        scheduler.unscheduleJob(builder(SomeTask.class).getTriggerKey());
+
+        ScheduledTaskBatchResult result = underTest.reconcile(
+                Arrays.asList(builder(SomeTask.class), builder(NamedTask.class)));
+
+        assertThat(result.getScheduledCount()).isEqualTo(1);
+        assertThat(scheduler.checkExists(builder(SomeTask.class).getTriggerKey())).isTrue();
+    }
+
+    @Test
+    public void testTasksWithoutFingerprintAreRescheduledOnce() throws Exception {
+        underTest.reconcile(Collections.singletonList(builder(SomeTask.class)));
+        JobKey jobKey = builder(SomeTask.class).getJobKey();
+        scheduler.addJob(JobBuilder.newJob(AnnotatedTaskReconciler.ManifestJob.class)
+                .withIdentity(AnnotatedTaskReconciler.MANIFEST_KEY)
+                .usingJobData("entries", jobKey.getGroup() + "\t" + jobKey.getName())
+                .storeDurably()
+                .build(), true);
+
+        assertThat(underTest.reconcile(Collections.singletonList(builder(SomeTask.class))).getScheduledCount())
+                .isEqualTo(1);
+        assertThat(underTest.reconcile(Collections.singletonList(builder(SomeTask.class))).getScheduledCount())
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void testTasksNoLongerDeclaredAreRemoved() throws Exception {
+        underTest.reconcile(Arrays.asList(builder(SomeTask.class), builder(NamedTask.class)));
+        ScheduledTaskBuilderImpl programmatic = new ScheduledTaskBuilderImpl(NamedTask.class, scheduler, application);
+        programmatic.withCronExpression("0 0 * * * ?").withTaskName("programmatic").withTriggerName("programmatic")
+                .schedule();
+
+        ScheduledTaskBatchResult result = underTest.reconcile(Collections.singletonList(builder(SomeTask.class)));
+
+        assertThat(result.getScheduledCount()).isEqualTo(0);
+        assertThat(scheduler.checkExists(builder(NamedTask.class).getJobKey())).isFalse();
+        assertThat(scheduler.checkExists(builder(SomeTask.class).getJobKey())).isTrue();
+        // programmatically scheduled jobs are left alone
+        assertThat(scheduler.getJobKeys(GroupMatcher.anyJobGroup()))
+                .containsOnly(builder(SomeTask.class).getJobKey(), programmatic.getJobKey(),
+                        AnnotatedTaskReconciler.MANIFEST_KEY);
+    }
+
+    private ScheduledTaskBuilderImpl builder(Class<? extends Task> taskClass) {
+        ScheduledTaskBuilderImpl builder = new ScheduledTaskBuilderImpl(taskClass, scheduler, application);
+        builder.withCronExpression("0 0 * * * ?");
+        return builder.withStableIdentity();
+    }
+
+    // no cron expression in the annotations, so the plugin doesn't schedule these tasks in integration tests
+    @Scheduled
+    private static class SomeTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+        }
+    }
+
+    @Scheduled(taskName = "named", triggerName = "named")
+    private static class NamedTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+        }
+    }
+}
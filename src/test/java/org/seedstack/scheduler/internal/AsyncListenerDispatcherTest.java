@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.inject.Guice;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.seedstack.scheduler.AsyncListener;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.Task;
+import org.seedstack.scheduler.TaskListener;
+import org.seedstack.scheduler.metrics.InMemoryTaskMetricsRegistry;
+
+public class AsyncListenerDispatcherTest {
+    private static final List<String> events = new CopyOnWriteArrayList<>();
+    private static volatile CountDownLatch blockingLatch;
+    private static volatile CountDownLatch blockedLatch;
+    private static volatile CountDownLatch deliveredLatch;
+    private InMemoryTaskMetricsRegistry taskMetricsRegistry;
+    private TaskDefinition taskDefinition;
+    private AsyncListenerDispatcher underTest;
+
+    @Before
+    public void setUp() {
+        events.clear();
+        blockingLatch = new CountDownLatch(0);
+        blockedLatch = new CountDownLatch(1);
+        deliveredLatch = new CountDownLatch(0);
+        taskMetricsRegistry = new InMemoryTaskMetricsRegistry();
+        taskDefinition = new TaskDefinition(SomeTask.class);
+        taskDefinition.addListenerClass(SomeAsyncListener.class);
+        taskDefinition.resolve(Guice.createInjector());
+    }
+
+    @After
+    public void tearDown() {
+        blockingLatch.countDown();
+        if (underTest != null) {
+            underTest.stop();
+        }
+    }
+
+    @Test
+    public void testAsyncListenersAreSeparated() {
+        assertThat(taskDefinition.getListeners()).isEmpty();
+        assertThat(taskDefinition.getAsyncListeners()).hasSize(1);
+    }
+
+    @Test
+    public void testEventsAreDeliveredInOrderWithBatchedAfters() throws Exception {
+        underTest = newDispatcher(new SchedulerConfig.AsyncListenersConfig());
+        blockingLatch = new CountDownLatch(1);
+        deliveredLatch = new CountDownLatch(5);
+
+        // the first event blocks the draining thread so that the next ones are taken in a single batch
+        underTest.before(taskDefinition, context("blocking"));
+        assertThat(blockedLatch.await(5, TimeUnit.SECONDS)).isTrue();
+        underTest.after(taskDefinition, context("a"));
+        underTest.after(taskDefinition, context("b"));
+        underTest.onException(taskDefinition, context("c"), new Exception());
+        underTest.after(taskDefinition, context("d"));
+        waitForQueueSize(4);
+        blockingLatch.countDown();
+
+        assertThat(deliveredLatch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(events).containsExactly("before:blocking", "afterAll:a,b", "onException:c", "afterAll:d");
+    }
+
+    @Test
+    public void testEventsAreDroppedWhenQueueIsFull() throws Exception {
+        underTest = newDispatcher(new SchedulerConfig.AsyncListenersConfig().setQueueCapacity(1));
+        blockingLatch = new CountDownLatch(1);
+
+        underTest.before(taskDefinition, context("blocking"));
+        assertThat(blockedLatch.await(5, TimeUnit.SECONDS)).isTrue();
+        underTest.after(taskDefinition, context("queued"));
+        underTest.after(taskDefinition, context("dropped"));
+
+        assertThat(taskMetricsRegistry.getTaskMetrics(SomeTask.class).getDroppedListenerEventCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testEventsAreDeliveredSynchronouslyWhenQueueIsFull() throws Exception {
+        underTest = newDispatcher(new SchedulerConfig.AsyncListenersConfig()
+                .setQueueCapacity(1)
+                .setOverflowPolicy(SchedulerConfig.AsyncListenersConfig.OverflowPolicy.CALLER_RUNS));
+        blockingLatch = new CountDownLatch(1);
+
+        underTest.before(taskDefinition, context("blocking"));
+        assertThat(blockedLatch.await(5, TimeUnit.SECONDS)).isTrue();
+        underTest.after(taskDefinition, context("queued"));
+        underTest.after(taskDefinition, context("sync"));
+
+        assertThat(events).containsExactly("before:blocking", "after:sync");
+        assertThat(taskMetricsRegistry.getTaskMetrics(SomeTask.class).getDroppedListenerEventCount()).isZero();
+    }
+
+    @Test
+    public void testQueuedEventsAreDeliveredOnStop() {
+        underTest = newDispatcher(new SchedulerConfig.AsyncListenersConfig());
+
+        for (int i = 0; i < 100; i++) {
+            underTest.after(taskDefinition, context(String.valueOf(i)));
+        }
+        underTest.stop();
+
+        assertThat(underTest.getQueueSize()).isZero();
+        assertThat(events.stream().mapToInt(event -> event.split(",").length).sum()).isEqualTo(100);
+    }
+
+    @Test
+    public void testListenersReceiveASnapshotOfTheContext() throws Exception {
+        underTest = newDispatcher(new SchedulerConfig.AsyncListenersConfig());
+        blockingLatch = new CountDownLatch(1);
+        deliveredLatch = new CountDownLatch(2);
+        Map<String, Object> dataMap = new HashMap<>();
+        dataMap.put("value", "submitted");
+        SchedulingContext schedulingContext = context("snapshot");
+        Mockito.when(schedulingContext.getDataMap()).thenAnswer(invocation -> dataMap);
+
+        underTest.before(taskDefinition, context("blocking"));
+        assertThat(blockedLatch.await(5, TimeUnit.SECONDS)).isTrue();
+        underTest.after(taskDefinition, schedulingContext);
+        dataMap.put("value", "updated");
+        Mockito.when(schedulingContext.getTaskName()).thenReturn("updated");
+        blockingLatch.countDown();
+
+        assertThat(deliveredLatch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(events).containsExactly("before:blocking", "afterAll:snapshot=submitted");
+    }
+
+    private AsyncListenerDispatcher newDispatcher(SchedulerConfig.AsyncListenersConfig config) {
+        AsyncListenerDispatcher dispatcher = new AsyncListenerDispatcher(config);
+        dispatcher.taskMetricsRegistry = taskMetricsRegistry;
+        return dispatcher;
+    }
+
+    private void waitForQueueSize(int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (underTest.getQueueSize() != size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(underTest.getQueueSize()).isEqualTo(size);
+    }
+
+    private SchedulingContext context(String taskName) {
+        SchedulingContext schedulingContext = Mockito.mock(SchedulingContext.class);
+        Mockito.when(schedulingContext.getTaskName()).thenReturn(taskName);
+        return schedulingContext;
+    }
+
+    public static class SomeTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+            // nothing to do
+        }
+    }
+
+    @AsyncListener
+    public static class SomeAsyncListener implements TaskListener<SomeTask> {
+        @Override
+        public void before(SchedulingContext sc) {
+            events.add("before:" + sc.getTaskName());
+            deliveredLatch.countDown();
+            blockedLatch.countDown();
+            try {
+                blockingLatch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void after(SchedulingContext sc) {
+            events.add("after:" + sc.getTaskName());
+            deliveredLatch.countDown();
+        }
+
+        @Override
+        public void afterAll(List<SchedulingContext> scs) {
+            StringBuilder names = new StringBuilder();
+            for (SchedulingContext sc : scs) {
+                if (names.length() > 0) {
+                    names.append(",");
+                }
+                names.append(sc.getTaskName());
+                if (sc.getDataMap().containsKey("value")) {
+                    names.append("=").append(sc.getDataMap().get("value"));
+                }
+            }
+            events.add("afterAll:" + names);
+            for (int i = 0; i < scs.size(); i++) {
+                deliveredLatch.countDown();
+            }
+        }
+
+        @Override
+        public void onException(SchedulingContext sc, Exception e) {
+            events.add("onException:" + sc.getTaskName());
+            deliveredLatch.countDown();
+        }
+    }
+}
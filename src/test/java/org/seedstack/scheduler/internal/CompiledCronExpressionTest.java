@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.quartz.TriggerBuilder.newTrigger;
+import static org.seedstack.scheduler.internal.CompiledCronScheduleBuilder.compiledCronSchedule;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.Test;
+import org.quartz.CronExpression;
+import org.quartz.CronTrigger;
+
+public class CompiledCronExpressionTest {
+    private static final String[] EXPRESSIONS = {
+            "0 */5 * * * ?",
+            "0 0 12 * * ?",
+            "15 10 * ? * MON-FRI",
+            "0 0/15 9-17 ? * 2-6",
+            "0 30 2 * * ?",
+            "0 30 1 * * ?",
+            "*/7 * * * * ?",
+            "0 0 0 29 2 ?",
+            "0 0 0 31 * ?",
+            "0 0 6 1,15 * ? 2024-2026",
+            "0 0 22 ? * SAT,SUN",
+            "0 5-55/10 3,7,23 * JAN,JUL ?",
+            "0 15 10 ? * 6L",
+            "0 0 12 LW * ?",
+            "0 0 0 ? * SUN#2"
+    };
+    private static final String[] TIME_ZONES = {
+            "UTC", "Europe/Paris", "America/New_York", "Australia/Lord_Howe", "Asia/Kolkata"
+    };
+
+    @Test
+    public void testSameFireTimesAsQuartz() throws Exception {
+        List<Date> starts = new ArrayList<>();
+        Random random = new Random(42);
+        long from = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+        long to = Instant.parse("2030-01-01T00:00:00Z").toEpochMilli();
+        for (int i = 0; i < 20; i++) {
+            starts.add(new Date(from + (long) (random.nextDouble() * (to - from))));
+        }
+        // around daylight saving time transitions
+        starts.add(Date.from(Instant.parse("2021-03-28T00:59:59Z")));
+        starts.add(Date.from(Instant.parse("2021-10-31T00:30:00Z")));
+        starts.add(Date.from(Instant.parse("2021-03-14T06:59:00Z")));
+        starts.add(Date.from(Instant.parse("2021-11-07T05:45:00Z")));
+        starts.add(Date.from(Instant.parse("2021-04-03T14:45:00Z")));
+
+        for (String expression : EXPRESSIONS) {
+            for (String timeZoneId : TIME_ZONES) {
+                TimeZone timeZone = TimeZone.getTimeZone(timeZoneId);
+                CompiledCronExpression compiled = CompiledCronExpression.of(expression, timeZone);
+                CronExpression reference = new CronExpression(expression);
+                reference.setTimeZone(timeZone);
+                for (Date start : starts) {
+                    Date expected = start;
+                    Date actual = start;
+                    for (int i = 0; i < 50 && expected != null; i++) {
+                        expected = reference.getTimeAfter(expected);
+                        actual = compiled.getTimeAfter(actual);
+                        assertThat(actual)
+                                .describedAs("'%s' in %s after %s", expression, timeZoneId, start)
+                                .isEqualTo(expected);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSpecialCharactersAreNotCompiled() throws Exception {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        assertThat(CompiledCronExpression.of("0 */5 * * * ?", utc).isCompiled()).isTrue();
+        assertThat(CompiledCronExpression.of("0 15 10 ? * 6L", utc).isCompiled()).isFalse();
+        assertThat(CompiledCronExpression.of("0 0 12 LW * ?", utc).isCompiled()).isFalse();
+        assertThat(CompiledCronExpression.of("0 0 0 ? * SUN#2", utc).isCompiled()).isFalse();
+    }
+
+    @Test
+    public void testExpressionsAreShared() throws Exception {
+        TimeZone paris = TimeZone.getTimeZone("Europe/Paris");
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        assertThat(CompiledCronExpression.of("0 */5 * * * ?", paris))
+                .isSameAs(CompiledCronExpression.of("0 */5 * * * ?", paris))
+                .isNotSameAs(CompiledCronExpression.of("0 */5 * * * ?", utc));
+    }
+
+    @Test
+    public void testTriggerKeepsCompiledExpression() {
+        TimeZone paris = TimeZone.getTimeZone("Europe/Paris");
+        CompiledCronTrigger trigger = (CompiledCronTrigger) newTrigger()
+                .withSchedule(compiledCronSchedule("0 */5 * * * ?", paris))
+                .build();
+        CompiledCronTrigger copy = (CompiledCronTrigger) trigger.clone();
+
+        assertThat(copy.getCompiledCronExpression()).isSameAs(trigger.getCompiledCronExpression());
+        assertThat(copy.getCronExpression()).isEqualTo("0 */5 * * * ?");
+        assertThat(copy.getTimeZone().getID()).isEqualTo("Europe/Paris");
+        assertThat(copy.getMisfireInstruction()).isEqualTo(CronTrigger.MISFIRE_INSTRUCTION_SMART_POLICY);
+    }
+
+    @Test
+    public void testTriggerTimeZoneChange() {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        CompiledCronTrigger trigger = (CompiledCronTrigger) newTrigger()
+                .startAt(Date.from(Instant.parse("2021-01-01T00:00:00Z")))
+                .withSchedule(compiledCronSchedule("0 0 12 * * ?", TimeZone.getTimeZone("Europe/Paris")))
+                .build();
+        CompiledCronExpression parisExpression = trigger.getCompiledCronExpression();
+
+        trigger.setTimeZone(utc);
+
+        assertThat(trigger.getTimeZone().getID()).isEqualTo("UTC");
+        assertThat(trigger.getCompiledCronExpression().getTimeZone().getID()).isEqualTo("UTC");
+        assertThat(parisExpression.getTimeZone().getID()).isEqualTo("Europe/Paris");
+        assertThat(trigger.getFireTimeAfter(Date.from(Instant.parse("2021-06-01T00:00:00Z"))))
+                .isEqualTo(Date.from(Instant.parse("2021-06-01T12:00:00Z")));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class ConcurrencyLimiterTest {
+    private final ConcurrencyLimiter underTest = new ConcurrencyLimiter();
+
+    @Test
+    public void testPermitsAreBounded() {
+        assertThat(underTest.tryAcquire(2)).isTrue();
+        assertThat(underTest.tryAcquire(2)).isTrue();
+        assertThat(underTest.tryAcquire(2)).isFalse();
+        assertThat(underTest.tryAcquire(3)).isTrue();
+        assertThat(underTest.getRunning()).isEqualTo(3);
+
+        underTest.release();
+        assertThat(underTest.tryAcquire(2)).isFalse();
+        underTest.release();
+        assertThat(underTest.tryAcquire(2)).isTrue();
+    }
+
+    @Test
+    public void testPendingFiresRunOnRelease() {
+        List<String> refired = new ArrayList<>();
+        assertThat(underTest.tryAcquire(1)).isTrue();
+        underTest.enqueue(() -> refired.add("first"), 1);
+        underTest.enqueue(() -> refired.add("second"), 1);
+        assertThat(refired).isEmpty();
+        assertThat(underTest.getPendingCount()).isEqualTo(2);
+
+        underTest.release();
+        assertThat(refired).containsExactly("first");
+        assertThat(underTest.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFireQueuedAfterAReleaseRunsImmediately() {
+        List<String> refired = new ArrayList<>();
+        assertThat(underTest.tryAcquire(1)).isTrue();
+        // released between the failed attempt and the queuing
+        underTest.release();
+        underTest.enqueue(() -> refired.add("fire"), 1);
+
+        assertThat(refired).containsExactly("fire");
+        assertThat(underTest.getPendingCount()).isZero();
+    }
+}
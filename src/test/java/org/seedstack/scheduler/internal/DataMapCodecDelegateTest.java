@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.quartz.JobBuilder.newJob;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.seedstack.scheduler.codec.BinaryDataMapCodec;
+import org.slf4j.LoggerFactory;
+
+public class DataMapCodecDelegateTest {
+    private final CascadingClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+    private final DataMapCodecDelegate underTest = new DataMapCodecDelegate();
+    private Connection connection;
+
+    @Before
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:" + UUID.randomUUID());
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : JdbcJobStoreSupport.parseScript("org/quartz/impl/jdbcjobstore/tables_h2.sql",
+                    "QRTZ_")) {
+                statement.execute(sql);
+            }
+        }
+        loadHelper.initialize();
+        underTest.initialize(LoggerFactory.getLogger(DataMapCodecDelegateTest.class), "QRTZ_", "scheduler",
+                "instance", loadHelper, false, "dataMapCodec=" + BinaryDataMapCodec.class.getName());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    public void testJobDataIsWrittenWithTheCodec() throws Exception {
+        JobDetail job = newJob(TestJob.class)
+                .withIdentity("job")
+                .usingJobData("key", "value")
+                .usingJobData("count", 3)
+                .build();
+
+        underTest.insertJobDetail(connection, job);
+
+        assertThat(readJobData("job")[0]).isEqualTo((byte) 0xDC);
+        JobDetail selected = underTest.selectJobDetail(connection, job.getKey(), loadHelper);
+        assertThat(selected.getJobDataMap().getWrappedMap()).isEqualTo(job.getJobDataMap().getWrappedMap());
+        assertThat(selected.getJobDataMap().isDirty()).isFalse();
+    }
+
+    @Test
+    public void testJobDataWrittenWithJavaSerializationIsRead() throws Exception {
+        StdJDBCDelegate stdDelegate = new StdJDBCDelegate();
+        stdDelegate.initialize(LoggerFactory.getLogger(DataMapCodecDelegateTest.class), "QRTZ_", "scheduler",
+                "instance", loadHelper, false, null);
+        JobDetail job = newJob(TestJob.class).withIdentity("legacy").usingJobData("key", "value").build();
+        stdDelegate.insertJobDetail(connection, job);
+
+        JobDetail selected = underTest.selectJobDetail(connection, job.getKey(), loadHelper);
+
+        assertThat(selected.getJobDataMap().getString("key")).isEqualTo("value");
+    }
+
+    private byte[] readJobData(String jobName) throws Exception {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT JOB_DATA FROM QRTZ_JOB_DETAILS WHERE JOB_NAME = ?")) {
+            statement.setString(1, jobName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertThat(resultSet.next()).isTrue();
+                return resultSet.getBytes(1);
+            }
+        }
+    }
+
+    public static class TestJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            // nothing to do
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.seedstack.scheduler.MaxConcurrency;
+import org.seedstack.scheduler.SaturationPolicy;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.Task;
+import org.seedstack.scheduler.metrics.InMemoryTaskMetricsRegistry;
+import org.seedstack.scheduler.metrics.TaskMetrics;
+
+public class DelegateTriggerListenerTest {
+    private final Scheduler scheduler = mock(Scheduler.class);
+    private final InMemoryTaskMetricsRegistry metricsRegistry = new InMemoryTaskMetricsRegistry();
+    private DelegateTriggerListener underTest;
+
+    @Before
+    public void setUp() {
+        underTest = new DelegateTriggerListener();
+        underTest.taskMetricsRegistry = metricsRegistry;
+    }
+
+    @Test
+    public void testUnlimitedTaskIsNeverVetoed() {
+        TaskDefinition taskDefinition = new TaskDefinition(UnlimitedTask.class);
+        for (int i = 0; i < 10; i++) {
+            assertThat(veto(context(taskDefinition, newJob(TaskDelegateJob.class).build()))).isFalse();
+        }
+        assertThat(taskDefinition.getConcurrencyLimiter(null, JobSettings.NONE).getRunning()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSkipPolicy() {
+        TaskDefinition taskDefinition = new TaskDefinition(SkippedTask.class);
+        JobExecutionContext first = context(taskDefinition, newJob(TaskDelegateJob.class).build());
+
+        assertThat(veto(first)).isFalse();
+        assertThat(veto(context(taskDefinition, newJob(TaskDelegateJob.class).build()))).isTrue();
+        DelegateTriggerListener.releasePermit(first);
+        DelegateTriggerListener.releasePermit(first);
+        assertThat(veto(context(taskDefinition, newJob(TaskDelegateJob.class).build()))).isFalse();
+
+        TaskMetrics taskMetrics = metricsRegistry.getTaskMetrics(SkippedTask.class);
+        assertThat(taskMetrics.getRejectedCount()).isEqualTo(1);
+        assertThat(taskMetrics.getPermitWait().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testDelayPolicy() throws Exception {
+        TaskDefinition taskDefinition = new TaskDefinition(UnlimitedTask.class);
+        JobDetail jobDetail = newJob(TaskDelegateJob.class).build();
+        new JobSettings(1, SaturationPolicy.DELAY, -1, -1).store(jobDetail.getJobDataMap());
+
+        // the running execution holds its permit, and thus the limiter of the job
+        JobExecutionContext running = context(taskDefinition, jobDetail);
+        assertThat(veto(running)).isFalse();
+        assertThat(veto(context(taskDefinition, jobDetail))).isTrue();
+        verify(scheduler).scheduleJob(any(Trigger.class));
+        DelegateTriggerListener.releasePermit(running);
+    }
+
+    @Test
+    public void testQueuePolicyRefiresWithoutBlocking() throws Exception {
+        TaskDefinition taskDefinition = new TaskDefinition(QueuedTask.class);
+        JobExecutionContext first = context(taskDefinition, newJob(TaskDelegateJob.class).build());
+        assertThat(veto(first)).isFalse();
+
+        assertThat(veto(context(taskDefinition, newJob(TaskDelegateJob.class).build()))).isTrue();
+        ConcurrencyLimiter concurrencyLimiter = taskDefinition.getConcurrencyLimiter(null, JobSettings.NONE);
+        assertThat(concurrencyLimiter.getPendingCount()).isEqualTo(1);
+        verify(scheduler, never()).scheduleJob(any(Trigger.class));
+        DelegateTriggerListener.releasePermit(first);
+
+        verify(scheduler).scheduleJob(any(Trigger.class));
+        assertThat(concurrencyLimiter.getPendingCount()).isZero();
+        assertThat(concurrencyLimiter.getRunning()).isZero();
+        assertThat(metricsRegistry.getTaskMetrics(QueuedTask.class).getQueuedCount()).isEqualTo(1);
+        assertThat(metricsRegistry.getTaskMetrics(QueuedTask.class).getPermitWait().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testJobLimitsAreCountedPerJob() {
+        TaskDefinition taskDefinition = new TaskDefinition(UnlimitedTask.class);
+        JobDetail firstJob = newJob(TaskDelegateJob.class).withIdentity("first").build();
+        new JobSettings(1, SaturationPolicy.SKIP, -1, -1).store(firstJob.getJobDataMap());
+        JobDetail secondJob = newJob(TaskDelegateJob.class).withIdentity("second").build();
+        new JobSettings(2, SaturationPolicy.SKIP, -1, -1).store(secondJob.getJobDataMap());
+
+        List<JobExecutionContext> running = new ArrayList<>();
+        running.add(context(taskDefinition, firstJob));
+        running.add(context(taskDefinition, secondJob));
+        running.add(context(taskDefinition, secondJob));
+
+        for (JobExecutionContext context : running) {
+            assertThat(veto(context)).isFalse();
+        }
+        assertThat(veto(context(taskDefinition, firstJob))).isTrue();
+        assertThat(veto(context(taskDefinition, secondJob))).isTrue();
+        running.forEach(DelegateTriggerListener::releasePermit);
+    }
+
+    private boolean veto(JobExecutionContext context) {
+        return underTest.vetoJobExecution(context.getTrigger(), context);
+    }
+
+    private JobExecutionContext context(TaskDefinition taskDefinition, JobDetail jobDetail) {
+        OperableTrigger trigger = (OperableTrigger) newTrigger().forJob(jobDetail).build();
+        Date now = new Date();
+        return new JobExecutionContextImpl(scheduler,
+                new TriggerFiredBundle(jobDetail, trigger, null, false, now, now, null, null),
+                new TaskDelegateJob(taskDefinition, new UnlimitedTask()));
+    }
+
+    static class UnlimitedTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+        }
+    }
+
+    @MaxConcurrency(value = 1, saturationPolicy = SaturationPolicy.SKIP)
+    static class SkippedTask extends UnlimitedTask {
+    }
+
+    @MaxConcurrency(1)
+    static class QueuedTask extends UnlimitedTask {
+    }
+}
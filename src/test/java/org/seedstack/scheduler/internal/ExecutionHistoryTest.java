@@ -0,0 +1,110 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.Task;
+import org.seedstack.scheduler.TaskExecution;
+import org.seedstack.scheduler.TaskHistory;
+
+public class ExecutionHistoryTest {
+    private final ExecutionHistory underTest = new ExecutionHistory(new SchedulerConfig.HistoryConfig().setSize(4));
+
+    @Test
+    public void testMostRecentExecutionsAreKept() {
+        for (int i = 1; i <= 10; i++) {
+            underTest.record(SomeTask.class, new TaskExecution(new Date(i), 0, i * 10, null));
+        }
+
+        TaskHistory history = underTest.of(SomeTask.class);
+
+        assertThat(history.getExecutions()).extracting(TaskExecution::getDuration).containsExactly(100L, 90L, 80L, 70L);
+        assertThat(history.getLastExecution().map(TaskExecution::getFireTime)).contains(new Date(10));
+        assertThat(history.getExecutionCount()).isEqualTo(10);
+        assertThat(history.getDurations().getMax()).isEqualTo(100);
+        assertThat(history.getDurations().getValueAtPercentile(50)).isBetween(50L, 56L);
+    }
+
+    @Test
+    public void testFailuresAreCounted() {
+        underTest.record(SomeTask.class, new TaskExecution(new Date(1), 5, 10, IllegalStateException.class));
+        for (int i = 0; i < 5; i++) {
+            underTest.record(SomeTask.class, new TaskExecution(new Date(2 + i), 0, 10, null));
+        }
+
+        TaskHistory history = underTest.of(SomeTask.class);
+
+        assertThat(history.getFailureCount()).isEqualTo(1);
+        assertThat(history.getExecutions()).allMatch(TaskExecution::isSuccessful);
+        assertThat(history.getLastFailure().map(TaskExecution::getExceptionClass))
+                .contains(IllegalStateException.class);
+        assertThat(history.getLags().getMax()).isEqualTo(5);
+    }
+
+    @Test
+    public void testUnknownTaskHasEmptyHistory() {
+        TaskHistory history = underTest.of(SomeTask.class);
+
+        assertThat(history.getExecutions()).isEmpty();
+        assertThat(history.getLastExecution()).isEmpty();
+        assertThat(history.getExecutionCount()).isZero();
+    }
+
+    @Test
+    public void testHistoryCanBeDisabled() {
+        ExecutionHistory disabled = new ExecutionHistory(new SchedulerConfig.HistoryConfig().setSize(0));
+        disabled.record(SomeTask.class, new TaskExecution(new Date(), 0, 10, null));
+
+        assertThat(disabled.of(SomeTask.class).getExecutionCount()).isZero();
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        int threadCount = 4;
+        int executionCount = 10000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < executionCount; i++) {
+                    underTest.record(SomeTask.class, new TaskExecution(new Date(), 0, i, null));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        TaskHistory history = underTest.of(SomeTask.class);
+        assertThat(history.getExecutionCount()).isEqualTo(threadCount * executionCount);
+        assertThat(history.getExecutions()).hasSize(4);
+    }
+
+    private static class SomeTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+            // nothing to do
+        }
+    }
+}
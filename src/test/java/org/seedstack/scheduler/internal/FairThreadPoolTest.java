@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.when;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerConfigException;
+import org.quartz.SchedulerContext;
+import org.quartz.core.JobRunShell;
+import org.quartz.core.QuartzScheduler;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.seedstack.scheduler.metrics.InMemoryTaskMetricsRegistry;
+
+public class FairThreadPoolTest {
+    private final Scheduler scheduler = mock(Scheduler.class);
+    private final QuartzScheduler quartzScheduler = mock(QuartzScheduler.class);
+    private final InMemoryTaskMetricsRegistry taskMetricsRegistry = new InMemoryTaskMetricsRegistry();
+    private final List<String> dispatchedGroups = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch blockerStarted = new CountDownLatch(1);
+    private final CountDownLatch blockerReleased = new CountDownLatch(1);
+    private final FairThreadPool underTest = new FairThreadPool();
+
+    @Before
+    public void setUp() throws Exception {
+        SchedulerContext schedulerContext = new SchedulerContext();
+        schedulerContext.put(FairThreadPool.METRICS_CONTEXT_KEY, taskMetricsRegistry);
+        when(scheduler.getContext()).thenReturn(schedulerContext);
+        underTest.setThreadCount(1);
+    }
+
+    @After
+    public void tearDown() {
+        blockerReleased.countDown();
+        underTest.shutdown(false);
+    }
+
+    @Test
+    public void testQueuesGetThreadsInProportionToTheirWeight() throws Exception {
+        underTest.setWeights("quiet=3");
+        underTest.initialize();
+        occupyThread();
+        for (int i = 0; i < 12; i++) {
+            assertThat(underTest.runInThread(shell("noisy", null))).isTrue();
+        }
+        for (int i = 0; i < 4; i++) {
+            assertThat(underTest.runInThread(shell("quiet", null))).isTrue();
+        }
+
+        blockerReleased.countDown();
+        underTest.shutdown(true);
+
+        assertThat(dispatchedGroups).hasSize(17);
+        // without fairness the quiet tasks would wait for all the noisy ones
+        assertThat(dispatchedGroups.lastIndexOf("quiet")).isLessThan(7);
+        assertThat(taskMetricsRegistry.getQueues()).containsExactlyInAnyOrder("blocker", "noisy", "quiet");
+        assertThat(taskMetricsRegistry.getQueueMetrics("noisy").getLag().getCount()).isEqualTo(12);
+        assertThat(taskMetricsRegistry.getQueueMetrics("quiet").getLag().getCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void testTasksAreQueuedByTenant() throws Exception {
+        underTest.setTenantKey("tenant");
+        underTest.initialize();
+        occupyThread();
+        underTest.runInThread(shell("group1", "acme"));
+        underTest.runInThread(shell("group2", "acme"));
+        underTest.runInThread(shell("group2", null));
+
+        blockerReleased.countDown();
+        underTest.shutdown(true);
+
+        assertThat(taskMetricsRegistry.getQueues()).containsExactlyInAnyOrder("blocker", "acme", "group2");
+        assertThat(taskMetricsRegistry.getQueueMetrics("acme").getLag().getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFiringIsLimitedByFreeThreadsAndBacklog() throws Exception {
+        underTest.setBacklog(2);
+        underTest.initialize();
+        assertThat(underTest.blockForAvailableThreads()).isEqualTo(3);
+        occupyThread();
+        assertThat(underTest.blockForAvailableThreads()).isEqualTo(2);
+        underTest.runInThread(shell("group", null));
+
+        assertThat(underTest.blockForAvailableThreads()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDiscardedTasksAreCompletedInTheJobStore() throws Exception {
+        underTest.initialize();
+        occupyThread();
+        underTest.runInThread(shell("group", null));
+
+        underTest.shutdown(false);
+
+        assertThat(dispatchedGroups).containsExactly("blocker");
+        assertThat(mockingDetails(quartzScheduler).getInvocations())
+                .extracting(invocation -> invocation.getMethod().getName())
+                .containsExactly("notifyJobStoreJobComplete");
+    }
+
+    @Test
+    public void testInvalidWeightsAreRejected() {
+        underTest.setWeights("quiet=3,noisy");
+
+        assertThatThrownBy(underTest::initialize).isInstanceOf(SchedulerConfigException.class)
+                .hasMessageContaining("noisy");
+    }
+
+    private void occupyThread() throws InterruptedException {
+        underTest.runInThread(shell("blocker", null));
+        assertThat(blockerStarted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private JobRunShell shell(String group, String tenant) {
+        JobDetail jobDetail = newJob(Job.class).withIdentity("job", group).usingJobData("tenant", tenant).build();
+        OperableTrigger trigger = (OperableTrigger) newTrigger().forJob(jobDetail).build();
+        Date now = new Date();
+        TriggerFiredBundle bundle = new TriggerFiredBundle(jobDetail, trigger, null, false, now, now, null, null);
+        JobExecutionContextImpl context = new JobExecutionContextImpl(scheduler, bundle, null);
+        return new JobRunShell(scheduler, bundle) {
+            {
+                jec = context;
+                qs = quartzScheduler;
+            }
+
+            @Override
+            public void run() {
+                dispatchedGroups.add(group);
+                if ("blocker".equals(group)) {
+                    blockerStarted.countDown();
+                    try {
+                        blockerReleased.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import com.google.inject.Guice;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerContext;
+import org.quartz.SchedulerMetaData;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.Task;
+import org.seedstack.scheduler.metrics.InMemoryTaskMetricsRegistry;
+
+public class FlightRecorderEventsTest {
+    private final Scheduler scheduler = mock(Scheduler.class);
+    private Recording recording;
+
+    @Before
+    public void setUp() throws Exception {
+        when(scheduler.getContext()).thenReturn(new SchedulerContext());
+        SchedulerMetaData metaData = mock(SchedulerMetaData.class);
+        when(metaData.getThreadPoolSize()).thenReturn(10);
+        when(scheduler.getMetaData()).thenReturn(metaData);
+        recording = new Recording();
+        recording.enable(TaskExecutionEvent.class);
+        recording.enable(JobInstantiationEvent.class);
+        recording.enable(TaskListenerEvent.class);
+        recording.start();
+    }
+
+    @After
+    public void tearDown() {
+        FlightRecorderEvents.disable();
+        recording.close();
+    }
+
+    @Test
+    public void testTaskExecutionEventsAreRecorded() throws Exception {
+        FlightRecorderEvents.configure(new SchedulerConfig.FlightRecorderConfig().setTaskExecution(true));
+        TriggerFiredBundle bundle = bundle(SucceedingTask.class);
+        TaskDelegateJob succeeding = new TaskDelegateJob(new TaskDefinition(SucceedingTask.class),
+                new SucceedingTask());
+        TaskDelegateJob failing = new TaskDelegateJob(new TaskDefinition(FailingTask.class), new FailingTask());
+
+        succeeding.execute(new JobExecutionContextImpl(scheduler, bundle, succeeding));
+        assertThatThrownBy(() -> failing.execute(new JobExecutionContextImpl(scheduler, bundle, failing)))
+                .isInstanceOf(JobExecutionException.class);
+
+        List<RecordedEvent> events = recordedEvents("org.seedstack.scheduler.TaskExecution");
+        assertThat(events).hasSize(2);
+        RecordedEvent success = events.get(0);
+        assertThat(success.getClass("taskClass").getName()).isEqualTo(SucceedingTask.class.getName());
+        assertThat(success.getString("jobKey")).isEqualTo(bundle.getJobDetail().getKey().toString());
+        assertThat(success.getString("triggerKey")).isEqualTo(bundle.getTrigger().getKey().toString());
+        assertThat(success.getLong("scheduledFireTime")).isEqualTo(bundle.getScheduledFireTime().getTime());
+        assertThat(success.getLong("fireTime")).isEqualTo(bundle.getFireTime().getTime());
+        assertThat(success.getLong("fireLag")).isEqualTo(1000);
+        assertThat(success.getString("outcome")).isEqualTo(TaskExecutionEvent.SUCCESS);
+        assertThat((Object) success.getValue("exceptionClass")).isNull();
+        RecordedEvent failure = events.get(1);
+        assertThat(failure.getString("outcome")).isEqualTo(TaskExecutionEvent.FAILURE);
+        assertThat(failure.getClass("exceptionClass").getName()).isEqualTo(IllegalStateException.class.getName());
+    }
+
+    @Test
+    public void testJobInstantiationEventsAreRecorded() throws Exception {
+        FlightRecorderEvents.configure(new SchedulerConfig.FlightRecorderConfig().setJobInstantiation(true));
+        HashMap<String, TaskDefinition> taskDefinitions = new HashMap<>();
+        GuiceTaskFactory guiceTaskFactory = new GuiceTaskFactory(Guice.createInjector(), taskDefinitions);
+        TriggerFiredBundle bundle = bundle(SucceedingTask.class);
+
+        guiceTaskFactory.newJob(bundle, scheduler);
+
+        List<RecordedEvent> events = recordedEvents("org.seedstack.scheduler.JobInstantiation");
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getString("taskClass")).isEqualTo(SucceedingTask.class.getName());
+        assertThat(events.get(0).getBoolean("successful")).isTrue();
+    }
+
+    @Test
+    public void testListenerEventsAreRecorded() throws Exception {
+        FlightRecorderEvents.configure(new SchedulerConfig.FlightRecorderConfig().setListeners(true));
+        DelegateJobListener delegateJobListener = delegateJobListener();
+        JobExecutionContext context = context(bundle(SucceedingTask.class));
+
+        delegateJobListener.jobToBeExecuted(context);
+        delegateJobListener.jobWasExecuted(context, null);
+
+        List<RecordedEvent> events = recordedEvents("org.seedstack.scheduler.TaskListeners");
+        assertThat(events).extracting(event -> event.getString("notification")).containsExactly("before", "after");
+        assertThat(events.get(0).getClass("taskClass").getName()).isEqualTo(SucceedingTask.class.getName());
+    }
+
+    @Test
+    public void testDisabledEventsAreNotEmitted() throws Exception {
+        FlightRecorderEvents.configure(new SchedulerConfig.FlightRecorderConfig());
+        DelegateJobListener delegateJobListener = delegateJobListener();
+        JobExecutionContext context = context(bundle(SucceedingTask.class));
+
+        delegateJobListener.jobToBeExecuted(context);
+        ((TaskDelegateJob) context.getJobInstance()).execute(context);
+        delegateJobListener.jobWasExecuted(context, null);
+
+        assertThat(recordedEvents("org.seedstack.scheduler.TaskExecution")).isEmpty();
+        assertThat(recordedEvents("org.seedstack.scheduler.TaskListeners")).isEmpty();
+    }
+
+    private List<RecordedEvent> recordedEvents(String eventName) throws Exception {
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        Path file = Files.createTempFile("scheduler", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(eventName))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private DelegateJobListener delegateJobListener() {
+        DelegateJobListener delegateJobListener = new DelegateJobListener();
+        delegateJobListener.taskMetricsRegistry = new InMemoryTaskMetricsRegistry();
+        delegateJobListener.asyncListenerDispatcher = new AsyncListenerDispatcher(
+                new SchedulerConfig.AsyncListenersConfig());
+        delegateJobListener.executionHistory = new ExecutionHistory(new SchedulerConfig.HistoryConfig());
+        delegateJobListener.taskWatchdog = new TaskWatchdog(new SchedulerConfig.WatchdogConfig().setEnabled(false));
+        return delegateJobListener;
+    }
+
+    private JobExecutionContext context(TriggerFiredBundle bundle) {
+        TaskDefinition taskDefinition = new TaskDefinition(SucceedingTask.class);
+        return new JobExecutionContextImpl(scheduler, bundle,
+                new TaskDelegateJob(taskDefinition, new SucceedingTask()));
+    }
+
+    private TriggerFiredBundle bundle(Class<? extends Task> taskClass) {
+        JobDetail jobDetail = newJob(TaskDelegateJob.class).withIdentity("job", taskClass.getName()).build();
+        OperableTrigger trigger = (OperableTrigger) newTrigger().withIdentity("trigger", "triggers")
+                .forJob(jobDetail).build();
+        Date scheduledFireTime = new Date(System.currentTimeMillis() - 1000);
+        return new TriggerFiredBundle(jobDetail, trigger, null, false, new Date(scheduledFireTime.getTime() + 1000),
+                scheduledFireTime, null, null);
+    }
+
+    static class SucceedingTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+        }
+    }
+
+    static class FailingTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+            throw new IllegalStateException("failed");
+        }
+    }
+}
@@ -7,14 +7,20 @@
  */
 package org.seedstack.scheduler.internal;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.assertj.core.api.Assertions;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
 import org.quartz.JobDetail;
 import org.quartz.JobKey;
 import org.quartz.spi.TriggerFiredBundle;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.Task;
 import org.seedstack.seed.SeedException;
 
 import com.google.inject.Injector;
@@ -25,10 +31,13 @@ public class GuiceTaskFactoryTest {
 
     private Injector injector;
 
+    private Map<String, TaskDefinition> taskDefinitions;
+
     @Before
     public void setUp() throws Exception {
         injector = Mockito.mock(Injector.class);
-        underTest = new GuiceTaskFactory(injector);
+        taskDefinitions = new ConcurrentHashMap<>();
+        underTest = new GuiceTaskFactory(injector, taskDefinitions);
     }
 
     @Test
@@ -45,4 +54,43 @@ public class GuiceTaskFactoryTest {
         }
     }
 
+    @Test
+    public void testNewJobFromCachedDefinition() throws Exception {
+        Mockito.when(injector.getProvider(SomeTask.class)).thenReturn(SomeTask::new);
+        TaskDefinition taskDefinition = new TaskDefinition(SomeTask.class);
+        taskDefinition.resolve(injector);
+        taskDefinitions.put(SomeTask.class.getName(), taskDefinition);
+
+        Job job = underTest.newJob(mockBundle(SomeTask.class.getName()), null);
+
+        Assertions.assertThat(job).isInstanceOf(NonConcurrentTaskDelegateJob.class);
+        Mockito.verify(injector).getProvider(SomeTask.class);
+        Mockito.verifyNoMoreInteractions(injector);
+    }
+
+    @Test
+    public void testNewJobResolvesUnknownTaskOnce() throws Exception {
+        Mockito.when(injector.getProvider(SomeTask.class)).thenReturn(SomeTask::new);
+
+        underTest.newJob(mockBundle(SomeTask.class.getName()), null);
+        underTest.newJob(mockBundle(SomeTask.class.getName()), null);
+
+        Assertions.assertThat(taskDefinitions).containsKey(SomeTask.class.getName());
+        Mockito.verify(injector, Mockito.times(1)).getProvider(SomeTask.class);
+    }
+
+    private TriggerFiredBundle mockBundle(String group) {
+        TriggerFiredBundle bundle = Mockito.mock(TriggerFiredBundle.class);
+        JobDetail detail = Mockito.mock(JobDetail.class);
+        Mockito.when(detail.getKey()).thenReturn(new JobKey("key", group));
+        Mockito.when(bundle.getJobDetail()).thenReturn(detail);
+        return bundle;
+    }
+
+    @DisallowConcurrentExecution
+    static class SomeTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+        }
+    }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+
+public class JdbcJobStoreSupportTest {
+
+    @Test
+    public void testScriptIsSplitIntoCreationStatements() throws Exception {
+        List<String> statements = JdbcJobStoreSupport.parseScript("org/quartz/impl/jdbcjobstore/tables_postgres.sql",
+                "SCHED_");
+
+        assertThat(statements).isNotEmpty();
+        assertThat(statements).allMatch(sql -> sql.startsWith("CREATE") || sql.startsWith("create"));
+        assertThat(statements).noneMatch(sql -> sql.contains("QRTZ_") || sql.contains("--"));
+        assertThat(statements).anyMatch(sql -> sql.startsWith("CREATE TABLE SCHED_LOCKS"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingScript() throws Exception {
+        JdbcJobStoreSupport.parseScript("unknown.sql", "QRTZ_");
+    }
+}
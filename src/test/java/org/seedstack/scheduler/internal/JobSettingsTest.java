@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+import org.quartz.JobDataMap;
+import org.seedstack.scheduler.SaturationPolicy;
+
+public class JobSettingsTest {
+
+    @Test
+    public void testNoSettingsAreStored() {
+        JobDataMap jobDataMap = new JobDataMap();
+        JobSettings.NONE.store(jobDataMap);
+
+        assertThat(jobDataMap).isEmpty();
+        assertThat(JobSettings.of(jobDataMap)).isSameAs(JobSettings.NONE);
+    }
+
+    @Test
+    public void testSettingsAreStoredUnderASingleKey() {
+        JobDataMap jobDataMap = new JobDataMap();
+        new JobSettings(3, SaturationPolicy.DELAY, 0, 2000).store(jobDataMap);
+
+        assertThat(jobDataMap).containsOnlyKeys(JobSettings.KEY);
+        JobSettings jobSettings = JobSettings.of(jobDataMap);
+        assertThat(jobSettings.getMaxConcurrency()).isEqualTo(3);
+        assertThat(jobSettings.getSaturationPolicy()).isEqualTo(SaturationPolicy.DELAY);
+        assertThat(jobSettings.getTimeout()).isEqualTo(0);
+        assertThat(jobSettings.getStuckThreshold()).isEqualTo(2000);
+    }
+
+    @Test
+    public void testSettingsAreParsedOncePerValue() {
+        JobDataMap first = new JobDataMap();
+        new JobSettings(5, SaturationPolicy.SKIP, -1, -1).store(first);
+        JobDataMap second = new JobDataMap();
+        new JobSettings(5, SaturationPolicy.SKIP, -1, -1).store(second);
+
+        assertThat(JobSettings.of(first)).isSameAs(JobSettings.of(second));
+    }
+
+    @Test
+    public void testUnknownSettingsAreIgnored() {
+        JobSettings jobSettings = JobSettings.parse("someSetting=1,maxConcurrency=4");
+
+        assertThat(jobSettings.getMaxConcurrency()).isEqualTo(4);
+        assertThat(jobSettings.getSaturationPolicy()).isNull();
+        assertThat(jobSettings.getTimeout()).isEqualTo(-1);
+        assertThat(jobSettings.getStuckThreshold()).isEqualTo(-1);
+    }
+}
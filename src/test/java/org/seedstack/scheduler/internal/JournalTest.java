@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JournalTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRecordsAreReplayedInOrder() throws Exception {
+        Path directory = temporaryFolder.newFolder().toPath();
+        Journal journal = new Journal(directory, 64, false);
+        journal.replay((type, payload) -> {
+            throw new IllegalStateException("The journal should be empty");
+        });
+        for (int i = 0; i < 10; i++) {
+            // several segments are needed
+            journal.append((byte) i, ("record" + i).getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(replay(directory)).containsExactly("0:record0", "1:record1", "2:record2", "3:record3",
+                "4:record4", "5:record5", "6:record6", "7:record7", "8:record8", "9:record9");
+    }
+
+    @Test
+    public void testReplayStopsAtCorruptedRecord() throws Exception {
+        Path directory = temporaryFolder.newFolder().toPath();
+        Journal journal = new Journal(directory, 1024, false);
+        journal.replay((type, payload) -> {
+        });
+        journal.append((byte) 1, "first".getBytes(StandardCharsets.UTF_8));
+        journal.append((byte) 1, "second".getBytes(StandardCharsets.UTF_8));
+        journal.close();
+
+        File[] segments = directory.toFile().listFiles();
+        assertThat(segments).hasSize(1);
+        try (RandomAccessFile file = new RandomAccessFile(segments[0], "rw")) {
+            // last byte of the second record, as if it was partially written
+            long position = 9 + "first".length() + 9 + "second".length() - 1;
+            file.seek(position);
+            file.write('?');
+        }
+
+        assertThat(replay(directory)).containsExactly("1:first");
+    }
+
+    @Test
+    public void testAppendingAfterACorruptedSegment() throws Exception {
+        Path directory = temporaryFolder.newFolder().toPath();
+        Journal journal = new Journal(directory, 32, false);
+        journal.replay((type, payload) -> {
+        });
+        for (int i = 0; i < 3; i++) {
+            // one record per segment
+            journal.append((byte) 1, ("record" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        journal.close();
+        File[] segments = directory.toFile().listFiles();
+        assertThat(segments).hasSize(3);
+        Arrays.sort(segments);
+        try (RandomAccessFile file = new RandomAccessFile(segments[1], "rw")) {
+            // first byte of the payload of the record
+            file.seek(9);
+            file.write('?');
+        }
+
+        Journal restarted = new Journal(directory, 32, false);
+        List<String> records = new ArrayList<>();
+        restarted.replay((type, payload) -> records.add(type + ":" + new String(payload, StandardCharsets.UTF_8)));
+        restarted.append((byte) 2, "after".getBytes(StandardCharsets.UTF_8));
+        restarted.close();
+
+        assertThat(records).containsExactly("1:record0");
+        assertThat(replay(directory)).containsExactly("1:record0", "2:after");
+        assertThat(directory.resolve(segments[2].getName() + ".discarded")).exists();
+    }
+
+    @Test
+    public void testSnapshotReplacesPreviousRecords() throws Exception {
+        Path directory = temporaryFolder.newFolder().toPath();
+        Journal journal = new Journal(directory, 64, false);
+        journal.replay((type, payload) -> {
+        });
+        for (int i = 0; i < 10; i++) {
+            journal.append((byte) 1, ("record" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        journal.snapshot(output -> output.accept((byte) 2, "snapshot".getBytes(StandardCharsets.UTF_8)));
+        journal.append((byte) 3, "after".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(journal.getWrittenSinceSnapshot()).isGreaterThan(0);
+        assertThat(directory.toFile().list()).hasSize(2);
+        assertThat(replay(directory)).containsExactly("2:snapshot", "3:after");
+    }
+
+    private List<String> replay(Path directory) throws Exception {
+        List<String> records = new ArrayList<>();
+        new Journal(directory, 64, false).replay(
+                (type, payload) -> records.add(type + ":" + new String(payload, StandardCharsets.UTF_8)));
+        return records;
+    }
+}
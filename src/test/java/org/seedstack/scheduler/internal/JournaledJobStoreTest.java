@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.repeatSecondlyForever;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.calendar.HolidayCalendar;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+import org.seedstack.scheduler.SchedulerConfig;
+
+public class JournaledJobStoreTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testStateIsRestoredAfterCrash() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        JournaledJobStore store = newStore(directory, 64 * 1024 * 1024);
+        JobDetail durableJob = newJob(TestJob.class)
+                .withIdentity("durable")
+                .usingJobData("key", "value")
+                .usingJobData("count", 42L)
+                .storeDurably()
+                .build();
+        JobDetail job = newJob(TestJob.class).withIdentity("job").build();
+        OperableTrigger trigger = newRepeatingTrigger("trigger", job);
+        OperableTrigger pausedTrigger = newRepeatingTrigger("paused", job);
+        store.storeJob(durableJob, false);
+        store.storeJobAndTrigger(job, trigger);
+        store.storeTrigger(pausedTrigger, false);
+        store.pauseTrigger(pausedTrigger.getKey());
+        store.storeCalendar("holidays", new HolidayCalendar(), false, false);
+
+        // the first store is not shut down, as if the process crashed
+        JournaledJobStore restarted = newStore(directory, 64 * 1024 * 1024);
+
+        assertThat(restarted.retrieveJob(durableJob.getKey()).getJobDataMap().getString("key")).isEqualTo("value");
+        assertThat(restarted.retrieveJob(durableJob.getKey()).getJobDataMap().get("count")).isEqualTo(42L);
+        assertThat(restarted.retrieveJob(job.getKey())).isNotNull();
+        assertThat(restarted.retrieveTrigger(trigger.getKey()).getNextFireTime())
+                .isEqualTo(trigger.getNextFireTime());
+        assertThat(restarted.getTriggerState(trigger.getKey())).isEqualTo(Trigger.TriggerState.NORMAL);
+        assertThat(restarted.getTriggerState(pausedTrigger.getKey())).isEqualTo(Trigger.TriggerState.PAUSED);
+        assertThat(restarted.retrieveCalendar("holidays")).isInstanceOf(HolidayCalendar.class);
+    }
+
+    @Test
+    public void testNonDurableJobIsRemovedWithItsLastTrigger() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        JournaledJobStore store = newStore(directory, 64 * 1024 * 1024);
+        JobDetail durableJob = newJob(TestJob.class).withIdentity("durable").storeDurably().build();
+        JobDetail job = newJob(TestJob.class).withIdentity("job").build();
+        OperableTrigger durableJobTrigger = newRepeatingTrigger("durableJobTrigger", durableJob);
+        OperableTrigger jobTrigger = newRepeatingTrigger("jobTrigger", job);
+        store.storeJobAndTrigger(durableJob, durableJobTrigger);
+        store.storeJobAndTrigger(job, jobTrigger);
+        store.removeTrigger(durableJobTrigger.getKey());
+        store.removeTrigger(jobTrigger.getKey());
+        store.shutdown();
+
+        JournaledJobStore restarted = newStore(directory, 64 * 1024 * 1024);
+
+        assertThat(restarted.retrieveJob(durableJob.getKey())).isNotNull();
+        assertThat(restarted.retrieveJob(job.getKey())).isNull();
+        assertThat(restarted.getNumberOfTriggers()).isEqualTo(0);
+    }
+
+    @Test
+    public void testInterruptedExecutionOfRecoverableJobIsRecovered() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        JournaledJobStore store = newStore(directory, 64 * 1024 * 1024);
+        JobDetail recoverableJob = newJob(TestJob.class).withIdentity("recoverable").requestRecovery().build();
+        JobDetail completedJob = newJob(TestJob.class).withIdentity("completed").requestRecovery().build();
+        store.storeJobAndTrigger(recoverableJob, newRepeatingTrigger("recoverableTrigger", recoverableJob));
+        store.storeJobAndTrigger(completedJob, newRepeatingTrigger("completedTrigger", completedJob));
+        List<OperableTrigger> acquired = store.acquireNextTriggers(System.currentTimeMillis() + 60000, 2, 0);
+        assertThat(acquired).hasSize(2);
+        for (TriggerFiredResult result : store.triggersFired(acquired)) {
+            OperableTrigger trigger = result.getTriggerFiredBundle().getTrigger();
+            if (trigger.getJobKey().equals(completedJob.getKey())) {
+                store.triggeredJobComplete(trigger, completedJob, Trigger.CompletedExecutionInstruction.NOOP);
+            }
+        }
+
+        JournaledJobStore restarted = newStore(directory, 64 * 1024 * 1024);
+
+        List<TriggerKey> recoveryTriggerKeys = new ArrayList<>(restarted.getTriggerKeys(
+                GroupMatcher.triggerGroupEquals(Scheduler.DEFAULT_RECOVERY_GROUP)));
+        assertThat(recoveryTriggerKeys).hasSize(1);
+        OperableTrigger recoveryTrigger = restarted.retrieveTrigger(recoveryTriggerKeys.get(0));
+        assertThat(recoveryTrigger.getJobKey()).isEqualTo(recoverableJob.getKey());
+        assertThat(recoveryTrigger.getJobDataMap().getString(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_NAME))
+                .isEqualTo("recoverableTrigger");
+
+        List<TriggerFiredResult> results = restarted.triggersFired(restarted.acquireNextTriggers(
+                System.currentTimeMillis() + 60000, 10, 0));
+        assertThat(results).anySatisfy(result -> {
+            assertThat(result.getTriggerFiredBundle().isRecovering()).isTrue();
+            assertThat(result.getTriggerFiredBundle().getJobDetail().getKey()).isEqualTo(recoverableJob.getKey());
+        });
+    }
+
+    @Test
+    public void testJournalIsCompacted() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        JournaledJobStore store = newStore(directory, 4096);
+        store.setCompactionThreshold(16 * 1024);
+        JobDetail job = newJob(TestJob.class).withIdentity("job").storeDurably().build();
+        store.storeJob(job, false);
+        for (int i = 0; i < 200; i++) {
+            OperableTrigger trigger = newRepeatingTrigger("trigger" + i, job);
+            store.storeTrigger(trigger, false);
+            if (i % 2 == 0) {
+                store.removeTrigger(trigger.getKey());
+            }
+        }
+
+        assertThat(directory.list()).hasSizeLessThan(10);
+
+        JournaledJobStore restarted = newStore(directory, 4096);
+
+        assertThat(restarted.getNumberOfTriggers()).isEqualTo(100);
+        assertThat(restarted.retrieveTrigger(TriggerKey.triggerKey("trigger199"))).isNotNull();
+    }
+
+    @Test
+    public void testJobsSurviveSchedulerRestart() throws Exception {
+        File directory = temporaryFolder.newFolder();
+        SchedulerConfig schedulerConfig = new SchedulerConfig();
+        schedulerConfig.jobStore().journal().setDirectory(directory.getAbsolutePath());
+        JobKey jobKey = JobKey.jobKey("durable");
+
+        Scheduler scheduler = newScheduler(schedulerConfig);
+        assertThat(scheduler.getMetaData().getJobStoreClass()).isEqualTo(JournaledJobStore.class);
+        scheduler.addJob(newJob(TestJob.class).withIdentity(jobKey).storeDurably().build(), false);
+        scheduler.shutdown();
+
+        Scheduler restarted = newScheduler(schedulerConfig);
+        try {
+            assertThat(restarted.checkExists(jobKey)).isTrue();
+        } finally {
+            restarted.shutdown();
+        }
+    }
+
+    private JournaledJobStore newStore(File directory, int segmentSize) throws Exception {
+        JournaledJobStore store = new JournaledJobStore();
+        store.setDirectory(directory.getAbsolutePath());
+        store.setSegmentSize(segmentSize);
+        CascadingClassLoadHelper classLoadHelper = new CascadingClassLoadHelper();
+        classLoadHelper.initialize();
+        store.initialize(classLoadHelper, mock(SchedulerSignaler.class));
+        return store;
+    }
+
+    private Scheduler newScheduler(SchedulerConfig schedulerConfig) throws Exception {
+        Properties properties = QuartzProperties.from(schedulerConfig);
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "journaled-" + UUID.randomUUID());
+        return new StdSchedulerFactory(properties).getScheduler();
+    }
+
+    private OperableTrigger newRepeatingTrigger(String name, JobDetail job) {
+        OperableTrigger trigger = (OperableTrigger) newTrigger()
+                .withIdentity(name)
+                .forJob(job)
+                .startAt(new Date())
+                .withSchedule(repeatSecondlyForever())
+                .build();
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+
+    public static class TestJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            // nothing to do
+        }
+    }
+}
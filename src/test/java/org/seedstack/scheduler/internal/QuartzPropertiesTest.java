@@ -0,0 +1,249 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.Properties;
+import org.junit.Test;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.jdbcjobstore.JobStoreTX;
+import org.quartz.impl.jdbcjobstore.PostgreSQLDelegate;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.simpl.SimpleThreadPool;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.codec.BinaryDataMapCodec;
+import org.seedstack.scheduler.codec.JsonDataMapCodec;
+import org.seedstack.seed.SeedException;
+
+public class QuartzPropertiesTest {
+
+    @Test
+    public void testDefaultProperties() {
+        Properties properties = QuartzProperties.from(new SchedulerConfig());
+
+        assertThat(properties.getProperty("org.quartz.threadPool.class")).isEqualTo(SimpleThreadPool.class.getName());
+        assertThat(properties.getProperty("org.quartz.threadPool.threadCount")).isEqualTo("10");
+        assertThat(properties.getProperty("org.quartz.threadPool.threadPriority")).isEqualTo("5");
+        assertThat(properties.getProperty("org.quartz.jobStore.class")).isEqualTo(RAMJobStore.class.getName());
+        assertThat(properties.getProperty("org.quartz.jobStore.misfireThreshold")).isEqualTo("60000");
+        assertThat(properties.getProperty("org.quartz.scheduler.batchTriggerAcquisitionMaxCount")).isEqualTo("1");
+        assertThat(properties.getProperty("org.quartz.scheduler.instanceName")).isEqualTo("QuartzScheduler");
+        assertThat(properties.getProperty("org.quartz.scheduler.instanceId")).isNull();
+        assertThat(properties.getProperty("org.quartz.jobStore.isClustered")).isNull();
+    }
+
+    @Test
+    public void testConfiguredProperties() {
+        SchedulerConfig schedulerConfig = new SchedulerConfig()
+                .setMaxBatchSize(20)
+                .setBatchTriggerAcquisitionFireAheadTimeWindow(50)
+                .setIdleWaitTime(1000);
+        schedulerConfig.threadPool().setThreadCount(40).setThreadPriority(7);
+        schedulerConfig.jobStore().setMisfireThreshold(5000).getProperties().setProperty("someProperty", "someValue");
+        schedulerConfig.getProperties().setProperty("org.quartz.threadPool.threadCount", "50");
+
+        Properties properties = QuartzProperties.from(schedulerConfig);
+
+        assertThat(properties.getProperty("org.quartz.scheduler.batchTriggerAcquisitionMaxCount")).isEqualTo("20");
+        assertThat(properties.getProperty("org.quartz.scheduler.batchTriggerAcquisitionFireAheadTimeWindow"))
+                .isEqualTo("50");
+        assertThat(properties.getProperty("org.quartz.scheduler.idleWaitTime")).isEqualTo("1000");
+        assertThat(properties.getProperty("org.quartz.threadPool.threadPriority")).isEqualTo("7");
+        assertThat(properties.getProperty("org.quartz.jobStore.misfireThreshold")).isEqualTo("5000");
+        assertThat(properties.getProperty("org.quartz.jobStore.someProperty")).isEqualTo("someValue");
+        assertThat(properties.getProperty("org.quartz.threadPool.threadCount")).isEqualTo("50");
+    }
+
+    @Test
+    public void testJdbcJobStoreProperties() {
+        SchedulerConfig schedulerConfig = new SchedulerConfig().setInstanceName("cluster");
+        schedulerConfig.jobStore()
+                .setDataSource("quartz")
+                .setTablePrefix("SCHED_")
+                .setDriverDelegate(PostgreSQLDelegate.class)
+                .setClustered(true)
+                .setClusterCheckinInterval(2000)
+                .setAcquireTriggersWithinLock(true);
+
+        Properties properties = QuartzProperties.from(schedulerConfig);
+
+        assertThat(properties.getProperty("org.quartz.scheduler.instanceName")).isEqualTo("cluster");
+        assertThat(properties.getProperty("org.quartz.scheduler.instanceId")).isEqualTo("AUTO");
+        assertThat(properties.getProperty("org.quartz.jobStore.class")).isEqualTo(JobStoreTX.class.getName());
+        assertThat(properties.getProperty("org.quartz.jobStore.dataSource")).isEqualTo("quartz");
+        assertThat(properties.getProperty("org.quartz.jobStore.tablePrefix")).isEqualTo("SCHED_");
+        assertThat(properties.getProperty("org.quartz.jobStore.driverDelegateClass"))
+                .isEqualTo(PostgreSQLDelegate.class.getName());
+        assertThat(properties.getProperty("org.quartz.jobStore.driverDelegateInitString")).isNull();
+        assertThat(properties.getProperty("org.quartz.jobStore.isClustered")).isEqualTo("true");
+        assertThat(properties.getProperty("org.quartz.jobStore.clusterCheckinInterval")).isEqualTo("2000");
+        assertThat(properties.getProperty("org.quartz.jobStore.acquireTriggersWithinLock")).isEqualTo("true");
+    }
+
+    @Test
+    public void testDataMapCodecDelegateIsTheDefaultDriverDelegate() {
+        SchedulerConfig schedulerConfig = new SchedulerConfig();
+        schedulerConfig.jobStore().setDataSource("quartz").setDataMapCodec(JsonDataMapCodec.class);
+
+        Properties properties = QuartzProperties.from(schedulerConfig);
+
+        assertThat(properties.getProperty("org.quartz.jobStore.driverDelegateClass"))
+                .isEqualTo(DataMapCodecDelegate.class.getName());
+        assertThat(properties.getProperty("org.quartz.jobStore.driverDelegateInitString"))
+                .isEqualTo("dataMapCodec=" + JsonDataMapCodec.class.getName());
+    }
+
+    @Test
+    public void testDataMapCodecIsPassedToDelegatesExtendingDataMapCodecDelegate() {
+        SchedulerConfig schedulerConfig = new SchedulerConfig();
+        schedulerConfig.jobStore().setDataSource("quartz").setDriverDelegate(CustomDataMapCodecDelegate.class);
+
+        Properties properties = QuartzProperties.from(schedulerConfig);
+
+        assertThat(properties.getProperty("org.quartz.jobStore.driverDelegateClass"))
+                .isEqualTo(CustomDataMapCodecDelegate.class.getName());
+        assertThat(properties.getProperty("org.quartz.jobStore.driverDelegateInitString"))
+                .isEqualTo("dataMapCodec=" + BinaryDataMapCodec.class.getName());
+    }
+
+    @Test(expected = SeedException.class)
+    public void testDataMapCodecWithOtherDriverDelegateFails() {
+        SchedulerConfig schedulerConfig = new SchedulerConfig();
+        schedulerConfig.jobStore()
+                .setDataSource("quartz")
+                .setDriverDelegate(PostgreSQLDelegate.class)
+                .setDataMapCodec(JsonDataMapCodec.class);
+
+        QuartzProperties.from(schedulerConfig);
+    }
+
+    @Test
+    public void testTimingWheelJobStore() {
+        SchedulerConfig schedulerConfig = new SchedulerConfig();
+        schedulerConfig.jobStore().setTimingWheel(true);
+
+        assertThat(QuartzProperties.from(schedulerConfig).getProperty("org.quartz.jobStore.class"))
+                .isEqualTo(TimingWheelJobStore.class.getName());
+
+        schedulerConfig.jobStore().setDataSource("quartz");
+
+        assertThat(QuartzProperties.from(schedulerConfig).getProperty("org.quartz.jobStore.class"))
+                .isEqualTo(JobStoreTX.class.getName());
+    }
+
+    @Test
+    public void testJournaledJobStoreProperties() {
+        SchedulerConfig schedulerConfig = new SchedulerConfig();
+        schedulerConfig.jobStore().journal()
+                .setDirectory("/var/lib/scheduler")
+                .setSegmentSize(1024)
+                .setCompactionThreshold(4096)
+                .setSyncWrites(true);
+
+        Properties properties = QuartzProperties.from(schedulerConfig);
+
+        assertThat(properties.getProperty("org.quartz.jobStore.class")).isEqualTo(JournaledJobStore.class.getName());
+        assertThat(properties.getProperty("org.quartz.jobStore.directory")).isEqualTo("/var/lib/scheduler");
+        assertThat(properties.getProperty("org.quartz.jobStore.segmentSize")).isEqualTo("1024");
+        assertThat(properties.getProperty("org.quartz.jobStore.compactionThreshold")).isEqualTo("4096");
+        assertThat(properties.getProperty("org.quartz.jobStore.syncWrites")).isEqualTo("true");
+        assertThat(properties.getProperty("org.quartz.jobStore.dataMapCodec"))
+                .isEqualTo(BinaryDataMapCodec.class.getName());
+    }
+
+    @Test
+    public void testFairThreadPoolProperties() {
+        SchedulerConfig schedulerConfig = new SchedulerConfig();
+        schedulerConfig.threadPool().setThreadCount(4);
+        schedulerConfig.threadPool().fairness()
+                .setEnabled(true)
+                .setTenantKey("tenant")
+                .setDefaultWeight(2)
+                .setWeights(Collections.singletonMap("reports", 5))
+                .setBacklog(5);
+
+        Properties properties = QuartzProperties.from(schedulerConfig);
+
+        assertThat(properties.getProperty("org.quartz.threadPool.class")).isEqualTo(FairThreadPool.class.getName());
+        assertThat(properties.getProperty("org.quartz.threadPool.threadCount")).isEqualTo("4");
+        assertThat(properties.getProperty("org.quartz.threadPool.virtualThreads")).isEqualTo("false");
+        assertThat(properties.getProperty("org.quartz.threadPool.tenantKey")).isEqualTo("tenant");
+        assertThat(properties.getProperty("org.quartz.threadPool.defaultWeight")).isEqualTo("2");
+        assertThat(properties.getProperty("org.quartz.threadPool.weights")).isEqualTo("reports=5");
+        assertThat(properties.getProperty("org.quartz.threadPool.backlog")).isEqualTo("5");
+    }
+
+    @Test
+    public void testExplicitInstanceId() {
+        SchedulerConfig schedulerConfig = new SchedulerConfig().setInstanceId("node1");
+        schedulerConfig.jobStore().setDataSource("quartz").setClustered(true);
+
+        assertThat(QuartzProperties.from(schedulerConfig).getProperty("org.quartz.scheduler.instanceId"))
+                .isEqualTo("node1");
+    }
+
+    @Test
+    public void testStandardPropertiesOverrideConfiguration() {
+        SchedulerConfig schedulerConfig = new SchedulerConfig().setIdleWaitTime(1000);
+        schedulerConfig.getProperties().setProperty("org.quartz.scheduler.instanceName", "raw");
+        Properties standardProperties = new Properties();
+        standardProperties.setProperty("org.quartz.scheduler.idleWaitTime", "2000");
+        standardProperties.setProperty("org.quartz.scheduler.instanceName", "standard");
+
+        Properties properties = QuartzProperties.from(schedulerConfig, standardProperties);
+
+        assertThat(properties.getProperty("org.quartz.scheduler.idleWaitTime")).isEqualTo("2000");
+        assertThat(properties.getProperty("org.quartz.scheduler.instanceName")).isEqualTo("raw");
+        assertThat(properties.getProperty("org.quartz.threadPool.threadCount")).isEqualTo("10");
+    }
+
+    @Test
+    public void testStandardThreadPoolAndJobStoreClassesReplaceConfiguredOnes() {
+        SchedulerConfig schedulerConfig = new SchedulerConfig();
+        schedulerConfig.jobStore().setTimingWheel(true);
+        Properties standardProperties = new Properties();
+        standardProperties.setProperty("org.quartz.threadPool.class", "org.example.SomeThreadPool");
+        standardProperties.setProperty("org.quartz.threadPool.size", "3");
+        standardProperties.setProperty("org.quartz.jobStore.class", RAMJobStore.class.getName());
+
+        Properties properties = QuartzProperties.from(schedulerConfig, standardProperties);
+
+        assertThat(properties.getProperty("org.quartz.threadPool.class")).isEqualTo("org.example.SomeThreadPool");
+        assertThat(properties.getProperty("org.quartz.threadPool.size")).isEqualTo("3");
+        assertThat(properties.getProperty("org.quartz.threadPool.threadCount")).isNull();
+        assertThat(properties.getProperty("org.quartz.jobStore.class")).isEqualTo(RAMJobStore.class.getName());
+        assertThat(properties.getProperty("org.quartz.jobStore.misfireThreshold")).isNull();
+    }
+
+    @Test
+    public void testLoadStandardPropertiesFromSystemProperties() {
+        System.setProperty("org.quartz.scheduler.instanceName", "fromSystem");
+        try {
+            Properties properties = QuartzProperties.loadStandardProperties(getClass().getClassLoader());
+
+            assertThat(properties.getProperty("org.quartz.scheduler.instanceName")).isEqualTo("fromSystem");
+        } finally {
+            System.clearProperty("org.quartz.scheduler.instanceName");
+        }
+    }
+
+    @Test(expected = SeedException.class)
+    public void testMissingRequestedPropertiesFileFails() {
+        System.setProperty(StdSchedulerFactory.PROPERTIES_FILE, "missing-quartz.properties");
+        try {
+            QuartzProperties.loadStandardProperties(getClass().getClassLoader());
+        } finally {
+            System.clearProperty(StdSchedulerFactory.PROPERTIES_FILE);
+        }
+    }
+
+    public static class CustomDataMapCodecDelegate extends DataMapCodecDelegate {
+    }
+}
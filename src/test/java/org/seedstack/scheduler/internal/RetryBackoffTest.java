@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.function.DoubleSupplier;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.seedstack.scheduler.ExceptionPolicy;
+import org.seedstack.scheduler.Retry;
+import org.seedstack.scheduler.Scheduled;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.Task;
+import org.seedstack.seed.SeedException;
+
+public class RetryBackoffTest {
+    private static final long NOW = 1_600_000_000_000L;
+    private final Clock clock = Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC);
+
+    @Test
+    public void testDelayGrowsExponentially() {
+        RetryBackoff underTest = backoff(FailingTask.class, () -> 0.5);
+
+        assertThat(underTest.computeDelay(1)).isEqualTo(100);
+        assertThat(underTest.computeDelay(2)).isEqualTo(300);
+        assertThat(underTest.computeDelay(3)).isEqualTo(900);
+    }
+
+    @Test
+    public void testJitterIsBounded() {
+        assertThat(backoff(FailingTask.class, () -> 0).computeDelay(2)).isEqualTo(240);
+        assertThat(backoff(FailingTask.class, () -> 0.999999).computeDelay(2)).isEqualTo(359);
+    }
+
+    @Test
+    public void testRetryTriggerCarriesAttempt() {
+        RetryBackoff underTest = backoff(FailingTask.class, () -> 0.5);
+        Trigger trigger = newTrigger().withIdentity("cron", "group").forJob("job", "group")
+                .usingJobData("someKey", "someValue").withPriority(7).build();
+
+        Trigger firstRetry = underTest.nextRetry(trigger);
+        assertThat(RetryBackoff.getAttempt(firstRetry)).isEqualTo(1);
+        assertThat(firstRetry.getStartTime()).isEqualTo(new Date(NOW + 100));
+        assertThat(firstRetry.getJobKey()).isEqualTo(trigger.getJobKey());
+        assertThat(firstRetry.getKey().getGroup()).isEqualTo("group");
+        assertThat(firstRetry.getPriority()).isEqualTo(7);
+        assertThat(firstRetry.getJobDataMap().getString("someKey")).isEqualTo("someValue");
+
+        Trigger secondRetry = underTest.nextRetry(firstRetry);
+        assertThat(RetryBackoff.getAttempt(secondRetry)).isEqualTo(2);
+        assertThat(secondRetry.getStartTime()).isEqualTo(new Date(NOW + 300));
+        assertThat(underTest.nextRetry(secondRetry)).isNull();
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        Retry retry = InvalidConfiguration.class.getAnnotation(Scheduled.class).retry();
+        assertThatThrownBy(() -> new RetryBackoff(FailingTask.class, retry))
+                .isInstanceOf(SeedException.class)
+                .matches(e -> ((SeedException) e).getErrorCode() == SchedulerErrorCode.INVALID_RETRY_CONFIGURATION);
+    }
+
+    @Test
+    public void testFailedExecutionSchedulesRetry() throws Exception {
+        Scheduler scheduler = mock(Scheduler.class);
+        TaskDefinition taskDefinition = new TaskDefinition(FailingTask.class);
+        JobDetail jobDetail = newJob(TaskDelegateJob.class).withIdentity("job", "group").build();
+        OperableTrigger trigger = (OperableTrigger) newTrigger().forJob(jobDetail).build();
+        TaskDelegateJob underTest = new TaskDelegateJob(taskDefinition, new FailingTask());
+
+        assertThatThrownBy(() -> underTest.execute(new JobExecutionContextImpl(scheduler,
+                new TriggerFiredBundle(jobDetail, trigger, null, false, new Date(), null, null, null), underTest)))
+                .isInstanceOf(JobExecutionException.class)
+                .matches(e -> !((JobExecutionException) e).refireImmediately());
+
+        ArgumentCaptor<Trigger> retryTrigger = ArgumentCaptor.forClass(Trigger.class);
+        verify(scheduler).scheduleJob(retryTrigger.capture());
+        assertThat(RetryBackoff.getAttempt(retryTrigger.getValue())).isEqualTo(1);
+        assertThat(retryTrigger.getValue().getJobKey()).isEqualTo(jobDetail.getKey());
+    }
+
+    @Test
+    public void testLastAttemptIsNotRetried() throws Exception {
+        Scheduler scheduler = mock(Scheduler.class);
+        TaskDefinition taskDefinition = new TaskDefinition(FailingTask.class);
+        JobDetail jobDetail = newJob(TaskDelegateJob.class).withIdentity("job", "group").build();
+        OperableTrigger trigger = (OperableTrigger) newTrigger().forJob(jobDetail)
+                .usingJobData(RetryBackoff.ATTEMPT_KEY, "2").build();
+        TaskDelegateJob underTest = new TaskDelegateJob(taskDefinition, new FailingTask());
+
+        assertThatThrownBy(() -> underTest.execute(new JobExecutionContextImpl(scheduler,
+                new TriggerFiredBundle(jobDetail, trigger, null, false, new Date(), null, null, null), underTest)))
+                .isInstanceOf(JobExecutionException.class);
+        verify(scheduler, never()).scheduleJob(any(Trigger.class));
+    }
+
+    private RetryBackoff backoff(Class<? extends Task> taskClass, DoubleSupplier random) {
+        return new RetryBackoff(taskClass, taskClass.getAnnotation(Scheduled.class).retry(), clock, random);
+    }
+
+    @Scheduled(exceptionPolicy = ExceptionPolicy.RETRY_WITH_BACKOFF,
+            retry = @Retry(maxAttempts = 3, initialDelay = 100, multiplier = 3, jitter = 0.2))
+    static class FailingTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+            throw new IllegalStateException("failure");
+        }
+    }
+
+    @Scheduled(exceptionPolicy = ExceptionPolicy.RETRY_WITH_BACKOFF, retry = @Retry(multiplier = 0.5))
+    static class InvalidConfiguration {
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.repeatSecondlyForever;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.TriggerKey;
+import org.quartz.impl.StdSchedulerFactory;
+import org.seedstack.scheduler.ScheduledTaskSnapshot;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.SchedulerSnapshot;
+import org.seedstack.scheduler.TriggerSnapshot;
+
+public class ScheduleIndexTest {
+    private static final Date IN_ONE_HOUR = new Date(System.currentTimeMillis() + 3600000);
+    private static CountDownLatch started;
+    private static CountDownLatch released;
+    private final ScheduleIndex underTest = new ScheduleIndex();
+    private Scheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        started = new CountDownLatch(1);
+        released = new CountDownLatch(1);
+        Properties properties = QuartzProperties.from(new SchedulerConfig().setInstanceName("introspection"));
+        scheduler = new StdSchedulerFactory(properties).getScheduler();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        released.countDown();
+        scheduler.shutdown(true);
+    }
+
+    @Test
+    public void testExistingJobsAreLoaded() throws Exception {
+        scheduler.scheduleJob(job("loaded"), newTrigger().withIdentity("loaded", "triggers")
+                .withSchedule(repeatSecondlyForever()).startAt(IN_ONE_HOUR).build());
+        register();
+
+        SchedulerSnapshot snapshot = underTest.snapshot();
+
+        assertThat(snapshot.getTasks()).extracting(ScheduledTaskSnapshot::getTaskName).containsExactly("loaded");
+        assertThat(snapshot.getTasks().get(0).getTriggers()).extracting(TriggerSnapshot::getTriggerName)
+                .containsExactly("loaded");
+        assertThat(snapshot.getTasks().get(0).getNextFireDate()).isEqualTo(IN_ONE_HOUR);
+    }
+
+    @Test
+    public void testChangesAreIndexed() throws Exception {
+        register();
+        scheduler.scheduleJob(job("first"), newTrigger().withIdentity("first", "triggers")
+                .withSchedule(repeatSecondlyForever()).startAt(IN_ONE_HOUR).build());
+        scheduler.addJob(job("second").getJobBuilder().storeDurably().build(), false);
+        SchedulerSnapshot firstSnapshot = underTest.snapshot();
+
+        assertThat(firstSnapshot.getTasks()).extracting(ScheduledTaskSnapshot::getTaskName)
+                .containsExactly("first", "second");
+        assertThat(underTest.snapshot().getTasks().get(0)).isSameAs(firstSnapshot.getTasks().get(0));
+
+        scheduler.pauseTrigger(TriggerKey.triggerKey("first", "triggers"));
+
+        assertThat(underTest.snapshot().getTasks().get(0).getTriggers().get(0).getState())
+                .isEqualTo(TriggerSnapshot.State.PAUSED);
+        assertThat(underTest.snapshot().getTasks().get(0).getNextFireDate()).isNull();
+
+        scheduler.resumeAll();
+
+        assertThat(underTest.snapshot().getTasks().get(0).getTriggers().get(0).getState())
+                .isEqualTo(TriggerSnapshot.State.NORMAL);
+
+        scheduler.unscheduleJob(TriggerKey.triggerKey("first", "triggers"));
+        scheduler.deleteJob(JobKey.jobKey("second", "jobs"));
+
+        // the non-durable job is deleted with its last trigger
+        assertThat(underTest.snapshot().getTasks()).isEmpty();
+        assertThat(firstSnapshot.getTasks()).hasSize(2);
+    }
+
+    @Test
+    public void testRunningExecutionsAreIndexed() throws Exception {
+        register();
+        scheduler.start();
+        scheduler.scheduleJob(job("running"), newTrigger().withIdentity("running", "triggers")
+                .withSchedule(repeatSecondlyForever()).startNow().build());
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        SchedulerSnapshot snapshot = underTest.snapshot();
+
+        assertThat(snapshot.getRunningTasks()).hasSize(1);
+        assertThat(snapshot.getRunningTasks().get(0).getTaskName()).isEqualTo("running");
+        assertThat(snapshot.getRunningTasks().get(0).getTriggerName()).isEqualTo("running");
+        // the next fire date is updated on each fire
+        assertThat(snapshot.getTasks().get(0).getTriggers().get(0).getPreviousFireDate()).isNotNull();
+        assertThat(snapshot.getTasks().get(0).getNextFireDate())
+                .isAfter(snapshot.getTasks().get(0).getTriggers().get(0).getPreviousFireDate());
+
+        released.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!underTest.snapshot().getRunningTasks().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(underTest.snapshot().getRunningTasks()).isEmpty();
+    }
+
+    private void register() throws Exception {
+        scheduler.getListenerManager().addSchedulerListener(underTest);
+        scheduler.getListenerManager().addJobListener(underTest);
+        scheduler.getListenerManager().addTriggerListener(underTest);
+        underTest.load(scheduler);
+    }
+
+    private JobDetail job(String name) {
+        return newJob(BlockingJob.class).withIdentity(name, "jobs").build();
+    }
+
+    @DisallowConcurrentExecution
+    public static class BlockingJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            started.countDown();
+            try {
+                released.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
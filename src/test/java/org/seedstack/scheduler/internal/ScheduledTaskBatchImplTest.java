@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.JobDetail;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Scheduler;
+import org.seedstack.scheduler.ScheduledTaskBatchResult;
+import org.seedstack.scheduler.ScheduledTaskBuilder;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.Task;
+import org.seedstack.seed.Application;
+
+public class ScheduledTaskBatchImplTest {
+    private Scheduler scheduler;
+    private Application application;
+    private ScheduledTaskBatchImpl underTest;
+
+    @Before
+    public void setUp() {
+        scheduler = mock(Scheduler.class);
+        application = mock(Application.class);
+        underTest = new ScheduledTaskBatchImpl(scheduler);
+    }
+
+    @Test
+    public void testBatchIsScheduledAtOnce() throws Exception {
+        underTest.add(builder("task1")).add(builder("task2")).add(builder("task2"));
+
+        ScheduledTaskBatchResult result = underTest.schedule();
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(result.getScheduledCount()).isEqualTo(3);
+        // builders sharing a task name share the same job
+        verify(scheduler).scheduleJobs(argThat(map -> map.size() == 2), eq(false));
+        verify(scheduler, never()).scheduleJob(any(JobDetail.class), anySet(), anyBoolean());
+    }
+
+    @Test
+    public void testInvalidBuildersAreReported() throws Exception {
+        ScheduledTaskBuilder invalid = new ScheduledTaskBuilderImpl(SomeTask.class, scheduler, application)
+                .withTaskName("invalid");
+        underTest.add(builder("task1")).add(invalid);
+
+        ScheduledTaskBatchResult result = underTest.schedule();
+
+        assertThat(result.getScheduledCount()).isEqualTo(1);
+        assertThat(result.getFailures()).containsOnlyKeys(invalid);
+        assertThat(result.getFailures().get(invalid).getErrorCode())
+                .isEqualTo(SchedulerErrorCode.MISSING_CRON_EXPRESSION);
+        verify(scheduler).scheduleJobs(argThat(map -> map.size() == 1), eq(false));
+    }
+
+    @Test
+    public void testFailedBatchIsScheduledSeparately() throws Exception {
+        ScheduledTaskBuilder existing = builder("existing");
+        underTest.add(builder("task1")).add(existing).add(builder("task2"));
+        doThrow(new ObjectAlreadyExistsException("exists")).when(scheduler).scheduleJobs(anyMap(), anyBoolean());
+        doThrow(new ObjectAlreadyExistsException("exists")).when(scheduler)
+                .scheduleJob(argThat(jobDetail -> jobDetail.getKey().getName().equals("existing")), anySet(),
+                        anyBoolean());
+
+        ScheduledTaskBatchResult result = underTest.schedule();
+
+        assertThat(result.getScheduledCount()).isEqualTo(2);
+        assertThat(result.getFailures()).containsOnlyKeys(existing);
+        assertThat(result.getFailures().get(existing).getErrorCode())
+                .isEqualTo(SchedulerErrorCode.TRIGGER_AND_JOB_NAME_SHOULD_BE_UNIQUE);
+        verify(scheduler, times(3)).scheduleJob(any(JobDetail.class), anySet(), eq(false));
+    }
+
+    @Test
+    public void testReplacingBuildersAreScheduledSeparately() throws Exception {
+        underTest.add(builder("task1")).add(builder("task2").updateExistingTrigger());
+
+        ScheduledTaskBatchResult result = underTest.schedule();
+
+        assertThat(result.getScheduledCount()).isEqualTo(2);
+        verify(scheduler).scheduleJobs(argThat(map -> map.size() == 1), eq(true));
+        verify(scheduler).scheduleJobs(argThat(map -> map.size() == 1), eq(false));
+    }
+
+    @Test
+    public void testReplaceExisting() throws Exception {
+        underTest.add(builder("task1")).add(builder("task2")).replaceExisting();
+
+        underTest.schedule();
+
+        verify(scheduler).scheduleJobs(argThat(map -> map.size() == 2), eq(true));
+    }
+
+    private ScheduledTaskBuilder builder(String taskName) {
+        return new ScheduledTaskBuilderImpl(SomeTask.class, scheduler, application)
+                .withTaskName(taskName)
+                .withCronExpression("0 0 * * * ?");
+    }
+
+    public static class SomeTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+            // nothing to do
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.seedstack.scheduler.SaturationPolicy;
+import org.seedstack.scheduler.SchedulingContext;
+
+public class SchedulingContextImplTest {
+    private JobExecutionContextImpl jobExecutionContext;
+
+    @Before
+    public void setUp() {
+        JobDetail jobDetail = JobBuilder.newJob(TaskDelegateJob.class)
+                .withIdentity("task", "group")
+                .usingJobData("key", "value")
+                .build();
+        new JobSettings(2, SaturationPolicy.SKIP, 500, 1000).store(jobDetail.getJobDataMap());
+        OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger()
+                .withIdentity("trigger", "group")
+                .withPriority(7)
+                .startNow()
+                .build();
+        Date now = new Date();
+        jobExecutionContext = new JobExecutionContextImpl(Mockito.mock(Scheduler.class),
+                new TriggerFiredBundle(jobDetail, trigger, null, false, now, now, null, null),
+                Mockito.mock(TaskDelegateJob.class));
+    }
+
+    @Test
+    public void testContextIsSharedForAnExecution() {
+        assertThat(SchedulingContextImpl.of(jobExecutionContext)).isSameAs(SchedulingContextImpl.of(jobExecutionContext));
+    }
+
+    @Test
+    public void testContextReadsTheExecutionContext() {
+        SchedulingContext schedulingContext = SchedulingContextImpl.of(jobExecutionContext);
+
+        assertThat(schedulingContext.getTaskName()).isEqualTo("task");
+        assertThat(schedulingContext.getTriggerName()).isEqualTo("trigger");
+        assertThat(schedulingContext.getTriggerPriority()).isEqualTo(7);
+        assertThat(schedulingContext.getDataMap().get("key")).isEqualTo("value");
+        assertThat(schedulingContext.getTaskRuntime()).isEqualTo(-1);
+        assertThat(schedulingContext.unwrap(JobExecutionContext.class)).isSameAs(jobExecutionContext);
+
+        jobExecutionContext.setJobRunTime(42);
+        assertThat(schedulingContext.getTaskRuntime()).isEqualTo(42);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDataMapHidesJobSettings() {
+        Map<String, Object> dataMap = (Map<String, Object>) SchedulingContextImpl.of(jobExecutionContext).getDataMap();
+
+        assertThat(dataMap).containsOnlyKeys("key");
+        dataMap.put("count", 1);
+        assertThat(jobExecutionContext.getJobDetail().getJobDataMap().get("count")).isEqualTo(1);
+        assertThat(jobExecutionContext.getJobDetail().getJobDataMap()).containsKey(JobSettings.KEY);
+    }
+}
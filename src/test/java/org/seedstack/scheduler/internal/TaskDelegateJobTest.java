@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerContext;
+import org.quartz.impl.JobExecutionContextImpl;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.seedstack.scheduler.Scheduled;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.Task;
+import org.seedstack.scheduler.TaskTimeoutException;
+
+public class TaskDelegateJobTest {
+    private final TimerWheel timerWheel = new TimerWheel(new SchedulerConfig.TimeoutsConfig().setTickDuration(10));
+    private final Scheduler scheduler = mock(Scheduler.class);
+
+    @Before
+    public void setUp() throws Exception {
+        SchedulerContext schedulerContext = new SchedulerContext();
+        schedulerContext.put(TimerWheel.CONTEXT_KEY, timerWheel);
+        when(scheduler.getContext()).thenReturn(schedulerContext);
+    }
+
+    @After
+    public void tearDown() {
+        timerWheel.stop();
+    }
+
+    @Test
+    public void testHungTaskIsInterrupted() {
+        HungTask task = new HungTask();
+        TaskDelegateJob underTest = new TaskDelegateJob(new TaskDefinition(HungTask.class), task);
+
+        assertThatThrownBy(() -> underTest.execute(context(underTest, newJob(TaskDelegateJob.class).build())))
+                .isInstanceOf(TaskTimeoutException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(task.cancelled).isTrue();
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+    }
+
+    @Test
+    public void testTimeoutFromDataMap() throws Exception {
+        TaskDelegateJob underTest = new TaskDelegateJob(new TaskDefinition(HungTask.class), new HungTask());
+        JobDetail jobDetail = newJob(TaskDelegateJob.class).build();
+        new JobSettings(0, null, 0, -1).store(jobDetail.getJobDataMap());
+        CountDownLatch executed = new CountDownLatch(1);
+
+        Thread thread = new Thread(() -> {
+            try {
+                underTest.execute(context(underTest, jobDetail));
+            } catch (Exception e) {
+                executed.countDown();
+            }
+        });
+        thread.start();
+
+        assertThat(executed.await(300, TimeUnit.MILLISECONDS)).isFalse();
+        underTest.interrupt();
+        assertThat(executed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(underTest.isCancelled()).isTrue();
+    }
+
+    @Test
+    public void testTaskCompletingInTimeIsNotCancelled() throws Exception {
+        TaskDelegateJob underTest = new TaskDelegateJob(new TaskDefinition(HungTask.class), sc -> {
+        });
+
+        underTest.execute(context(underTest, newJob(TaskDelegateJob.class).build()));
+        assertThat(underTest.isCancelled()).isFalse();
+    }
+
+    private JobExecutionContext context(TaskDelegateJob job, JobDetail jobDetail) {
+        OperableTrigger trigger = (OperableTrigger) newTrigger().forJob(jobDetail).build();
+        return new JobExecutionContextImpl(scheduler,
+                new TriggerFiredBundle(jobDetail, trigger, null, false, new Date(), null, null, null), job);
+    }
+
+    @Scheduled(timeout = 50)
+    static class HungTask implements Task {
+        private volatile boolean cancelled;
+
+        @Override
+        public void execute(SchedulingContext sc) {
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                cancelled = sc.isCancelled();
+                throw new IllegalStateException("interrupted", e);
+            }
+        }
+    }
+}
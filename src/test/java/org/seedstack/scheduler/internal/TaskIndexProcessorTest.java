@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TaskIndexProcessorTest {
+    private Path outputDirectory;
+    private DiagnosticCollector<JavaFileObject> diagnostics;
+
+    @Before
+    public void setUp() throws IOException {
+        outputDirectory = Files.createTempDirectory("task-index");
+        diagnostics = new DiagnosticCollector<>();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(outputDirectory)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void testTasksAndListenersAreIndexed() throws IOException {
+        boolean success = compile(
+                source("test.SomeTask", "package test;\n"
+                        + "public class SomeTask implements org.seedstack.scheduler.Task {\n"
+                        + "    public void execute(org.seedstack.scheduler.SchedulingContext sc) {}\n"
+                        + "    public static class NestedTask extends SomeTask {}\n"
+                        + "}"),
+                source("test.CronTask", "package test;\n"
+                        + "@org.seedstack.scheduler.Scheduled(\"0/5 * * * * ?\")\n"
+                        + "public class CronTask extends SomeTask {}"),
+                source("test.InheritedCronTask", "package test;\n"
+                        + "public class InheritedCronTask extends CronTask {}"),
+                source("test.AbstractTask", "package test;\n"
+                        + "public abstract class AbstractTask implements org.seedstack.scheduler.Task {}"),
+                source("test.SomeListener", "package test;\n"
+                        + "public class SomeListener implements org.seedstack.scheduler.TaskListener<CronTask> {\n"
+                        + "    public void before(org.seedstack.scheduler.SchedulingContext sc) {}\n"
+                        + "    public void after(org.seedstack.scheduler.SchedulingContext sc) {}\n"
+                        + "    public void onException(org.seedstack.scheduler.SchedulingContext sc, Exception e) {}\n"
+                        + "}"));
+
+        assertThat(success).as(diagnostics.getDiagnostics().toString()).isTrue();
+        TaskIndex taskIndex = readIndex();
+        assertThat(taskIndex.getTaskClassNames())
+                .containsExactlyInAnyOrder("test.SomeTask", "test.SomeTask$NestedTask", "test.CronTask",
+                        "test.InheritedCronTask");
+        assertThat(taskIndex.getScheduledTaskClassNames())
+                .containsExactlyInAnyOrder("test.CronTask", "test.InheritedCronTask");
+        assertThat(taskIndex.getListenedTaskClassNames()).containsEntry("test.SomeListener", "test.CronTask");
+    }
+
+    @Test
+    public void testCronExpressionsAreValidated() {
+        boolean success = compile(
+                source("test.InvalidCronTask", "package test;\n"
+                        + "@org.seedstack.scheduler.Scheduled(\"0 0 25 * * ?\")\n"
+                        + "public class InvalidCronTask implements org.seedstack.scheduler.Task {\n"
+                        + "    public void execute(org.seedstack.scheduler.SchedulingContext sc) {}\n"
+                        + "}"),
+                source("test.ConfiguredCronTask", "package test;\n"
+                        + "@org.seedstack.scheduler.Scheduled(\"${app.cron}\")\n"
+                        + "public class ConfiguredCronTask implements org.seedstack.scheduler.Task {\n"
+                        + "    public void execute(org.seedstack.scheduler.SchedulingContext sc) {}\n"
+                        + "}"));
+
+        assertThat(success).isFalse();
+        assertThat(errors()).hasSize(1);
+        assertThat(errors().get(0).getMessage(Locale.ENGLISH)).contains("test.InvalidCronTask");
+    }
+
+    @Test
+    public void testListenersWithoutTaskTypeAreRejected() {
+        boolean success = compile(
+                source("test.RawListener", "package test;\n"
+                        + "@SuppressWarnings(\"rawtypes\")\n"
+                        + "public class RawListener implements org.seedstack.scheduler.TaskListener {\n"
+                        + "    public void before(org.seedstack.scheduler.SchedulingContext sc) {}\n"
+                        + "    public void after(org.seedstack.scheduler.SchedulingContext sc) {}\n"
+                        + "    public void onException(org.seedstack.scheduler.SchedulingContext sc, Exception e) {}\n"
+                        + "}"));
+
+        assertThat(success).isFalse();
+        assertThat(errors()).hasSize(1);
+        assertThat(errors().get(0).getMessage(Locale.ENGLISH)).contains("test.RawListener");
+    }
+
+    @Test
+    public void testIndexCanBeWrittenAndRead() throws IOException {
+        TaskIndex taskIndex = new TaskIndex();
+        taskIndex.addTask("test.SomeTask", false);
+        taskIndex.addTask("test.CronTask", true);
+        taskIndex.addListener("test.SomeListener", "test.CronTask");
+        StringWriter writer = new StringWriter();
+        taskIndex.write(writer);
+
+        TaskIndex readIndex = new TaskIndex();
+        readIndex.read(new ByteArrayInputStream(writer.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(readIndex.getTaskClassNames()).containsExactly("test.SomeTask", "test.CronTask");
+        assertThat(readIndex.getScheduledTaskClassNames()).containsExactly("test.CronTask");
+        assertThat(readIndex.getListenedTaskClassNames()).containsEntry("test.SomeListener", "test.CronTask");
+    }
+
+    @Test
+    public void testOnlyClassesOfIndexedClasspathEntriesAreIndexed() throws IOException {
+        // the test classes are indexed by the processor but not the main classes
+        TaskIndex taskIndex = TaskIndex.load(getClass().getClassLoader());
+
+        assertThat(taskIndex).isNotNull();
+        assertThat(taskIndex.isNotIndexed(getClass())).isFalse();
+        assertThat(taskIndex.isNotIndexed(SchedulerPlugin.class)).isTrue();
+        assertThat(taskIndex.isNotIndexed(String.class)).isTrue();
+    }
+
+    private boolean compile(JavaFileObject... sources) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(outputDirectory.toFile()));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-proc:only", "-classpath", System.getProperty("java.class.path")), null,
+                    Arrays.asList(sources));
+            task.setProcessors(Collections.singletonList(new TaskIndexProcessor()));
+            return task.call();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private TaskIndex readIndex() throws IOException {
+        TaskIndex taskIndex = new TaskIndex();
+        try (InputStream inputStream = Files.newInputStream(outputDirectory.resolve(TaskIndex.LOCATION))) {
+            taskIndex.read(inputStream);
+        }
+        return taskIndex;
+    }
+
+    private List<Diagnostic<? extends JavaFileObject>> errors() {
+        return diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .collect(Collectors.toList());
+    }
+
+    private static JavaFileObject source(String className, String content) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return content;
+            }
+        };
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.quartz.JobBuilder.newJob;
+
+import com.google.inject.Guice;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.JobExecutionContext;
+import org.seedstack.scheduler.Scheduled;
+import org.seedstack.scheduler.SchedulerConfig;
+import org.seedstack.scheduler.SchedulingContext;
+import org.seedstack.scheduler.StuckExecution;
+import org.seedstack.scheduler.Task;
+import org.seedstack.scheduler.TaskExecution;
+import org.seedstack.scheduler.TaskListener;
+import org.seedstack.scheduler.metrics.InMemoryTaskMetricsRegistry;
+
+public class TaskWatchdogTest {
+    private static final List<StuckExecution> stuckExecutions = new CopyOnWriteArrayList<>();
+    private InMemoryTaskMetricsRegistry taskMetricsRegistry;
+    private ExecutionHistory executionHistory;
+    private TaskWatchdog underTest;
+
+    @Before
+    public void setUp() {
+        stuckExecutions.clear();
+        taskMetricsRegistry = new InMemoryTaskMetricsRegistry();
+        executionHistory = new ExecutionHistory(new SchedulerConfig.HistoryConfig());
+    }
+
+    @After
+    public void tearDown() {
+        if (underTest != null) {
+            underTest.stop();
+        }
+    }
+
+    @Test
+    public void testStuckExecutionIsSampledAndReported() {
+        underTest = newWatchdog(new SchedulerConfig.WatchdogConfig().setSamples(2).setSamplingInterval(1000));
+        JobExecutionContext context = context("1");
+        TaskDefinition taskDefinition = definition(StuckTask.class);
+        long now = System.currentTimeMillis();
+        // the test thread plays the thread executing the task
+        underTest.start(context, taskDefinition);
+
+        underTest.check(now + 500);
+        underTest.check(now + 1500);
+        underTest.check(now + 2000);
+        assertThat(stuckExecutions).isEmpty();
+        underTest.check(now + 2600);
+        underTest.check(now + 5000);
+
+        assertThat(stuckExecutions).hasSize(1);
+        StuckExecution stuckExecution = stuckExecutions.get(0);
+        assertThat(stuckExecution.getTaskClass()).isEqualTo(StuckTask.class);
+        assertThat(stuckExecution.getThreshold()).isEqualTo(1000);
+        assertThat(stuckExecution.getThreadName()).isEqualTo(Thread.currentThread().getName());
+        assertThat(stuckExecution.getSamples()).hasSize(2);
+        assertThat(stuckExecution.getElapsed()).isGreaterThanOrEqualTo(2500);
+        assertThat(stuckExecution.getSamples().get(0).getStackTrace())
+                .anyMatch(element -> element.getMethodName().equals("testStuckExecutionIsSampledAndReported"));
+        assertThat(taskMetricsRegistry.getTaskMetrics(StuckTask.class).getStuckCount()).isEqualTo(1);
+
+        underTest.end(context);
+        assertThat(stuckExecutions).hasSize(1);
+        assertThat(underTest.getExecutionCount()).isZero();
+    }
+
+    @Test
+    public void testExecutionEndingBeforeAllSamplesIsReported() {
+        underTest = newWatchdog(new SchedulerConfig.WatchdogConfig().setSamples(3));
+        JobExecutionContext context = context("1");
+        TaskDefinition taskDefinition = definition(StuckTask.class);
+        long now = System.currentTimeMillis();
+        underTest.start(context, taskDefinition);
+
+        underTest.check(now + 1500);
+        assertThat(stuckExecutions).isEmpty();
+        underTest.end(context);
+
+        assertThat(stuckExecutions).hasSize(1);
+        assertThat(stuckExecutions.get(0).getSamples()).hasSize(1);
+    }
+
+    @Test
+    public void testThresholdIsDerivedFromPreviousDurations() {
+        underTest = newWatchdog(new SchedulerConfig.WatchdogConfig().setMinThreshold(0));
+        TaskDefinition taskDefinition = definition(UnannotatedTask.class);
+        JobExecutionContext first = context("1");
+        JobExecutionContext second = context("2");
+        recordExecutions(99);
+        long now = System.currentTimeMillis();
+        underTest.start(first, taskDefinition);
+
+        // not enough executions to know the normal duration, the first execution is never considered stuck
+        underTest.check(now + 1000);
+        assertThat(stuckExecutions).isEmpty();
+
+        recordExecutions(1);
+        now = System.currentTimeMillis();
+        underTest.start(second, taskDefinition);
+        underTest.check(now + 250);
+        assertThat(stuckExecutions).isEmpty();
+        underTest.check(now + 350);
+
+        // the threshold of the second execution is 3 times the 99th percentile of the previous durations
+        assertThat(stuckExecutions).hasSize(1);
+        assertThat(stuckExecutions.get(0).getThreshold()).isEqualTo(300);
+    }
+
+    @Test
+    public void testDisabledWatchdogDoesNotTrackExecutions() {
+        underTest = newWatchdog(new SchedulerConfig.WatchdogConfig().setEnabled(false));
+
+        underTest.start(context("1"), definition(StuckTask.class));
+
+        assertThat(underTest.getExecutionCount()).isZero();
+    }
+
+    private TaskWatchdog newWatchdog(SchedulerConfig.WatchdogConfig config) {
+        TaskWatchdog watchdog = new TaskWatchdog(config.setCheckInterval(60000));
+        watchdog.taskMetricsRegistry = taskMetricsRegistry;
+        watchdog.executionHistory = executionHistory;
+        return watchdog;
+    }
+
+    private TaskDefinition definition(Class<? extends Task> taskClass) {
+        TaskDefinition taskDefinition = new TaskDefinition(taskClass);
+        taskDefinition.addListenerClass(StuckListener.class);
+        taskDefinition.resolve(Guice.createInjector());
+        return taskDefinition;
+    }
+
+    private JobExecutionContext context(String fireInstanceId) {
+        JobExecutionContext context = mock(JobExecutionContext.class);
+        when(context.getFireInstanceId()).thenReturn(fireInstanceId);
+        when(context.getFireTime()).thenReturn(new Date());
+        when(context.getJobDetail()).thenReturn(newJob(TaskDelegateJob.class).build());
+        return context;
+    }
+
+    private void recordExecutions(int count) {
+        for (int i = 0; i < count; i++) {
+            executionHistory.record(UnannotatedTask.class, new TaskExecution(new Date(), 0, 100, null));
+        }
+    }
+
+    @Scheduled(stuckThreshold = 1000)
+    private static class StuckTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+        }
+    }
+
+    private static class UnannotatedTask implements Task {
+        @Override
+        public void execute(SchedulingContext sc) {
+        }
+    }
+
+    private static class StuckListener implements TaskListener<Task> {
+        @Override
+        public void before(SchedulingContext sc) {
+        }
+
+        @Override
+        public void after(SchedulingContext sc) {
+        }
+
+        @Override
+        public void onException(SchedulingContext sc, Exception e) {
+        }
+
+        @Override
+        public void onStuck(SchedulingContext sc, StuckExecution execution) {
+            stuckExecutions.add(execution);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.seedstack.scheduler.SchedulerConfig;
+
+public class TimerWheelTest {
+    private final TimerWheel underTest = new TimerWheel(new SchedulerConfig.TimeoutsConfig()
+            .setTickDuration(10)
+            .setWheelSize(8));
+
+    @After
+    public void tearDown() {
+        underTest.stop();
+    }
+
+    @Test
+    public void testTimeoutsExpireAfterTheirDelay() throws Exception {
+        CountDownLatch expired = new CountDownLatch(3);
+        long start = System.nanoTime();
+        underTest.schedule(expired::countDown, 50);
+        // longer than a full round of the wheel
+        underTest.schedule(expired::countDown, 200);
+        underTest.schedule(expired::countDown, 0);
+
+        assertThat(expired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(200);
+    }
+
+    @Test
+    public void testCancelledTimeoutsDoNotExpire() throws Exception {
+        AtomicInteger expiredCount = new AtomicInteger();
+        CountDownLatch lastExpired = new CountDownLatch(1);
+        TimerWheel.Timeout timeout = underTest.schedule(expiredCount::incrementAndGet, 30);
+        underTest.schedule(lastExpired::countDown, 100);
+
+        assertThat(timeout.cancel()).isTrue();
+        assertThat(lastExpired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(expiredCount.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testExpiredTimeoutCannotBeCancelled() throws Exception {
+        CountDownLatch expired = new CountDownLatch(1);
+        TimerWheel.Timeout timeout = underTest.schedule(expired::countDown, 10);
+
+        assertThat(expired.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.impl.StdSchedulerFactory;
+import org.seedstack.scheduler.SchedulerConfig;
+
+public class TimingWheelJobStoreTest {
+    private static CountDownLatch executions;
+    private Scheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        SchedulerConfig schedulerConfig = new SchedulerConfig();
+        schedulerConfig.jobStore().setTimingWheel(true);
+        Properties properties = QuartzProperties.from(schedulerConfig);
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "timingWheel-" + UUID.randomUUID());
+        scheduler = new StdSchedulerFactory(properties).getScheduler();
+        scheduler.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        scheduler.shutdown(true);
+    }
+
+    @Test
+    public void testTriggersFire() throws Exception {
+        executions = new CountDownLatch(30);
+        for (int i = 0; i < 3; i++) {
+            scheduler.scheduleJob(newJob(CountingJob.class).build(), newTrigger()
+                    .startNow()
+                    .withSchedule(simpleSchedule().withIntervalInMilliseconds(10 + i).withRepeatCount(9))
+                    .build());
+        }
+
+        assertThat(scheduler.getMetaData().getJobStoreClass()).isEqualTo(TimingWheelJobStore.class);
+        assertThat(executions.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    public static class CountingJob implements Job {
+        @Override
+        public void execute(JobExecutionContext context) {
+            executions.countDown();
+        }
+    }
+}
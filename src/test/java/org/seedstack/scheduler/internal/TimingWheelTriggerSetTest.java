@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Function;
+import org.junit.Test;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.OperableTrigger;
+
+public class TimingWheelTriggerSetTest {
+    private static final long NOW = 1623758400000L;
+    private long now = NOW;
+    private final TimingWheelTriggerSet<OperableTrigger> underTest = new TimingWheelTriggerSet<>(
+            new Trigger.TriggerTimeComparator(), Function.identity(), () -> now);
+
+    @Test
+    public void testTriggersAreOrderedByTimeThenPriority() {
+        TreeSet<OperableTrigger> reference = new TreeSet<>(new Trigger.TriggerTimeComparator());
+        Random random = new Random(42);
+        List<OperableTrigger> triggers = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // from the same millisecond to several months ahead
+            long offset = random.nextInt(4) == 0
+                    ? random.nextInt(10)
+                    : (long) (Math.pow(10, random.nextInt(11)) * random.nextDouble());
+            OperableTrigger trigger = newTrigger("trigger" + i, NOW + offset, random.nextInt(3));
+            triggers.add(trigger);
+            underTest.add(trigger);
+            reference.add(trigger);
+        }
+        for (int i = 0; i < 1000; i++) {
+            OperableTrigger trigger = triggers.get(random.nextInt(triggers.size()));
+            assertThat(underTest.remove(trigger)).isEqualTo(reference.remove(trigger));
+        }
+
+        while (!reference.isEmpty()) {
+            assertThat(underTest.size()).isEqualTo(reference.size());
+            OperableTrigger expected = underTest.first();
+            assertThat(expected).isSameAs(reference.first());
+            assertThat(reference.remove(expected)).isTrue();
+            assertThat(underTest.remove(expected)).isTrue();
+            if (random.nextInt(100) == 0) {
+                // the clock moves while triggers are acquired ahead of it or fire late
+                now = expected.getNextFireTime().getTime() + random.nextInt(2000) - 1000;
+            }
+            if (random.nextInt(10) == 0) {
+                // triggers firing again later, as repeating triggers do
+                OperableTrigger trigger = newTrigger(expected.getKey().getName() + "-next",
+                        expected.getNextFireTime().getTime() + random.nextInt(2000), 0);
+                underTest.add(trigger);
+                reference.add(trigger);
+            }
+        }
+        assertThat(underTest.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testTriggersAreOrderedAsByTheReplacedSet() {
+        for (int seed = 0; seed < 1000; seed++) {
+            TimingWheelTriggerSet<OperableTrigger> wheel = new TimingWheelTriggerSet<>(
+                    new Trigger.TriggerTimeComparator(), Function.identity(), () -> now);
+            TreeSet<OperableTrigger> reference = new TreeSet<>(new Trigger.TriggerTimeComparator());
+            List<OperableTrigger> triggers = new ArrayList<>();
+            Random random = new Random(seed);
+            now = NOW;
+            // small sets reach the corner cases of the sorted slot, large ones the cascades
+            int operations = 10 << random.nextInt(8);
+            for (int i = 0; i < operations; i++) {
+                int operation = random.nextInt(10);
+                if (operation < 4) {
+                    // from a month overdue to several months ahead, a few on the same milliseconds
+                    long offset = random.nextInt(5) == 0
+                            ? random.nextInt(4)
+                            : (long) (Math.pow(10, random.nextInt(11)) * random.nextDouble());
+                    OperableTrigger trigger = newTrigger("trigger" + i,
+                            random.nextInt(10) == 0 ? now - offset / 4 : now + offset, random.nextInt(3));
+                    triggers.add(trigger);
+                    assertThat(wheel.add(trigger)).isEqualTo(reference.add(trigger));
+                } else if (operation < 7 && !triggers.isEmpty()) {
+                    OperableTrigger trigger = triggers.remove(random.nextInt(triggers.size()));
+                    assertThat(wheel.remove(trigger)).isEqualTo(reference.remove(trigger));
+                } else if (operation < 8 && !reference.isEmpty()) {
+                    assertThat(wheel.pollFirst()).as("seed %d", seed).isSameAs(reference.pollFirst());
+                } else {
+                    now += (long) (Math.pow(10, random.nextInt(10)) * random.nextDouble());
+                }
+                assertThat(wheel.size()).isEqualTo(reference.size());
+                if (!reference.isEmpty()) {
+                    assertThat(wheel.first()).as("seed %d", seed).isSameAs(reference.first());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEarliestTriggerIsFirstAfterTheSortedSlotIsEmptied() {
+        now = 1700048877760L;
+        for (int i = 0; i < 2; i++) {
+            OperableTrigger trigger = newTrigger("t" + i, now + 1000, 5);
+            underTest.add(trigger);
+            underTest.first();
+            underTest.remove(trigger);
+        }
+        now = 1700058996100L;
+        underTest.add(newTrigger("t2", 1707504828177L, 5));
+        now = 1703699519335L;
+        OperableTrigger t3 = newTrigger("t3", 1703708557060L, 5);
+        underTest.add(t3);
+        underTest.add(newTrigger("t4", 1703723962682L, 5));
+        assertThat(underTest.first().getKey().getName()).isEqualTo("t3");
+
+        underTest.remove(t3);
+        underTest.add(newTrigger("t5", 1703759473660L, 5));
+
+        assertThat(underTest.first().getKey().getName()).isEqualTo("t4");
+    }
+
+    @Test
+    public void testTriggerAddedBeforeTheSortedOverflowBecomesOverdue() {
+        now = 1700000007287L;
+        underTest.add(newTrigger("overflow", now + 6176879304L, 5));
+        assertThat(underTest.first().getKey().getName()).isEqualTo("overflow");
+        // beyond the top level range of the cursor, but before the one of the sorted overflow
+        underTest.add(newTrigger("overdue", now + 934259577L, 5));
+        assertThat(underTest.first().getKey().getName()).isEqualTo("overdue");
+
+        now += 943578477L;
+        assertThat(underTest.first().getKey().getName()).isEqualTo("overdue");
+        underTest.add(newTrigger("soon", now + 20, 5));
+
+        assertThat(underTest.first().getKey().getName()).isEqualTo("overdue");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testOrderedViewsAreNotSupported() {
+        underTest.add(newTrigger("trigger", NOW, 5));
+
+        underTest.headSet(newTrigger("other", NOW + 10, 5));
+    }
+
+    @Test
+    public void testShortTriggersAreOrderedWithLongIntervalTriggers() {
+        underTest.add(newTrigger("hourly", NOW + 3600000, 5));
+        underTest.add(newTrigger("daily", NOW + 86400000, 5));
+        assertThat(underTest.first().getKey().getName()).isEqualTo("hourly");
+
+        for (int i = 0; i < 1000; i++) {
+            underTest.add(newTrigger("oneShot" + i, NOW + 1000 - i, 5));
+        }
+        now += 500;
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("oneShot" + (999 - i));
+        }
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("hourly");
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("daily");
+    }
+
+    @Test
+    public void testTriggerAddedBeforeTheSortedSlotIsFirst() {
+        underTest.add(newTrigger("later", NOW + 2000, 5));
+        underTest.add(newTrigger("latest", NOW + 2100, 5));
+        assertThat(underTest.first().getKey().getName()).isEqualTo("later");
+
+        underTest.add(newTrigger("earlier", NOW + 600, 5));
+        assertThat(underTest.first().getKey().getName()).isEqualTo("earlier");
+
+        now += 2050;
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("earlier");
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("later");
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("latest");
+        assertThat(underTest.pollFirst()).isNull();
+    }
+
+    @Test
+    public void testTriggersEarlierThanTheCursorAreFirst() {
+        underTest.add(newTrigger("later", NOW + 60000, 5));
+        assertThat(underTest.first().getKey().getName()).isEqualTo("later");
+
+        underTest.add(newTrigger("earlier", NOW, 5));
+        underTest.add(newTrigger("earliest", NOW - 1000, 5));
+
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("earliest");
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("earlier");
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("later");
+        assertThat(underTest.pollFirst()).isNull();
+    }
+
+    @Test
+    public void testTriggersWithoutFireTimeAreLast() {
+        underTest.add(newTrigger("unscheduled", null, 10));
+        underTest.add(newTrigger("scheduled", NOW + 100L * 24 * 3600 * 1000, 1));
+
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("scheduled");
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("unscheduled");
+    }
+
+    @Test
+    public void testTriggerIsRemovedAfterItsFireTimeChanged() {
+        SimpleTriggerImpl trigger = newTrigger("changed", NOW + 10, 5);
+        underTest.add(trigger);
+        underTest.add(newTrigger("other", NOW + 20, 5));
+        trigger.setNextFireTime(new Date(NOW + 100000));
+
+        assertThat(underTest.contains(trigger)).isTrue();
+        assertThat(underTest.remove(trigger)).isTrue();
+        assertThat(underTest.contains(trigger)).isFalse();
+        assertThat(underTest.first().getKey().getName()).isEqualTo("other");
+    }
+
+    @Test
+    public void testTriggersOfTheSameMillisecondAreInPriorityThenKeyOrder() {
+        underTest.add(newTrigger("b", NOW, 5));
+        underTest.add(newTrigger("a", NOW, 5));
+        underTest.add(newTrigger("c", NOW, 7));
+
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("c");
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("a");
+        assertThat(underTest.pollFirst().getKey().getName()).isEqualTo("b");
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testFirstOfEmptySet() {
+        underTest.add(newTrigger("removed", NOW, 5));
+        underTest.clear();
+
+        underTest.first();
+    }
+
+    private SimpleTriggerImpl newTrigger(String name, Long nextFireTime, int priority) {
+        SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+        trigger.setKey(TriggerKey.triggerKey(name));
+        trigger.setPriority(priority);
+        trigger.setNextFireTime(nextFireTime == null ? null : new Date(nextFireTime));
+        return trigger;
+    }
+}
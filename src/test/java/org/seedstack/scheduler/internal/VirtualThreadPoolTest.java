@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VirtualThreadPoolTest {
+    private VirtualThreadPool underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        underTest = new VirtualThreadPool();
+        underTest.setMaxConcurrency(2);
+        underTest.initialize();
+    }
+
+    @After
+    public void tearDown() {
+        underTest.shutdown(false);
+    }
+
+    @Test
+    public void testConcurrencyIsBounded() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            assertThat(underTest.runInThread(() -> {
+                started.countDown();
+                awaitQuietly(release);
+                completed.incrementAndGet();
+            })).isTrue();
+        }
+
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(underTest.getPoolSize()).isEqualTo(2);
+
+        release.countDown();
+        assertThat(underTest.blockForAvailableThreads()).isGreaterThan(0);
+        underTest.shutdown(true);
+        assertThat(completed.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRejectsAfterShutdown() {
+        underTest.shutdown(true);
+        assertThat(underTest.runInThread(() -> {
+        })).isFalse();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2013-2020, The SeedStack authors <http://seedstack.org>
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.seedstack.scheduler.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverAllValues() {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertThat(LatencyHistogram.bucketUpperBound(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(LatencyHistogram.bucketUpperBound(index - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.getCount()).isEqualTo(1000);
+        assertThat(snapshot.getMax()).isEqualTo(1000);
+        assertThat(snapshot.getMean()).isEqualTo(500.5);
+        assertThat(snapshot.getValueAtPercentile(50)).isBetween(500L, 563L);
+        assertThat(snapshot.getValueAtPercentile(99)).isBetween(990L, 1000L);
+        assertThat(snapshot.getValueAtPercentile(100)).isEqualTo(1000);
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertThat(snapshot.getCount()).isZero();
+        assertThat(snapshot.getMean()).isZero();
+        assertThat(snapshot.getValueAtPercentile(99)).isZero();
+    }
+}